@@ -5,6 +5,7 @@ import java.nio.file.Path;
 import zemberek.apps.ConsoleApp;
 import zemberek.core.io.IOUtil;
 import zemberek.core.logging.Log;
+import zemberek.grpc.server.ServerOptions;
 import zemberek.grpc.server.ZemberekGrpcConfiguration;
 import zemberek.grpc.server.ZemberekGrpcServer;
 
@@ -19,6 +20,46 @@ public class StartGrpcServer extends ConsoleApp {
           + " external data.")
   public Path dataRoot;
 
+  @Parameter(names = {"--threads"},
+      description = "Amount of worker threads. If not used, amount of processors is used.")
+  public int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = {"--virtualThreads"},
+      description = "Run every call in a virtual thread. Requires Java 21 or later.")
+  public boolean virtualThreads = false;
+
+  @Parameter(names = {"--maxConcurrentCalls"},
+      description = "Maximum amount of concurrent calls per service. Calls above the limit are"
+          + " rejected. 0 means no limit.")
+  public int maxConcurrentCalls = 0;
+
+  @Parameter(names = {"--maxQueueDepth"},
+      description = "New calls are rejected if more than this amount of tasks are waiting for a"
+          + " worker thread. 0 means no limit.")
+  public int maxQueueDepth = 0;
+
+  @Parameter(names = {"--metricsPort"},
+      description = "If used, metrics are served in Prometheus format from"
+          + " http://localhost:[metricsPort]/metrics")
+  public int metricsPort = 0;
+
+  @Parameter(names = {"--httpPort"},
+      description = "If used, an HTTP/JSON gateway that shares models with the gRPC server is"
+          + " started on this port.")
+  public int httpPort = 0;
+
+  @Parameter(names = {"--httpAddress"},
+      description = "Address that HTTP/JSON gateway binds to. Use 0.0.0.0 for all interfaces.")
+  public String httpAddress = "localhost";
+
+  @Parameter(names = {"--maxHttpRequestBytes"},
+      description = "Maximum size of an HTTP/JSON gateway request body in bytes.")
+  public int maxHttpRequestBytes = 16 * 1024 * 1024;
+
+  @Parameter(names = {"--maxStreamMessages"},
+      description = "Maximum amount of messages of a client streaming call. 0 means no limit.")
+  public int maxStreamMessages = 100_000;
+
   @Override
   public String description() {
     return "Starts Zemberek gRPC Server. By default it uses port 6789";
@@ -32,7 +73,19 @@ public class StartGrpcServer extends ConsoleApp {
       Log.info("Zemberek external data root is : %s", dataRoot.toFile().getAbsolutePath());
       configuration = ZemberekGrpcConfiguration.fromDataRoot(dataRoot);
     }
-    ZemberekGrpcServer server = new ZemberekGrpcServer(port, configuration);
+    ServerOptions.Builder options = ServerOptions.builder()
+        .workerThreads(threads)
+        .maxConcurrentCalls(maxConcurrentCalls)
+        .maxQueueDepth(maxQueueDepth)
+        .metricsPort(metricsPort)
+        .httpPort(httpPort)
+        .httpAddress(httpAddress)
+        .maxHttpRequestBytes(maxHttpRequestBytes)
+        .maxStreamMessages(maxStreamMessages);
+    if (virtualThreads) {
+      options.useVirtualThreads();
+    }
+    ZemberekGrpcServer server = new ZemberekGrpcServer(port, configuration, options.build());
     server.start();
   }
 
@@ -0,0 +1,51 @@
+package zemberek.apps.morphology;
+
+import com.beust.jcommander.Parameter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import zemberek.apps.ConsoleApp;
+import zemberek.core.logging.Log;
+import zemberek.morphology.MorphologySnapshot;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.TurkishMorphology.Builder;
+import zemberek.morphology.lexicon.RootLexicon;
+
+/**
+ * Creates a binary morphology snapshot for fast initialization. Run the main method to see the
+ * options.
+ */
+public class CreateMorphologySnapshot extends ConsoleApp {
+
+  @Parameter(names = {"--output", "-o"},
+      required = true,
+      description = "Output snapshot file.")
+  public Path output;
+
+  @Parameter(names = {"--enableInformalWordAnalysis", "-informal"},
+      description = "If used, snapshot is created with informal morphotactics.")
+  public boolean enableInformalWordAnalysis;
+
+  public static void main(String[] args) {
+    new CreateMorphologySnapshot().execute(args);
+  }
+
+  @Override
+  public String description() {
+    return "Creates a binary snapshot of the default lexicon and stem transitions. "
+        + "TurkishMorphology.fromSnapshot(path) initializes faster with it. Snapshot should be "
+        + "created again when Zemberek version changes.";
+  }
+
+  @Override
+  public void run() throws IOException {
+    Builder b = TurkishMorphology.builder()
+        .setLexicon(RootLexicon.getDefault())
+        .disableCache();
+    if (enableInformalWordAnalysis) {
+      b.useInformalAnalysis();
+    }
+    MorphologySnapshot.save(b.build(), output);
+    Log.info("Snapshot with %d bytes is saved to %s", Files.size(output), output);
+  }
+}
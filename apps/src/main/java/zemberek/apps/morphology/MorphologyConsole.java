@@ -1,8 +1,11 @@
 package zemberek.apps.morphology;
 
 import com.beust.jcommander.Parameter;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
 import zemberek.apps.ConsoleApp;
+import zemberek.morphology.MorphologySnapshot;
 import zemberek.morphology.TurkishMorphology;
 import zemberek.morphology.TurkishMorphology.Builder;
 import zemberek.morphology.analysis.SentenceAnalysis;
@@ -22,6 +25,11 @@ public class MorphologyConsole extends ConsoleApp {
       description = "If used, informal word analysis results will be included.")
   public boolean enableInformalWordAnalysis;
 
+  @Parameter(names = {"--snapshot", "-snapshot"},
+      description = "Morphology snapshot file created with CreateMorphologySnapshot. If used, "
+          + "morphology is initialized from the snapshot and informal option is ignored.")
+  public Path snapshot;
+
   public static void main(String[] args) {
     new MorphologyConsole().execute(args);
   }
@@ -32,12 +40,17 @@ public class MorphologyConsole extends ConsoleApp {
   }
 
   @Override
-  public void run() {
-    Builder b = TurkishMorphology.builder().setLexicon(RootLexicon.getDefault());
+  public void run() throws IOException {
+    Builder b = TurkishMorphology.builder();
+    if (snapshot != null) {
+      b.setSnapshot(MorphologySnapshot.load(snapshot));
+    } else {
+      b.setLexicon(RootLexicon.getDefault());
+    }
     if (disableUnknownAnalysis) {
       b.disableUnidentifiedTokenAnalyzer();
     }
-    if (enableInformalWordAnalysis) {
+    if (enableInformalWordAnalysis && snapshot == null) {
       b.useInformalAnalysis();
     }
     TurkishMorphology morphology = b.build();
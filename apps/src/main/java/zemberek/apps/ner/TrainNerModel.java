@@ -79,6 +79,7 @@ public class TrainNerModel extends NerAppBase {
     Files.createDirectories(modelRootCompressed);
     ner.saveModelAsText(modelRoot);
     ner.saveModelCompressed(modelRootCompressed);
+    ner.saveModelAsMatrix(modelRootCompressed);
     Log.info("Text model is created in %s", modelRoot);
     Log.info("Compressed model is created in %s", modelRootCompressed);
   }
@@ -0,0 +1,46 @@
+package zemberek.apps.normalization;
+
+import com.beust.jcommander.Parameter;
+import java.io.IOException;
+import java.nio.file.Path;
+import zemberek.apps.ConsoleApp;
+import zemberek.core.logging.Log;
+import zemberek.normalization.CompactLookupTable;
+import zemberek.normalization.TurkishSentenceNormalizer;
+
+/**
+ * Compiles normalization lookup files to a memory mappable binary table. Run the main method to
+ * see the options.
+ */
+public class CompileNormalizationLookup extends ConsoleApp {
+
+  @Parameter(names = {"-dataRoot"},
+      required = true,
+      description = "Normalization data root directory that contains lookup files.")
+  public Path dataRoot;
+
+  @Parameter(names = {"-out"},
+      description = "Output file. If not provided, it is written to data root as "
+          + TurkishSentenceNormalizer.COMPILED_LOOKUP_FILE + " so that normalizer uses it.")
+  public Path outFile;
+
+  public static void main(String[] args) {
+    new CompileNormalizationLookup().execute(args);
+  }
+
+  @Override
+  public String description() {
+    return "Compiles normalization lookup files to a binary table for fast normalizer "
+        + "initialization. Table should be compiled again if lookup files change.";
+  }
+
+  @Override
+  public void run() throws IOException {
+    Path out = outFile == null ?
+        dataRoot.resolve(TurkishSentenceNormalizer.COMPILED_LOOKUP_FILE) : outFile;
+    CompactLookupTable table = TurkishSentenceNormalizer.compileLookup(dataRoot);
+    table.save(out);
+    Log.info("Lookup table with %d keys and %d bytes is saved to %s",
+        table.size(), table.sizeInBytes(), out);
+  }
+}
@@ -0,0 +1,58 @@
+package zemberek.apps.normalization;
+
+import com.beust.jcommander.Parameter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import zemberek.apps.ConsoleApp;
+import zemberek.core.logging.Log;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.lexicon.tr.TurkishDictionaryLoader;
+import zemberek.normalization.StemEndingGraph;
+
+/**
+ * Generates the serialized stem-ending graph used by spell checker and normalizer. Run the main
+ * method to see the options.
+ */
+public class GenerateStemEndingGraph extends ConsoleApp {
+
+  @Parameter(names = {"-out"},
+      required = true,
+      description = "Output file. To be used by default, it should be placed to class path as "
+          + StemEndingGraph.SERIALIZED_GRAPH_RESOURCE)
+  public File outFile;
+
+  @Parameter(names = {"-lexicon"},
+      variableArity = true,
+      description = "Additional dictionary files to add to the default lexicon.")
+  public List<String> lexiconFiles = new ArrayList<>();
+
+  public static void main(String[] args) {
+    new GenerateStemEndingGraph().execute(args);
+  }
+
+  @Override
+  public String description() {
+    return "Generates a binary stem-ending graph from the lexicon for fast spell checker and "
+        + "normalizer initialization. Graph is used only with the same lexicon it is generated "
+        + "from.";
+  }
+
+  @Override
+  public void run() throws IOException {
+    RootLexicon lexicon = RootLexicon.getDefault();
+    if (!lexiconFiles.isEmpty()) {
+      lexicon = new RootLexicon(new ArrayList<>(lexicon.getAllItems()));
+      for (String lexiconFile : lexiconFiles) {
+        Log.info("Loading dictionary %s", lexiconFile);
+        TurkishDictionaryLoader.loadInto(lexicon, new File(lexiconFile));
+      }
+    }
+    TurkishMorphology morphology = TurkishMorphology.builder().setLexicon(lexicon).build();
+    Path out = outFile.toPath();
+    StemEndingGraph.serialize(morphology, out);
+  }
+}
@@ -40,6 +40,20 @@ public class LossyIntLookup {
     }
   }
 
+  /**
+   * Same as {@link #get(String)}, but uses hash values of the key calculated with {@link
+   * #keyHash(String)} and {@link #fingerprint(String)}. So a key that is looked up in several
+   * lookups is hashed only once.
+   */
+  public int get(String s, int keyHash, int fingerprint) {
+    int index = mphf.get(s, keyHash) * 2;
+    if (fingerprint == data[index]) {
+      return data[index + 1];
+    } else {
+      return 0;
+    }
+  }
+
   public int size() {
     return data.length / 2;
   }
@@ -52,6 +66,20 @@ public class LossyIntLookup {
     return s.hashCode() & 0x7ffffff;
   }
 
+  /**
+   * @return initial hash value of the key for the minimal perfect hash functions of all lookups.
+   */
+  public static int keyHash(String s) {
+    return MultiLevelMphf.hash(s, -1);
+  }
+
+  /**
+   * @return fingerprint of the key that is stored in all lookups.
+   */
+  public static int fingerprint(String s) {
+    return getFingerprint(s);
+  }
+
   /**
    * Generates a LossyIntLookup from a String->Float lookup
    */
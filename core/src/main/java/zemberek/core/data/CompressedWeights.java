@@ -19,6 +19,14 @@ public class CompressedWeights implements WeightLookup {
     return lookup.getAsFloat(key);
   }
 
+  /**
+   * Returns the weight of a key with hash values calculated by
+   * {@link LossyIntLookup#keyHash(String)} and {@link LossyIntLookup#fingerprint(String)}.
+   */
+  public float get(String key, int keyHash, int fingerprint) {
+    return Float.intBitsToFloat(lookup.get(key, keyHash, fingerprint));
+  }
+
   @Override
   public int size() {
     return lookup.size();
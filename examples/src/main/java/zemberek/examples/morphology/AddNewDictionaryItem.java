@@ -1,6 +1,7 @@
 package zemberek.examples.morphology;
 
 import java.io.IOException;
+import java.util.Collections;
 import zemberek.core.logging.Log;
 import zemberek.core.turkish.PrimaryPos;
 import zemberek.core.turkish.RootAttribute;
@@ -49,9 +50,8 @@ public class AddNewDictionaryItem {
     Log.info("Parses for " + input + " before adding " + newItem);
     printResults(before);
 
-    morphology.invalidateCache();
-
-    morphology.getMorphotactics().getStemTransitions().addDictionaryItem(newItem);
+    // only cached analyses affected by the new item are invalidated.
+    morphology.addDictionaryItems(Collections.singletonList(newItem));
 
     WordAnalysis after = morphology.analyze(input);
     Log.info("Parses for " + input + " after adding " + newItem);
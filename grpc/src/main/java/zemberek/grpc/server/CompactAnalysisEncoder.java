@@ -0,0 +1,147 @@
+package zemberek.grpc.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import zemberek.core.text.TextUtil;
+import zemberek.core.turkish.PrimaryPos;
+import zemberek.core.turkish.SecondaryPos;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.analysis.SentenceAnalysis;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.SingleAnalysis.MorphemeData;
+import zemberek.morphology.analysis.WordAnalysis;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.morphotactics.Morpheme;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+import zemberek.proto.morphology.CompactSentenceAnalysisProto;
+import zemberek.proto.morphology.CompactSingleAnalysisProto;
+import zemberek.proto.morphology.CompactTokenAnalysisProto;
+import zemberek.proto.morphology.CompactWordAnalysisProto;
+import zemberek.proto.morphology.IdDictionaryProto;
+import zemberek.tokenization.Token;
+
+/**
+ * Creates compact analysis messages, where morphemes and POS values are integer ids and morpheme
+ * surfaces are offsets. Morpheme ids are indexes in the id ordered morpheme list, POS ids are
+ * enum ordinals. Instances are thread safe.
+ */
+class CompactAnalysisEncoder {
+
+  private final TurkishMorphology morphology;
+  private final Map<String, Integer> morphemeIds = new HashMap<>();
+  private final IdDictionaryProto dictionary;
+
+  CompactAnalysisEncoder(TurkishMorphology morphology) {
+    this.morphology = morphology;
+    IdDictionaryProto.Builder builder = IdDictionaryProto.newBuilder();
+    List<Morpheme> morphemes = new ArrayList<>(TurkishMorphotactics.getAllMorphemes());
+    // used in analyses of unknown words but it is not a morphotactics morpheme.
+    if (!morphemes.contains(Morpheme.UNKNOWN)) {
+      morphemes.add(Morpheme.UNKNOWN);
+    }
+    for (Morpheme morpheme : morphemes) {
+      morphemeIds.put(morpheme.id, morphemeIds.size());
+      builder.addMorphemes(morpheme.id);
+    }
+    for (PrimaryPos pos : PrimaryPos.values()) {
+      builder.addPrimaryPos(pos.shortForm);
+    }
+    for (SecondaryPos pos : SecondaryPos.values()) {
+      builder.addSecondaryPos(pos.shortForm);
+    }
+    this.dictionary = builder.build();
+  }
+
+  IdDictionaryProto getDictionary() {
+    return dictionary;
+  }
+
+  CompactWordAnalysisProto encodeWord(String input) {
+    WordAnalysis analysis = morphology.analyze(input);
+    CompactWordAnalysisProto.Builder builder = CompactWordAnalysisProto.newBuilder();
+    String normalized = analysis.getNormalizedInput();
+    if (!normalized.equals(input)) {
+      builder.setNormalizedInput(normalized);
+    }
+    for (SingleAnalysis s : analysis) {
+      builder.addAnalyses(encode(s, normalized));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Analyzes and disambiguates the sentence. This does the same with
+   * {@link TurkishMorphology#analyzeAndDisambiguate(String)}, but keeps the token boundaries.
+   */
+  CompactSentenceAnalysisProto encodeSentence(String input, boolean allAnalyses) {
+    String normalized = TextUtil.normalizeQuotesHyphens(input);
+    List<Token> tokens = morphology.getTokenizer().tokenize(normalized);
+    List<WordAnalysis> analyses = new ArrayList<>(tokens.size());
+    for (Token token : tokens) {
+      analyses.add(morphology.analyze(token));
+    }
+    SentenceAnalysis sentenceAnalysis = morphology.disambiguate(input, analyses);
+
+    CompactSentenceAnalysisProto.Builder builder = CompactSentenceAnalysisProto.newBuilder();
+    if (!normalized.equals(input)) {
+      builder.setNormalizedInput(normalized);
+    }
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      WordAnalysis wordAnalysis = analyses.get(i);
+      SingleAnalysis best = sentenceAnalysis.getWordAnalyses().get(i).getBestAnalysis();
+      String normalizedToken = wordAnalysis.getNormalizedInput();
+      CompactTokenAnalysisProto.Builder tokenBuilder = CompactTokenAnalysisProto.newBuilder()
+          .setStart(token.getStart())
+          .setEnd(token.getEnd() + 1);
+      if (!normalizedToken.equals(token.getText())) {
+        tokenBuilder.setNormalizedInput(normalizedToken);
+      }
+      if (allAnalyses) {
+        List<SingleAnalysis> all = wordAnalysis.getAnalysisResults();
+        int bestIndex = all.indexOf(best);
+        if (bestIndex < 0) {
+          // best analysis is not one of the analyses, such as an unknown word.
+          tokenBuilder.addAnalyses(encode(best, normalizedToken));
+          bestIndex = 0;
+        }
+        for (SingleAnalysis s : all) {
+          tokenBuilder.addAnalyses(encode(s, normalizedToken));
+        }
+        tokenBuilder.setBestIndex(bestIndex);
+      } else {
+        tokenBuilder.addAnalyses(encode(best, normalizedToken));
+      }
+      builder.addTokens(tokenBuilder);
+    }
+    return builder.build();
+  }
+
+  CompactSingleAnalysisProto encode(SingleAnalysis analysis, String normalizedWord) {
+    DictionaryItem item = analysis.getDictionaryItem();
+    CompactSingleAnalysisProto.Builder builder = CompactSingleAnalysisProto.newBuilder()
+        .setLemma(item.lemma)
+        .setPrimaryPos(item.primaryPos.ordinal())
+        .setSecondaryPos(item.secondaryPos == null ?
+            SecondaryPos.None.ordinal() : item.secondaryPos.ordinal())
+        .setPos(analysis.getPos().ordinal())
+        .setInformal(analysis.containsInformalMorpheme())
+        .setRuntime(analysis.isRuntime());
+    StringBuilder surface = new StringBuilder(normalizedWord.length());
+    for (MorphemeData m : analysis.getMorphemeDataList()) {
+      surface.append(m.surface);
+      Integer id = morphemeIds.get(m.morpheme.id);
+      if (id == null) {
+        throw new IllegalStateException("Morpheme " + m.morpheme.id + " has no id.");
+      }
+      builder.addMorphemes(id);
+      builder.addSurfaceEnds(surface.length());
+    }
+    if (!normalizedWord.contentEquals(surface)) {
+      builder.setSurface(surface.toString());
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,477 @@
+package zemberek.grpc.server;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.grpc.Status;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import zemberek.core.logging.Log;
+import zemberek.langid.LanguageIdentifier;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.analysis.SentenceAnalysis;
+import zemberek.morphology.analysis.SentenceWordAnalysis;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.WordAnalysis;
+import zemberek.normalization.TurkishSentenceNormalizer;
+import zemberek.proto.LanguageIdServiceGrpc;
+import zemberek.proto.NormalizationServiceGrpc;
+import zemberek.proto.PreprocessingServiceGrpc;
+import zemberek.proto.morphology.MorphologyServiceGrpc;
+import zemberek.tokenization.Token;
+import zemberek.tokenization.TurkishSentenceExtractor;
+import zemberek.tokenization.TurkishTokenizer;
+
+/**
+ * A dependency light HTTP/JSON gateway for clients that cannot use gRPC. It runs on the JDK
+ * {@link HttpServer} and uses the same {@link ZemberekContext} with the gRPC services.
+ * <p>
+ * All endpoints accept a POST request with a JSON object that contains an `inputs` string array
+ * and endpoint specific options:
+ * <pre>
+ * /analyze         sentence analysis and disambiguation. Option: allAnalyses (boolean)
+ * /analyzeWords    word analysis.
+ * /normalize       sentence normalization. Requires normalization data.
+ * /tokenize        tokenization. Option: includeTokenBoundaries (boolean)
+ * /sentences       sentence extraction from documents. Option: doNotSplitInDoubleQuotes (boolean)
+ * /langid          language identification. Option: maxSampleCount (int)
+ * </pre>
+ * By default a single JSON object with a `results` array is returned. If request has `format=ndjson`
+ * query parameter or accepts `application/x-ndjson`, results are streamed one JSON object per line
+ * as they are computed. Inputs are processed in parallel in both cases. HTTP/1.1 connections are
+ * kept alive, so clients should reuse them.
+ * <p>
+ * Requests are counted as calls of the gRPC service with the same function, so they share the
+ * concurrency and queue limits of {@link LoadSheddingInterceptor} and are recorded to {@link
+ * ServerMetrics} with `http/[endpoint]` method names. A few HTTP threads read request headers and
+ * check the limits, accepted requests are processed by worker threads. Overloaded requests are
+ * rejected with 429 status and request bodies larger than the limit with 413 status. Gateway binds
+ * to localhost unless another address is set with {@link ServerOptions.Builder#httpAddress}.
+ */
+public class HttpGateway {
+
+  public static final int DEFAULT_PORT = 6790;
+  static final String NDJSON = "application/x-ndjson";
+  // Threads that read request headers and check the limits.
+  private static final int HTTP_THREADS = 4;
+
+  private final Gson gson = new Gson();
+  private final TurkishMorphology morphology;
+  private final TurkishSentenceNormalizer normalizer;
+  private final ZemberekContext context;
+  private final TurkishTokenizer tokenizer = TurkishTokenizer.DEFAULT;
+  private final TurkishSentenceExtractor defaultExtractor = TurkishSentenceExtractor.DEFAULT;
+  private final TurkishSentenceExtractor doubleQuoteIgnoreExtractor = TurkishSentenceExtractor
+      .builder()
+      .doNotSplitInDoubleQuotes()
+      .build();
+  private final ServerOptions options;
+  private final ServerMetrics metrics;
+  private final LoadSheddingInterceptor loadShedding;
+  private HttpServer server;
+  private ExecutorService httpThreads;
+  private Executor workers;
+  private StreamingCalls calls;
+
+  /**
+   * Creates a gateway with default options, so there are no concurrency or queue limits.
+   */
+  public HttpGateway(ZemberekContext context) {
+    this(context, ServerOptions.DEFAULT, new ServerMetrics(), null);
+  }
+
+  /**
+   * Creates a gateway that shares limits and metrics with a gRPC server.
+   *
+   * @param loadShedding load shedding of the gRPC server. If null, limits of the options are
+   * applied only to the gateway requests.
+   */
+  HttpGateway(
+      ZemberekContext context,
+      ServerOptions options,
+      ServerMetrics metrics,
+      LoadSheddingInterceptor loadShedding) {
+    this.context = context;
+    this.morphology = context.morphology;
+    this.normalizer = context.normalizer;
+    this.options = options;
+    this.metrics = metrics;
+    this.loadShedding = loadShedding != null ? loadShedding :
+        new LoadSheddingInterceptor(options, metrics, MoreExecutors.directExecutor(), () -> 0);
+  }
+
+  /**
+   * Starts serving. Accepted requests are processed by the executor.
+   */
+  public synchronized void start(int port, Executor executor) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("Gateway is already started.");
+    }
+    LanguageIdentifier identifier = context.getLanguageIdentifier();
+    AtomicInteger counter = new AtomicInteger();
+    httpThreads = Executors.newFixedThreadPool(HTTP_THREADS, r -> {
+      Thread thread = new Thread(r, "zemberek-http-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    workers = executor;
+    calls = new StreamingCalls(options, executor, options.batchParallelism());
+    server = HttpServer.create(new InetSocketAddress(options.httpAddress, port), 0);
+    server.setExecutor(httpThreads);
+    String morphologyService = MorphologyServiceGrpc.SERVICE_NAME;
+    String preprocessingService = PreprocessingServiceGrpc.SERVICE_NAME;
+    createContext("/analyze", morphologyService, exchange -> handle(exchange, options -> {
+      boolean all = options.has("allAnalyses") && options.get("allAnalyses").getAsBoolean();
+      return s -> toJson(morphology.analyzeAndDisambiguate(s), all);
+    }));
+    createContext("/analyzeWords", morphologyService, exchange -> handle(exchange,
+        options -> w -> toJson(morphology.analyze(w))));
+    createContext("/normalize", NormalizationServiceGrpc.SERVICE_NAME, exchange -> {
+      if (normalizer == null) {
+        drain(exchange);
+        sendError(exchange, 503, "Normalization system is not initialized.");
+        return;
+      }
+      handle(exchange, options -> s -> {
+        JsonObject o = new JsonObject();
+        o.addProperty("input", s);
+        o.addProperty("normalized", normalizer.normalize(s));
+        return o;
+      });
+    });
+    createContext("/tokenize", preprocessingService, exchange -> handle(exchange, options -> {
+      boolean boundaries = options.has("includeTokenBoundaries")
+          && options.get("includeTokenBoundaries").getAsBoolean();
+      return s -> tokenize(s, boundaries);
+    }));
+    createContext("/sentences", preprocessingService, exchange -> handle(exchange, options -> {
+      boolean doNotSplit = options.has("doNotSplitInDoubleQuotes")
+          && options.get("doNotSplitInDoubleQuotes").getAsBoolean();
+      TurkishSentenceExtractor extractor =
+          doNotSplit ? doubleQuoteIgnoreExtractor : defaultExtractor;
+      return d -> {
+        JsonObject o = new JsonObject();
+        o.add("sentences", gson.toJsonTree(extractor.fromDocument(d)));
+        return o;
+      };
+    }));
+    String languageIdService = LanguageIdServiceGrpc.SERVICE_NAME;
+    createContext("/langid", languageIdService, exchange -> handle(exchange, options -> {
+      int maxSampleCount = options.has("maxSampleCount")
+          ? options.get("maxSampleCount").getAsInt() : -1;
+      return s -> {
+        JsonObject o = new JsonObject();
+        o.addProperty("langId", identifier.identify(s, maxSampleCount));
+        return o;
+      };
+    }));
+    server.start();
+    Log.info("Zemberek HTTP gateway started at %s", server.getAddress());
+  }
+
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(0);
+      server = null;
+      httpThreads.shutdown();
+    }
+  }
+
+  /**
+   * @return address of the started gateway.
+   */
+  public synchronized InetSocketAddress getAddress() {
+    if (server == null) {
+      throw new IllegalStateException("Gateway is not started.");
+    }
+    return server.getAddress();
+  }
+
+  // Requests of the path are counted as calls of the service.
+  private void createContext(String path, String service, HttpHandler handler) {
+    String method = "http" + path;
+    server.createContext(path, exchange -> {
+      long start = System.nanoTime();
+      String rejection = loadShedding.checkLimits(service);
+      if (rejection != null) {
+        reject(exchange, method, start, rejection);
+        return;
+      }
+      try {
+        workers.execute(() -> process(exchange, service, method, start, handler));
+      } catch (RejectedExecutionException e) {
+        reject(exchange, method, start, "Server is not accepting requests.");
+      }
+    });
+  }
+
+  private void process(
+      HttpExchange exchange,
+      String service,
+      String method,
+      long start,
+      HttpHandler handler) {
+    if (!loadShedding.tryAcquire(service)) {
+      reject(exchange, method, start, LoadSheddingInterceptor.tooManyCalls(service));
+      return;
+    }
+    try {
+      handler.handle(exchange);
+    } catch (IOException e) {
+      Log.warn("Error while handling %s : %s", exchange.getRequestURI(), e.getMessage());
+    } finally {
+      loadShedding.release(service);
+      exchange.close();
+      metrics.recordCall(method, statusCode(exchange.getResponseCode()), System.nanoTime() - start);
+    }
+  }
+
+  private void reject(HttpExchange exchange, String method, long start, String message) {
+    metrics.recordRejection(method);
+    try {
+      sendError(exchange, 429, message);
+    } catch (IOException e) {
+      Log.debug("Cannot send rejection to %s : %s", exchange.getRemoteAddress(), e.getMessage());
+    } finally {
+      exchange.close();
+      metrics.recordCall(method, Status.Code.RESOURCE_EXHAUSTED, System.nanoTime() - start);
+    }
+  }
+
+  private static Status.Code statusCode(int httpStatus) {
+    switch (httpStatus) {
+      case 200:
+        return Status.Code.OK;
+      case 400:
+        return Status.Code.INVALID_ARGUMENT;
+      case 405:
+        return Status.Code.UNIMPLEMENTED;
+      case 413:
+      case 429:
+        return Status.Code.RESOURCE_EXHAUSTED;
+      case 500:
+        return Status.Code.INTERNAL;
+      case 503:
+        return Status.Code.UNAVAILABLE;
+      default:
+        return Status.Code.UNKNOWN;
+    }
+  }
+
+  private void handle(
+      HttpExchange exchange,
+      Function<JsonObject, Function<String, JsonElement>> handlerFactory) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        drain(exchange);
+        sendError(exchange, 405, "Only POST requests are accepted.");
+        return;
+      }
+      JsonObject request;
+      List<String> inputs = new ArrayList<>();
+      Function<String, JsonElement> function;
+      String text = readBody(exchange);
+      if (text == null) {
+        sendError(exchange, 413,
+            "Request body is larger than " + options.maxHttpRequestBytes + " bytes.");
+        return;
+      }
+      try {
+        JsonElement body = JsonParser.parseString(text);
+        if (!body.isJsonObject() || !body.getAsJsonObject().has("inputs")) {
+          throw new IllegalArgumentException("Request must be an object with an inputs array.");
+        }
+        request = body.getAsJsonObject();
+        for (JsonElement e : request.getAsJsonArray("inputs")) {
+          inputs.add(e.getAsString());
+        }
+        function = handlerFactory.apply(request);
+      } catch (JsonParseException | IllegalArgumentException | IllegalStateException
+          | UnsupportedOperationException | ClassCastException e) {
+        sendError(exchange, 400, "Bad request: " + e.getMessage());
+        return;
+      }
+      if (isNdjson(exchange)) {
+        streamResults(exchange, inputs, function);
+      } else {
+        JsonObject response = new JsonObject();
+        JsonArray results = new JsonArray();
+        calls.parallelMap(inputs, function).forEach(results::add);
+        response.add("results", results);
+        send(exchange, 200, "application/json; charset=utf-8", gson.toJson(response));
+      }
+    } catch (RuntimeException e) {
+      Log.warn("Error while handling %s : %s", exchange.getRequestURI(), e.getMessage());
+      sendError(exchange, 500, "Internal error: " + e.getMessage());
+    } finally {
+      exchange.close();
+    }
+  }
+
+  // Results are computed in parallel chunks and each chunk is written as soon as it is ready.
+  // Status is already sent when an error occurs, so errors are written as a last line with an
+  // `error` field.
+  private void streamResults(
+      HttpExchange exchange,
+      List<String> inputs,
+      Function<String, JsonElement> function) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", NDJSON + "; charset=utf-8");
+    // 0 means chunked transfer encoding.
+    exchange.sendResponseHeaders(200, 0);
+    try (Writer writer = new OutputStreamWriter(
+        exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+      try {
+        for (int i = 0; i < inputs.size(); i += StreamingCalls.STREAM_CHUNK_SIZE) {
+          int end = Math.min(inputs.size(), i + StreamingCalls.STREAM_CHUNK_SIZE);
+          for (JsonElement result : calls.parallelMap(inputs.subList(i, end), function)) {
+            gson.toJson(result, writer);
+            writer.write('\n');
+          }
+          writer.flush();
+        }
+      } catch (RuntimeException e) {
+        Log.warn("Error while streaming %s : %s", exchange.getRequestURI(), e.getMessage());
+        JsonObject error = new JsonObject();
+        error.addProperty("error", "Internal error: " + e.getMessage());
+        gson.toJson(error, writer);
+        writer.write('\n');
+      }
+    }
+  }
+
+  private static boolean isNdjson(HttpExchange exchange) {
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query != null && query.contains("format=ndjson")) {
+      return true;
+    }
+    String accept = exchange.getRequestHeaders().getFirst("Accept");
+    return accept != null && accept.contains(NDJSON);
+  }
+
+  /**
+   * @return request body or null if it is larger than the limit. Rest of a large body is not read.
+   */
+  private String readBody(HttpExchange exchange) throws IOException {
+    int limit = options.maxHttpRequestBytes;
+    String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (contentLength != null) {
+      try {
+        if (Long.parseLong(contentLength.trim()) > limit) {
+          return null;
+        }
+      } catch (NumberFormatException e) {
+        // size is checked while reading.
+      }
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (InputStream is = exchange.getRequestBody()) {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = is.read(buffer)) != -1) {
+        if (bos.size() + n > limit) {
+          return null;
+        }
+        bos.write(buffer, 0, n);
+      }
+    }
+    return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  // request body must be consumed for connection reuse.
+  private void drain(HttpExchange exchange) throws IOException {
+    readBody(exchange);
+  }
+
+  private void sendError(HttpExchange exchange, int code, String message) throws IOException {
+    JsonObject o = new JsonObject();
+    o.addProperty("error", message);
+    send(exchange, code, "application/json; charset=utf-8", gson.toJson(o));
+  }
+
+  private static void send(HttpExchange exchange, int code, String contentType, String body)
+      throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(bytes);
+    }
+  }
+
+  private JsonObject tokenize(String input, boolean includeTokenBoundaries) {
+    JsonArray tokens = new JsonArray();
+    for (Token token : tokenizer.tokenize(input)) {
+      JsonObject o = new JsonObject();
+      o.addProperty("token", token.getText());
+      o.addProperty("type", token.getType().name());
+      if (includeTokenBoundaries) {
+        o.addProperty("start", token.getStart());
+        o.addProperty("end", token.getEnd());
+      }
+      tokens.add(o);
+    }
+    JsonObject result = new JsonObject();
+    result.add("tokens", tokens);
+    return result;
+  }
+
+  private JsonObject toJson(SentenceAnalysis analysis, boolean allAnalyses) {
+    JsonArray words = new JsonArray();
+    for (SentenceWordAnalysis swa : analysis) {
+      JsonObject o = new JsonObject();
+      o.addProperty("token", swa.getWordAnalysis().getInput());
+      o.add("best", toJson(swa.getBestAnalysis()));
+      if (allAnalyses) {
+        o.add("all", toJson(swa.getWordAnalysis()).get("analyses"));
+      }
+      words.add(o);
+    }
+    JsonObject result = new JsonObject();
+    result.addProperty("input", analysis.getSentence());
+    result.add("results", words);
+    return result;
+  }
+
+  private JsonObject toJson(WordAnalysis analysis) {
+    JsonArray analyses = new JsonArray();
+    for (SingleAnalysis s : analysis) {
+      analyses.add(toJson(s));
+    }
+    JsonObject result = new JsonObject();
+    result.addProperty("input", analysis.getInput());
+    result.add("analyses", analyses);
+    return result;
+  }
+
+  private JsonObject toJson(SingleAnalysis s) {
+    JsonObject o = new JsonObject();
+    o.addProperty("analysis", s.formatLong());
+    o.addProperty("pos", s.getPos().shortForm);
+    o.addProperty("lemma", s.getDictionaryItem().lemma);
+    o.add("lemmas", gson.toJsonTree(s.getLemmas()));
+    o.addProperty("informal", s.containsInformalMorpheme());
+    o.addProperty("runtime", s.isRuntime());
+    return o;
+  }
+}
@@ -17,6 +17,11 @@ public class LanguageIdServiceImpl extends LanguageIdServiceImplBase {
     languageIdentifierTr = LanguageIdentifier.fromInternalModelGroup("tr_group");
   }
 
+  public LanguageIdServiceImpl(ZemberekContext context) throws Exception {
+    languageIdentifier = context.getLanguageIdentifier();
+    languageIdentifierTr = LanguageIdentifier.fromInternalModelGroup("tr_group");
+  }
+
   @Override
   public void detect(LanguageIdRequest request,
       StreamObserver<LanguageIdResponse> responseObserver) {
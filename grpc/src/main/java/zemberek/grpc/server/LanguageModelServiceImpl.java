@@ -0,0 +1,175 @@
+package zemberek.grpc.server;
+
+import io.grpc.stub.StreamObserver;
+import java.util.Arrays;
+import zemberek.core.logging.Log;
+import zemberek.lm.BaseLanguageModel.LookupCache;
+import zemberek.lm.LmVocabulary;
+import zemberek.lm.compression.SmoothLm;
+import zemberek.proto.LanguageModelInfoRequest;
+import zemberek.proto.LanguageModelInfoResponse;
+import zemberek.proto.LanguageModelServiceGrpc.LanguageModelServiceImplBase;
+import zemberek.proto.NgramProbabilityRequest;
+import zemberek.proto.NgramProbabilityResponse;
+import zemberek.proto.NgramProto;
+import zemberek.proto.SentenceScoreProto;
+import zemberek.proto.SentenceScoreRequest;
+import zemberek.proto.SentenceScoreResponse;
+import zemberek.proto.WordIdsRequest;
+import zemberek.proto.WordIdsResponse;
+
+/**
+ * Serves n-gram probability and sentence scoring requests over the single language model instance
+ * in {@link ZemberekContext}. Calls may run concurrently. Model is read only, and every worker
+ * thread uses its own {@link LookupCache} for full order n-gram queries.
+ */
+public class LanguageModelServiceImpl extends LanguageModelServiceImplBase {
+
+  static final int CACHE_SIZE = 1 << 15;
+  static final String NOT_INITIALIZED = "Language model is not initialized.";
+
+  private final SmoothLm lm;
+  private final ThreadLocal<LookupCache> caches;
+
+  public LanguageModelServiceImpl(ZemberekContext context) {
+    this.lm = context.languageModel;
+    if (lm == null) {
+      Log.warn("Language model path is not available. Language model service is down.");
+    }
+    this.caches = ThreadLocal.withInitial(() -> lm.getCache(CACHE_SIZE));
+  }
+
+  @Override
+  public void getProbabilities(NgramProbabilityRequest request,
+      StreamObserver<NgramProbabilityResponse> responseObserver) {
+    NgramProbabilityResponse.Builder builder = NgramProbabilityResponse.newBuilder();
+    if (lm == null) {
+      builder.setError(NOT_INITIALIZED);
+    } else {
+      LmVocabulary vocabulary = lm.getVocabulary();
+      LookupCache cache = caches.get();
+      for (NgramProto ngram : request.getNgramsList()) {
+        int[] ids;
+        if (ngram.getIdsCount() > 0) {
+          ids = ngram.getIdsList().stream().mapToInt(Integer::intValue).toArray();
+        } else {
+          ids = vocabulary.toIndexes(ngram.getWordsList().toArray(new String[0]));
+        }
+        if (ids.length == 0 || ids.length > lm.getOrder()) {
+          builder.clearLogProbabilities();
+          builder.setError("N-gram length must be between 1 and " + lm.getOrder()
+              + " but it is " + ids.length);
+          break;
+        }
+        if (!vocabulary.containsAll(ids)) {
+          builder.clearLogProbabilities();
+          builder.setError("N-gram contains out of vocabulary ids: " + Arrays.toString(ids));
+          break;
+        }
+        builder.addLogProbabilities(probability(cache, ids));
+      }
+    }
+    responseObserver.onNext(builder.build());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void scoreSentences(SentenceScoreRequest request,
+      StreamObserver<SentenceScoreResponse> responseObserver) {
+    SentenceScoreResponse.Builder builder = SentenceScoreResponse.newBuilder();
+    if (lm == null) {
+      builder.setError(NOT_INITIALIZED);
+    } else {
+      LookupCache cache = caches.get();
+      for (String sentence : request.getSentencesList()) {
+        builder.addScores(score(cache, sentence, request.getAddSentenceBoundaries()));
+      }
+    }
+    responseObserver.onNext(builder.build());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void getWordIds(WordIdsRequest request,
+      StreamObserver<WordIdsResponse> responseObserver) {
+    WordIdsResponse.Builder builder = WordIdsResponse.newBuilder();
+    if (lm == null) {
+      builder.setError(NOT_INITIALIZED);
+    } else {
+      LmVocabulary vocabulary = lm.getVocabulary();
+      for (String word : request.getWordsList()) {
+        builder.addIds(vocabulary.indexOf(word));
+      }
+    }
+    responseObserver.onNext(builder.build());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void getInfo(LanguageModelInfoRequest request,
+      StreamObserver<LanguageModelInfoResponse> responseObserver) {
+    LanguageModelInfoResponse.Builder builder = LanguageModelInfoResponse.newBuilder();
+    if (lm == null) {
+      builder.setError(NOT_INITIALIZED);
+    } else {
+      LmVocabulary vocabulary = lm.getVocabulary();
+      builder.setOrder(lm.getOrder())
+          .setVocabularySize(vocabulary.size())
+          .setLogBase(lm.getLogBase())
+          .setUnknownWordId(vocabulary.getUnknownWordIndex())
+          .setSentenceStartId(vocabulary.getSentenceStartIndex())
+          .setSentenceEndId(vocabulary.getSentenceEndIndex());
+    }
+    responseObserver.onNext(builder.build());
+    responseObserver.onCompleted();
+  }
+
+  private float probability(LookupCache cache, int[] ids) {
+    // cache only holds full order n-grams.
+    return ids.length == lm.getOrder() ? cache.get(ids) : lm.getProbability(ids);
+  }
+
+  SentenceScoreProto score(LookupCache cache, String sentence, boolean addBoundaries) {
+    LmVocabulary vocabulary = lm.getVocabulary();
+    String trimmed = sentence.trim();
+    String[] tokens = trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    int offset = addBoundaries ? 1 : 0;
+    int[] ids = new int[tokens.length + offset * 2];
+    int unknownCount = 0;
+    for (int i = 0; i < tokens.length; i++) {
+      int id = vocabulary.indexOf(tokens[i]);
+      if (id == vocabulary.getUnknownWordIndex()) {
+        unknownCount++;
+      }
+      ids[i + offset] = id;
+    }
+    if (addBoundaries) {
+      ids[0] = vocabulary.getSentenceStartIndex();
+      ids[ids.length - 1] = vocabulary.getSentenceEndIndex();
+    }
+
+    int order = lm.getOrder();
+    int[] window = new int[order];
+    double logProbability = 0;
+    int tokenCount = 0;
+    // with boundaries, probability of <s> is not calculated.
+    for (int i = offset; i < ids.length; i++) {
+      int begin = Math.max(0, i - order + 1);
+      if (i - begin + 1 == order) {
+        System.arraycopy(ids, begin, window, 0, order);
+        logProbability += probability(cache, window);
+      } else {
+        logProbability += probability(cache, Arrays.copyOfRange(ids, begin, i + 1));
+      }
+      tokenCount++;
+    }
+    double perplexity = tokenCount == 0 ? 0 :
+        Math.pow(lm.getLogBase(), -logProbability / tokenCount);
+    return SentenceScoreProto.newBuilder()
+        .setLogProbability(logProbability)
+        .setTokenCount(tokenCount)
+        .setPerplexity(perplexity)
+        .setUnknownCount(unknownCount)
+        .build();
+  }
+}
@@ -0,0 +1,212 @@
+package zemberek.grpc.server;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Rejects calls instead of queueing them when the server is overloaded:
+ * <ul>
+ * <li>If there are too many tasks waiting for a worker thread, call is rejected with
+ * RESOURCE_EXHAUSTED status.</li>
+ * <li>If the service already has the maximum amount of concurrent calls, call is rejected with
+ * RESOURCE_EXHAUSTED status.</li>
+ * <li>If deadline of the call has already passed or call is cancelled while waiting for a worker
+ * thread, it is closed without processing.</li>
+ * </ul>
+ * This class is also the call executor supplier of the server. Server uses a direct executor, so
+ * {@link #getExecutor(ServerCall, Metadata)} is called on the transport thread before the call is
+ * queued. Limits are checked there and a rejected call is started with a direct executor, so the
+ * interceptor closes it without waiting in the queue. Accepted calls are run by the worker pool,
+ * where the concurrency limit is checked again when the call starts.
+ */
+class LoadSheddingInterceptor implements ServerInterceptor, ServerCallExecutorSupplier {
+
+  // Carries the rejection reason from the executor supplier to the interceptor.
+  private static final Metadata.Key<String> REJECTION_KEY =
+      Metadata.Key.of("zemberek-load-shedding-rejection", Metadata.ASCII_STRING_MARSHALLER);
+
+  private final ServerOptions options;
+  private final ServerMetrics metrics;
+  private final Executor workers;
+  private final IntSupplier queueDepth;
+  // amount of active calls of each service.
+  private final Map<String, AtomicInteger> activeCalls = new ConcurrentHashMap<>();
+
+  LoadSheddingInterceptor(
+      ServerOptions options,
+      ServerMetrics metrics,
+      Executor workers,
+      IntSupplier queueDepth) {
+    this.options = options;
+    this.metrics = metrics;
+    this.workers = workers;
+    this.queueDepth = queueDepth;
+  }
+
+  int activeCalls(String serviceName) {
+    return counter(serviceName).get();
+  }
+
+  private AtomicInteger counter(String serviceName) {
+    return activeCalls.computeIfAbsent(serviceName, k -> new AtomicInteger());
+  }
+
+  /**
+   * Checks the queue depth and concurrent call limits for a new call of the service, without
+   * reserving anything.
+   *
+   * @return reason of the rejection, or null if the call can be accepted.
+   */
+  String checkLimits(String serviceName) {
+    if (options.maxQueueDepth > 0 && queueDepth.getAsInt() > options.maxQueueDepth) {
+      return "Server is overloaded.";
+    }
+    int limit = options.concurrencyLimit(serviceName);
+    if (limit > 0 && counter(serviceName).get() >= limit) {
+      return tooManyCalls(serviceName);
+    }
+    return null;
+  }
+
+  /**
+   * Reserves a concurrent call slot of the service.
+   *
+   * @return false if the service already has the maximum amount of concurrent calls.
+   */
+  boolean tryAcquire(String serviceName) {
+    int limit = options.concurrencyLimit(serviceName);
+    AtomicInteger active = counter(serviceName);
+    if (active.incrementAndGet() > limit && limit > 0) {
+      active.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  void release(String serviceName) {
+    counter(serviceName).decrementAndGet();
+  }
+
+  static String tooManyCalls(String serviceName) {
+    return "Too many concurrent calls to " + serviceName;
+  }
+
+  @Override
+  public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata headers) {
+    // clients cannot set the rejection themselves.
+    headers.discardAll(REJECTION_KEY);
+    String rejection = checkLimits(call.getMethodDescriptor().getServiceName());
+    if (rejection != null) {
+      headers.put(REJECTION_KEY, rejection);
+      return MoreExecutors.directExecutor();
+    }
+    return workers;
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call,
+      Metadata headers,
+      ServerCallHandler<ReqT, RespT> next) {
+    String method = call.getMethodDescriptor().getFullMethodName();
+
+    if (closeIfDone(call)) {
+      return new ServerCall.Listener<ReqT>() {
+      };
+    }
+
+    String rejection = headers.get(REJECTION_KEY);
+    if (rejection != null) {
+      return reject(call, method, rejection);
+    }
+
+    String service = call.getMethodDescriptor().getServiceName();
+    if (!tryAcquire(service)) {
+      return reject(call, method, tooManyCalls(service));
+    }
+
+    AtomicBoolean released = new AtomicBoolean(false);
+    Runnable release = () -> {
+      if (released.compareAndSet(false, true)) {
+        release(service);
+      }
+    };
+    ServerCall.Listener<ReqT> listener;
+    try {
+      listener = next.startCall(new SimpleForwardingServerCall<ReqT, RespT>(call) {
+        @Override
+        public void close(Status status, Metadata trailers) {
+          release.run();
+          super.close(status, trailers);
+        }
+      }, headers);
+    } catch (RuntimeException e) {
+      release.run();
+      throw e;
+    }
+    return new SimpleForwardingServerCallListener<ReqT>(listener) {
+      // Handlers process unary and server streaming calls when client half closes. Deadline may
+      // pass while the request is being received.
+      @Override
+      public void onHalfClose() {
+        if (closeIfDone(call)) {
+          release.run();
+          return;
+        }
+        super.onHalfClose();
+      }
+
+      @Override
+      public void onCancel() {
+        release.run();
+        super.onCancel();
+      }
+
+      @Override
+      public void onComplete() {
+        release.run();
+        super.onComplete();
+      }
+    };
+  }
+
+  // Closes the call if it is cancelled or its deadline has passed.
+  private static boolean closeIfDone(ServerCall<?, ?> call) {
+    Context context = Context.current();
+    if (context.isCancelled()) {
+      if (!call.isCancelled()) {
+        call.close(Contexts.statusFromCancelled(context), new Metadata());
+      }
+      return true;
+    }
+    if (context.getDeadline() != null && context.getDeadline().isExpired()) {
+      call.close(Status.DEADLINE_EXCEEDED.withDescription("Deadline expired before processing"),
+          new Metadata());
+      return true;
+    }
+    return false;
+  }
+
+  private <ReqT, RespT> ServerCall.Listener<ReqT> reject(
+      ServerCall<ReqT, RespT> call, String method, String message) {
+    metrics.recordRejection(method);
+    call.close(Status.RESOURCE_EXHAUSTED.withDescription(message), new Metadata());
+    return new ServerCall.Listener<ReqT>() {
+    };
+  }
+}
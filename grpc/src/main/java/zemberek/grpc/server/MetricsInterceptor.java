@@ -0,0 +1,58 @@
+package zemberek.grpc.server;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records latency and status of every call to {@link ServerMetrics}. Latency is measured from the
+ * start of the call to the time it is closed or cancelled.
+ */
+class MetricsInterceptor implements ServerInterceptor {
+
+  private final ServerMetrics metrics;
+
+  MetricsInterceptor(ServerMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call,
+      Metadata headers,
+      ServerCallHandler<ReqT, RespT> next) {
+    String method = call.getMethodDescriptor().getFullMethodName();
+    long start = System.nanoTime();
+    AtomicBoolean recorded = new AtomicBoolean(false);
+    ServerCall.Listener<ReqT> listener = next.startCall(
+        new SimpleForwardingServerCall<ReqT, RespT>(call) {
+          @Override
+          public void close(Status status, Metadata trailers) {
+            if (recorded.compareAndSet(false, true)) {
+              metrics.recordCall(method, status.getCode(), System.nanoTime() - start);
+            }
+            super.close(status, trailers);
+          }
+        }, headers);
+    return new SimpleForwardingServerCallListener<ReqT>(listener) {
+      @Override
+      public void onCancel() {
+        // cancelled by the client or deadline is passed, call is not closed by the server.
+        if (recorded.compareAndSet(false, true)) {
+          Status status = Contexts.statusFromCancelled(Context.current());
+          metrics.recordCall(method,
+              status == null ? Status.Code.CANCELLED : status.getCode(),
+              System.nanoTime() - start);
+        }
+        super.onCancel();
+      }
+    };
+  }
+}
@@ -4,7 +4,6 @@ import io.grpc.stub.StreamObserver;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
-import zemberek.core.logging.Log;
 import zemberek.core.turkish.SecondaryPos;
 import zemberek.morphology.TurkishMorphology;
 import zemberek.morphology.analysis.SentenceAnalysis;
@@ -13,13 +12,22 @@ import zemberek.morphology.analysis.SingleAnalysis;
 import zemberek.morphology.analysis.SingleAnalysis.MorphemeData;
 import zemberek.morphology.analysis.WordAnalysis;
 import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.proto.morphology.CompactSentenceAnalysisBatchResponse;
+import zemberek.proto.morphology.CompactSentenceAnalysisProto;
+import zemberek.proto.morphology.CompactWordAnalysisBatchResponse;
 import zemberek.proto.morphology.DictionaryItemProto;
+import zemberek.proto.morphology.IdDictionaryProto;
+import zemberek.proto.morphology.IdDictionaryRequest;
 import zemberek.proto.morphology.MorphemeDataProto;
 import zemberek.proto.morphology.MorphologyServiceGrpc.MorphologyServiceImplBase;
+import zemberek.proto.morphology.SentenceAnalysisBatchRequest;
+import zemberek.proto.morphology.SentenceAnalysisBatchResponse;
 import zemberek.proto.morphology.SentenceAnalysisRequest;
 import zemberek.proto.morphology.SentenceAnalysisProto;
 import zemberek.proto.morphology.SentenceWordAnalysisProto;
 import zemberek.proto.morphology.SingleAnalysisProto;
+import zemberek.proto.morphology.WordAnalysisBatchRequest;
+import zemberek.proto.morphology.WordAnalysisBatchResponse;
 import zemberek.proto.morphology.WordAnalysisRequest;
 import zemberek.proto.morphology.WordAnalysisProto;
 
@@ -27,9 +35,17 @@ import zemberek.proto.morphology.WordAnalysisProto;
 public class MorphologyServiceImpl extends MorphologyServiceImplBase {
 
   private final TurkishMorphology morphology;
+  private final CompactAnalysisEncoder compactEncoder;
+  private final StreamingCalls calls;
 
   public MorphologyServiceImpl(ZemberekContext context) {
+    this(context, new StreamingCalls(ServerOptions.DEFAULT));
+  }
+
+  MorphologyServiceImpl(ZemberekContext context, StreamingCalls calls) {
     morphology = context.morphology;
+    compactEncoder = new CompactAnalysisEncoder(morphology);
+    this.calls = calls;
   }
 
   @Override
@@ -37,7 +53,6 @@ public class MorphologyServiceImpl extends MorphologyServiceImplBase {
       StreamObserver<SentenceAnalysisProto> responseObserver) {
     String sentence = request.getInput();
     SentenceAnalysis a = morphology.analyzeAndDisambiguate(sentence);
-    Log.info("Sentence = %s", sentence);
     responseObserver.onNext(toSentenceAnalysis(a, request.getContainAllAnalyses()));
     responseObserver.onCompleted();
   }
@@ -52,6 +67,97 @@ public class MorphologyServiceImpl extends MorphologyServiceImplBase {
     responseObserver.onCompleted();
   }
 
+  @Override
+  public void analyzeSentenceBatch(SentenceAnalysisBatchRequest request,
+      StreamObserver<SentenceAnalysisBatchResponse> responseObserver) {
+    boolean all = request.getContainAllAnalyses();
+    StreamingCalls.respond(responseObserver, () -> SentenceAnalysisBatchResponse.newBuilder()
+        .addAllResults(calls.parallelMap(
+            request.getInputsList(), s -> analyzeSentence(s, all)))
+        .build());
+  }
+
+  @Override
+  public void analyzeWordBatch(WordAnalysisBatchRequest request,
+      StreamObserver<WordAnalysisBatchResponse> responseObserver) {
+    StreamingCalls.respond(responseObserver, () -> WordAnalysisBatchResponse.newBuilder()
+        .addAllResults(calls.parallelMap(request.getInputsList(), this::analyzeWord))
+        .build());
+  }
+
+  @Override
+  public void streamSentenceAnalyses(SentenceAnalysisBatchRequest request,
+      StreamObserver<SentenceAnalysisProto> responseObserver) {
+    boolean all = request.getContainAllAnalyses();
+    calls.serverStream(
+        request.getInputsList(), s -> analyzeSentence(s, all), responseObserver);
+  }
+
+  @Override
+  public StreamObserver<SentenceAnalysisRequest> collectSentenceAnalyses(
+      StreamObserver<SentenceAnalysisBatchResponse> responseObserver) {
+    return calls.collect(responseObserver,
+        requests -> SentenceAnalysisBatchResponse.newBuilder()
+            .addAllResults(calls.parallelMap(requests,
+                r -> analyzeSentence(r.getInput(), r.getContainAllAnalyses())))
+            .build());
+  }
+
+  @Override
+  public StreamObserver<SentenceAnalysisRequest> analyzeSentenceStream(
+      StreamObserver<SentenceAnalysisProto> responseObserver) {
+    return StreamingCalls.bidirectional(responseObserver,
+        r -> analyzeSentence(r.getInput(), r.getContainAllAnalyses()));
+  }
+
+  @Override
+  public StreamObserver<WordAnalysisRequest> analyzeWordStream(
+      StreamObserver<WordAnalysisProto> responseObserver) {
+    return StreamingCalls.bidirectional(responseObserver, r -> analyzeWord(r.getInput()));
+  }
+
+  @Override
+  public void getIdDictionary(IdDictionaryRequest request,
+      StreamObserver<IdDictionaryProto> responseObserver) {
+    responseObserver.onNext(compactEncoder.getDictionary());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void analyzeSentenceBatchCompact(SentenceAnalysisBatchRequest request,
+      StreamObserver<CompactSentenceAnalysisBatchResponse> responseObserver) {
+    boolean all = request.getContainAllAnalyses();
+    StreamingCalls.respond(responseObserver, () -> CompactSentenceAnalysisBatchResponse.newBuilder()
+        .addAllResults(calls.parallelMap(
+            request.getInputsList(), s -> compactEncoder.encodeSentence(s, all)))
+        .build());
+  }
+
+  @Override
+  public void analyzeWordBatchCompact(WordAnalysisBatchRequest request,
+      StreamObserver<CompactWordAnalysisBatchResponse> responseObserver) {
+    StreamingCalls.respond(responseObserver, () -> CompactWordAnalysisBatchResponse.newBuilder()
+        .addAllResults(calls.parallelMap(
+            request.getInputsList(), compactEncoder::encodeWord))
+        .build());
+  }
+
+  @Override
+  public void streamSentenceAnalysesCompact(SentenceAnalysisBatchRequest request,
+      StreamObserver<CompactSentenceAnalysisProto> responseObserver) {
+    boolean all = request.getContainAllAnalyses();
+    calls.serverStream(request.getInputsList(),
+        s -> compactEncoder.encodeSentence(s, all), responseObserver);
+  }
+
+  private SentenceAnalysisProto analyzeSentence(String sentence, boolean allAnalyses) {
+    return toSentenceAnalysis(morphology.analyzeAndDisambiguate(sentence), allAnalyses);
+  }
+
+  private WordAnalysisProto analyzeWord(String input) {
+    return toWordAnalysisProto(morphology.analyze(input));
+  }
+
   SentenceAnalysisProto toSentenceAnalysis(SentenceAnalysis sa, boolean allAnalyses) {
     return SentenceAnalysisProto.newBuilder()
         .setInput(sa.getSentence())
@@ -75,6 +181,7 @@ public class MorphologyServiceImpl extends MorphologyServiceImplBase {
 
   WordAnalysisProto toWordAnalysisProto(WordAnalysis analysis) {
     return WordAnalysisProto.newBuilder()
+        .setInput(analysis.getInput())
         .addAllAnalyses(analysis
             .stream()
             .map(this::toSingleAnalysisProto)
@@ -1,27 +1,35 @@
 package zemberek.grpc.server;
 
 import io.grpc.stub.StreamObserver;
-import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
 import zemberek.core.logging.Log;
 import zemberek.normalization.TurkishSentenceNormalizer;
+import zemberek.proto.NormalizationBatchRequest;
+import zemberek.proto.NormalizationBatchResponse;
 import zemberek.proto.NormalizationRequest;
 import zemberek.proto.NormalizationResponse;
 import zemberek.proto.NormalizationServiceGrpc.NormalizationServiceImplBase;
 
 public class NormalizationServiceImpl extends NormalizationServiceImplBase {
 
+  static final String NOT_INITIALIZED = "Normalization system is not initialized.";
+
   private ZemberekContext context;
 
   private TurkishSentenceNormalizer sentenceNormalizer;
 
-  public NormalizationServiceImpl(ZemberekContext context) throws IOException {
+  private final StreamingCalls calls;
+
+  public NormalizationServiceImpl(ZemberekContext context) {
+    this(context, new StreamingCalls(ServerOptions.DEFAULT));
+  }
+
+  NormalizationServiceImpl(ZemberekContext context, StreamingCalls calls) {
     this.context = context;
-    if (context.configuration != null && context.configuration.normalizationPathsAvailable()) {
-      sentenceNormalizer = new TurkishSentenceNormalizer(
-          context.morphology,
-          context.configuration.normalizationDataRoot,
-          context.configuration.normalizationLmPath);
-    } else {
+    this.calls = calls;
+    sentenceNormalizer = context.normalizer;
+    if (sentenceNormalizer == null) {
       Log.warn("Normalization paths are not available. Normalization service is down.");
     }
   }
@@ -29,20 +37,58 @@ public class NormalizationServiceImpl extends NormalizationServiceImplBase {
   @Override
   public void normalize(NormalizationRequest request,
       StreamObserver<NormalizationResponse> responseObserver) {
+    responseObserver.onNext(normalize(request.getInput()));
+    responseObserver.onCompleted();
+  }
 
-    String normalized;
-    if (sentenceNormalizer != null) {
-      String s = request.getInput();
-      normalized = sentenceNormalizer.normalize(s);
-      responseObserver.onNext(NormalizationResponse.newBuilder()
-          .setNormalizedInput(normalized)
-          .build());
-    } else {
-      responseObserver.onNext(NormalizationResponse.newBuilder()
+  @Override
+  public void normalizeBatch(NormalizationBatchRequest request,
+      StreamObserver<NormalizationBatchResponse> responseObserver) {
+    responseObserver.onNext(normalizeAll(request.getInputsList()));
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void streamNormalizations(NormalizationBatchRequest request,
+      StreamObserver<NormalizationResponse> responseObserver) {
+    calls.serverStream(request.getInputsList(), this::normalize, responseObserver);
+  }
+
+  @Override
+  public StreamObserver<NormalizationRequest> collectNormalizations(
+      StreamObserver<NormalizationBatchResponse> responseObserver) {
+    return calls.collect(responseObserver, requests -> normalizeAll(
+        requests.stream().map(NormalizationRequest::getInput).collect(Collectors.toList())));
+  }
+
+  @Override
+  public StreamObserver<NormalizationRequest> normalizeStream(
+      StreamObserver<NormalizationResponse> responseObserver) {
+    return StreamingCalls.bidirectional(responseObserver, r -> normalize(r.getInput()));
+  }
+
+  private NormalizationResponse normalize(String input) {
+    if (sentenceNormalizer == null) {
+      return NormalizationResponse.newBuilder()
           .setNormalizedInput("")
-          .setError("Normalization system is not initialized.")
+          .setError(NOT_INITIALIZED)
+          .build();
+    }
+    return NormalizationResponse.newBuilder()
+        .setNormalizedInput(sentenceNormalizer.normalize(input))
+        .build();
+  }
+
+  private NormalizationBatchResponse normalizeAll(List<String> inputs) {
+    NormalizationBatchResponse.Builder builder = NormalizationBatchResponse.newBuilder();
+    if (sentenceNormalizer == null) {
+      return builder.setError(NOT_INITIALIZED).build();
+    }
+    for (String normalized : sentenceNormalizer.normalizeAll(inputs)) {
+      builder.addResults(NormalizationResponse.newBuilder()
+          .setNormalizedInput(normalized)
           .build());
     }
-    responseObserver.onCompleted();
+    return builder.build();
   }
 }
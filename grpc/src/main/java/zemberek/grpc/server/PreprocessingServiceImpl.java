@@ -4,9 +4,13 @@ import io.grpc.stub.StreamObserver;
 import java.util.List;
 import java.util.stream.Collectors;
 import zemberek.proto.PreprocessingServiceGrpc.PreprocessingServiceImplBase;
+import zemberek.proto.SentenceExtractionBatchRequest;
+import zemberek.proto.SentenceExtractionBatchResponse;
 import zemberek.proto.SentenceExtractionRequest;
 import zemberek.proto.SentenceExtractionResponse;
 import zemberek.proto.TokenProto;
+import zemberek.proto.TokenizationBatchRequest;
+import zemberek.proto.TokenizationBatchResponse;
 import zemberek.proto.TokenizationRequest;
 import zemberek.proto.TokenizationResponse;
 import zemberek.tokenization.TurkishSentenceExtractor;
@@ -21,7 +25,14 @@ public class PreprocessingServiceImpl extends PreprocessingServiceImplBase {
   // this extractor does not split sentences in double qouotes.
   private final TurkishSentenceExtractor doubleQuoteIgnoreExtractor;
 
+  private final StreamingCalls calls;
+
   public PreprocessingServiceImpl() {
+    this(new StreamingCalls(ServerOptions.DEFAULT));
+  }
+
+  PreprocessingServiceImpl(StreamingCalls calls) {
+    this.calls = calls;
     tokenizer = TurkishTokenizer.DEFAULT;
     defaultExtractor = TurkishSentenceExtractor.DEFAULT;
     doubleQuoteIgnoreExtractor = TurkishSentenceExtractor
@@ -32,21 +43,42 @@ public class PreprocessingServiceImpl extends PreprocessingServiceImplBase {
 
   public void tokenize(TokenizationRequest request,
       StreamObserver<TokenizationResponse> responseObserver) {
+    responseObserver.onNext(tokenize(request.getInput(), request.getIncludeTokenBoundaries()));
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void tokenizeBatch(TokenizationBatchRequest request,
+      StreamObserver<TokenizationBatchResponse> responseObserver) {
+    boolean boundaries = request.getIncludeTokenBoundaries();
+    StreamingCalls.respond(responseObserver, () -> TokenizationBatchResponse.newBuilder()
+        .addAllResults(calls.parallelMap(
+            request.getInputsList(), s -> tokenize(s, boundaries)))
+        .build());
+  }
+
+  @Override
+  public StreamObserver<TokenizationRequest> tokenizeStream(
+      StreamObserver<TokenizationResponse> responseObserver) {
+    return StreamingCalls.bidirectional(responseObserver,
+        r -> tokenize(r.getInput(), r.getIncludeTokenBoundaries()));
+  }
+
+  private TokenizationResponse tokenize(String input, boolean includeTokenBoundaries) {
     List<TokenProto> tokens =
-        tokenizer.tokenize(request.getInput())
+        tokenizer.tokenize(input)
             .stream()
-            .map(token -> build(request, token))
+            .map(token -> build(token, includeTokenBoundaries))
             .collect(Collectors.toList());
-    responseObserver.onNext(TokenizationResponse.newBuilder()
+    return TokenizationResponse.newBuilder()
         .addAllTokens(tokens)
-        .build());
-    responseObserver.onCompleted();
+        .build();
   }
 
-  private static TokenProto build(TokenizationRequest request, Token token) {
+  private static TokenProto build(Token token, boolean includeTokenBoundaries) {
     TokenProto.Builder builder = TokenProto.newBuilder().setToken(token.getText())
         .setType(token.getType().name());
-    if (request.getIncludeTokenBoundaries()) {
+    if (includeTokenBoundaries) {
       builder.setStart(token.getStart())
           .setEnd(token.getEnd());
     }
@@ -55,11 +87,35 @@ public class PreprocessingServiceImpl extends PreprocessingServiceImplBase {
 
   public void extractSentences(SentenceExtractionRequest request,
       StreamObserver<SentenceExtractionResponse> responseObserver) {
-    TurkishSentenceExtractor extractor = request.getDoNotSplitInDoubleQuotes() ?
-        defaultExtractor : doubleQuoteIgnoreExtractor;
-    responseObserver.onNext(SentenceExtractionResponse.newBuilder()
-        .addAllSentences(extractor.fromDocument(request.getDocument()))
-        .build());
+    responseObserver.onNext(
+        extractSentences(request.getDocument(), request.getDoNotSplitInDoubleQuotes()));
     responseObserver.onCompleted();
   }
+
+  @Override
+  public void extractSentencesBatch(SentenceExtractionBatchRequest request,
+      StreamObserver<SentenceExtractionBatchResponse> responseObserver) {
+    boolean doNotSplit = request.getDoNotSplitInDoubleQuotes();
+    StreamingCalls.respond(responseObserver, () -> SentenceExtractionBatchResponse.newBuilder()
+        .addAllResults(calls.parallelMap(
+            request.getDocumentsList(), d -> extractSentences(d, doNotSplit)))
+        .build());
+  }
+
+  @Override
+  public void streamSentences(SentenceExtractionBatchRequest request,
+      StreamObserver<SentenceExtractionResponse> responseObserver) {
+    boolean doNotSplit = request.getDoNotSplitInDoubleQuotes();
+    calls.serverStream(
+        request.getDocumentsList(), d -> extractSentences(d, doNotSplit), responseObserver);
+  }
+
+  private SentenceExtractionResponse extractSentences(String document,
+      boolean doNotSplitInDoubleQuotes) {
+    TurkishSentenceExtractor extractor = doNotSplitInDoubleQuotes ?
+        doubleQuoteIgnoreExtractor : defaultExtractor;
+    return SentenceExtractionResponse.newBuilder()
+        .addAllSentences(extractor.fromDocument(document))
+        .build();
+  }
 }
@@ -0,0 +1,167 @@
+package zemberek.grpc.server;
+
+import com.sun.net.httpserver.HttpServer;
+import io.grpc.Status;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Call latency histograms, call counts per status, rejected calls and gauges of the server. Can be
+ * exported in Prometheus text format. Instances are thread safe.
+ */
+public class ServerMetrics {
+
+  // upper bounds of latency buckets in seconds.
+  static final double[] LATENCY_BUCKETS = {
+      0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+  private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> callCounts = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+  // ordered for a stable output.
+  private final Map<String, Gauge> gauges = new TreeMap<>();
+
+  private static class Histogram {
+
+    final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+    final LongAdder count = new LongAdder();
+    final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    void add(long nanos) {
+      double seconds = nanos / 1e9;
+      int i = 0;
+      while (i < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[i]) {
+        i++;
+      }
+      buckets[i].increment();
+      count.increment();
+      sumNanos.add(nanos);
+    }
+  }
+
+  private static class Gauge {
+
+    final String help;
+    final DoubleSupplier supplier;
+
+    Gauge(String help, DoubleSupplier supplier) {
+      this.help = help;
+      this.supplier = supplier;
+    }
+  }
+
+  /**
+   * Records a completed call.
+   *
+   * @param method full method name.
+   */
+  public void recordCall(String method, Status.Code code, long nanos) {
+    latencies.computeIfAbsent(method, k -> new Histogram()).add(nanos);
+    callCounts.computeIfAbsent(method + "\u0000" + code.name(), k -> new LongAdder()).increment();
+  }
+
+  /**
+   * Records a call rejected because of load shedding.
+   */
+  public void recordRejection(String method) {
+    rejections.computeIfAbsent(method, k -> new LongAdder()).increment();
+  }
+
+  /**
+   * Adds a gauge. Name must be a valid Prometheus metric name and supplier must be thread safe.
+   */
+  public synchronized void addGauge(String name, String help, DoubleSupplier supplier) {
+    gauges.put(name, new Gauge(help, supplier));
+  }
+
+  /**
+   * @return all metrics in Prometheus text exposition format.
+   */
+  public String toPrometheusText() {
+    StringBuilder sb = new StringBuilder();
+
+    header(sb, "zemberek_grpc_call_latency_seconds", "Latency of completed calls.", "histogram");
+    for (Map.Entry<String, Histogram> e : new TreeMap<>(latencies).entrySet()) {
+      String method = "method=\"" + e.getKey() + "\"";
+      Histogram h = e.getValue();
+      long cumulative = 0;
+      for (int i = 0; i < h.buckets.length; i++) {
+        cumulative += h.buckets[i].sum();
+        String le = i < LATENCY_BUCKETS.length ? Double.toString(LATENCY_BUCKETS[i]) : "+Inf";
+        line(sb, "zemberek_grpc_call_latency_seconds_bucket",
+            method + ",le=\"" + le + "\"", cumulative);
+      }
+      line(sb, "zemberek_grpc_call_latency_seconds_sum", method, h.sumNanos.sum() / 1e9);
+      line(sb, "zemberek_grpc_call_latency_seconds_count", method, h.count.sum());
+    }
+
+    header(sb, "zemberek_grpc_calls_total", "Completed calls by status code.", "counter");
+    for (Map.Entry<String, LongAdder> e : new TreeMap<>(callCounts).entrySet()) {
+      String[] parts = e.getKey().split("\u0000");
+      line(sb, "zemberek_grpc_calls_total",
+          "method=\"" + parts[0] + "\",code=\"" + parts[1] + "\"", e.getValue().sum());
+    }
+
+    header(sb, "zemberek_grpc_rejected_calls_total", "Calls rejected by load shedding.",
+        "counter");
+    for (Map.Entry<String, LongAdder> e : new TreeMap<>(rejections).entrySet()) {
+      line(sb, "zemberek_grpc_rejected_calls_total", "method=\"" + e.getKey() + "\"",
+          e.getValue().sum());
+    }
+
+    synchronized (this) {
+      for (Map.Entry<String, Gauge> e : gauges.entrySet()) {
+        header(sb, e.getKey(), e.getValue().help, "gauge");
+        line(sb, e.getKey(), null, e.getValue().supplier.getAsDouble());
+      }
+    }
+    return sb.toString();
+  }
+
+  private static void header(StringBuilder sb, String name, String help, String type) {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  // Number.toString is used, so that output does not depend on default locale.
+  private static void line(StringBuilder sb, String name, String labels, Number value) {
+    sb.append(name);
+    if (labels != null) {
+      sb.append('{').append(labels).append('}');
+    }
+    sb.append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Starts an HTTP server on the loopback interface that serves metrics from `/metrics` path.
+   */
+  public HttpServer startHttpServer(int port) throws IOException {
+    HttpServer server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/metrics", exchange -> {
+      byte[] bytes = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders()
+          .set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(bytes);
+      }
+    });
+    server.start();
+    return server;
+  }
+}
@@ -0,0 +1,188 @@
+package zemberek.grpc.server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Threading, load shedding and metrics options of {@link ZemberekGrpcServer}.
+ */
+public class ServerOptions {
+
+  public static final ServerOptions DEFAULT = builder().build();
+
+  final int workerThreads;
+  final boolean virtualThreads;
+  final int maxConcurrentCalls;
+  final Map<String, Integer> serviceConcurrencyLimits;
+  final int maxQueueDepth;
+  final int metricsPort;
+  final int httpPort;
+  final String httpAddress;
+  final int maxHttpRequestBytes;
+  final int maxStreamMessages;
+
+  private ServerOptions(Builder builder) {
+    this.workerThreads = builder.workerThreads;
+    this.virtualThreads = builder.virtualThreads;
+    this.maxConcurrentCalls = builder.maxConcurrentCalls;
+    this.serviceConcurrencyLimits = Collections.unmodifiableMap(
+        new HashMap<>(builder.serviceConcurrencyLimits));
+    this.maxQueueDepth = builder.maxQueueDepth;
+    this.metricsPort = builder.metricsPort;
+    this.httpPort = builder.httpPort;
+    this.httpAddress = builder.httpAddress;
+    this.maxHttpRequestBytes = builder.maxHttpRequestBytes;
+    this.maxStreamMessages = builder.maxStreamMessages;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return maximum amount of concurrent calls of the service. 0 means there is no limit.
+   */
+  int concurrencyLimit(String serviceName) {
+    return serviceConcurrencyLimits.getOrDefault(serviceName, maxConcurrentCalls);
+  }
+
+  /**
+   * @return maximum amount of threads that process inputs of a single batch or stream chunk.
+   */
+  int batchParallelism() {
+    return virtualThreads ? Runtime.getRuntime().availableProcessors() : workerThreads;
+  }
+
+  public static class Builder {
+
+    int workerThreads = Runtime.getRuntime().availableProcessors();
+    boolean virtualThreads = false;
+    int maxConcurrentCalls = 0;
+    Map<String, Integer> serviceConcurrencyLimits = new HashMap<>();
+    int maxQueueDepth = 0;
+    int metricsPort = 0;
+    int httpPort = 0;
+    String httpAddress = "localhost";
+    int maxHttpRequestBytes = 16 * 1024 * 1024;
+    int maxStreamMessages = 100_000;
+
+    /**
+     * Amount of threads that run calls. Ignored if virtual threads are used.
+     */
+    public Builder workerThreads(int workerThreads) {
+      if (workerThreads < 1) {
+        throw new IllegalArgumentException(
+            "Worker thread count must be positive. But it is " + workerThreads);
+      }
+      this.workerThreads = workerThreads;
+      return this;
+    }
+
+    /**
+     * Runs every call in a new virtual thread. Requires Java 21 or later.
+     */
+    public Builder useVirtualThreads() {
+      this.virtualThreads = true;
+      return this;
+    }
+
+    /**
+     * Maximum amount of concurrent calls per service. Calls above the limit are rejected with
+     * RESOURCE_EXHAUSTED status. 0 means there is no limit.
+     */
+    public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+      checkNotNegative(maxConcurrentCalls, "Concurrent call limit");
+      this.maxConcurrentCalls = maxConcurrentCalls;
+      return this;
+    }
+
+    /**
+     * Overrides the concurrent call limit of a single service.
+     *
+     * @param serviceName full service name, such as `zemberek.morphology.MorphologyService`
+     */
+    public Builder serviceConcurrencyLimit(String serviceName, int maxConcurrentCalls) {
+      checkNotNegative(maxConcurrentCalls, "Concurrent call limit");
+      serviceConcurrencyLimits.put(serviceName, maxConcurrentCalls);
+      return this;
+    }
+
+    /**
+     * New calls are rejected with RESOURCE_EXHAUSTED status if there are more than this amount of
+     * tasks waiting for a worker thread. Limit is checked when a call arrives, so rejected calls
+     * are not queued. 0 means there is no limit.
+     */
+    public Builder maxQueueDepth(int maxQueueDepth) {
+      checkNotNegative(maxQueueDepth, "Queue depth limit");
+      this.maxQueueDepth = maxQueueDepth;
+      return this;
+    }
+
+    /**
+     * If positive, metrics are served in Prometheus text format from
+     * `http://localhost:[port]/metrics`.
+     */
+    public Builder metricsPort(int metricsPort) {
+      checkNotNegative(metricsPort, "Metrics port");
+      this.metricsPort = metricsPort;
+      return this;
+    }
+
+    /**
+     * If positive, {@link HttpGateway} is started on this port. It shares models and worker
+     * threads with the gRPC server.
+     */
+    public Builder httpPort(int httpPort) {
+      checkNotNegative(httpPort, "HTTP port");
+      this.httpPort = httpPort;
+      return this;
+    }
+
+    /**
+     * Address that {@link HttpGateway} binds to. Default is `localhost`, so gateway only accepts
+     * connections from the same machine. `0.0.0.0` binds to all interfaces.
+     */
+    public Builder httpAddress(String httpAddress) {
+      if (httpAddress == null || httpAddress.trim().isEmpty()) {
+        throw new IllegalArgumentException("HTTP address cannot be empty.");
+      }
+      this.httpAddress = httpAddress;
+      return this;
+    }
+
+    /**
+     * Maximum size of an {@link HttpGateway} request body. Larger requests are rejected with 413
+     * status. Default is 16 MB.
+     */
+    public Builder maxHttpRequestBytes(int maxHttpRequestBytes) {
+      if (maxHttpRequestBytes < 1) {
+        throw new IllegalArgumentException(
+            "Maximum HTTP request size must be positive. But it is " + maxHttpRequestBytes);
+      }
+      this.maxHttpRequestBytes = maxHttpRequestBytes;
+      return this;
+    }
+
+    /**
+     * Maximum amount of messages of a client streaming `Collect...` call. All messages are kept in
+     * memory until the client completes the stream, so calls with more messages are failed with
+     * RESOURCE_EXHAUSTED status. 0 means there is no limit. Default is 100000.
+     */
+    public Builder maxStreamMessages(int maxStreamMessages) {
+      checkNotNegative(maxStreamMessages, "Stream message limit");
+      this.maxStreamMessages = maxStreamMessages;
+      return this;
+    }
+
+    private static void checkNotNegative(int value, String name) {
+      if (value < 0) {
+        throw new IllegalArgumentException(name + " cannot be negative. But it is " + value);
+      }
+    }
+
+    public ServerOptions build() {
+      return new ServerOptions(this);
+    }
+  }
+}
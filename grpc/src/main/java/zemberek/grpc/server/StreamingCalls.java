@@ -0,0 +1,319 @@
+package zemberek.grpc.server;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Helpers for batch and streaming calls. Batches are processed in parallel by the worker threads
+ * of the server. Streaming responses are only produced when the transport is ready to send them,
+ * so a slow client does not cause results to pile up in server memory.
+ */
+final class StreamingCalls {
+
+  // Amount of server streaming results that are computed in parallel before they are sent.
+  static final int STREAM_CHUNK_SIZE = 64;
+
+  private final Executor executor;
+  private final int parallelism;
+  private final int maxStreamMessages;
+
+  /**
+   * Creates helpers that run batches in the common fork join pool. Used by services that are not
+   * created by {@link ZemberekGrpcServer}.
+   */
+  StreamingCalls(ServerOptions options) {
+    this(options, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() + 1);
+  }
+
+  /**
+   * @param executor worker executor of the server. Batch inputs are processed by this executor and
+   * by the calling thread.
+   * @param parallelism maximum amount of threads that process a single batch.
+   */
+  StreamingCalls(ServerOptions options, Executor executor, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive. But it is " + parallelism);
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.maxStreamMessages = options.maxStreamMessages;
+  }
+
+  /**
+   * Applies function to inputs in parallel. Results are in input order. If the call is cancelled
+   * or its deadline passes, remaining inputs are not processed and a StatusRuntimeException is
+   * thrown.
+   * <p>
+   * Inputs are processed by the calling thread and by up to `parallelism - 1` tasks submitted to
+   * the executor, so batch work is bounded by the worker pool and counted in its queue depth. The
+   * calling thread does not wait for tasks that are still queued, so this does not block when all
+   * workers are busy.
+   */
+  <I, R> List<R> parallelMap(List<I> inputs, Function<I, R> function) {
+    // Worker threads do not carry the gRPC context.
+    ParallelMap<I, R> map = new ParallelMap<>(inputs, function, Context.current());
+    int helpers = Math.min(parallelism, inputs.size()) - 1;
+    for (int i = 0; i < helpers; i++) {
+      try {
+        executor.execute(map);
+      } catch (RejectedExecutionException e) {
+        // executor is shutting down, remaining inputs are processed by the calling thread.
+        break;
+      }
+    }
+    map.run();
+    return map.await();
+  }
+
+  // Inputs are claimed one by one by all threads that run this. A task that starts after all
+  // inputs are claimed returns immediately.
+  private static class ParallelMap<I, R> implements Runnable {
+
+    final List<I> inputs;
+    final Function<I, R> function;
+    final Context context;
+    final Object[] results;
+    final AtomicInteger next = new AtomicInteger();
+    final CountDownLatch remaining;
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ParallelMap(List<I> inputs, Function<I, R> function, Context context) {
+      this.inputs = inputs;
+      this.function = function;
+      this.context = context;
+      this.results = new Object[inputs.size()];
+      this.remaining = new CountDownLatch(inputs.size());
+    }
+
+    @Override
+    public void run() {
+      int i;
+      while ((i = next.getAndIncrement()) < inputs.size()) {
+        try {
+          if (failure.get() == null) {
+            checkNotCancelled(context);
+            results[i] = function.apply(inputs.get(i));
+          }
+        } catch (RuntimeException | Error e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          remaining.countDown();
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    List<R> await() {
+      try {
+        remaining.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw Status.CANCELLED.withDescription("Interrupted.").withCause(e).asRuntimeException();
+      }
+      Throwable t = failure.get();
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+      if (t != null) {
+        throw (RuntimeException) t;
+      }
+      // latch guarantees that results written by other threads are visible.
+      List<R> list = new ArrayList<>(results.length);
+      for (Object result : results) {
+        list.add((R) result);
+      }
+      return list;
+    }
+  }
+
+  /**
+   * Sends the single response created by the supplier. Failures are sent as an error status
+   * instead of being thrown to the transport.
+   */
+  static <R> void respond(StreamObserver<R> responseObserver, Supplier<R> supplier) {
+    R response;
+    try {
+      response = supplier.get();
+    } catch (RuntimeException e) {
+      responseObserver.onError(toStatus(e));
+      return;
+    }
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+
+  static void checkNotCancelled(Context context) {
+    if (context.isCancelled()) {
+      throw Contexts.statusFromCancelled(context).asRuntimeException();
+    }
+  }
+
+  /**
+   * Sends results of the function for every input, in input order. Results are computed in
+   * parallel chunks and a chunk is only computed if the client can receive more messages.
+   */
+  <I, R> void serverStream(
+      List<I> inputs,
+      Function<I, R> function,
+      StreamObserver<R> responseObserver) {
+    ServerCallStreamObserver<R> call = (ServerCallStreamObserver<R>) responseObserver;
+    Runnable drain = new Runnable() {
+      int next = 0;
+      boolean done = false;
+
+      @Override
+      public synchronized void run() {
+        while (!done && call.isReady()) {
+          if (call.isCancelled()) {
+            done = true;
+            return;
+          }
+          if (next == inputs.size()) {
+            done = true;
+            call.onCompleted();
+            return;
+          }
+          int end = Math.min(inputs.size(), next + STREAM_CHUNK_SIZE);
+          List<R> results;
+          try {
+            results = parallelMap(inputs.subList(next, end), function);
+          } catch (RuntimeException e) {
+            done = true;
+            call.onError(toStatus(e));
+            return;
+          }
+          results.forEach(call::onNext);
+          next = end;
+        }
+      }
+    };
+    call.setOnReadyHandler(drain);
+    drain.run();
+  }
+
+  /**
+   * Collects all requests of a client stream and sends a single response created from them when
+   * the client completes the stream. If the client sends more than the stream message limit, call
+   * fails with RESOURCE_EXHAUSTED status and collected requests are dropped.
+   */
+  <Q, R> StreamObserver<Q> collect(
+      StreamObserver<R> responseObserver,
+      Function<List<Q>, R> function) {
+    return new StreamObserver<Q>() {
+      // null after the call fails.
+      List<Q> requests = new ArrayList<>();
+
+      @Override
+      public void onNext(Q request) {
+        if (requests == null) {
+          return;
+        }
+        if (maxStreamMessages > 0 && requests.size() == maxStreamMessages) {
+          requests = null;
+          responseObserver.onError(Status.RESOURCE_EXHAUSTED
+              .withDescription("Stream has more than " + maxStreamMessages + " messages.")
+              .asRuntimeException());
+          return;
+        }
+        requests.add(request);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        // call is cancelled by the client, nothing to respond.
+      }
+
+      @Override
+      public void onCompleted() {
+        if (requests != null) {
+          List<Q> collected = requests;
+          requests = null;
+          respond(responseObserver, () -> function.apply(collected));
+        }
+      }
+    };
+  }
+
+  /**
+   * Sends a response for every request, in request order. Next request is asked from the client
+   * only when the transport is ready to send more responses.
+   */
+  static <Q, R> StreamObserver<Q> bidirectional(
+      StreamObserver<R> responseObserver,
+      Function<Q, R> function) {
+    ServerCallStreamObserver<R> call = (ServerCallStreamObserver<R>) responseObserver;
+    call.disableAutoRequest();
+    // Guards against requesting twice, once after processing a message and once from the ready
+    // handler. Both are called from the serialized call executor.
+    boolean[] waitingReady = {false};
+    call.setOnReadyHandler(() -> {
+      if (waitingReady[0] && call.isReady()) {
+        waitingReady[0] = false;
+        call.request(1);
+      }
+    });
+    call.request(1);
+
+    return new StreamObserver<Q>() {
+      boolean failed = false;
+
+      @Override
+      public void onNext(Q request) {
+        if (failed) {
+          return;
+        }
+        R response;
+        try {
+          checkNotCancelled(Context.current());
+          response = function.apply(request);
+        } catch (RuntimeException e) {
+          failed = true;
+          call.onError(toStatus(e));
+          return;
+        }
+        call.onNext(response);
+        if (call.isReady()) {
+          call.request(1);
+        } else {
+          waitingReady[0] = true;
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        // call is cancelled by the client, nothing to respond.
+      }
+
+      @Override
+      public void onCompleted() {
+        if (!failed) {
+          call.onCompleted();
+        }
+      }
+    };
+  }
+
+  private static RuntimeException toStatus(RuntimeException e) {
+    if (e instanceof StatusRuntimeException) {
+      return e;
+    }
+    return Status.INTERNAL
+        .withDescription(e.getMessage())
+        .withCause(e)
+        .asRuntimeException();
+  }
+}
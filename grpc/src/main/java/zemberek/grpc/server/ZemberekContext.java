@@ -1,26 +1,67 @@
 package zemberek.grpc.server;
 
+import java.io.IOException;
+import zemberek.core.logging.Log;
+import zemberek.langid.LanguageIdentifier;
+import zemberek.lm.compression.SmoothLm;
 import zemberek.morphology.TurkishMorphology;
+import zemberek.normalization.TurkishSentenceNormalizer;
 import zemberek.tokenization.TurkishTokenizer;
 
 /**
- * Tentative class for holding shareable objects.
+ * Tentative class for holding shareable objects. gRPC services and the HTTP gateway use the same
+ * instance, so models are loaded once.
  */
 public class ZemberekContext {
 
   final TurkishMorphology morphology;
   final TurkishTokenizer tokenizer;
   ZemberekGrpcConfiguration configuration;
+  // Single language model instance shared by normalization and language model services.
+  SmoothLm languageModel;
+  // null if normalization paths are not available.
+  TurkishSentenceNormalizer normalizer;
+  private LanguageIdentifier languageIdentifier;
 
   public ZemberekContext() {
     tokenizer = TurkishTokenizer.ALL;
     morphology = TurkishMorphology.createWithDefaults();
   }
 
-  public ZemberekContext(ZemberekGrpcConfiguration configuration) {
+  public ZemberekContext(ZemberekGrpcConfiguration configuration) throws IOException {
     tokenizer = TurkishTokenizer.ALL;
     morphology = TurkishMorphology.createWithDefaults();
     this.configuration = configuration;
+    if (configuration != null && configuration.normalizationLmPath != null) {
+      Log.info("Loading language model from %s", configuration.normalizationLmPath);
+      languageModel = SmoothLm.builder(configuration.normalizationLmPath)
+          .logBase(Math.E)
+          .build();
+    }
+    if (configuration != null && configuration.normalizationPathsAvailable()) {
+      normalizer = new TurkishSentenceNormalizer(
+          morphology,
+          configuration.normalizationDataRoot,
+          languageModel);
+    }
+  }
+
+  /**
+   * @return language identifier with all internal models. It is loaded on first call.
+   */
+  public synchronized LanguageIdentifier getLanguageIdentifier() throws IOException {
+    if (languageIdentifier == null) {
+      languageIdentifier = LanguageIdentifier.fromInternalModels();
+    }
+    return languageIdentifier;
+  }
+
+  public TurkishSentenceNormalizer getNormalizer() {
+    return normalizer;
+  }
+
+  public SmoothLm getLanguageModel() {
+    return languageModel;
   }
 
 }
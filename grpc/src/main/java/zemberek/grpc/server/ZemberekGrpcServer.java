@@ -1,8 +1,19 @@
 package zemberek.grpc.server;
 
+import com.sun.net.httpserver.HttpServer;
 import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import zemberek.core.logging.Log;
+import zemberek.morphology.analysis.AnalysisCache;
 
 public class ZemberekGrpcServer {
 
@@ -10,9 +21,20 @@ public class ZemberekGrpcServer {
 
   private final int port;
   private ZemberekContext context;
+  private final ServerOptions options;
+  private final ServerMetrics metrics = new ServerMetrics();
 
-  public ZemberekGrpcServer(int port, ZemberekGrpcConfiguration configuration) {
+  public ZemberekGrpcServer(int port, ZemberekGrpcConfiguration configuration)
+      throws IOException {
+    this(port, configuration, ServerOptions.DEFAULT);
+  }
+
+  public ZemberekGrpcServer(
+      int port,
+      ZemberekGrpcConfiguration configuration,
+      ServerOptions options) throws IOException {
     this.port = port;
+    this.options = options;
     context = new ZemberekContext(configuration);
   }
 
@@ -24,16 +46,110 @@ public class ZemberekGrpcServer {
     return context;
   }
 
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
   public void start() throws Exception {
+    ExecutorService executor = createExecutor();
+    ThreadPoolExecutor pool =
+        executor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) executor : null;
+    LoadSheddingInterceptor loadShedding = new LoadSheddingInterceptor(
+        options, metrics, executor, () -> pool == null ? 0 : pool.getQueue().size());
+    StreamingCalls calls = new StreamingCalls(options, executor, options.batchParallelism());
+
+    // Load shedding selects the executor of each call on the transport thread, so overloaded
+    // calls are rejected before they are queued. Interceptors run in reverse order, so metrics
+    // also records rejected calls.
     Server server = NettyServerBuilder.forPort(port)
-        .addService(new LanguageIdServiceImpl())
-        .addService(new PreprocessingServiceImpl())
-        .addService(new NormalizationServiceImpl(context))
-        .addService(new MorphologyServiceImpl(context))
-        .build()
-        .start();
+        .directExecutor()
+        .callExecutor(loadShedding)
+        .intercept(loadShedding)
+        .intercept(new MetricsInterceptor(metrics))
+        .addService(new LanguageIdServiceImpl(context))
+        .addService(new PreprocessingServiceImpl(calls))
+        .addService(new NormalizationServiceImpl(context, calls))
+        .addService(new MorphologyServiceImpl(context, calls))
+        .addService(new LanguageModelServiceImpl(context))
+        .build();
+    registerGauges(server, pool, loadShedding);
+    server.start();
     Log.info("Zemberek grpc server started at port: " + port);
-    server.awaitTermination();
+
+    HttpServer metricsServer = null;
+    if (options.metricsPort > 0) {
+      metricsServer = metrics.startHttpServer(options.metricsPort);
+      Log.info("Metrics are available at http://localhost:%d/metrics", options.metricsPort);
+    }
+    HttpGateway gateway = null;
+    if (options.httpPort > 0) {
+      gateway = new HttpGateway(context, options, metrics, loadShedding);
+      gateway.start(options.httpPort, executor);
+    }
+    try {
+      server.awaitTermination();
+    } finally {
+      if (metricsServer != null) {
+        metricsServer.stop(0);
+      }
+      if (gateway != null) {
+        gateway.stop();
+      }
+      executor.shutdown();
+    }
+  }
+
+  private ExecutorService createExecutor() {
+    if (options.virtualThreads) {
+      // Called reflectively, so that the server still compiles and runs on Java 8.
+      try {
+        return (ExecutorService) Executors.class
+            .getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Virtual threads require Java 21 or later.", e);
+      }
+    }
+    AtomicInteger counter = new AtomicInteger();
+    ThreadFactory threadFactory = r -> {
+      Thread thread = new Thread(r, "zemberek-grpc-worker-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return new ThreadPoolExecutor(
+        options.workerThreads,
+        options.workerThreads,
+        0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        threadFactory);
+  }
+
+  private void registerGauges(
+      Server server,
+      ThreadPoolExecutor pool,
+      LoadSheddingInterceptor loadShedding) {
+    if (pool != null) {
+      metrics.addGauge("zemberek_grpc_queue_depth",
+          "Tasks waiting for a worker thread.", () -> pool.getQueue().size());
+      metrics.addGauge("zemberek_grpc_active_workers",
+          "Worker threads that are running a task.", pool::getActiveCount);
+    }
+    for (ServerServiceDefinition definition : server.getServices()) {
+      String service = definition.getServiceDescriptor().getName();
+      metrics.addGauge("zemberek_grpc_active_calls_" + service.replaceAll("[^a-zA-Z0-9_]", "_"),
+          "Active calls of " + service, () -> loadShedding.activeCalls(service));
+    }
+    AnalysisCache cache = context.morphology.getCache();
+    if (cache != null) {
+      metrics.addGauge("zemberek_analysis_static_cache_hit_rate",
+          "Hit rate of the morphological analysis static cache.", cache::getStaticCacheHitRate);
+      metrics.addGauge("zemberek_analysis_dynamic_cache_hit_rate",
+          "Hit rate of the morphological analysis dynamic cache.",
+          cache::getDynamicCacheHitRate);
+      metrics.addGauge("zemberek_analysis_dynamic_cache_size",
+          "Amount of entries in morphological analysis dynamic cache.",
+          cache::getDynamicCacheSize);
+    }
   }
 
   public static void main(String[] args) throws Exception {
@@ -8,6 +8,8 @@ import zemberek.proto.LanguageIdRequest;
 import zemberek.proto.LanguageIdResponse;
 import zemberek.proto.LanguageIdServiceGrpc;
 import zemberek.proto.LanguageIdServiceGrpc.LanguageIdServiceBlockingStub;
+import zemberek.proto.LanguageModelServiceGrpc;
+import zemberek.proto.LanguageModelServiceGrpc.LanguageModelServiceBlockingStub;
 import zemberek.proto.NormalizationRequest;
 import zemberek.proto.NormalizationResponse;
 import zemberek.proto.NormalizationServiceGrpc;
@@ -16,6 +18,8 @@ import zemberek.proto.PreprocessingServiceGrpc;
 import zemberek.proto.PreprocessingServiceGrpc.PreprocessingServiceBlockingStub;
 import zemberek.proto.SentenceExtractionRequest;
 import zemberek.proto.SentenceExtractionResponse;
+import zemberek.proto.SentenceScoreRequest;
+import zemberek.proto.SentenceScoreResponse;
 import zemberek.proto.TokenizationRequest;
 import zemberek.proto.TokenizationResponse;
 import zemberek.proto.morphology.MorphologyServiceGrpc;
@@ -40,6 +44,8 @@ public class TestClient {
         PreprocessingServiceGrpc.newBlockingStub(channel);
     NormalizationServiceBlockingStub normalizationServiceBlockingStub =
         NormalizationServiceGrpc.newBlockingStub(channel);
+    LanguageModelServiceBlockingStub languageModelServiceBlockingStub =
+        LanguageModelServiceGrpc.newBlockingStub(channel);
 
     Log.info("----- Word Morphological Analysis ------------ ");
     String input = "tapirler";
@@ -93,5 +99,15 @@ public class TestClient {
             .build());
     Log.info("Input: " + normalizationiInput);
     Log.info("Response: " + normalizationResponse.getNormalizedInput());
+
+    Log.info("----- Sentence Scoring ------------ ");
+    String scoreInput = "merhaba ben zemberek";
+    SentenceScoreResponse scoreResponse = languageModelServiceBlockingStub
+        .scoreSentences(SentenceScoreRequest.newBuilder()
+            .addSentences(scoreInput)
+            .setAddSentenceBoundaries(true)
+            .build());
+    Log.info("Input: " + scoreInput);
+    Log.info("Response: " + scoreResponse);
   }
 }
@@ -0,0 +1,128 @@
+package zemberek.grpc.server;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import zemberek.core.turkish.SecondaryPos;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.analysis.SentenceAnalysis;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.SingleAnalysis.MorphemeData;
+import zemberek.morphology.analysis.WordAnalysis;
+import zemberek.proto.morphology.CompactSentenceAnalysisProto;
+import zemberek.proto.morphology.CompactSingleAnalysisProto;
+import zemberek.proto.morphology.CompactTokenAnalysisProto;
+import zemberek.proto.morphology.CompactWordAnalysisProto;
+import zemberek.proto.morphology.IdDictionaryProto;
+
+public class CompactAnalysisEncoderTest {
+
+  private static final List<String> SENTENCES = Arrays.asList(
+      "Ali Veli ile Ankara'ya gitti.",
+      "“Kitabı okudum” dedi, ama okumamış.",
+      "İstanbul’da 3.5 saat bekledik—çok sıkıcıydı.",
+      "Xyzqw blablalar geldi."
+  );
+
+  private static TurkishMorphology morphology;
+  private static CompactAnalysisEncoder encoder;
+  private static IdDictionaryProto dictionary;
+
+  @BeforeClass
+  public static void createEncoder() {
+    morphology = TurkishMorphology.createWithDefaults();
+    encoder = new CompactAnalysisEncoder(morphology);
+    dictionary = encoder.getDictionary();
+  }
+
+  // Converts a compact analysis back to its morpheme ids and surfaces, such as "Noun:elma".
+  private static List<String> decodeMorphemes(CompactSingleAnalysisProto compact, String word) {
+    String surface = compact.getSurface().isEmpty() ? word : compact.getSurface();
+    Assert.assertEquals(compact.getMorphemesCount(), compact.getSurfaceEndsCount());
+    List<String> result = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i < compact.getMorphemesCount(); i++) {
+      int end = compact.getSurfaceEnds(i);
+      result.add(dictionary.getMorphemes(compact.getMorphemes(i)) + ":"
+          + surface.substring(start, end));
+      start = end;
+    }
+    Assert.assertEquals(surface.length(), start);
+    return result;
+  }
+
+  private static List<String> morphemes(SingleAnalysis analysis) {
+    List<String> result = new ArrayList<>();
+    for (MorphemeData m : analysis.getMorphemeDataList()) {
+      result.add(m.morpheme.id + ":" + m.surface);
+    }
+    return result;
+  }
+
+  private static void assertDecodesTo(
+      SingleAnalysis expected, CompactSingleAnalysisProto compact, String word) {
+    Assert.assertEquals(expected.getDictionaryItem().lemma, compact.getLemma());
+    Assert.assertEquals(expected.getDictionaryItem().primaryPos.shortForm,
+        dictionary.getPrimaryPos(compact.getPrimaryPos()));
+    SecondaryPos secondaryPos = expected.getDictionaryItem().secondaryPos;
+    Assert.assertEquals(secondaryPos == null ? SecondaryPos.None.shortForm : secondaryPos.shortForm,
+        dictionary.getSecondaryPos(compact.getSecondaryPos()));
+    Assert.assertEquals(expected.getPos().shortForm, dictionary.getPrimaryPos(compact.getPos()));
+    Assert.assertEquals(expected.isRuntime(), compact.getRuntime());
+    Assert.assertEquals(expected.containsInformalMorpheme(), compact.getInformal());
+    Assert.assertEquals(morphemes(expected), decodeMorphemes(compact, word));
+  }
+
+  @Test
+  public void sentenceRoundTrip() throws InvalidProtocolBufferException {
+    for (String sentence : SENTENCES) {
+      SentenceAnalysis expected = morphology.analyzeAndDisambiguate(sentence);
+      for (boolean allAnalyses : new boolean[]{false, true}) {
+        CompactSentenceAnalysisProto encoded = encoder.encodeSentence(sentence, allAnalyses);
+        CompactSentenceAnalysisProto compact =
+            CompactSentenceAnalysisProto.parseFrom(encoded.toByteArray());
+        Assert.assertEquals(encoded, compact);
+
+        String input = compact.getNormalizedInput().isEmpty() ?
+            sentence : compact.getNormalizedInput();
+        Assert.assertEquals(expected.size(), compact.getTokensCount());
+        for (int i = 0; i < compact.getTokensCount(); i++) {
+          CompactTokenAnalysisProto token = compact.getTokens(i);
+          WordAnalysis wordAnalysis = expected.getWordAnalyses().get(i).getWordAnalysis();
+          Assert.assertEquals(wordAnalysis.getInput(),
+              input.substring(token.getStart(), token.getEnd()));
+          String word = token.getNormalizedInput().isEmpty() ?
+              wordAnalysis.getInput() : token.getNormalizedInput();
+          Assert.assertEquals(wordAnalysis.getNormalizedInput(), word);
+
+          CompactSingleAnalysisProto best = token.getAnalyses(token.getBestIndex());
+          assertDecodesTo(expected.getWordAnalyses().get(i).getBestAnalysis(), best, word);
+          if (allAnalyses) {
+            Assert.assertTrue(token.getAnalysesCount() >= wordAnalysis.analysisCount());
+          } else {
+            Assert.assertEquals(1, token.getAnalysesCount());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void wordRoundTrip() throws InvalidProtocolBufferException {
+    for (String input : new String[]{"kitaplarımızdan", "Ankara'ya", "okumamış", "Xyzqw"}) {
+      WordAnalysis expected = morphology.analyze(input);
+      CompactWordAnalysisProto compact =
+          CompactWordAnalysisProto.parseFrom(encoder.encodeWord(input).toByteArray());
+      String word = compact.getNormalizedInput().isEmpty() ? input : compact.getNormalizedInput();
+      Assert.assertEquals(expected.getNormalizedInput(), word);
+      Assert.assertEquals(expected.analysisCount(), compact.getAnalysesCount());
+      for (int i = 0; i < compact.getAnalysesCount(); i++) {
+        assertDecodesTo(expected.getAnalysisResults().get(i), compact.getAnalyses(i), word);
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package zemberek.grpc.server;
+
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import zemberek.proto.PreprocessingServiceGrpc;
+
+public class HttpGatewayTest {
+
+  private static final String TOKENIZE_REQUEST = "{\"inputs\":[\"Merhaba dünya.\"]}";
+
+  private static ZemberekContext context;
+  private static ExecutorService workers;
+
+  @BeforeClass
+  public static void createContext() {
+    context = new ZemberekContext();
+    workers = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterClass
+  public static void shutdown() {
+    workers.shutdown();
+  }
+
+  private static class Response {
+
+    final int code;
+    final String body;
+
+    Response(int code, String body) {
+      this.code = code;
+      this.body = body;
+    }
+  }
+
+  private static Response post(HttpGateway gateway, String path, String body) throws IOException {
+    InetSocketAddress address = gateway.getAddress();
+    URL url = new URL("http://localhost:" + address.getPort() + path);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream os = connection.getOutputStream()) {
+      os.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    int code = connection.getResponseCode();
+    InputStream is = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+    try (InputStream in = is) {
+      return new Response(code, new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void tokenize() throws IOException {
+    HttpGateway gateway = new HttpGateway(context);
+    gateway.start(0, workers);
+    try {
+      Assert.assertTrue(gateway.getAddress().getAddress().isLoopbackAddress());
+      Response response = post(gateway, "/tokenize", TOKENIZE_REQUEST);
+      Assert.assertEquals(200, response.code);
+      JsonObject result = JsonParser.parseString(response.body).getAsJsonObject()
+          .getAsJsonArray("results").get(0).getAsJsonObject();
+      Assert.assertEquals("Merhaba",
+          result.getAsJsonArray("tokens").get(0).getAsJsonObject().get("token").getAsString());
+    } finally {
+      gateway.stop();
+    }
+  }
+
+  @Test
+  public void largeRequestIsRejected() throws IOException {
+    ServerOptions options = ServerOptions.builder().maxHttpRequestBytes(100).build();
+    HttpGateway gateway = new HttpGateway(context, options, new ServerMetrics(), null);
+    gateway.start(0, workers);
+    try {
+      StringBuilder sb = new StringBuilder("{\"inputs\":[");
+      for (int i = 0; i < 50; i++) {
+        sb.append(i == 0 ? "" : ",").append("\"Merhaba dünya.\"");
+      }
+      sb.append("]}");
+      Assert.assertEquals(413, post(gateway, "/tokenize", sb.toString()).code);
+      Assert.assertEquals(200, post(gateway, "/tokenize", TOKENIZE_REQUEST).code);
+    } finally {
+      gateway.stop();
+    }
+  }
+
+  @Test
+  public void concurrencyLimitIsShared() throws IOException {
+    ServerOptions options = ServerOptions.builder().maxConcurrentCalls(1).build();
+    ServerMetrics metrics = new ServerMetrics();
+    LoadSheddingInterceptor loadShedding =
+        new LoadSheddingInterceptor(options, metrics, workers, () -> 0);
+    HttpGateway gateway = new HttpGateway(context, options, metrics, loadShedding);
+    gateway.start(0, workers);
+    String service = PreprocessingServiceGrpc.SERVICE_NAME;
+    try {
+      // simulates an active gRPC call of the same service.
+      Assert.assertTrue(loadShedding.tryAcquire(service));
+      Assert.assertEquals(429, post(gateway, "/tokenize", TOKENIZE_REQUEST).code);
+      loadShedding.release(service);
+      Assert.assertEquals(200, post(gateway, "/tokenize", TOKENIZE_REQUEST).code);
+      Assert.assertEquals(0, loadShedding.activeCalls(service));
+
+      String text = metrics.toPrometheusText();
+      Assert.assertTrue(text.contains(
+          "zemberek_grpc_rejected_calls_total{method=\"http/tokenize\"} 1"));
+      Assert.assertTrue(text.contains(
+          "zemberek_grpc_calls_total{method=\"http/tokenize\",code=\"OK\"} 1"));
+    } finally {
+      gateway.stop();
+    }
+  }
+
+  @Test
+  public void queueDepthLimitIsApplied() throws IOException {
+    ServerOptions options = ServerOptions.builder().maxQueueDepth(2).build();
+    AtomicInteger queueDepth = new AtomicInteger(3);
+    ServerMetrics metrics = new ServerMetrics();
+    LoadSheddingInterceptor loadShedding =
+        new LoadSheddingInterceptor(options, metrics, workers, queueDepth::get);
+    HttpGateway gateway = new HttpGateway(context, options, metrics, loadShedding);
+    gateway.start(0, workers);
+    try {
+      Assert.assertEquals(429, post(gateway, "/tokenize", TOKENIZE_REQUEST).code);
+      queueDepth.set(2);
+      Assert.assertEquals(200, post(gateway, "/tokenize", TOKENIZE_REQUEST).code);
+    } finally {
+      gateway.stop();
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package zemberek.grpc.server;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import zemberek.lm.LmVocabulary;
+import zemberek.lm.compression.MultiFileUncompressedLm;
+import zemberek.lm.compression.SmoothLm;
+import zemberek.lm.compression.UncompressedToSmoothLmConverter;
+import zemberek.lm.compression.UncompressedToSmoothLmConverter.NgramDataBlock;
+import zemberek.proto.NgramProbabilityRequest;
+import zemberek.proto.NgramProbabilityResponse;
+import zemberek.proto.NgramProto;
+import zemberek.proto.SentenceScoreProto;
+import zemberek.proto.SentenceScoreRequest;
+import zemberek.proto.SentenceScoreResponse;
+
+public class LanguageModelServiceImplTest {
+
+  private static final String ARPA = String.join("\n",
+      "\\data\\",
+      "ngram 1=6",
+      "ngram 2=4",
+      "",
+      "\\1-grams:",
+      "-2.0 <unk> 0.0",
+      "-1.716003 <s> -0.576253",
+      "-1.5 </s> 0.0",
+      "-1.062791 Ahmet -0.316824",
+      "-1.062791 elma -0.617854",
+      "-0.975641 yedi -1.191886",
+      "",
+      "\\2-grams:",
+      "-0.455510 <s> Ahmet",
+      "-0.770464 Ahmet elma",
+      "-0.530704 elma yedi",
+      "-0.3 yedi </s>",
+      "",
+      "\\end\\",
+      "");
+
+  private static SmoothLm lm;
+  private static LanguageModelServiceImpl service;
+  private static LanguageModelServiceImpl notInitialized;
+
+  @BeforeClass
+  public static void createService() throws IOException {
+    File dir = Files.createTempDir();
+    dir.deleteOnExit();
+    File arpa = new File(dir, "test.arpa");
+    Files.write(ARPA, arpa, StandardCharsets.UTF_8);
+    File lmFile = new File(dir, "test.slm");
+    new UncompressedToSmoothLmConverter(lmFile, dir).convertSmall(
+        MultiFileUncompressedLm.generate(arpa, dir, "utf-8", 4).getLmDir(),
+        new NgramDataBlock(16, 16, 16));
+    lm = SmoothLm.builder(lmFile).logBase(Math.E).build();
+    ZemberekContext context = new ZemberekContext();
+    notInitialized = new LanguageModelServiceImpl(context);
+    context.languageModel = lm;
+    service = new LanguageModelServiceImpl(context);
+  }
+
+  private static NgramProbabilityResponse probabilities(NgramProto... ngrams) {
+    RecordingObserver<NgramProbabilityResponse> observer = new RecordingObserver<>();
+    service.getProbabilities(
+        NgramProbabilityRequest.newBuilder().addAllNgrams(Arrays.asList(ngrams)).build(),
+        observer);
+    Assert.assertTrue(observer.completed);
+    return observer.values.get(0);
+  }
+
+  private static NgramProto words(String... words) {
+    return NgramProto.newBuilder().addAllWords(Arrays.asList(words)).build();
+  }
+
+  private static SentenceScoreProto score(String sentence, boolean addBoundaries) {
+    RecordingObserver<SentenceScoreResponse> observer = new RecordingObserver<>();
+    service.scoreSentences(SentenceScoreRequest.newBuilder()
+        .addSentences(sentence)
+        .setAddSentenceBoundaries(addBoundaries)
+        .build(), observer);
+    SentenceScoreResponse response = observer.values.get(0);
+    Assert.assertEquals("", response.getError());
+    return response.getScores(0);
+  }
+
+  @Test
+  public void knownNgramProbabilities() {
+    LmVocabulary vocabulary = lm.getVocabulary();
+    int ahmet = vocabulary.indexOf("Ahmet");
+    int elma = vocabulary.indexOf("elma");
+    NgramProbabilityResponse response = probabilities(
+        words("Ahmet", "elma"),
+        NgramProto.newBuilder().addIds(ahmet).addIds(elma).build(),
+        words("yedi"));
+    Assert.assertEquals("", response.getError());
+    Assert.assertEquals(3, response.getLogProbabilitiesCount());
+    // values are natural logarithms of the base 10 values in the model.
+    Assert.assertEquals(-0.770464 * Math.log(10), response.getLogProbabilities(0), 0.01);
+    Assert.assertEquals(response.getLogProbabilities(0), response.getLogProbabilities(1), 0);
+    Assert.assertEquals(-0.975641 * Math.log(10), response.getLogProbabilities(2), 0.01);
+  }
+
+  @Test
+  public void unknownWordProbability() {
+    NgramProbabilityResponse response = probabilities(words("xyzqw"));
+    Assert.assertEquals("", response.getError());
+    Assert.assertEquals(lm.getUnigramProbability(lm.getVocabulary().getUnknownWordIndex()),
+        response.getLogProbabilities(0), 0);
+  }
+
+  @Test
+  public void invalidNgrams() {
+    // longer than model order.
+    NgramProbabilityResponse response = probabilities(words("Ahmet"),
+        words("Ahmet", "elma", "yedi"));
+    Assert.assertTrue(response.getError().startsWith("N-gram length must be between 1 and 2"));
+    Assert.assertEquals(0, response.getLogProbabilitiesCount());
+    // empty n-gram.
+    response = probabilities(NgramProto.getDefaultInstance());
+    Assert.assertTrue(response.getError().startsWith("N-gram length must be between 1 and 2"));
+    // id that is not in the vocabulary.
+    response = probabilities(NgramProto.newBuilder().addIds(1000).build());
+    Assert.assertTrue(response.getError().startsWith("N-gram contains out of vocabulary ids"));
+    Assert.assertEquals(0, response.getLogProbabilitiesCount());
+  }
+
+  @Test
+  public void scoreAndPerplexity() {
+    LmVocabulary vocabulary = lm.getVocabulary();
+    int[] ids = vocabulary.toIndexes("<s>", "Ahmet", "elma", "yedi", "</s>");
+    double expected = 0;
+    for (int i = 1; i < ids.length; i++) {
+      expected += lm.getProbability(ids[i - 1], ids[i]);
+    }
+    SentenceScoreProto score = score("Ahmet elma yedi", true);
+    Assert.assertEquals(4, score.getTokenCount());
+    Assert.assertEquals(0, score.getUnknownCount());
+    Assert.assertEquals(expected, score.getLogProbability(), 1e-4);
+    Assert.assertEquals(Math.exp(-expected / 4), score.getPerplexity(), 1e-4);
+
+    score = score("Ahmet xyzqw", false);
+    Assert.assertEquals(2, score.getTokenCount());
+    Assert.assertEquals(1, score.getUnknownCount());
+    Assert.assertEquals(0, score("  ", false).getTokenCount());
+  }
+
+  @Test
+  public void modelNotInitialized() {
+    RecordingObserver<NgramProbabilityResponse> observer = new RecordingObserver<>();
+    notInitialized.getProbabilities(
+        NgramProbabilityRequest.newBuilder().addNgrams(words("Ahmet")).build(), observer);
+    Assert.assertEquals(LanguageModelServiceImpl.NOT_INITIALIZED,
+        observer.values.get(0).getError());
+  }
+}
@@ -0,0 +1,30 @@
+package zemberek.grpc.server;
+
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the responses sent to it, for calling service methods directly in tests.
+ */
+class RecordingObserver<T> implements StreamObserver<T> {
+
+  final List<T> values = new ArrayList<>();
+  Throwable error;
+  boolean completed;
+
+  @Override
+  public void onNext(T value) {
+    values.add(value);
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    error = t;
+  }
+
+  @Override
+  public void onCompleted() {
+    completed = true;
+  }
+}
@@ -0,0 +1,101 @@
+package zemberek.grpc.server;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingCallsTest {
+
+  @Test
+  public void collect() {
+    StreamingCalls calls = new StreamingCalls(ServerOptions.builder().maxStreamMessages(3).build());
+    RecordingObserver<Integer> response = new RecordingObserver<>();
+    StreamObserver<String> requests = calls.collect(response, List::size);
+    requests.onNext("a");
+    requests.onNext("b");
+    requests.onNext("c");
+    requests.onCompleted();
+    Assert.assertNull(response.error);
+    Assert.assertTrue(response.completed);
+    Assert.assertEquals(3, (int) response.values.get(0));
+  }
+
+  @Test
+  public void collectFailsAboveMessageLimit() {
+    StreamingCalls calls = new StreamingCalls(ServerOptions.builder().maxStreamMessages(3).build());
+    RecordingObserver<Integer> response = new RecordingObserver<>();
+    StreamObserver<String> requests = calls.collect(response, List::size);
+    for (int i = 0; i < 5; i++) {
+      requests.onNext("a");
+    }
+    requests.onCompleted();
+    Assert.assertEquals(Status.Code.RESOURCE_EXHAUSTED,
+        Status.fromThrowable(response.error).getCode());
+    Assert.assertFalse(response.completed);
+    Assert.assertTrue(response.values.isEmpty());
+  }
+
+  private static List<Integer> range(int count) {
+    return IntStream.range(0, count).boxed().collect(Collectors.toList());
+  }
+
+  @Test
+  public void parallelMapKeepsInputOrder() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      StreamingCalls calls = new StreamingCalls(ServerOptions.DEFAULT, executor, 4);
+      List<Integer> inputs = range(1000);
+      Assert.assertEquals(
+          inputs.stream().map(i -> i * 2).collect(Collectors.toList()),
+          calls.parallelMap(inputs, i -> i * 2));
+      Assert.assertTrue(calls.parallelMap(new ArrayList<Integer>(), i -> i).isEmpty());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parallelMapInBusyWorkerPool()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    // Only worker runs the call, so tasks submitted by parallelMap stay in the queue.
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+    try {
+      StreamingCalls calls = new StreamingCalls(ServerOptions.DEFAULT, executor, 4);
+      Future<List<Integer>> result = executor.submit(
+          () -> calls.parallelMap(range(100), i -> i + 1));
+      Assert.assertEquals(100, result.get(10, TimeUnit.SECONDS).size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parallelMapThrowsFunctionFailure() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      StreamingCalls calls = new StreamingCalls(ServerOptions.DEFAULT, executor, 4);
+      calls.parallelMap(range(100), i -> {
+        if (i == 50) {
+          throw new IllegalStateException("fail");
+        }
+        return i;
+      });
+      Assert.fail("Function failure should be thrown.");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("fail", e.getMessage());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
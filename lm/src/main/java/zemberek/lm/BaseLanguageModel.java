@@ -99,6 +99,10 @@ public abstract class BaseLanguageModel {
       modulo = k - 1;
       probabilities = new float[k];
       keys = new int[k][model.getOrder()];
+      // empty slots should not match any n-gram, including the one with all zero indexes.
+      for (int[] key : keys) {
+        Arrays.fill(key, -1);
+      }
     }
 
     /**
@@ -0,0 +1,417 @@
+package zemberek.lm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import zemberek.core.hash.IntHashKeyProvider;
+import zemberek.core.hash.MultiLevelMphf;
+
+/**
+ * An immutable word -> index lookup that keeps words out of the Java heap. Words are stored
+ * contiguously as modified UTF-8 bytes (the encoding used by {@link DataOutputStream#writeUTF}) in
+ * a direct or memory mapped buffer and an offset table is used for retrieving a word with its
+ * index. Index lookup uses a Minimal Perfect Hash Function and an 8 bit fingerprint per key. If
+ * fingerprint matches, stored bytes are compared with the input so lookups never return false
+ * positives.
+ * <p>
+ * Binary layout of the buffer. All values are big endian.
+ * <pre>
+ * int magic
+ * int word count [n]
+ * int utf8 byte length [k]
+ * int[n+1] word offsets
+ * byte[k] utf8 word data
+ * int[n] mphf slot -> word index
+ * byte[n] mphf slot -> fingerprint
+ * mphf data
+ * </pre>
+ */
+public final class CompactWordIndex {
+
+  private static final int MAGIC = 0x5A4C5649; // ZLVI
+  private static final int HEADER_SIZE = 12;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int offsetsStart;
+  private final int dataStart;
+  private final int slotsStart;
+  private final int fingerprintsStart;
+  private final MultiLevelMphf mphf;
+
+  private CompactWordIndex(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IOException("Data is not a compact word index.");
+    }
+    this.size = buffer.getInt(4);
+    int byteLength = buffer.getInt(8);
+    this.offsetsStart = HEADER_SIZE;
+    this.dataStart = offsetsStart + (size + 1) * 4;
+    this.slotsStart = dataStart + byteLength;
+    this.fingerprintsStart = slotsStart + size * 4;
+    int mphfStart = fingerprintsStart + size;
+    byte[] mphfBytes = new byte[buffer.capacity() - mphfStart];
+    ByteBuffer dup = buffer.duplicate();
+    dup.position(mphfStart);
+    dup.get(mphfBytes);
+    this.mphf = MultiLevelMphf.deserialize(
+        new DataInputStream(new ByteArrayInputStream(mphfBytes)));
+  }
+
+  /**
+   * Memory maps a file generated with {@link #save(Path)}. Pages of the file are shared by all
+   * processes that map the same file.
+   */
+  public static CompactWordIndex map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      return new CompactWordIndex(buffer);
+    }
+  }
+
+  /**
+   * Reads a vocabulary section serialized with {@link LmVocabulary#saveBinary(DataOutputStream)}.
+   * Word bytes are copied to the buffer as they are, without creating String objects. This method
+   * does not close the stream.
+   */
+  public static CompactWordIndex fromBinaryVocabulary(DataInputStream dis) throws IOException {
+    return readBinaryVocabulary(dis).build();
+  }
+
+  static Builder readBinaryVocabulary(DataInputStream dis) throws IOException {
+    int count = dis.readInt();
+    Builder builder = new Builder(count);
+    byte[] tmp = new byte[64];
+    for (int i = 0; i < count; i++) {
+      int length = dis.readUnsignedShort();
+      if (length > tmp.length) {
+        tmp = new byte[length + 32];
+      }
+      dis.readFully(tmp, 0, length);
+      builder.add(tmp, 0, length);
+    }
+    return builder;
+  }
+
+  public static CompactWordIndex fromWords(Iterable<String> words) {
+    Builder builder = new Builder(16);
+    for (String word : words) {
+      builder.add(word);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Writes the buffer content to a file. Result can be memory mapped with {@link #map(Path)}.
+   */
+  public void save(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer dup = buffer.duplicate();
+      dup.position(0);
+      while (dup.hasRemaining()) {
+        channel.write(dup);
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return amount of bytes used by the buffer that holds word data, offsets and hash lookup.
+   */
+  public int sizeInBytes() {
+    return buffer.capacity();
+  }
+
+  /**
+   * @return word with given index. Index must be in [0..size) range.
+   */
+  public String getWord(int index) {
+    return decode(buffer, dataStart + offset(index), dataStart + offset(index + 1));
+  }
+
+  /**
+   * @return index of the word or -1 if word does not exist.
+   */
+  public int indexOf(String word) {
+    if (size == 0) {
+      return -1;
+    }
+    int hash = MultiLevelMphf.hash(word, -1);
+    int slot = mphf.get(word, hash);
+    if (buffer.get(fingerprintsStart + slot) != fingerprint(hash)) {
+      return -1;
+    }
+    int index = buffer.getInt(slotsStart + slot * 4);
+    return equalsStored(index, word) ? index : -1;
+  }
+
+  /**
+   * Returns the index of the first word that is equal to input ignoring case. Only words with the
+   * same utf8 length are compared, so this is only meant for short ascii input such as special
+   * tokens.
+   */
+  int indexOfIgnoreCase(String word) {
+    for (int i = 0; i < size; i++) {
+      if (offset(i + 1) - offset(i) == word.length() && word.equalsIgnoreCase(getWord(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int offset(int index) {
+    return buffer.getInt(offsetsStart + index * 4);
+  }
+
+  private boolean equalsStored(int index, String word) {
+    int i = dataStart + offset(index);
+    int limit = dataStart + offset(index + 1);
+    for (int j = 0; j < word.length(); j++) {
+      char c = word.charAt(j);
+      if (c != 0 && c < 0x80) {
+        if (i >= limit || buffer.get(i++) != (byte) c) {
+          return false;
+        }
+      } else if (c < 0x800) {
+        if (i + 1 >= limit
+            || buffer.get(i++) != (byte) (0xc0 | (c >> 6))
+            || buffer.get(i++) != (byte) (0x80 | (c & 0x3f))) {
+          return false;
+        }
+      } else {
+        if (i + 2 >= limit
+            || buffer.get(i++) != (byte) (0xe0 | (c >> 12))
+            || buffer.get(i++) != (byte) (0x80 | ((c >> 6) & 0x3f))
+            || buffer.get(i++) != (byte) (0x80 | (c & 0x3f))) {
+          return false;
+        }
+      }
+    }
+    return i == limit;
+  }
+
+  private static String decode(ByteBuffer buffer, int start, int end) {
+    char[] chars = new char[end - start];
+    int k = 0;
+    int i = start;
+    while (i < end) {
+      int b = buffer.get(i) & 0xff;
+      if (b < 0x80) {
+        chars[k++] = (char) b;
+        i++;
+      } else if ((b & 0xe0) == 0xc0) {
+        chars[k++] = (char) (((b & 0x1f) << 6) | (buffer.get(i + 1) & 0x3f));
+        i += 2;
+      } else {
+        chars[k++] = (char) (((b & 0x0f) << 12)
+            | ((buffer.get(i + 1) & 0x3f) << 6)
+            | (buffer.get(i + 2) & 0x3f));
+        i += 3;
+      }
+    }
+    return new String(chars, 0, k);
+  }
+
+  private static byte fingerprint(int hash) {
+    return (byte) (hash >>> 23);
+  }
+
+  /**
+   * Accumulates words in a growing byte array and generates the immutable index. Duplicate words
+   * are ignored, {@link #add(String)} returns the index of the first occurrence.
+   */
+  static class Builder {
+
+    private byte[] data;
+    private int dataLength;
+    private int[] offsets;
+    private int size;
+    // open addressing table for removing duplicates. Contains index+1 values.
+    private int[] table;
+    private int mask;
+
+    Builder(int initialCapacity) {
+      int capacity = Math.max(initialCapacity, 16);
+      data = new byte[capacity * 8];
+      offsets = new int[capacity + 1];
+      int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+      table = new int[tableSize];
+      mask = tableSize - 1;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int add(String word) {
+      byte[] bytes = toModifiedUtf8(word);
+      return add(bytes, 0, bytes.length);
+    }
+
+    int add(byte[] bytes, int start, int length) {
+      int hash = hash(bytes, start, length);
+      int slot = hash & mask;
+      while (table[slot] != 0) {
+        int index = table[slot] - 1;
+        if (equals(index, bytes, start, length)) {
+          return index;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if (dataLength + length > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + length));
+      }
+      System.arraycopy(bytes, start, data, dataLength, length);
+      dataLength += length;
+      if (size + 2 > offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[size + 1] = dataLength;
+      table[slot] = size + 1;
+      int index = size++;
+      if (size * 2 > table.length) {
+        expandTable();
+      }
+      return index;
+    }
+
+    /**
+     * Same as {@link CompactWordIndex#indexOfIgnoreCase(String)}
+     */
+    int indexOfIgnoreCase(String word) {
+      int length = word.length();
+      for (int i = 0; i < size; i++) {
+        if (offsets[i + 1] - offsets[i] == length && word.equalsIgnoreCase(get(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    String get(int index) {
+      return decode(ByteBuffer.wrap(data), offsets[index], offsets[index + 1]);
+    }
+
+    CompactWordIndex build() {
+      MultiLevelMphf mphf = MultiLevelMphf.generate(new KeyProvider());
+      int[] slots = new int[size];
+      byte[] fingerprints = new byte[size];
+      for (int i = 0; i < size; i++) {
+        String word = get(i);
+        int hash = MultiLevelMphf.hash(word, -1);
+        int slot = mphf.get(word, hash);
+        slots[slot] = i;
+        fingerprints[slot] = fingerprint(hash);
+      }
+      try {
+        ByteArrayOutputStream mphfBytes = new ByteArrayOutputStream();
+        mphf.serialize(mphfBytes);
+        int total = HEADER_SIZE + (size + 1) * 4 + dataLength + size * 4 + size
+            + mphfBytes.size();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(total).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(size);
+        buffer.putInt(dataLength);
+        for (int i = 0; i <= size; i++) {
+          buffer.putInt(offsets[i]);
+        }
+        buffer.put(data, 0, dataLength);
+        for (int slot : slots) {
+          buffer.putInt(slot);
+        }
+        buffer.put(fingerprints);
+        buffer.put(mphfBytes.toByteArray());
+        buffer.flip();
+        return new CompactWordIndex(buffer);
+      } catch (IOException e) {
+        throw new IllegalStateException("Cannot generate compact word index.", e);
+      }
+    }
+
+    private boolean equals(int index, byte[] bytes, int start, int length) {
+      int s = offsets[index];
+      if (offsets[index + 1] - s != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (data[s + i] != bytes[start + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void expandTable() {
+      int[] newTable = new int[table.length * 2];
+      int newMask = newTable.length - 1;
+      for (int i = 0; i < size; i++) {
+        int start = offsets[i];
+        int slot = hash(data, start, offsets[i + 1] - start) & newMask;
+        while (newTable[slot] != 0) {
+          slot = (slot + 1) & newMask;
+        }
+        newTable[slot] = i + 1;
+      }
+      table = newTable;
+      mask = newMask;
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+      int h = MultiLevelMphf.INITIAL_HASH_SEED;
+      for (int i = start; i < start + length; i++) {
+        h = (h ^ bytes[i]) * MultiLevelMphf.HASH_MULTIPLIER;
+      }
+      return h ^ (h >>> 16);
+    }
+
+    private static byte[] toModifiedUtf8(String word) {
+      try {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(word.length() + 2);
+        new DataOutputStream(bos).writeUTF(word);
+        byte[] bytes = bos.toByteArray();
+        return Arrays.copyOfRange(bytes, 2, bytes.length);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Cannot encode word " + word, e);
+      }
+    }
+
+    /**
+     * Provides keys as utf16 chars so that hash values are consistent with {@link
+     * MultiLevelMphf#get(String)}
+     */
+    private class KeyProvider implements IntHashKeyProvider {
+
+      @Override
+      public int[] getKey(int index) {
+        String s = get(index);
+        int[] chars = new int[s.length()];
+        for (int i = 0; i < chars.length; i++) {
+          chars[i] = s.charAt(i);
+        }
+        return chars;
+      }
+
+      @Override
+      public int keyAmount() {
+        return size;
+      }
+    }
+  }
+}
@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.file.Path;
 import java.text.Collator;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -34,6 +35,8 @@ public class LmVocabulary {
   private String sentenceEnd;
   private List<String> vocabulary;
   private Map<String, Integer> vocabularyIndexMap = new HashMap<>();
+  // If not null, words are kept in this structure instead of vocabulary list and index map.
+  private CompactWordIndex compactIndex;
 
   private int unknownWordIndex = -1;
   private int sentenceStartIndex = -1;
@@ -85,6 +88,21 @@ public class LmVocabulary {
     loadVocabulary(dis);
   }
 
+  private LmVocabulary(CompactWordIndex.Builder builder) {
+    generateCompactIndex(builder);
+  }
+
+  private LmVocabulary(CompactWordIndex compactIndex) {
+    unknownWordIndex = compactIndex.indexOfIgnoreCase(DEFAULT_UNKNOWN_WORD);
+    sentenceStartIndex = compactIndex.indexOfIgnoreCase(DEFAULT_SENTENCE_BEGIN_MARKER);
+    sentenceEndIndex = compactIndex.indexOfIgnoreCase(DEFAULT_SENTENCE_END_MARKER);
+    if (unknownWordIndex == -1 || sentenceStartIndex == -1 || sentenceEndIndex == -1) {
+      throw new IllegalArgumentException(
+          "Compact vocabulary data does not contain necessary special tokens.");
+    }
+    setCompactIndex(compactIndex);
+  }
+
   /**
    * Generates a vocabulary from a binary vocabulary File. First integer in the file defines the
    * vocabulary size. Rest is read in UTF.
@@ -126,6 +144,29 @@ public class LmVocabulary {
     return new LmVocabulary(dis);
   }
 
+  /**
+   * Generates a vocabulary from a binary DataInputStream with the same format of {@link
+   * #loadFromDataInputStream(DataInputStream)}. But words are not kept as String objects. Instead
+   * they are stored in an off-heap {@link CompactWordIndex}. This is suitable for very large
+   * vocabularies. Word lookups are slightly slower and {@link #getWord(int)} generates a new String
+   * for every call. This method does not close the DataInputStream
+   *
+   * @param dis input stream to read the vocabulary data.
+   */
+  public static LmVocabulary loadCompactFromDataInputStream(DataInputStream dis)
+      throws IOException {
+    return new LmVocabulary(CompactWordIndex.readBinaryVocabulary(dis));
+  }
+
+  /**
+   * Memory maps a vocabulary file that is saved with {@link #saveCompact(Path)}.
+   *
+   * @param compactVocabularyFile compact vocabulary file.
+   */
+  public static LmVocabulary loadCompact(Path compactVocabularyFile) throws IOException {
+    return new LmVocabulary(CompactWordIndex.map(compactVocabularyFile));
+  }
+
   /**
    * Generates a vocabulary from a UTF8-encoded text file.
    *
@@ -190,6 +231,75 @@ public class LmVocabulary {
     }
   }
 
+  /**
+   * Saves vocabulary in the binary format of {@link CompactWordIndex}. Resulting file can be memory
+   * mapped with {@link #loadCompact(Path)}.
+   *
+   * @param path to save.
+   */
+  public void saveCompact(Path path) throws IOException {
+    CompactWordIndex index =
+        compactIndex != null ? compactIndex : CompactWordIndex.fromWords(vocabulary);
+    index.save(path);
+  }
+
+  /**
+   * @return true if words are kept off-heap in a {@link CompactWordIndex}.
+   */
+  public boolean isCompact() {
+    return compactIndex != null;
+  }
+
+  private void generateCompactIndex(CompactWordIndex.Builder builder) {
+    unknownWordIndex = builder.indexOfIgnoreCase(DEFAULT_UNKNOWN_WORD);
+    if (unknownWordIndex == -1) {
+      unknownWordIndex = builder.add(DEFAULT_UNKNOWN_WORD);
+      Log.debug("Necessary special token " + DEFAULT_UNKNOWN_WORD
+          + " was not found in the vocabulary, it is added explicitly");
+    }
+    sentenceStartIndex = builder.indexOfIgnoreCase(DEFAULT_SENTENCE_BEGIN_MARKER);
+    if (sentenceStartIndex == -1) {
+      sentenceStartIndex = builder.add(DEFAULT_SENTENCE_BEGIN_MARKER);
+      Log.debug("Vocabulary does not contain sentence start token, it is added explicitly.");
+    }
+    sentenceEndIndex = builder.indexOfIgnoreCase(DEFAULT_SENTENCE_END_MARKER);
+    if (sentenceEndIndex == -1) {
+      sentenceEndIndex = builder.add(DEFAULT_SENTENCE_END_MARKER);
+      Log.debug("Vocabulary does not contain sentence end token, it is added explicitly.");
+    }
+    setCompactIndex(builder.build());
+  }
+
+  private void setCompactIndex(CompactWordIndex index) {
+    this.compactIndex = index;
+    this.vocabularyIndexMap = null;
+    this.unknownWord = index.getWord(unknownWordIndex);
+    this.sentenceStart = index.getWord(sentenceStartIndex);
+    this.sentenceEnd = index.getWord(sentenceEndIndex);
+    this.vocabulary = new AbstractList<String>() {
+      @Override
+      public String get(int i) {
+        return index.getWord(i);
+      }
+
+      @Override
+      public int size() {
+        return index.size();
+      }
+    };
+  }
+
+  /**
+   * @return index of the word, -1 if it does not exist.
+   */
+  private int lookup(String word) {
+    if (compactIndex != null) {
+      return compactIndex.indexOf(word);
+    }
+    Integer k = vocabularyIndexMap.get(word);
+    return k == null ? -1 : k;
+  }
+
   private void generateMap(List<String> inputVocabulary) {
     // construct vocabulary index lookup.
     int indexCounter = 0;
@@ -307,8 +417,8 @@ public class LmVocabulary {
   }
 
   public int indexOf(String word) {
-    Integer k = vocabularyIndexMap.get(word);
-    return k == null ? unknownWordIndex : k;
+    int k = lookup(word);
+    return k == -1 ? unknownWordIndex : k;
   }
 
   public int getSentenceStartIndex() {
@@ -348,6 +458,13 @@ public class LmVocabulary {
    * locale.
    */
   public Iterable<Integer> alphabeticallySortedWordsIds() {
+    if (compactIndex != null) {
+      TreeMap<String, Integer> map = new TreeMap<>();
+      for (int i = 0; i < vocabulary.size(); i++) {
+        map.put(vocabulary.get(i), i);
+      }
+      return map.values();
+    }
     return new TreeMap<>(vocabularyIndexMap).values();
   }
 
@@ -428,7 +545,7 @@ public class LmVocabulary {
    * @return if vocabulary contains the word. For special tokens, it always return true.
    */
   public boolean contains(String word) {
-    return vocabularyIndexMap.containsKey(word);
+    return lookup(word) != -1;
   }
 
   /**
@@ -468,11 +585,7 @@ public class LmVocabulary {
     int[] indexes = new int[words.length];
     int i = 0;
     for (String word : words) {
-      if (!vocabularyIndexMap.containsKey(word)) {
-        indexes[i] = unknownWordIndex;
-      } else {
-        indexes[i] = vocabularyIndexMap.get(word);
-      }
+      indexes[i] = indexOf(word);
       i++;
     }
     return indexes;
@@ -487,11 +600,7 @@ public class LmVocabulary {
     int[] indexes = new int[history.length + 1];
     for (int j = 0; j <= history.length; j++) {
       String s = j < history.length ? history[j] : word;
-      if (!vocabularyIndexMap.containsKey(s)) {
-        indexes[j] = unknownWordIndex;
-      } else {
-        indexes[j] = vocabularyIndexMap.get(s);
-      }
+      indexes[j] = indexOf(s);
     }
     return indexes;
   }
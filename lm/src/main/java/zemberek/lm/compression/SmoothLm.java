@@ -71,8 +71,9 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
       float unknownBackoffPenalty,
       boolean useStupidBackoff,
       float stupidBackoffAlpha,
-      File ngramKeyFileDir) throws IOException {
-    this(dis); // load the lm data.
+      File ngramKeyFileDir,
+      boolean compactVocabulary) throws IOException {
+    this(dis, compactVocabulary); // load the lm data.
     // Now apply necessary transformations and configurations
     this.unigramWeight = unigramWeight;
     this.unknownBackoffPenalty = unknownBackoffPenalty;
@@ -109,7 +110,7 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     }
   }
 
-  private SmoothLm(DataInputStream dis) throws IOException {
+  private SmoothLm(DataInputStream dis, boolean compactVocabulary) throws IOException {
 
     this.version = dis.readInt();
     int typeInt = dis.readInt();
@@ -173,7 +174,9 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     }
 
     // load vocabulary
-    vocabulary = LmVocabulary.loadFromDataInputStream(dis);
+    vocabulary = compactVocabulary ?
+        LmVocabulary.loadCompactFromDataInputStream(dis) :
+        LmVocabulary.loadFromDataInputStream(dis);
 
     // in case special tokens that does not exist in the actual unigrams are added (such as <unk>)
     // we adjust unigram data accordingly.
@@ -754,6 +757,7 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     private float _stupidBackoffAlpha = DEFAULT_STUPID_BACKOFF_ALPHA;
     private DataInputStream _dis;
     private File _ngramIds;
+    private boolean _compactVocabulary = false;
 
     public Builder(InputStream is) {
       this._dis = new DataInputStream(new BufferedInputStream(is));
@@ -793,6 +797,15 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
       return this;
     }
 
+    /**
+     * If used, vocabulary words are stored off-heap in a {@link zemberek.lm.CompactWordIndex}
+     * instead of String objects. This reduces heap usage considerably for large vocabularies.
+     */
+    public Builder compactVocabulary() {
+      this._compactVocabulary = true;
+      return this;
+    }
+
     public Builder stupidBackoffAlpha(double alphaValue) {
       this._stupidBackoffAlpha = (float) alphaValue;
       return this;
@@ -806,7 +819,8 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
           _unknownBackoffPenalty,
           _useStupidBackoff,
           _stupidBackoffAlpha,
-          _ngramIds);
+          _ngramIds,
+          _compactVocabulary);
     }
   }
 
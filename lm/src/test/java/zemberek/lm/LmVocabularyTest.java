@@ -71,6 +71,41 @@ public class LmVocabularyTest {
     }
   }
 
+  @Test
+  public void compactStreamGenerationTest() throws IOException {
+    File tmp = getBinaryVocFile();
+    try (DataInputStream dis = new DataInputStream(new FileInputStream(tmp))) {
+      LmVocabulary vocabulary = LmVocabulary.loadCompactFromDataInputStream(dis);
+      Assert.assertTrue(vocabulary.isCompact());
+      simpleCheck(vocabulary);
+    }
+  }
+
+  @Test
+  public void compactSaveLoadTest() throws IOException {
+    String[] words = {"elma", "çilek", "<S>", "ağaç", "\u0000a", "日本", "elma", "Ağaç"};
+    LmVocabulary vocabulary = new LmVocabulary(words);
+    File tmp = File.createTempFile("compact_voc_test", "foo");
+    tmp.deleteOnExit();
+    vocabulary.saveCompact(tmp.toPath());
+    LmVocabulary compact = LmVocabulary.loadCompact(tmp.toPath());
+    Assert.assertTrue(compact.isCompact());
+    Assert.assertEquals(vocabulary.size(), compact.size());
+    for (int i = 0; i < vocabulary.size(); i++) {
+      String word = vocabulary.getWord(i);
+      Assert.assertEquals(word, compact.getWord(i));
+      Assert.assertEquals(i, compact.indexOf(word));
+    }
+    Assert.assertEquals("<S>", compact.getSentenceStart());
+    Assert.assertEquals(vocabulary.getSentenceStartIndex(), compact.getSentenceStartIndex());
+    Assert.assertEquals(vocabulary.getSentenceEndIndex(), compact.getSentenceEndIndex());
+    Assert.assertEquals(vocabulary.getUnknownWordIndex(), compact.getUnknownWordIndex());
+    Assert.assertFalse(compact.contains("elm"));
+    Assert.assertFalse(compact.contains("elmalar"));
+    Assert.assertFalse(compact.contains("AĞAÇ"));
+    Assert.assertEquals(compact.getUnknownWordIndex(), compact.indexOf("armut"));
+  }
+
   private void simpleCheck(LmVocabulary vocabulary) {
     Assert.assertTrue(vocabulary.size() == 5);
     Assert.assertEquals("Hello World",
@@ -116,6 +116,22 @@ public class SmoothLmTest {
     Assert.assertEquals("elma", vocab.getWord(i2));
   }
 
+  @Test
+  public void testCompactVocabulary() throws IOException {
+    File lmFile = getTinyLmFile();
+    SmoothLm lm = SmoothLm.builder(lmFile).build();
+    SmoothLm compactLm = SmoothLm.builder(lmFile).compactVocabulary().build();
+    LmVocabulary vocab = lm.getVocabulary();
+    LmVocabulary compact = compactLm.getVocabulary();
+    Assert.assertTrue(compact.isCompact());
+    Assert.assertEquals(vocab.size(), compact.size());
+    for (String word : vocab.words()) {
+      Assert.assertEquals(vocab.indexOf(word), compact.indexOf(word));
+    }
+    int[] ids = compact.toIndexes("Ahmet", "dondurma", "yedi");
+    Assert.assertEquals(lm.getProbability(ids), compactLm.getProbability(ids), 0.0001);
+  }
+
   @Test
   public void testProbabilities() throws IOException {
     SmoothLm lm = getTinyLm();
@@ -0,0 +1,371 @@
+package zemberek.morphology;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import zemberek.core.logging.Log;
+import zemberek.core.turkish.PhoneticAttribute;
+import zemberek.core.turkish.PrimaryPos;
+import zemberek.core.turkish.RootAttribute;
+import zemberek.core.turkish.SecondaryPos;
+import zemberek.morphology.analysis.StemTransitions;
+import zemberek.morphology.analysis.StemTransitionsMapBased;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.morphotactics.AttributeSet;
+import zemberek.morphology.morphotactics.InformalTurkishMorphotactics;
+import zemberek.morphology.morphotactics.MorphemeState;
+import zemberek.morphology.morphotactics.MorphemeTransition;
+import zemberek.morphology.morphotactics.StemTransition;
+import zemberek.morphology.morphotactics.SuffixTransition;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+/**
+ * A binary snapshot of the root lexicon and the stem transitions generated from it. Loading a
+ * snapshot skips dictionary parsing and stem transition generation, which dominate the start up
+ * time of {@link TurkishMorphology}.
+ * <p>
+ * Snapshot file is read through a memory mapped buffer, but dictionary items, strings and stem
+ * transitions are still created on the heap while loading. So memory use is same with a morphology
+ * created from the dictionary, and the mapping is not shared between processes.
+ * <p>
+ * Morphotactic graph is defined in code, so it is built when snapshot is loaded and stem
+ * transitions are connected to it with morpheme state ids. Snapshot is not valid across versions
+ * with different morphotactics or enum definitions. Snapshot contains a key generated from the
+ * morpheme states and their outgoing transitions, and sizes of the enums. Loading fails if they
+ * are different in the running version.
+ * <p>
+ * Usage:
+ * <pre>
+ *   MorphologySnapshot.save(morphology, path);
+ *   TurkishMorphology morphology = TurkishMorphology.fromSnapshot(path);
+ * </pre>
+ */
+public class MorphologySnapshot {
+
+  private static final int MAGIC = 0x5A4D534E;
+  private static final int VERSION = 2;
+
+  private final RootLexicon lexicon;
+  private final TurkishMorphotactics morphotactics;
+  private final boolean informal;
+
+  private MorphologySnapshot(
+      RootLexicon lexicon,
+      TurkishMorphotactics morphotactics,
+      boolean informal) {
+    this.lexicon = lexicon;
+    this.morphotactics = morphotactics;
+    this.informal = informal;
+  }
+
+  public RootLexicon getLexicon() {
+    return lexicon;
+  }
+
+  /**
+   * @return morphotactics with stem transitions loaded from the snapshot. Note that stem
+   * transitions are mutable, instances created with this snapshot share them.
+   */
+  public TurkishMorphotactics getMorphotactics() {
+    return morphotactics;
+  }
+
+  public boolean isInformal() {
+    return informal;
+  }
+
+  /**
+   * Saves lexicon and stem transitions of the morphology to the path.
+   *
+   * @throws IllegalStateException if target state of a stem transition cannot be found with its
+   * id.
+   */
+  public static void save(TurkishMorphology morphology, Path path) throws IOException {
+    TurkishMorphotactics morphotactics = morphology.getMorphotactics();
+    StemTransitions stemTransitions = morphotactics.getStemTransitions();
+    List<DictionaryItem> items = new ArrayList<>(morphology.getLexicon().getAllItems());
+    Map<String, Integer> itemIndexes = new HashMap<>(items.size() * 2);
+    for (int i = 0; i < items.size(); i++) {
+      itemIndexes.put(items.get(i).id, i);
+    }
+
+    IndexTable strings = new IndexTable();
+    IndexTable states = new IndexTable();
+    List<List<StemTransition>> transitions = new ArrayList<>(items.size());
+    int transitionCount = 0;
+    for (DictionaryItem item : items) {
+      strings.add(item.lemma);
+      strings.add(item.root);
+      strings.add(item.pronunciation);
+      List<StemTransition> itemTransitions = stemTransitions.getTransitions(item);
+      for (StemTransition transition : itemTransitions) {
+        // states are stored with their ids, so an id must identify a single state.
+        if (morphotactics.getState(transition.to.id) != transition.to) {
+          throw new IllegalStateException(
+              "Morpheme state " + transition.to.id + " cannot be found with its id.");
+        }
+        strings.add(transition.surface);
+        states.add(transition.to.id);
+      }
+      transitions.add(itemTransitions);
+      transitionCount += itemTransitions.size();
+    }
+
+    try (DataOutputStream dos = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)))) {
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      dos.writeBoolean(morphotactics instanceof InformalTurkishMorphotactics);
+      dos.writeInt(PrimaryPos.values().length);
+      dos.writeInt(SecondaryPos.values().length);
+      dos.writeInt(RootAttribute.values().length);
+      dos.writeInt(PhoneticAttribute.values().length);
+      dos.writeLong(morphotacticsKey(morphotactics));
+      dos.writeLong(lexiconKey(items));
+
+      strings.write(dos);
+      states.write(dos);
+
+      dos.writeInt(items.size());
+      for (DictionaryItem item : items) {
+        dos.writeInt(strings.indexOf(item.lemma));
+        dos.writeInt(strings.indexOf(item.root));
+        dos.writeInt(strings.indexOf(item.pronunciation));
+        dos.writeByte(item.primaryPos.ordinal());
+        dos.writeByte(item.secondaryPos == null ? -1 : item.secondaryPos.ordinal());
+        long attributes = 0;
+        for (RootAttribute attribute : item.attributes) {
+          attributes |= 1L << attribute.ordinal();
+        }
+        dos.writeLong(attributes);
+        dos.writeInt(item.index);
+        DictionaryItem reference = item.getReferenceItem();
+        dos.writeInt(reference == null ? -1 : itemIndexes.getOrDefault(reference.id, -1));
+      }
+
+      // transitions of an item are consecutive and in the order of items.
+      dos.writeInt(transitionCount);
+      for (int i = 0; i < items.size(); i++) {
+        for (StemTransition transition : transitions.get(i)) {
+          dos.writeInt(i);
+          dos.writeInt(strings.indexOf(transition.surface));
+          dos.writeInt(transition.getPhoneticAttributes().getBits());
+          dos.writeInt(states.indexOf(transition.to.id));
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads a snapshot created with {@link #save(TurkishMorphology, Path)}.
+   *
+   * @throws IllegalStateException if snapshot is not compatible with this version.
+   */
+  public static MorphologySnapshot load(Path path) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalStateException(path + " is not a morphology snapshot.");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IllegalStateException(String.format(
+          "Snapshot version %d is not supported. Expected version is %d", version, VERSION));
+    }
+    boolean informal = buffer.get() != 0;
+    checkSize(buffer.getInt(), PrimaryPos.values().length, "PrimaryPos");
+    checkSize(buffer.getInt(), SecondaryPos.values().length, "SecondaryPos");
+    checkSize(buffer.getInt(), RootAttribute.values().length, "RootAttribute");
+    checkSize(buffer.getInt(), PhoneticAttribute.values().length, "PhoneticAttribute");
+    long morphotacticsKey = buffer.getLong();
+    long lexiconKey = buffer.getLong();
+
+    String[] strings = IndexTable.read(buffer);
+    String[] stateIds = IndexTable.read(buffer);
+
+    PrimaryPos[] primaryPos = PrimaryPos.values();
+    SecondaryPos[] secondaryPos = SecondaryPos.values();
+    RootAttribute[] rootAttributes = RootAttribute.values();
+
+    DictionaryItem[] items = new DictionaryItem[buffer.getInt()];
+    int[] references = new int[items.length];
+    RootLexicon lexicon = new RootLexicon();
+    for (int i = 0; i < items.length; i++) {
+      String lemma = strings[buffer.getInt()];
+      String root = strings[buffer.getInt()];
+      int pronunciationIndex = buffer.getInt();
+      String pronunciation = pronunciationIndex < 0 ? null : strings[pronunciationIndex];
+      PrimaryPos pos = primaryPos[buffer.get()];
+      int secondaryOrdinal = buffer.get();
+      SecondaryPos spos = secondaryOrdinal < 0 ? null : secondaryPos[secondaryOrdinal];
+      long attributeBits = buffer.getLong();
+      EnumSet<RootAttribute> attributes = EnumSet.noneOf(RootAttribute.class);
+      for (int j = 0; attributeBits != 0; j++, attributeBits >>>= 1) {
+        if ((attributeBits & 1) != 0) {
+          attributes.add(rootAttributes[j]);
+        }
+      }
+      int index = buffer.getInt();
+      references[i] = buffer.getInt();
+      items[i] = new DictionaryItem(lemma, root, pronunciation, pos, spos, attributes, index);
+      lexicon.add(items[i]);
+    }
+    if (lexiconKey(Arrays.asList(items)) != lexiconKey) {
+      throw new IllegalStateException("Dictionary items in snapshot " + path + " are corrupted.");
+    }
+    for (int i = 0; i < items.length; i++) {
+      if (references[i] >= 0) {
+        items[i].setReferenceItem(items[references[i]]);
+      }
+    }
+
+    int transitionCount = buffer.getInt();
+    // transitions are read from the mapped buffer when the stem transitions are created.
+    IntBuffer transitionData = buffer.slice().asIntBuffer();
+
+    // stem transitions require morpheme states, so they are created after the graph is built.
+    Function<TurkishMorphotactics, StemTransitions> factory = morphotactics -> {
+      if (morphotacticsKey(morphotactics) != morphotacticsKey) {
+        throw new IllegalStateException(
+            "Snapshot is created with different morphotactics. Snapshot needs to be re-created.");
+      }
+      MorphemeState[] states = new MorphemeState[stateIds.length];
+      for (int i = 0; i < stateIds.length; i++) {
+        states[i] = morphotactics.getState(stateIds[i]);
+        if (states[i] == null) {
+          throw new IllegalStateException(
+              "Snapshot contains unknown morpheme state " + stateIds[i]);
+        }
+      }
+      List<StemTransition> transitions = new ArrayList<>(transitionCount);
+      for (int i = 0; i < transitionCount * 4; i += 4) {
+        transitions.add(new StemTransition(
+            strings[transitionData.get(i + 1)],
+            items[transitionData.get(i)],
+            AttributeSet.fromBits(transitionData.get(i + 2)),
+            states[transitionData.get(i + 3)]));
+      }
+      return new StemTransitionsMapBased(lexicon, morphotactics, transitions);
+    };
+
+    TurkishMorphotactics morphotactics = informal ?
+        new InformalTurkishMorphotactics(lexicon, factory) :
+        new TurkishMorphotactics(lexicon, factory);
+    Log.info("Morphology snapshot loaded with %d dictionary items.", lexicon.size());
+    return new MorphologySnapshot(lexicon, morphotactics, informal);
+  }
+
+  /**
+   * Generates a key from ids and properties of morpheme states and their outgoing transitions.
+   * State order does not change the key.
+   */
+  static long morphotacticsKey(TurkishMorphotactics morphotactics) {
+    List<MorphemeState> states = new ArrayList<>(morphotactics.getStates());
+    states.sort(Comparator.comparing(s -> s.id));
+    long key = hash(morphotactics.getClass().getName());
+    for (MorphemeState state : states) {
+      key = key * 31 + hash(state.id + " " + state.morpheme.id + " " + state.terminal + " "
+          + state.derivative + " " + state.posRoot);
+      List<String> transitions = new ArrayList<>();
+      for (MorphemeTransition transition : state.getOutgoing()) {
+        // toString of suffix transitions contains target state and surface template.
+        String s = transition instanceof SuffixTransition ?
+            transition.toString() : transition.from.id + " " + transition.to.id;
+        transitions.add(s + " " + transition.getConditionCount());
+      }
+      Collections.sort(transitions);
+      for (String transition : transitions) {
+        key = key * 31 + hash(transition);
+      }
+    }
+    return key;
+  }
+
+  // Generates a key from dictionary item ids in the given order.
+  private static long lexiconKey(List<DictionaryItem> items) {
+    long key = items.size();
+    for (DictionaryItem item : items) {
+      key = key * 31 + hash(item.id);
+    }
+    return key;
+  }
+
+  // 64 bit FNV-1a hash.
+  private static long hash(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  private static void checkSize(int actual, int expected, String name) {
+    if (actual != expected) {
+      throw new IllegalStateException(String.format(
+          "Snapshot has %d %s values but there are %d. Snapshot needs to be re-created.",
+          actual, name, expected));
+    }
+  }
+
+  // Assigns indexes to strings in insertion order.
+  private static class IndexTable {
+
+    Map<String, Integer> indexes = new LinkedHashMap<>();
+
+    void add(String s) {
+      if (s != null) {
+        indexes.putIfAbsent(s, indexes.size());
+      }
+    }
+
+    int indexOf(String s) {
+      return s == null ? -1 : indexes.get(s);
+    }
+
+    void write(DataOutputStream dos) throws IOException {
+      dos.writeInt(indexes.size());
+      for (String s : indexes.keySet()) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+      }
+    }
+
+    static String[] read(ByteBuffer buffer) {
+      String[] strings = new String[buffer.getInt()];
+      byte[] bytes = new byte[64];
+      for (int i = 0; i < strings.length; i++) {
+        int length = buffer.getInt();
+        if (length > bytes.length) {
+          bytes = new byte[length];
+        }
+        buffer.get(bytes, 0, length);
+        strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+      return strings;
+    }
+  }
+}
@@ -2,9 +2,13 @@ package zemberek.morphology;
 
 import com.google.common.base.Stopwatch;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import zemberek.core.logging.Log;
@@ -19,11 +23,14 @@ import zemberek.morphology.analysis.AnalysisCache;
 import zemberek.morphology.analysis.RuleBasedAnalyzer;
 import zemberek.morphology.analysis.SentenceAnalysis;
 import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.StemTransitions;
 import zemberek.morphology.analysis.UnidentifiedTokenAnalyzer;
 import zemberek.morphology.analysis.WordAnalysis;
 import zemberek.morphology.generator.WordGenerator;
+import zemberek.morphology.lexicon.DictionaryItem;
 import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.InformalTurkishMorphotactics;
+import zemberek.morphology.morphotactics.StemTransition;
 import zemberek.morphology.morphotactics.TurkishMorphotactics;
 import zemberek.tokenization.TurkishTokenizer;
 import zemberek.tokenization.Token;
@@ -33,7 +40,11 @@ import zemberek.tokenization.Token;
 // this should be left to the user.
 public class TurkishMorphology {
 
-  private RootLexicon lexicon;
+  private static final String APOSTROPHES_TO_NORMALIZE = "\u0091\u0092\u2032´`’‘";
+  // Reusable buffers of normalizeForAnalysis.
+  private static final ThreadLocal<char[]> normalizationBuffers =
+      ThreadLocal.withInitial(() -> new char[32]);
+
   private RuleBasedAnalyzer analyzer;
   private WordGenerator wordGenerator;
   private UnidentifiedTokenAnalyzer unidentifiedTokenAnalyzer;
@@ -47,13 +58,18 @@ public class TurkishMorphology {
 
   private TurkishMorphology(Builder builder) {
 
-    this.lexicon = builder.lexicon;
+    RootLexicon lexicon =
+        builder.snapshot == null ? builder.lexicon : builder.snapshot.getLexicon();
     if (lexicon.isEmpty()) {
       Log.warn("TurkishMorphology class is being instantiated with empty root lexicon.");
     }
 
-    this.morphotactics = builder.informalAnalysis ?
-        new InformalTurkishMorphotactics(this.lexicon) : new TurkishMorphotactics(this.lexicon);
+    if (builder.snapshot != null) {
+      this.morphotactics = builder.snapshot.getMorphotactics();
+    } else {
+      this.morphotactics = builder.informalAnalysis ?
+          new InformalTurkishMorphotactics(lexicon) : new TurkishMorphotactics(lexicon);
+    }
 
     this.analyzer = builder.ignoreDiacriticsInAnalysis ?
         RuleBasedAnalyzer.ignoreDiacriticsInstance(morphotactics) :
@@ -69,7 +85,7 @@ public class TurkishMorphology {
       } else {
         cache = builder.cache;
       }
-      cache.initializeStaticCache(this::analyzeWithoutCache);
+      cache.initializeStaticCache(this::analyzeWithoutCache, this::getDictionaryVersion);
     }
     this.useCache = builder.useDynamicCache;
     this.useUnidentifiedTokenAnalyzer = builder.useUnidentifiedTokenAnalyzer;
@@ -107,6 +123,26 @@ public class TurkishMorphology {
     return new Builder().setLexicon(lexicon).build();
   }
 
+  /**
+   * Creates an instance from a snapshot file created with {@link MorphologySnapshot#save}. This is
+   * faster than creating it from a lexicon as stem transitions are not generated.
+   */
+  public static TurkishMorphology fromSnapshot(Path snapshotPath) throws IOException {
+    Stopwatch sw = Stopwatch.createStarted();
+    TurkishMorphology instance = new Builder()
+        .setSnapshot(MorphologySnapshot.load(snapshotPath))
+        .build();
+    Log.info("Initialized from snapshot in %d ms.", sw.elapsed(TimeUnit.MILLISECONDS));
+    return instance;
+  }
+
+  /**
+   * @return tokenizer that is used for splitting sentences to words before analysis.
+   */
+  public TurkishTokenizer getTokenizer() {
+    return tokenizer;
+  }
+
   public TurkishMorphotactics getMorphotactics() {
     return morphotactics;
   }
@@ -116,11 +152,18 @@ public class TurkishMorphology {
   }
 
   public WordAnalysis analyze(Token token) {
-    return cache.getAnalysis(token, this::analyzeWithoutCache);
+    return useCache ?
+        cache.getAnalysis(token, this::analyzeWithoutCache, this::getDictionaryVersion) :
+        analyzeWithoutCache(token);
   }
 
   private WordAnalysis analyzeWithCache(String word) {
-    return cache.getAnalysis(word, this::analyzeWithoutCache);
+    return cache.getAnalysis(word, this::analyzeWithoutCache, this::getDictionaryVersion);
+  }
+
+  // Changes every time dictionary items are added or removed.
+  private long getDictionaryVersion() {
+    return morphotactics.getStemTransitions().getVersion();
   }
 
   public void invalidateCache() {
@@ -129,8 +172,72 @@ public class TurkishMorphology {
     }
   }
 
+  /**
+   * @return current lexicon. Adding or removing dictionary items publishes a new lexicon, the
+   * lexicon given to the builder is not modified. Returned lexicon should not be modified.
+   */
   public RootLexicon getLexicon() {
-    return lexicon;
+    return morphotactics.getRootLexicon();
+  }
+
+  /**
+   * Adds items to the lexicon and their stem transitions to the analyzer. A new lexicon and stem
+   * transitions with the items become visible to all threads at once and only cached analyses of
+   * words that may start with a new stem are invalidated. Analyses that are running during the
+   * update may still return results without the new items, but those results are not kept in the
+   * cache. Each call copies the lexicon and checks every cached input for invalidation, so items
+   * should be added in batches.
+   */
+  public void addDictionaryItems(Collection<DictionaryItem> items) {
+    StemTransitions stemTransitions = morphotactics.getStemTransitions();
+    stemTransitions.addDictionaryItems(items);
+    invalidateCache(asciiStems(items, stemTransitions));
+  }
+
+  /**
+   * Removes items from the lexicon and their stem transitions from the analyzer. Cached analyses
+   * of words that may start with a removed stem are invalidated. Like {@link
+   * #addDictionaryItems(Collection)}, each call costs as much as copying the lexicon and scanning
+   * the cache.
+   */
+  public void removeDictionaryItems(Collection<DictionaryItem> items) {
+    StemTransitions stemTransitions = morphotactics.getStemTransitions();
+    Set<String> stems = asciiStems(items, stemTransitions);
+    stemTransitions.removeDictionaryItems(items);
+    invalidateCache(stems);
+  }
+
+  // Removes cached analyses of inputs that starts with one of the stems. Comparison is done with
+  // ascii forms so that it also works for analyzers that ignore diacritics. Cache is not indexed by
+  // stem, so every cached input is checked. Cost is proportional to the cache size, which is at
+  // most the static and dynamic cache limits, and it is paid once per update.
+  private void invalidateCache(Set<String> asciiStems) {
+    if (!useCache || asciiStems.isEmpty()) {
+      return;
+    }
+    int maxLength = asciiStems.stream().mapToInt(String::length).max().orElse(0);
+    cache.invalidate(input -> {
+      String s = TurkishAlphabet.INSTANCE.toAscii(normalizeForAnalysis(input));
+      for (int i = 1; i <= Math.min(maxLength, s.length()); i++) {
+        if (asciiStems.contains(s.substring(0, i))) {
+          return true;
+        }
+      }
+      return false;
+    });
+  }
+
+  private static Set<String> asciiStems(
+      Collection<DictionaryItem> items,
+      StemTransitions transitions) {
+    Set<String> stems = new HashSet<>();
+    for (DictionaryItem item : items) {
+      stems.add(TurkishAlphabet.INSTANCE.toAscii(item.root));
+      for (StemTransition transition : transitions.getTransitions(item)) {
+        stems.add(TurkishAlphabet.INSTANCE.toAscii(transition.surface));
+      }
+    }
+    return stems;
   }
 
   /**
@@ -145,6 +252,11 @@ public class TurkishMorphology {
    */
   private WordAnalysis analyzeWithoutCache(String word) {
 
+    // Most inputs are plain words, numbers or punctuations. Lexer is only used for the rest.
+    Token.Type type = WordClassifier.classify(word);
+    if (type != null && !tokenizer.isTypeIgnored(type)) {
+      return analyzeWithoutCache(new Token(word, type, 0, word.length() - 1));
+    }
     List<Token> tokens = tokenizer.tokenize(word);
     if (tokens.size() != 1) {
       return new WordAnalysis(word, word, new ArrayList<>(0));
@@ -152,8 +264,54 @@ public class TurkishMorphology {
     return analyzeWithoutCache(tokens.get(0));
   }
 
+  /**
+   * Lowercases the word, normalizes circumflexes and apostrophes and removes dots. If word only
+   * contains dots, they are not removed. Word is processed in a single pass and returned as is if
+   * nothing changes.
+   */
   public static String normalizeForAnalysis(String word) {
-    // TODO: This may cause problems for some foreign words with letter I.
+    char[] buffer = normalizationBuffers.get();
+    if (buffer.length < word.length()) {
+      buffer = new char[word.length() * 2];
+      normalizationBuffers.set(buffer);
+    }
+    TurkishAlphabet alphabet = TurkishAlphabet.INSTANCE;
+    int length = 0;
+    boolean changed = false;
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      char n;
+      if (c < 'A') {
+        n = c;
+      } else if (c == 'I') {
+        // TODO: This may cause problems for some foreign words with letter I.
+        n = 'ı';
+      } else if (c == 'İ') {
+        n = 'i';
+      } else if (Character.isSurrogate(c) || c == '\u0307' || c == '\u03a3') {
+        // these have context or locale dependent lower case forms.
+        return normalizeForAnalysisSlow(word);
+      } else {
+        n = alphabet.normalizeCircumflex(Character.toLowerCase(c));
+        if (APOSTROPHES_TO_NORMALIZE.indexOf(n) >= 0) {
+          n = '\'';
+        }
+      }
+      if (n == '.') {
+        changed = true;
+        continue;
+      }
+      changed = changed || n != c;
+      buffer[length++] = n;
+    }
+    if (!changed || length == 0) {
+      // length is 0 if word is empty or only contains dots.
+      return word;
+    }
+    return new String(buffer, 0, length);
+  }
+
+  static String normalizeForAnalysisSlow(String word) {
     String s = word.toLowerCase(Turkish.LOCALE);
     s = TurkishAlphabet.INSTANCE.normalizeCircumflex(s);
     String noDot = s.replace(".", "");
@@ -275,6 +433,7 @@ public class TurkishMorphology {
     TurkishTokenizer tokenizer = TurkishTokenizer.DEFAULT;
     boolean informalAnalysis = false;
     boolean ignoreDiacriticsInAnalysis = false;
+    MorphologySnapshot snapshot;
 
     public Builder setLexicon(RootLexicon lexicon) {
       this.lexicon = lexicon;
@@ -286,6 +445,16 @@ public class TurkishMorphology {
       return this;
     }
 
+    /**
+     * Uses lexicon and stem transitions of the snapshot. Lexicon and informal analysis settings of
+     * the builder are overridden by the snapshot.
+     */
+    public Builder setSnapshot(MorphologySnapshot snapshot) {
+      this.snapshot = snapshot;
+      this.informalAnalysis = snapshot.isInformal();
+      return this;
+    }
+
     public Builder useInformalAnalysis() {
       this.informalAnalysis = true;
       return this;
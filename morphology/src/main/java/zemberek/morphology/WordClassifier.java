@@ -0,0 +1,87 @@
+package zemberek.morphology;
+
+import zemberek.tokenization.Token;
+
+/**
+ * Finds the token type of common single word inputs without running the lexer. Only inputs that
+ * {@link zemberek.tokenization.TurkishTokenizer} tokenizes to a single token of a known type are
+ * classified, so analysis results are the same with the tokenizer path.
+ */
+final class WordClassifier {
+
+  private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzçğıöşüâîû"
+      + "ABCDEFGHIJKLMNOPQRSTUVWXYZÇĞİÖŞÜÂÎÛ";
+  private static final String ROMAN_NUMERAL_LETTERS = "ILVCDMX";
+  private static final String APOSTROPHES = "'’";
+  // Characters that are tokenized as a single Punctuation token when they are alone.
+  private static final String PUNCTUATIONS = "'’\"”“»«‘…=.,!?%$&*+@:;®™©℠>\\-/()[]{}^";
+
+  private WordClassifier() {
+  }
+
+  /**
+   * @return type of the single token that tokenizer generates for the input, or null if input
+   * needs to be tokenized.
+   */
+  static Token.Type classify(String input) {
+    int length = input.length();
+    if (length == 0) {
+      return null;
+    }
+    if (length == 1 && PUNCTUATIONS.indexOf(input.charAt(0)) >= 0) {
+      return Token.Type.Punctuation;
+    }
+    char first = input.charAt(0);
+    if (first >= '0' && first <= '9') {
+      int i = 1;
+      while (i < length && isDigit(input.charAt(i))) {
+        i++;
+      }
+      // 123, 123'e
+      return i == length || isSuffix(input, i) ? Token.Type.Number : null;
+    }
+    int i = 0;
+    boolean roman = true;
+    while (i < length && isLetter(input.charAt(i))) {
+      roman = roman && ROMAN_NUMERAL_LETTERS.indexOf(input.charAt(i)) >= 0;
+      i++;
+    }
+    if (i == 0) {
+      return null;
+    }
+    if (i == length) {
+      // lexer prefers RomanNumeral over Word for same length matches.
+      return roman ? Token.Type.RomanNumeral : Token.Type.Word;
+    }
+    if (!isSuffix(input, i)) {
+      return null;
+    }
+    // Ankara'ya. WordWithSymbol requires at least two letters before the apostrophe.
+    if (roman) {
+      return Token.Type.RomanNumeral;
+    }
+    return i > 1 ? Token.Type.WordWithSymbol : null;
+  }
+
+  // Checks if input has an apostrophe at index and only letters after it.
+  private static boolean isSuffix(String input, int index) {
+    if (APOSTROPHES.indexOf(input.charAt(index)) < 0 || index == input.length() - 1) {
+      return false;
+    }
+    for (int i = index + 1; i < input.length(); i++) {
+      if (!isLetter(input.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+        || (c > 127 && LETTERS.indexOf(c) >= 0);
+  }
+}
@@ -7,14 +7,23 @@ import com.google.common.base.Stopwatch;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 import zemberek.core.logging.Log;
 import zemberek.core.text.TextIO;
 import zemberek.tokenization.Token;
 
 /**
  * A simple analysis cache. Can be shared between threads.
+ * <p>
+ * Analyses may change when dictionary items are added or removed. Methods that accept a version
+ * supplier read the version before and after an analysis is calculated. If it changes, the result
+ * may be calculated with the old dictionary and it is removed from the cache. Entries that are
+ * cached before the version changes are removed by {@link #invalidate(Predicate)}.
  */
 public class AnalysisCache {
 
@@ -24,10 +33,11 @@ public class AnalysisCache {
   private static final int DYNAMIC_CACHE_CAPACITY_LIMIT = 1_000_000;
 
   private static final String MOST_USED_WORDS_FILE = "/tr/first-10K";
+  private static final LongSupplier NO_VERSION = () -> 0L;
   private ConcurrentHashMap<String, WordAnalysis> staticCache;
   private boolean staticCacheInitialized = false;
-  private long staticCacheHits;
-  private long staticCacheMiss;
+  private final LongAdder staticCacheHits = new LongAdder();
+  private final LongAdder staticCacheMiss = new LongAdder();
   private Cache<String, WordAnalysis> dynamicCache;
   private boolean staticCacheDisabled;
   private boolean dynamicCacheDisabled;
@@ -98,7 +108,26 @@ public class AnalysisCache {
     }
   }
 
-  public synchronized void initializeStaticCache(Function<String, WordAnalysis> analysisProvider) {
+  /**
+   * Removes cached analyses of inputs that match the predicate from both caches. This is used
+   * when only analyses of some inputs become invalid, such as after dictionary items are added.
+   */
+  public void invalidate(Predicate<String> inputPredicate) {
+    if (!staticCacheDisabled) {
+      staticCache.keySet().removeIf(inputPredicate);
+    }
+    if (!dynamicCacheDisabled && dynamicCache != null) {
+      dynamicCache.asMap().keySet().removeIf(inputPredicate);
+    }
+  }
+
+  public void initializeStaticCache(Function<String, WordAnalysis> analysisProvider) {
+    initializeStaticCache(analysisProvider, NO_VERSION);
+  }
+
+  public synchronized void initializeStaticCache(
+      Function<String, WordAnalysis> analysisProvider,
+      LongSupplier version) {
     if (staticCacheDisabled || staticCacheInitialized) {
       return;
     }
@@ -110,7 +139,7 @@ public class AnalysisCache {
         int size = Math.min(STATIC_CACHE_CAPACITY, words.size());
         for (int i = 0; i < size; i++) {
           String word = words.get(i);
-          staticCache.put(word, analysisProvider.apply(word));
+          analyzeAndPut(staticCache, word, word, analysisProvider, version);
         }
         Log.debug("Static cache initialized with %d most frequent words", size);
         Log.debug("Initialization time: %d ms.", stopwatch.elapsed(TimeUnit.MILLISECONDS));
@@ -122,49 +151,110 @@ public class AnalysisCache {
     staticCacheInitialized = true;
   }
 
+  // Calculates the analysis and puts it to the map. If version changes in the meantime, analysis
+  // may be calculated with the old dictionary. Invalidation after the change may already be done,
+  // so the entry is removed. Version is checked after the put, because if it changes after the
+  // check, invalidation is done after the put and it removes the entry.
+  private static <T> WordAnalysis analyzeAndPut(
+      ConcurrentMap<String, WordAnalysis> map,
+      String key,
+      T input,
+      Function<T, WordAnalysis> analysisProvider,
+      LongSupplier version) {
+    long before = version.getAsLong();
+    WordAnalysis analysis = analysisProvider.apply(input);
+    map.put(key, analysis);
+    if (version.getAsLong() != before) {
+      map.remove(key, analysis);
+    }
+    return analysis;
+  }
+
   public WordAnalysis getAnalysis(String input, Function<String, WordAnalysis> analysisProvider) {
+    return getAnalysis(input, analysisProvider, NO_VERSION);
+  }
 
-    WordAnalysis analysis = staticCacheDisabled ? null : staticCache.get(input);
-    if (analysis != null) {
-      staticCacheHits++;
-      return analysis;
-    }
-    staticCacheMiss++;
-    if (dynamicCacheDisabled) {
-      return analysisProvider.apply(input);
-    } else {
-      return dynamicCache.get(input, analysisProvider);
-    }
+  /**
+   * Returns the cached analysis of the input or calculates and caches it. Result is not kept in
+   * the cache if the version changes during the calculation.
+   */
+  public WordAnalysis getAnalysis(
+      String input,
+      Function<String, WordAnalysis> analysisProvider,
+      LongSupplier version) {
+    return getAnalysis(input, input, analysisProvider, version);
   }
 
   public WordAnalysis getAnalysis(Token input, Function<Token, WordAnalysis> analysisProvider) {
-    WordAnalysis analysis = staticCacheDisabled ? null : staticCache.get(input.getText());
+    return getAnalysis(input, analysisProvider, NO_VERSION);
+  }
+
+  public WordAnalysis getAnalysis(
+      Token input,
+      Function<Token, WordAnalysis> analysisProvider,
+      LongSupplier version) {
+    return getAnalysis(input.getText(), input, analysisProvider, version);
+  }
+
+  private <T> WordAnalysis getAnalysis(
+      String key,
+      T input,
+      Function<T, WordAnalysis> analysisProvider,
+      LongSupplier version) {
+    WordAnalysis analysis = staticCacheDisabled ? null : staticCache.get(key);
     if (analysis != null) {
-      staticCacheHits++;
+      staticCacheHits.increment();
       return analysis;
     }
-    staticCacheMiss++;
+    staticCacheMiss.increment();
     if (dynamicCacheDisabled) {
       return analysisProvider.apply(input);
-    } else {
-      WordAnalysis a = dynamicCache.getIfPresent(input.getText());
-      if (a == null) {
-        a = analysisProvider.apply(input);
-        dynamicCache.put(input.getText(), a);
-      }
-      return a;
     }
+    analysis = dynamicCache.getIfPresent(key);
+    if (analysis != null) {
+      return analysis;
+    }
+    return analyzeAndPut(dynamicCache.asMap(), key, input, analysisProvider, version);
+  }
+
+  public long getStaticCacheHits() {
+    return staticCacheHits.sum();
+  }
+
+  public long getStaticCacheMisses() {
+    return staticCacheMiss.sum();
+  }
+
+  /**
+   * @return hit rate of the static cache. 0 if there is no request yet.
+   */
+  public double getStaticCacheHitRate() {
+    long hits = staticCacheHits.sum();
+    long total = hits + staticCacheMiss.sum();
+    return total == 0 ? 0 : 1.0 * hits / total;
+  }
+
+  /**
+   * @return hit rate of the dynamic cache. Only requests missed by the static cache reach the
+   * dynamic cache. 0 if dynamic cache is disabled.
+   */
+  public double getDynamicCacheHitRate() {
+    return dynamicCacheDisabled ? 0 : dynamicCache.stats().hitRate();
+  }
+
+  public long getDynamicCacheSize() {
+    return dynamicCacheDisabled ? 0 : dynamicCache.estimatedSize();
   }
 
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    long total = staticCacheHits + staticCacheMiss;
+    long total = staticCacheHits.sum() + staticCacheMiss.sum();
     if (total > 0) {
       sb.append(String.format("Static cache(size: %d) Hit rate: %.3f%n",
-          staticCache.size(), 1.0 * (staticCacheHits) / (staticCacheHits + staticCacheMiss)));
+          staticCache.size(), getStaticCacheHitRate()));
     }
-    sb.append(String.format("Dynamic cache hit rate: %.3f ", dynamicCache.stats().hitRate()));
+    sb.append(String.format("Dynamic cache hit rate: %.3f ", getDynamicCacheHitRate()));
     return sb.toString();
   }
 }
@@ -13,82 +13,136 @@ import static zemberek.core.turkish.PhoneticAttribute.LastVowelBack;
 import static zemberek.core.turkish.PhoneticAttribute.LastVowelFrontal;
 import static zemberek.core.turkish.PhoneticAttribute.LastVowelRounded;
 import static zemberek.core.turkish.PhoneticAttribute.LastVowelUnrounded;
+import static zemberek.morphology.morphotactics.AttributeSet.bitOf;
 
-import java.util.Arrays;
-import java.util.List;
 import zemberek.core.turkish.PhoneticAttribute;
 import zemberek.core.turkish.TurkicLetter;
 import zemberek.core.turkish.TurkishAlphabet;
 import zemberek.morphology.morphotactics.AttributeSet;
 
 /**
- * Helper class for calculating morphemic attributes.
+ * Helper class for calculating morphemic attributes. Attributes are calculated as bits of
+ * {@link AttributeSet}. Attributes of characters are kept in lookup tables, so calculation is a
+ * single pass over the input without allocation.
  */
 public class AttributesHelper {
 
-  private static final List<PhoneticAttribute> NO_VOWEL_ATTRIBUTES = Arrays
-      .asList(LastLetterConsonant, FirstLetterConsonant, HasNoVowel);
+  private static TurkishAlphabet alphabet = TurkishAlphabet.INSTANCE;
 
-  public static AttributeSet<PhoneticAttribute> getMorphemicAttributes(CharSequence seq) {
-    return getMorphemicAttributes(seq, AttributeSet.emptySet());
+  private static final int NO_VOWEL_ATTRIBUTES =
+      bitOf(LastLetterConsonant) | bitOf(FirstLetterConsonant) | bitOf(HasNoVowel);
+  private static final int NO_VOWEL_REMOVED_ATTRIBUTES =
+      bitOf(LastLetterVowel) | bitOf(ExpectsConsonant);
+  private static final int VOICING_ATTRIBUTES =
+      bitOf(LastLetterVoiceless) | bitOf(LastLetterVoicelessStop) | bitOf(LastLetterVoiced);
+  private static final int LAST_LETTER_VOWEL = bitOf(LastLetterVowel);
+
+  // Attribute bits of characters when they are the last letter, the last vowel and the first
+  // letter of a sequence. Characters out of the tables are calculated when needed.
+  private static final int TABLE_SIZE = 0x250;
+  private static final int[] LAST_LETTER_ATTRIBUTES = new int[TABLE_SIZE];
+  private static final int[] LAST_VOWEL_ATTRIBUTES = new int[TABLE_SIZE];
+  private static final int[] FIRST_LETTER_ATTRIBUTES = new int[TABLE_SIZE];
+  private static final boolean[] VOWELS = new boolean[TABLE_SIZE];
+
+  static {
+    for (char c = 0; c < TABLE_SIZE; c++) {
+      LAST_LETTER_ATTRIBUTES[c] = lastLetterAttributes(c);
+      LAST_VOWEL_ATTRIBUTES[c] = lastVowelAttributes(c);
+      FIRST_LETTER_ATTRIBUTES[c] = firstLetterAttributes(c);
+      VOWELS[c] = alphabet.isVowel(c);
+    }
   }
 
-  private static TurkishAlphabet alphabet = TurkishAlphabet.INSTANCE;
+  private static int lastLetterAttributes(char c) {
+    TurkicLetter letter = alphabet.getLetter(c);
+    int attrs = bitOf(letter.isVowel() ? LastLetterVowel : LastLetterConsonant);
+    if (letter.isVoiceless()) {
+      attrs |= bitOf(LastLetterVoiceless);
+      if (letter.isStopConsonant()) {
+        // kitap
+        attrs |= bitOf(LastLetterVoicelessStop);
+      }
+    } else {
+      attrs |= bitOf(LastLetterVoiced);
+    }
+    return attrs;
+  }
+
+  private static int lastVowelAttributes(char c) {
+    TurkicLetter letter = alphabet.getLetter(c);
+    return bitOf(letter.isFrontal() ? LastVowelFrontal : LastVowelBack)
+        | bitOf(letter.isRounded() ? LastVowelRounded : LastVowelUnrounded);
+  }
+
+  private static int firstLetterAttributes(char c) {
+    return bitOf(alphabet.getLetter(c).isVowel() ? FirstLetterVowel : FirstLetterConsonant);
+  }
+
+  static boolean isVowel(char c) {
+    return c < TABLE_SIZE ? VOWELS[c] : alphabet.isVowel(c);
+  }
+
+  public static AttributeSet<PhoneticAttribute> getMorphemicAttributes(CharSequence seq) {
+    return AttributeSet.fromBits(getMorphemicAttributes(seq, 0));
+  }
 
   public static AttributeSet<PhoneticAttribute> getMorphemicAttributes(
       CharSequence seq,
       AttributeSet<PhoneticAttribute> predecessorAttrs) {
+    return AttributeSet.fromBits(getMorphemicAttributes(seq, predecessorAttrs.getBits()));
+  }
+
+  /**
+   * Calculates morphemic attributes of a sequence.
+   *
+   * @param seq input.
+   * @param predecessorAttrs attribute bits of the preceding morpheme. Only used if input has no
+   * vowel.
+   * @return attribute bits.
+   */
+  public static int getMorphemicAttributes(CharSequence seq, int predecessorAttrs) {
     if (seq.length() == 0) {
-      return predecessorAttrs.copy();
+      return predecessorAttrs;
     }
-    AttributeSet<PhoneticAttribute> attrs = new AttributeSet<>();
-    if (alphabet.containsVowel(seq)) {
-
-      TurkicLetter last = alphabet.getLastLetter(seq);
-      if (last.isVowel()) {
-        attrs.add(LastLetterVowel);
-      } else {
-        attrs.add(LastLetterConsonant);
-      }
-
-      TurkicLetter lastVowel = last.isVowel() ? last : alphabet.getLastVowel(seq);
-
-      if (lastVowel.isFrontal()) {
-        attrs.add(LastVowelFrontal);
-      } else {
-        attrs.add(LastVowelBack);
-      }
-      if (lastVowel.isRounded()) {
-        attrs.add(LastVowelRounded);
-      } else {
-        attrs.add(LastVowelUnrounded);
-      }
-
-      if (alphabet.getFirstLetter(seq).isVowel()) {
-        attrs.add(FirstLetterVowel);
-      } else {
-        attrs.add(FirstLetterConsonant);
+    char lastVowel = 0;
+    boolean hasVowel = false;
+    for (int i = seq.length() - 1; i >= 0; i--) {
+      char c = seq.charAt(i);
+      if (isVowel(c)) {
+        lastVowel = c;
+        hasVowel = true;
+        break;
       }
-    } else {
-      // we transfer vowel attributes from the predecessor attributes.
-      attrs.copyFrom(predecessorAttrs);
-      attrs.addAll(NO_VOWEL_ATTRIBUTES);
-      attrs.remove(LastLetterVowel);
-      attrs.remove(ExpectsConsonant);
     }
+    return getMorphemicAttributes(
+        seq.charAt(0), hasVowel, lastVowel, seq.charAt(seq.length() - 1), predecessorAttrs);
+  }
 
-    TurkicLetter last = alphabet.getLastLetter(seq);
-
-    if (last.isVoiceless()) {
-      attrs.add(LastLetterVoiceless);
-      if (last.isStopConsonant()) {
-        // kitap
-        attrs.add(LastLetterVoicelessStop);
-      }
+  /**
+   * Calculates morphemic attributes of a non empty sequence from its first letter, last vowel
+   * and last letter. This allows updating attributes while a sequence is being generated.
+   */
+  static int getMorphemicAttributes(
+      char first,
+      boolean hasVowel,
+      char lastVowel,
+      char last,
+      int predecessorAttrs) {
+    int lastAttributes =
+        last < TABLE_SIZE ? LAST_LETTER_ATTRIBUTES[last] : lastLetterAttributes(last);
+    int attrs;
+    if (hasVowel) {
+      boolean lastIsVowel = (lastAttributes & LAST_LETTER_VOWEL) != 0;
+      char v = lastIsVowel ? last : lastVowel;
+      attrs = (lastAttributes & (LAST_LETTER_VOWEL | bitOf(LastLetterConsonant)))
+          | (v < TABLE_SIZE ? LAST_VOWEL_ATTRIBUTES[v] : lastVowelAttributes(v))
+          | (first < TABLE_SIZE ? FIRST_LETTER_ATTRIBUTES[first] : firstLetterAttributes(first));
     } else {
-      attrs.add(LastLetterVoiced);
+      // we transfer vowel attributes from the predecessor attributes.
+      attrs = (predecessorAttrs | NO_VOWEL_ATTRIBUTES) & ~NO_VOWEL_REMOVED_ATTRIBUTES;
     }
-    return attrs;
+    return attrs | (lastAttributes & VOICING_ATTRIBUTES);
   }
 
 }
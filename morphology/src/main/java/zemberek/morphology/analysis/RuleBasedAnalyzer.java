@@ -2,6 +2,7 @@ package zemberek.morphology.analysis;
 
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import zemberek.core.collections.IntValueMap;
 import zemberek.core.turkish.PhoneticAttribute;
@@ -26,7 +27,11 @@ public class RuleBasedAnalyzer {
 
   private static final int MAX_REPEATING_SUFFIX_TYPE_COUNT = 3;
 
-  private RootLexicon lexicon;
+  private static final int CANNOT_TERMINATE = AttributeSet.bitOf(PhoneticAttribute.CannotTerminate);
+  private static final int EXPECTS_CONSONANT =
+      AttributeSet.bitOf(PhoneticAttribute.ExpectsConsonant);
+  private static final int EXPECTS_VOWEL = AttributeSet.bitOf(PhoneticAttribute.ExpectsVowel);
+
   private StemTransitions stemTransitions;
   private boolean debugMode = false;
   private AnalysisDebugData debugData;
@@ -34,7 +39,6 @@ public class RuleBasedAnalyzer {
   private TurkishMorphotactics morphotactics;
 
   private RuleBasedAnalyzer(TurkishMorphotactics morphotactics) {
-    this.lexicon = morphotactics.getRootLexicon();
     this.stemTransitions = morphotactics.getStemTransitions();
     this.morphotactics = morphotactics;
   }
@@ -84,7 +88,7 @@ public class RuleBasedAnalyzer {
   }
 
   public RootLexicon getLexicon() {
-    return lexicon;
+    return stemTransitions.getLexicon();
   }
 
   public AnalysisDebugData getDebugData() {
@@ -92,11 +96,22 @@ public class RuleBasedAnalyzer {
   }
 
   public List<SingleAnalysis> analyze(String input) {
+    return analyze(input, Collections.emptyList());
+  }
+
+  /**
+   * Analyzes input as if stem transitions contained `additional` transitions. This is used for
+   * analyzing with temporary dictionary items without modifying shared stem transitions.
+   */
+  List<SingleAnalysis> analyze(String input, List<StemTransition> additional) {
     if (debugMode) {
       debugData = new AnalysisDebugData();
     }
     // get stem candidates.
     List<StemTransition> candidates = stemTransitions.getPrefixMatches(input, asciiTolerant);
+    if (!additional.isEmpty()) {
+      candidates = mergeCandidates(input, candidates, additional);
+    }
 
     if (debugMode) {
       debugData.input = input;
@@ -126,6 +141,31 @@ public class RuleBasedAnalyzer {
     return result;
   }
 
+  // Adds transitions that match a prefix of the input after the candidates with same or shorter
+  // surfaces, that is where they would be if they were added to stem transitions.
+  private List<StemTransition> mergeCandidates(
+      String input,
+      List<StemTransition> candidates,
+      List<StemTransition> additional) {
+    List<StemTransition> result = new ArrayList<>(candidates);
+    String asciiInput = asciiTolerant ? TurkishAlphabet.INSTANCE.toAscii(input) : null;
+    for (StemTransition transition : additional) {
+      String surface = transition.surface;
+      boolean matches = asciiTolerant ?
+          asciiInput.startsWith(TurkishAlphabet.INSTANCE.toAscii(surface)) :
+          input.startsWith(surface);
+      if (!matches || result.contains(transition)) {
+        continue;
+      }
+      int i = 0;
+      while (i < result.size() && result.get(i).surface.length() <= surface.length()) {
+        i++;
+      }
+      result.add(i, transition);
+    }
+    return result;
+  }
+
   // searches through morphotactics graph.
   private List<SearchPath> search(List<SearchPath> currentPaths) {
 
@@ -253,21 +293,20 @@ public class RuleBasedAnalyzer {
       boolean tailEqualsSurface = asciiTolerant ?
           TurkishAlphabet.INSTANCE.equalsIgnoreDiacritics(path.tail, surface)
           : path.tail.equals(surface);
-      AttributeSet<PhoneticAttribute> attributes = tailEqualsSurface ?
-          path.phoneticAttributes.copy() :
+      int attributes = tailEqualsSurface ?
+          path.phoneticAttributes :
           AttributesHelper.getMorphemicAttributes(surface, path.phoneticAttributes);
 
       // This is required for suffixes like `cik` and `ciğ`
       // an extra attribute is added if "cik" or "ciğ" is generated and matches the tail.
       // if "cik" is generated, ExpectsConsonant attribute is added, so only a consonant starting
       // suffix can follow. Likewise, if "ciğ" is produced, a vowel starting suffix is allowed.
-      attributes.remove(PhoneticAttribute.CannotTerminate);
+      attributes &= ~CANNOT_TERMINATE;
       SuffixTemplateToken lastToken = suffixTransition.getLastTemplateToken();
       if (lastToken.type == TemplateTokenType.LAST_VOICED) {
-        attributes.add(PhoneticAttribute.ExpectsConsonant);
+        attributes |= EXPECTS_CONSONANT;
       } else if (lastToken.type == TemplateTokenType.LAST_NOT_VOICED) {
-        attributes.add(PhoneticAttribute.ExpectsVowel);
-        attributes.add(PhoneticAttribute.CannotTerminate);
+        attributes |= EXPECTS_VOWEL | CANNOT_TERMINATE;
       }
 
       SearchPath p = path.getCopy(
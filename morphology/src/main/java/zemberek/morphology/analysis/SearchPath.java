@@ -22,7 +22,8 @@ public class SearchPath {
 
   List<SurfaceTransition> transitions;
 
-  AttributeSet<PhoneticAttribute> phoneticAttributes;
+  // bits of AttributeSet<PhoneticAttribute>
+  int phoneticAttributes;
 
   private boolean terminal;
   private boolean containsDerivation = false;
@@ -36,7 +37,7 @@ public class SearchPath {
         tail,
         stemTransition.to,
         morphemes,
-        stemTransition.getPhoneticAttributes().copy(),
+        stemTransition.getPhoneticAttributes().getBits(),
         stemTransition.to.terminal);
   }
 
@@ -44,7 +45,7 @@ public class SearchPath {
       String tail,
       MorphemeState currentState,
       List<SurfaceTransition> transitions,
-      AttributeSet<PhoneticAttribute> phoneticAttributes,
+      int phoneticAttributes,
       boolean terminal) {
     this.tail = tail;
     this.currentState = currentState;
@@ -53,9 +54,7 @@ public class SearchPath {
     this.terminal = terminal;
   }
 
-  SearchPath getCopy(
-      SurfaceTransition surfaceNode,
-      AttributeSet<PhoneticAttribute> phoneticAttributes) {
+  SearchPath getCopy(SurfaceTransition surfaceNode, int phoneticAttributes) {
 
     boolean isTerminal = surfaceNode.getState().terminal;
     ArrayList<SurfaceTransition> hist = new ArrayList<>(transitions);
@@ -75,6 +74,10 @@ public class SearchPath {
   public SearchPath getCopyForGeneration(
       SurfaceTransition surfaceNode,
       AttributeSet<PhoneticAttribute> phoneticAttributes) {
+    return getCopyForGeneration(surfaceNode, phoneticAttributes.getBits());
+  }
+
+  public SearchPath getCopyForGeneration(SurfaceTransition surfaceNode, int phoneticAttributes) {
 
     boolean isTerminal = surfaceNode.getState().terminal;
     ArrayList<SurfaceTransition> hist = new ArrayList<>(transitions);
@@ -90,6 +93,22 @@ public class SearchPath {
     return path;
   }
 
+  /**
+   * Returns a path with the same state and transitions but a different tail. Transition list is
+   * shared with this path.
+   */
+  public SearchPath getCopyWithTail(String tail) {
+    SearchPath path = new SearchPath(
+        tail,
+        currentState,
+        transitions,
+        phoneticAttributes,
+        terminal);
+    path.containsSuffixWithSurface = containsSuffixWithSurface;
+    path.containsDerivation = containsDerivation;
+    return path;
+  }
+
   public String toString() {
     StemTransition st = getStemTransition();
     String morphemeStr =
@@ -118,12 +137,19 @@ public class SearchPath {
     return transitions.get(transitions.size() - 2).getState();
   }
 
+  /**
+   * @return a copy of phonetic attributes of the path.
+   */
   public AttributeSet<PhoneticAttribute> getPhoneticAttributes() {
+    return AttributeSet.fromBits(phoneticAttributes);
+  }
+
+  public int getPhoneticAttributeBits() {
     return phoneticAttributes;
   }
 
   public boolean containsPhoneticAttribute(PhoneticAttribute attribute) {
-    return phoneticAttributes.contains(attribute);
+    return AttributeSet.contains(phoneticAttributes, attribute);
   }
 
   public boolean isTerminal() {
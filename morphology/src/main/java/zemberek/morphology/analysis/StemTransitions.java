@@ -16,10 +16,36 @@ public interface StemTransitions {
 
   List<StemTransition> getTransitions(DictionaryItem item);
 
+  /**
+   * @deprecated Implementations copy their state on every update, so adding items one by one costs
+   * as much as adding them all in one batch each time. Use {@link #addDictionaryItems(Collection)}.
+   */
+  @Deprecated
   void addDictionaryItem(DictionaryItem item);
 
+  /**
+   * @deprecated Use {@link #removeDictionaryItems(Collection)}, for the same reason with {@link
+   * #addDictionaryItem(DictionaryItem)}.
+   */
+  @Deprecated
   void removeDictionaryItem(DictionaryItem item);
 
+  /**
+   * Adds transitions of all items. Readers see either none or all of the new transitions. Cost of
+   * an update is proportional to the lexicon size, so items should be added in batches.
+   */
+  void addDictionaryItems(Collection<DictionaryItem> items);
+
+  /**
+   * Removes transitions of all items. Readers see either none or all of the removals.
+   */
+  void removeDictionaryItems(Collection<DictionaryItem> items);
+
+  /**
+   * @return a number that changes every time dictionary items are added or removed.
+   */
+  long getVersion();
+
   List<StemTransition> generate(DictionaryItem item);
 
 }
@@ -14,6 +14,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import zemberek.core.logging.Log;
 import zemberek.core.turkish.PhoneticAttribute;
 import zemberek.core.turkish.PrimaryPos;
 import zemberek.core.turkish.RootAttribute;
@@ -21,7 +22,6 @@ import zemberek.core.turkish.TurkicLetter;
 import zemberek.core.turkish.TurkishAlphabet;
 import zemberek.morphology.lexicon.DictionaryItem;
 import zemberek.morphology.lexicon.LexiconException;
-import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.AttributeSet;
 import zemberek.morphology.morphotactics.MorphemeState;
 import zemberek.morphology.morphotactics.StemTransition;
@@ -31,7 +31,6 @@ abstract class StemTransitionsBase {
 
   TurkishMorphotactics morphotactics;
   private TurkishAlphabet alphabet = TurkishAlphabet.INSTANCE;
-  RootLexicon lexicon;
 
   private EnumSet<RootAttribute> modifiers = EnumSet.of(
       Doubling,
@@ -69,6 +68,19 @@ abstract class StemTransitionsBase {
     }
   }
 
+  /**
+   * Generates transitions of the item, or logs a warning and returns null if they cannot be
+   * generated, so that a single bad item does not prevent loading a lexicon.
+   */
+  List<StemTransition> generateOrWarn(DictionaryItem item) {
+    try {
+      return generate(item);
+    } catch (Exception e) {
+      Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
+      return null;
+    }
+  }
+
   private boolean hasModifierAttribute(DictionaryItem item) {
     for (RootAttribute attr : modifiers) {
       if (item.attributes.contains(attr)) {
@@ -1,219 +1,317 @@
 package zemberek.morphology.analysis;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
-import zemberek.core.logging.Log;
 import zemberek.core.turkish.TurkishAlphabet;
 import zemberek.morphology.lexicon.DictionaryItem;
 import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.StemTransition;
 import zemberek.morphology.morphotactics.TurkishMorphotactics;
 
+/**
+ * Stem transitions kept in hash maps. Maps and the lexicon are kept in an immutable state object.
+ * When dictionary items are added or removed, a modified copy of the state with a modified copy of
+ * the lexicon is published, so readers do not need locks and always see a lexicon and transitions
+ * that are consistent. Lexicon given in the constructor is not modified. Every update copies the
+ * maps and the lexicon, so its cost is proportional to the lexicon size. Items should be added or
+ * removed in batches with {@link #addDictionaryItems(Collection)} and
+ * {@link #removeDictionaryItems(Collection)}.
+ */
 public class StemTransitionsMapBased extends StemTransitionsBase implements StemTransitions {
 
-  private ArrayListMultimap<String, StemTransition> multiStems =
-      ArrayListMultimap.create(1000, 2);
-  private HashMultimap<String, String> asciiKeys = null;
-
-  // contains a map that holds dictionary items that has
-  // multiple or different than item.root stem surface forms.
-  private ArrayListMultimap<DictionaryItem, StemTransition> differentStemItems =
-      ArrayListMultimap.create(1000, 2);
-
-  private Map<String, StemTransition> singleStems = Maps.newConcurrentMap();
-
-  private ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile Transitions transitions;
 
   public StemTransitionsMapBased(RootLexicon lexicon, TurkishMorphotactics morphotactics) {
-    this.lexicon = lexicon;
     this.morphotactics = morphotactics;
-    lexicon.forEach(this::addDictionaryItem);
+    Transitions initial = new Transitions(lexicon);
+    for (DictionaryItem item : lexicon) {
+      List<StemTransition> generated = generateOrWarn(item);
+      if (generated != null) {
+        initial.add(item, generated);
+      }
+    }
+    this.transitions = initial;
+  }
+
+  /**
+   * Creates stem transitions from already generated transitions, such as the ones loaded from a
+   * snapshot. Transitions of a dictionary item must be consecutive in the list.
+   */
+  public StemTransitionsMapBased(
+      RootLexicon lexicon,
+      TurkishMorphotactics morphotactics,
+      List<StemTransition> transitions) {
+    this.morphotactics = morphotactics;
+    Transitions initial = new Transitions(lexicon);
+    int start = 0;
+    for (int i = 1; i <= transitions.size(); i++) {
+      if (i == transitions.size() || transitions.get(i).item != transitions.get(start).item) {
+        initial.add(transitions.get(start).item, transitions.subList(start, i));
+        start = i;
+      }
+    }
+    this.transitions = initial;
   }
 
-  //TODO: this is kind of a hack. Because StemTransitions may be shared between
-  // analyzer classes, this may be necessary when one of them happens to be ascii tolerant
-  // and other is not.
-  private void generateAsciiTolerantMap() {
-    lock.writeLock().lock();
-    asciiKeys = HashMultimap.create(1000, 2);
-    try {
+  // State of the stem transitions. It is not modified after it is published. Lists in the maps
+  // are never modified, they are replaced in the copy instead.
+  private static class Transitions {
 
-      // generate MultiMap for ascii tolerant keys
-      for (String s : singleStems.keySet()) {
-        String ascii = TurkishAlphabet.INSTANCE.toAscii(s);
+    final long version;
+    final RootLexicon lexicon;
+    final Map<String, StemTransition> singleStems;
+    final Map<String, List<StemTransition>> multiStems;
+    // contains dictionary items that has multiple or different than item.root stem surface forms.
+    final Map<DictionaryItem, List<StemTransition>> differentStemItems;
+    // created lazily when an ascii tolerant search is made. Copies of the state inherit it.
+    volatile HashMultimap<String, String> asciiKeys;
 
-        if (TurkishAlphabet.INSTANCE.containsAsciiRelated(s)) {
-          asciiKeys.put(ascii, s);
-        }
+    Transitions(RootLexicon lexicon) {
+      this.version = 0;
+      this.lexicon = lexicon;
+      this.singleStems = new HashMap<>(1000);
+      this.multiStems = new HashMap<>(1000);
+      this.differentStemItems = new HashMap<>(1000);
+    }
+
+    Transitions(Transitions other, RootLexicon lexicon) {
+      this.version = other.version + 1;
+      this.lexicon = lexicon;
+      this.singleStems = new HashMap<>(other.singleStems);
+      this.multiStems = new HashMap<>(other.multiStems);
+      this.differentStemItems = new HashMap<>(other.differentStemItems);
+      HashMultimap<String, String> otherKeys = other.asciiKeys;
+      this.asciiKeys = otherKeys == null ? null : HashMultimap.create(otherKeys);
+    }
+
+    void add(DictionaryItem item, List<StemTransition> itemTransitions) {
+      for (StemTransition transition : itemTransitions) {
+        addStemTransition(transition);
       }
-      for (StemTransition st : multiStems.values()) {
-        String s = st.surface;
-        String ascii = TurkishAlphabet.INSTANCE.toAscii(s);
-        if (TurkishAlphabet.INSTANCE.containsAsciiRelated(s)) {
-          asciiKeys.put(ascii, s);
-        }
+      if (itemTransitions.size() > 1 || (itemTransitions.size() == 1 && !item.root
+          .equals(itemTransitions.get(0).surface))) {
+        List<StemTransition> list = new ArrayList<>(
+            differentStemItems.getOrDefault(item, Collections.emptyList()));
+        list.addAll(itemTransitions);
+        differentStemItems.put(item, list);
       }
-    } finally {
-      lock.writeLock().unlock();
     }
-  }
 
-  public synchronized Set<StemTransition> getTransitions() {
-    HashSet<StemTransition> result = new HashSet<>(singleStems.values());
-    result.addAll(multiStems.values());
-    return result;
-  }
+    void remove(DictionaryItem item, List<StemTransition> itemTransitions) {
+      for (StemTransition transition : itemTransitions) {
+        removeStemTransition(transition);
+      }
+      differentStemItems.remove(item);
+    }
 
-  public RootLexicon getLexicon() {
-    return lexicon;
-  }
+    private void addStemTransition(StemTransition stemTransition) {
+      final String surfaceForm = stemTransition.surface;
+      List<StemTransition> multi = multiStems.get(surfaceForm);
+      if (multi != null) {
+        List<StemTransition> list = new ArrayList<>(multi.size() + 1);
+        list.addAll(multi);
+        list.add(stemTransition);
+        multiStems.put(surfaceForm, list);
+      } else if (singleStems.containsKey(surfaceForm)) {
+        List<StemTransition> list = new ArrayList<>(2);
+        list.add(singleStems.remove(surfaceForm));
+        list.add(stemTransition);
+        multiStems.put(surfaceForm, list);
+      } else {
+        singleStems.put(surfaceForm, stemTransition);
+        if (asciiKeys != null && TurkishAlphabet.INSTANCE.containsAsciiRelated(surfaceForm)) {
+          asciiKeys.put(TurkishAlphabet.INSTANCE.toAscii(surfaceForm), surfaceForm);
+        }
+      }
+    }
 
-  private synchronized void addStemTransition(StemTransition stemTransition) {
-    final String surfaceForm = stemTransition.surface;
-    if (multiStems.containsKey(surfaceForm)) {
-      multiStems.put(surfaceForm, stemTransition);
-    } else if (singleStems.containsKey(surfaceForm)) {
-      multiStems.put(surfaceForm, singleStems.get(surfaceForm));
-      singleStems.remove(surfaceForm);
-      multiStems.put(surfaceForm, stemTransition);
-    } else {
-      singleStems.put(surfaceForm, stemTransition);
+    private void removeStemTransition(StemTransition stemTransition) {
+      final String surfaceForm = stemTransition.surface;
+      List<StemTransition> multi = multiStems.get(surfaceForm);
+      boolean removed = false;
+      if (multi != null) {
+        List<StemTransition> list = new ArrayList<>(multi);
+        list.remove(stemTransition);
+        if (list.isEmpty()) {
+          multiStems.remove(surfaceForm);
+          removed = true;
+        } else {
+          multiStems.put(surfaceForm, list);
+        }
+      } else if (singleStems.containsKey(surfaceForm)
+          && singleStems.get(surfaceForm).item.equals(stemTransition.item)) {
+        singleStems.remove(surfaceForm);
+        removed = true;
+      }
+      if (removed && asciiKeys != null) {
+        asciiKeys.remove(TurkishAlphabet.INSTANCE.toAscii(surfaceForm), surfaceForm);
+      }
     }
-  }
 
-  private synchronized void removeStemNode(StemTransition stemTransition) {
-    final String surfaceForm = stemTransition.surface;
-    if (multiStems.containsKey(surfaceForm)) {
-      multiStems.remove(surfaceForm, stemTransition);
-    } else if (singleStems.containsKey(surfaceForm)
-        && singleStems.get(surfaceForm).item.equals(stemTransition.item)) {
-      singleStems.remove(surfaceForm);
+    //TODO: this is kind of a hack. Because StemTransitions may be shared between
+    // analyzer classes, this may be necessary when one of them happens to be ascii tolerant
+    // and other is not.
+    HashMultimap<String, String> getAsciiKeys() {
+      HashMultimap<String, String> keys = asciiKeys;
+      if (keys != null) {
+        return keys;
+      }
+      synchronized (this) {
+        if (asciiKeys == null) {
+          // generate MultiMap for ascii tolerant keys
+          keys = HashMultimap.create(1000, 2);
+          for (String s : singleStems.keySet()) {
+            if (TurkishAlphabet.INSTANCE.containsAsciiRelated(s)) {
+              keys.put(TurkishAlphabet.INSTANCE.toAscii(s), s);
+            }
+          }
+          for (String s : multiStems.keySet()) {
+            if (TurkishAlphabet.INSTANCE.containsAsciiRelated(s)) {
+              keys.put(TurkishAlphabet.INSTANCE.toAscii(s), s);
+            }
+          }
+          asciiKeys = keys;
+        }
+        return asciiKeys;
+      }
     }
-    if (!differentStemItems.containsEntry(stemTransition.item, stemTransition)) {
-      differentStemItems.remove(stemTransition.item, stemTransition);
+
+    List<StemTransition> getTransitions(String stem) {
+      StemTransition single = singleStems.get(stem);
+      if (single != null) {
+        return Lists.newArrayList(single);
+      }
+      List<StemTransition> multi = multiStems.get(stem);
+      return multi == null ? Collections.emptyList() : multi;
     }
-  }
 
-  private LinkedHashSet<StemTransition> getTransitionsAsciiTolerant(String stem) {
-    lock.readLock().lock();
-    try {
+    LinkedHashSet<StemTransition> getTransitionsAsciiTolerant(String stem) {
       // add actual
-      LinkedHashSet<StemTransition> result = new LinkedHashSet<>();
-      if (singleStems.containsKey(stem)) {
-        result.add(singleStems.get(stem));
-      } else if (multiStems.containsKey(stem)) {
-        result.addAll(multiStems.get(stem));
-      }
-      Set<String> asciiStems = asciiKeys.get(TurkishAlphabet.INSTANCE.toAscii(stem));
+      LinkedHashSet<StemTransition> result = new LinkedHashSet<>(getTransitions(stem));
+      Set<String> asciiStems = getAsciiKeys().get(TurkishAlphabet.INSTANCE.toAscii(stem));
       for (String st : asciiStems) {
-        if (singleStems.containsKey(st)) {
-          result.add(singleStems.get(st));
-        } else if (multiStems.containsKey(st)) {
-          result.addAll(multiStems.get(st));
-        }
+        result.addAll(getTransitions(st));
       }
       return result;
-    } finally {
-      lock.readLock().unlock();
     }
   }
 
-  private List<StemTransition> getTransitions(String stem) {
-    lock.readLock().lock();
-    try {
-      if (singleStems.containsKey(stem)) {
-        return Lists.newArrayList(singleStems.get(stem));
-      } else if (multiStems.containsKey(stem)) {
-        return Lists.newArrayList(multiStems.get(stem));
-      } else {
-        return Collections.emptyList();
-      }
-    } finally {
-      lock.readLock().unlock();
+  public Set<StemTransition> getTransitions() {
+    Transitions current = transitions;
+    HashSet<StemTransition> result = new HashSet<>(current.singleStems.values());
+    for (List<StemTransition> list : current.multiStems.values()) {
+      result.addAll(list);
     }
+    return result;
+  }
+
+  public RootLexicon getLexicon() {
+    return transitions.lexicon;
+  }
+
+  public long getVersion() {
+    return transitions.version;
   }
 
   public List<StemTransition> getPrefixMatches(String input, boolean asciiTolerant) {
-    if (asciiKeys == null && asciiTolerant) {
-      generateAsciiTolerantMap();
-    }
-    lock.readLock().lock();
-    try {
-      List<StemTransition> matches = Lists.newArrayListWithCapacity(3);
-      for (int i = 1; i <= input.length(); i++) {
-        String stem = input.substring(0, i);
-        if (asciiTolerant) {
-          matches.addAll(getTransitionsAsciiTolerant(stem));
-        } else {
-          matches.addAll(getTransitions(stem));
-        }
+    Transitions current = transitions;
+    List<StemTransition> matches = Lists.newArrayListWithCapacity(3);
+    for (int i = 1; i <= input.length(); i++) {
+      String stem = input.substring(0, i);
+      if (asciiTolerant) {
+        matches.addAll(current.getTransitionsAsciiTolerant(stem));
+      } else {
+        matches.addAll(current.getTransitions(stem));
       }
-      return matches;
-    } finally {
-      lock.readLock().unlock();
     }
+    return matches;
   }
 
   public List<StemTransition> getTransitions(DictionaryItem item) {
-    lock.readLock().lock();
-    try {
-      if (differentStemItems.containsKey(item)) {
-        return differentStemItems.get(item);
-      } else {
+    return getTransitions(transitions, item);
+  }
 
-        List<StemTransition> transitions = getTransitions(item.root);
-        return transitions.stream().filter(s -> s.item.equals(item)).collect(Collectors.toList());
-      }
-    } finally {
-      lock.readLock().unlock();
+  private static List<StemTransition> getTransitions(Transitions current, DictionaryItem item) {
+    List<StemTransition> different = current.differentStemItems.get(item);
+    if (different != null) {
+      return Collections.unmodifiableList(different);
     }
+    return current.getTransitions(item.root).stream()
+        .filter(s -> s.item.equals(item))
+        .collect(Collectors.toList());
   }
 
+  /**
+   * @deprecated Each call copies the lexicon and the transitions. Use {@link
+   * #addDictionaryItems(Collection)}.
+   */
+  @Deprecated
   public void addDictionaryItem(DictionaryItem item) {
-    lock.writeLock().lock();
-    try {
-      List<StemTransition> transitions = generate(item);
-      for (StemTransition transition : transitions) {
-        addStemTransition(transition);
-      }
-      if (transitions.size() > 1 || (transitions.size() == 1 && !item.root
-          .equals(transitions.get(0).surface))) {
-        differentStemItems.putAll(item, transitions);
-      }
-    } catch (Exception e) {
-      Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
-    } finally {
-      lock.writeLock().unlock();
+    addDictionaryItems(Collections.singletonList(item));
+  }
+
+  public void addDictionaryItems(Collection<DictionaryItem> items) {
+    Map<DictionaryItem, List<StemTransition>> generated = generateAll(items);
+    synchronized (this) {
+      Transitions current = transitions;
+      RootLexicon lexicon = current.lexicon.copy();
+      Transitions copy = new Transitions(current, lexicon);
+      generated.forEach((item, itemTransitions) -> {
+        if (!lexicon.containsItem(item)) {
+          lexicon.add(item);
+        }
+        // item may be in the lexicon without transitions, but they should not be added twice.
+        if (getTransitions(current, item).isEmpty()) {
+          copy.add(item, itemTransitions);
+        }
+      });
+      transitions = copy;
     }
   }
 
+  /**
+   * @deprecated Each call copies the lexicon and the transitions. Use {@link
+   * #removeDictionaryItems(Collection)}.
+   */
+  @Deprecated
   public void removeDictionaryItem(DictionaryItem item) {
-    lock.writeLock().lock();
-    try {
-      List<StemTransition> transitions = generate(item);
-      for (StemTransition transition : transitions) {
-        removeStemNode(transition);
-      }
-      if (differentStemItems.containsKey(item)) {
-        differentStemItems.removeAll(item);
+    removeDictionaryItems(Collections.singletonList(item));
+  }
+
+  public void removeDictionaryItems(Collection<DictionaryItem> items) {
+    Map<DictionaryItem, List<StemTransition>> generated = generateAll(items);
+    synchronized (this) {
+      Transitions current = transitions;
+      RootLexicon lexicon = current.lexicon.copy();
+      lexicon.removeAll(items);
+      Transitions copy = new Transitions(current, lexicon);
+      generated.forEach(copy::remove);
+      transitions = copy;
+    }
+  }
+
+  // transitions are generated before copying the state, so that writer lock is held shortly.
+  private Map<DictionaryItem, List<StemTransition>> generateAll(
+      Collection<DictionaryItem> items) {
+    Map<DictionaryItem, List<StemTransition>> result = new LinkedHashMap<>();
+    for (DictionaryItem item : items) {
+      List<StemTransition> generated = generateOrWarn(item);
+      if (generated != null) {
+        result.put(item, generated);
       }
-    } catch (Exception e) {
-      Log.warn("Cannot remove %s ", item, e.getMessage());
-    } finally {
-      lock.writeLock().unlock();
     }
+    return result;
   }
 
 }
-
@@ -1,9 +1,9 @@
 package zemberek.morphology.analysis;
 
 import com.google.common.collect.ArrayListMultimap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import zemberek.core.collections.Trie;
 import zemberek.core.logging.Log;
@@ -12,97 +12,149 @@ import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.StemTransition;
 import zemberek.morphology.morphotactics.TurkishMorphotactics;
 
+/**
+ * Stem transitions kept in a trie. Like {@link StemTransitionsMapBased}, updates are applied to a
+ * copy of the trie and the lexicon that is published when complete, so readers do not need locks.
+ * Every update copies the trie and the lexicon, so items should be added or removed in batches.
+ */
 public class StemTransitionsTrieBased extends StemTransitionsBase implements StemTransitions {
 
-  private Trie<StemTransition> stemTransitionTrie = new Trie<>();
-
-  // contains a map that holds dictionary items that has multiple or
-  // different than item.root stem surface forms.
-  private ArrayListMultimap<DictionaryItem, StemTransition> differentStemItems =
-      ArrayListMultimap.create(1000, 2);
-
-  private ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile Transitions transitions;
 
   public StemTransitionsTrieBased(RootLexicon lexicon, TurkishMorphotactics morphotactics) {
-    this.lexicon = lexicon;
     this.morphotactics = morphotactics;
-    lexicon.forEach(this::addTransitions);
+    Transitions initial = new Transitions(0, lexicon);
+    for (DictionaryItem item : lexicon) {
+      List<StemTransition> generated = generateOrWarn(item);
+      if (generated != null) {
+        initial.add(item, generated);
+      }
+    }
+    this.transitions = initial;
   }
 
-  public List<StemTransition> getTransitions() {
-    lock.readLock().lock();
-    try {
-      return stemTransitionTrie.getAll();
-    } finally {
-      lock.readLock().unlock();
+  // State of the stem transitions. It is not modified after it is published.
+  private static class Transitions {
+
+    final long version;
+    final RootLexicon lexicon;
+    final Trie<StemTransition> stemTransitionTrie = new Trie<>();
+    // contains a map that holds dictionary items that has multiple or
+    // different than item.root stem surface forms.
+    final ArrayListMultimap<DictionaryItem, StemTransition> differentStemItems =
+        ArrayListMultimap.create(1000, 2);
+
+    Transitions(long version, RootLexicon lexicon) {
+      this.version = version;
+      this.lexicon = lexicon;
+    }
+
+    Transitions copy() {
+      Transitions copy = new Transitions(version + 1, lexicon.copy());
+      for (StemTransition transition : stemTransitionTrie.getAll()) {
+        copy.stemTransitionTrie.add(transition.surface, transition);
+      }
+      copy.differentStemItems.putAll(differentStemItems);
+      return copy;
+    }
+
+    void add(DictionaryItem item, List<StemTransition> itemTransitions) {
+      for (StemTransition transition : itemTransitions) {
+        stemTransitionTrie.add(transition.surface, transition);
+      }
+      if (itemTransitions.size() > 1 || (itemTransitions.size() == 1 && !item.root
+          .equals(itemTransitions.get(0).surface))) {
+        differentStemItems.putAll(item, itemTransitions);
+      }
+    }
+
+    void remove(DictionaryItem item, List<StemTransition> itemTransitions) {
+      for (StemTransition transition : itemTransitions) {
+        stemTransitionTrie.remove(transition.surface, transition);
+      }
+      differentStemItems.removeAll(item);
     }
   }
 
+  public List<StemTransition> getTransitions() {
+    return transitions.stemTransitionTrie.getAll();
+  }
+
   public RootLexicon getLexicon() {
-    return lexicon;
+    return transitions.lexicon;
+  }
+
+  public long getVersion() {
+    return transitions.version;
   }
 
   public List<StemTransition> getPrefixMatches(String stem, boolean asciiTolerant) {
-    lock.readLock().lock();
-    try {
-      return stemTransitionTrie.getPrefixMatchingItems(stem);
-    } finally {
-      lock.readLock().unlock();
-    }
+    return transitions.stemTransitionTrie.getPrefixMatchingItems(stem);
   }
 
   public List<StemTransition> getTransitions(DictionaryItem item) {
-    if (differentStemItems.containsKey(item)) {
-      return differentStemItems.get(item);
+    return getTransitions(transitions, item);
+  }
+
+  private static List<StemTransition> getTransitions(Transitions current, DictionaryItem item) {
+    if (current.differentStemItems.containsKey(item)) {
+      return Collections.unmodifiableList(current.differentStemItems.get(item));
     } else {
-      List<StemTransition> transitions = stemTransitionTrie.getItems(item.root);
-      return transitions.stream().filter(s -> s.item.equals(item)).collect(Collectors.toList());
+      List<StemTransition> itemTransitions = current.stemTransitionTrie.getItems(item.root);
+      return itemTransitions.stream()
+          .filter(s -> s.item.equals(item))
+          .collect(Collectors.toList());
     }
   }
 
+  /**
+   * @deprecated Each call copies the lexicon and the trie. Use {@link
+   * #addDictionaryItems(Collection)}.
+   */
+  @Deprecated
   public void addDictionaryItem(DictionaryItem item) {
-    lock.writeLock().lock();
-    try {
-      addTransitions(item);
-    } catch (Exception e) {
-      Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
-    } finally {
-      lock.writeLock().unlock();
-    }
+    addDictionaryItems(Collections.singletonList(item));
   }
 
-  private void addTransitions(DictionaryItem item) {
-    lock.writeLock().lock();
-    try {
-      List<StemTransition> transitions = generate(item);
-      for (StemTransition transition : transitions) {
-        stemTransitionTrie.add(transition.surface, transition);
+  public synchronized void addDictionaryItems(Collection<DictionaryItem> items) {
+    Transitions current = transitions;
+    Transitions copy = current.copy();
+    for (DictionaryItem item : items) {
+      try {
+        List<StemTransition> generated = generate(item);
+        if (!copy.lexicon.containsItem(item)) {
+          copy.lexicon.add(item);
+        }
+        if (getTransitions(current, item).isEmpty()) {
+          copy.add(item, generated);
+        }
+      } catch (Exception e) {
+        Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
       }
-      if (transitions.size() > 1 || (transitions.size() == 1 && !item.root
-          .equals(transitions.get(0).surface))) {
-        differentStemItems.putAll(item, transitions);
-      }
-    } finally {
-      lock.writeLock().unlock();
     }
+    transitions = copy;
   }
 
+  /**
+   * @deprecated Each call copies the lexicon and the trie. Use {@link
+   * #removeDictionaryItems(Collection)}.
+   */
+  @Deprecated
   public void removeDictionaryItem(DictionaryItem item) {
-    lock.writeLock().lock();
-    try {
-      List<StemTransition> transitions = generate(item);
-      for (StemTransition transition : transitions) {
-        stemTransitionTrie.remove(transition.surface, transition);
-      }
-      if (differentStemItems.containsKey(item)) {
-        differentStemItems.removeAll(item);
+    removeDictionaryItems(Collections.singletonList(item));
+  }
+
+  public synchronized void removeDictionaryItems(Collection<DictionaryItem> items) {
+    Transitions copy = transitions.copy();
+    for (DictionaryItem item : items) {
+      try {
+        copy.lexicon.remove(item);
+        copy.remove(item, generate(item));
+      } catch (Exception e) {
+        Log.warn("Cannot remove %s with reason %s", item, e.getMessage());
       }
-    } catch (Exception e) {
-      Log.warn("Cannot remove %s ", e.getMessage());
-    } finally {
-      lock.writeLock().unlock();
     }
+    transitions = copy;
   }
 
 }
-
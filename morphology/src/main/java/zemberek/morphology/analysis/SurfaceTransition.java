@@ -6,6 +6,7 @@ import static zemberek.core.turkish.PhoneticAttribute.LastVowelBack;
 import static zemberek.core.turkish.PhoneticAttribute.LastVowelFrontal;
 import static zemberek.core.turkish.PhoneticAttribute.LastVowelRounded;
 import static zemberek.core.turkish.PhoneticAttribute.LastVowelUnrounded;
+import static zemberek.morphology.morphotactics.AttributeSet.contains;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -65,17 +66,41 @@ public class SurfaceTransition {
   public static String generateSurface(
       SuffixTransition transition,
       AttributeSet<PhoneticAttribute> phoneticAttributes) {
+    return generateSurface(transition, phoneticAttributes.getBits());
+  }
 
-    String cached = transition.getFromSurfaceCache(phoneticAttributes);
-    if (cached != null) {
-      return cached;
-    }
+  /**
+   * Returns surface form of the transition for the preceding morpheme's phonetic attribute bits.
+   * Surfaces are generated when transitions are created, so this is a table lookup.
+   */
+  public static String generateSurface(SuffixTransition transition, int phoneticAttributes) {
+    String surface = transition.getSurface(phoneticAttributes);
+    // if surface could not be generated, this throws the exception.
+    return surface != null ? surface : createSurface(transition, phoneticAttributes);
+  }
 
+  /**
+   * Generates surface form of the transition for the preceding morpheme's phonetic attribute
+   * bits. Attributes of the generated part are updated with each appended letter instead of
+   * being calculated from scratch for every template token.
+   */
+  public static String createSurface(SuffixTransition transition, int phoneticAttributes) {
     StringBuilder sb = new StringBuilder();
     int index = 0;
+    // attributes of sb.
+    int attrs = phoneticAttributes;
+    boolean hasVowel = false;
+    char lastVowel = 0;
     for (SuffixTemplateToken token : transition.getTokenList()) {
-      AttributeSet<PhoneticAttribute> attrs =
-          AttributesHelper.getMorphemicAttributes(sb, phoneticAttributes);
+      if (sb.length() > 0) {
+        char last = sb.charAt(sb.length() - 1);
+        if (AttributesHelper.isVowel(last)) {
+          hasVowel = true;
+          lastVowel = last;
+        }
+        attrs = AttributesHelper.getMorphemicAttributes(
+            sb.charAt(0), hasVowel, lastVowel, last, phoneticAttributes);
+      }
       switch (token.type) {
         case LETTER:
           sb.append(token.letter);
@@ -83,12 +108,12 @@ public class SurfaceTransition {
 
         case A_WOVEL:
           // TODO: document line below.
-          if (index == 0 && phoneticAttributes.contains(LastLetterVowel)) {
+          if (index == 0 && contains(phoneticAttributes, LastLetterVowel)) {
             break;
           }
-          if (attrs.contains(LastVowelBack)) {
+          if (contains(attrs, LastVowelBack)) {
             sb.append('a');
-          } else if (attrs.contains(LastVowelFrontal)) {
+          } else if (contains(attrs, LastVowelFrontal)) {
             sb.append('e');
           } else {
             throw new IllegalArgumentException("Cannot generate A form! ");
@@ -97,16 +122,16 @@ public class SurfaceTransition {
 
         case I_WOVEL:
           // TODO: document line below. With templates like +Im this would not be necessary
-          if (index == 0 && phoneticAttributes.contains(LastLetterVowel)) {
+          if (index == 0 && contains(phoneticAttributes, LastLetterVowel)) {
             break;
           }
-          if (attrs.contains(LastVowelFrontal) && attrs.contains(LastVowelUnrounded)) {
+          if (contains(attrs, LastVowelFrontal) && contains(attrs, LastVowelUnrounded)) {
             sb.append('i');
-          } else if (attrs.contains(LastVowelBack) && attrs.contains(LastVowelUnrounded)) {
+          } else if (contains(attrs, LastVowelBack) && contains(attrs, LastVowelUnrounded)) {
             sb.append('ı');
-          } else if (attrs.contains(LastVowelBack) && attrs.contains(LastVowelRounded)) {
+          } else if (contains(attrs, LastVowelBack) && contains(attrs, LastVowelRounded)) {
             sb.append('u');
-          } else if (attrs.contains(LastVowelFrontal) && attrs.contains(LastVowelRounded)) {
+          } else if (contains(attrs, LastVowelFrontal) && contains(attrs, LastVowelRounded)) {
             sb.append('ü');
           } else {
             throw new IllegalArgumentException("Cannot generate I form!");
@@ -114,14 +139,14 @@ public class SurfaceTransition {
           break;
 
         case APPEND:
-          if (attrs.contains(LastLetterVowel)) {
+          if (contains(attrs, LastLetterVowel)) {
             sb.append(token.letter);
           }
           break;
 
         case DEVOICE_FIRST:
           char ld = token.letter;
-          if (attrs.contains(LastLetterVoiceless)) {
+          if (contains(attrs, LastLetterVoiceless)) {
             ld = alphabet.devoice(ld);
           }
           sb.append(ld);
@@ -135,9 +160,7 @@ public class SurfaceTransition {
       }
       index++;
     }
-    String s = sb.toString();
-    transition.addToSurfaceCache(phoneticAttributes, s);
-    return s;
+    return sb.toString();
   }
 
   public enum TemplateTokenType {
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import zemberek.core.logging.Log;
 import zemberek.core.turkish.PrimaryPos;
 import zemberek.core.turkish.RootAttribute;
 import zemberek.core.turkish.SecondaryPos;
@@ -18,7 +19,7 @@ import zemberek.morphology.analysis.tr.PronunciationGuesser;
 import zemberek.morphology.analysis.tr.TurkishNumbers;
 import zemberek.morphology.analysis.tr.TurkishNumeralEndingMachine;
 import zemberek.morphology.lexicon.DictionaryItem;
-import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.morphotactics.StemTransition;
 import zemberek.tokenization.Token;
 
 
@@ -32,13 +33,11 @@ public class UnidentifiedTokenAnalyzer {
   private static Map<String, String> ordinalMap = TurkishNumbers.getOrdinalMap();
 
   private RuleBasedAnalyzer analyzer;
-  private RootLexicon lexicon;
   private TurkishAlphabet alphabet = TurkishAlphabet.INSTANCE;
   private TurkishNumeralEndingMachine numeralEndingMachine = new TurkishNumeralEndingMachine();
 
   public UnidentifiedTokenAnalyzer(RuleBasedAnalyzer analyzer) {
     this.analyzer = analyzer;
-    this.lexicon = analyzer.getLexicon();
   }
 
   public static final Pattern nonLettersPattern =
@@ -79,16 +78,25 @@ public class UnidentifiedTokenAnalyzer {
       return analyzeWord(word, sPos);
     }
 
-    boolean itemDoesNotExist = !lexicon.containsItem(item);
-    if (itemDoesNotExist) {
-      item.attributes.add(RootAttribute.Runtime);
-      analyzer.getStemTransitions().addDictionaryItem(item);
+    return analyzeWithItem(word, item);
+  }
+
+  // Analyzes input with the item. If item is not in the dictionary, its transitions are only
+  // visible to this analysis, shared stem transitions are not modified.
+  private List<SingleAnalysis> analyzeWithItem(String input, DictionaryItem item) {
+    StemTransitions stemTransitions = analyzer.getStemTransitions();
+    if (!stemTransitions.getTransitions(item).isEmpty()) {
+      return analyzer.analyze(input);
     }
-    List<SingleAnalysis> results = analyzer.analyze(word);
-    if (itemDoesNotExist) {
-      analyzer.getStemTransitions().removeDictionaryItem(item);
+    item.attributes.add(RootAttribute.Runtime);
+    List<StemTransition> transitions;
+    try {
+      transitions = stemTransitions.generate(item);
+    } catch (Exception e) {
+      Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
+      return analyzer.analyze(input);
     }
-    return results;
+    return analyzer.analyze(input, transitions);
   }
 
   private SecondaryPos guessSecondaryPosType(Token token) {
@@ -161,17 +169,7 @@ public class UnidentifiedTokenAnalyzer {
       return result;
     }
 
-    boolean itemDoesNotExist = !lexicon.containsItem(item);
-
-    if (itemDoesNotExist) {
-      item.attributes.add(RootAttribute.Runtime);
-      analyzer.getStemTransitions().addDictionaryItem(item);
-    }
-    List<SingleAnalysis> results = analyzer.analyze(normalized);
-    if (itemDoesNotExist) {
-      analyzer.getStemTransitions().removeDictionaryItem(item);
-    }
-    return results;
+    return analyzeWithItem(normalized, item);
   }
 
   private List<SingleAnalysis> tryWordWithApostrophe(String word, SecondaryPos secondaryPos) {
@@ -209,18 +207,9 @@ public class UnidentifiedTokenAnalyzer {
       return result;
     }
 
-    boolean itemDoesNotExist = !lexicon.containsItem(item);
-    if (itemDoesNotExist) {
-      item.attributes.add(RootAttribute.Runtime);
-      analyzer.getStemTransitions().addDictionaryItem(item);
-    }
     String toParse = stemNormalized + endingNormalized;
 
-    List<SingleAnalysis> noQuotesParses = analyzer.analyze(toParse);
-
-    if (itemDoesNotExist) {
-      analyzer.getStemTransitions().removeDictionaryItem(item);
-    }
+    List<SingleAnalysis> noQuotesParses = analyzeWithItem(toParse, item);
 
     List<SingleAnalysis> analyses = noQuotesParses.stream()
         .filter(noQuotesParse -> noQuotesParse.getStem().equals(stemNormalized))
@@ -0,0 +1,207 @@
+package zemberek.morphology.generator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import zemberek.core.concurrency.ConcurrencyUtil;
+import zemberek.core.turkish.PhoneticAttribute;
+import zemberek.morphology.analysis.SearchPath;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.StemTransitions;
+import zemberek.morphology.generator.WordGenerator.Result;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.morphotactics.MorphemeTransition;
+import zemberek.morphology.morphotactics.StemTransition;
+import zemberek.morphology.morphotactics.SuffixTransition;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+/**
+ * Generates all word forms of dictionary items. Morphotactics graph is walked depth first starting
+ * from stem transitions of the item, so a path is extended once and all forms that starts with it
+ * share it. Because the number of forms grows quickly with the path length and derivations, number
+ * of morphemes and derivations in a form are limited.
+ * <p>
+ * Usage:
+ * <pre>
+ *   ParadigmGenerator generator = ParadigmGenerator.builder(morphotactics)
+ *       .maxMorphemeCount(6)
+ *       .maxDerivationCount(0)
+ *       .build();
+ *   generator.generate(item, result -> System.out.println(result.surface));
+ * </pre>
+ * This class is thread-safe.
+ */
+public class ParadigmGenerator {
+
+  private static final int ITEM_CHUNK_SIZE = 100;
+
+  private final StemTransitions stemTransitions;
+  private final int maxMorphemeCount;
+  private final int maxDerivationCount;
+
+  private ParadigmGenerator(Builder builder) {
+    this.stemTransitions = builder.morphotactics.getStemTransitions();
+    this.maxMorphemeCount = builder.maxMorphemeCount;
+    this.maxDerivationCount = builder.maxDerivationCount;
+  }
+
+  public static Builder builder(TurkishMorphotactics morphotactics) {
+    return new Builder(morphotactics);
+  }
+
+  public static class Builder {
+
+    TurkishMorphotactics morphotactics;
+    int maxMorphemeCount = 8;
+    int maxDerivationCount = 0;
+
+    Builder(TurkishMorphotactics morphotactics) {
+      this.morphotactics = morphotactics;
+    }
+
+    /**
+     * Maximum number of morphemes after the stem, including morphemes without surface such as
+     * A3sg or Nom.
+     */
+    public Builder maxMorphemeCount(int maxMorphemeCount) {
+      Preconditions.checkArgument(maxMorphemeCount >= 0,
+          "Morpheme count cannot be negative. But it is %d", maxMorphemeCount);
+      this.maxMorphemeCount = maxMorphemeCount;
+      return this;
+    }
+
+    public Builder maxDerivationCount(int maxDerivationCount) {
+      Preconditions.checkArgument(maxDerivationCount >= 0,
+          "Derivation count cannot be negative. But it is %d", maxDerivationCount);
+      this.maxDerivationCount = maxDerivationCount;
+      return this;
+    }
+
+    public ParadigmGenerator build() {
+      return new ParadigmGenerator(this);
+    }
+  }
+
+  /**
+   * Generates all forms of the item and passes them to the consumer as they are found.
+   */
+  public void generate(DictionaryItem item, Consumer<Result> consumer) {
+    for (StemTransition stemTransition : stemTransitions.getTransitions(item)) {
+      walk(SearchPath.initialPath(stemTransition, " "), 0, 0, false, false, consumer);
+    }
+  }
+
+  public List<Result> generate(DictionaryItem item) {
+    List<Result> results = new ArrayList<>();
+    generate(item, results::add);
+    return results;
+  }
+
+  /**
+   * Generates forms of all items in the lexicon with multiple threads. Consumer is called with
+   * the forms of an item once they are all generated. Calls to the consumer are not concurrent but
+   * they are not in the order of the lexicon items.
+   */
+  public void generate(
+      RootLexicon lexicon,
+      int threadCount,
+      BiConsumer<DictionaryItem, List<Result>> consumer) {
+    threadCount = ConcurrencyUtil.validateCpuThreadCount(threadCount);
+    List<DictionaryItem> items = new ArrayList<>(lexicon.getAllItems());
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (List<DictionaryItem> chunk : Lists.partition(items, ITEM_CHUNK_SIZE)) {
+        futures.add(executor.submit(() -> {
+          for (DictionaryItem item : chunk) {
+            List<Result> results = generate(item);
+            synchronized (consumer) {
+              consumer.accept(item, results);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Paradigm generation is interrupted.", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Cannot generate paradigms.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // Tail of a path is not known during generation. Some transitions are only allowed if letters
+  // follow (HasTail) or if nothing follows (HasNoTail). So conditions are checked with both a non
+  // empty and an empty tail, and the requirement is kept until a suffix with surface is added or
+  // the path ends.
+  private void walk(
+      SearchPath path,
+      int morphemeCount,
+      int derivationCount,
+      boolean surfaceRequired,
+      boolean surfaceNotAllowed,
+      Consumer<Result> consumer) {
+
+    if (!surfaceRequired && path.isTerminal()
+        && !path.containsPhoneticAttribute(PhoneticAttribute.CannotTerminate)) {
+      SingleAnalysis analysis = SingleAnalysis.fromSearchPath(path);
+      consumer.accept(new Result(analysis.surfaceForm(), analysis));
+    }
+    if (morphemeCount == maxMorphemeCount) {
+      return;
+    }
+
+    SearchPath noTailPath = null;
+    for (MorphemeTransition transition : path.getCurrentState().getOutgoing()) {
+      SuffixTransition suffixTransition = (SuffixTransition) transition;
+      boolean hasSurface = suffixTransition.hasSurfaceForm();
+      if (hasSurface && surfaceNotAllowed) {
+        continue;
+      }
+      int derivations = suffixTransition.to.derivative ? derivationCount + 1 : derivationCount;
+      if (derivations > maxDerivationCount) {
+        continue;
+      }
+      boolean passesWithTail = suffixTransition.canPass(path);
+      boolean passesWithoutTail = passesWithTail;
+      if (suffixTransition.getCondition() != null) {
+        if (noTailPath == null) {
+          noTailPath = path.getCopyWithTail("");
+        }
+        passesWithoutTail = suffixTransition.canPass(noTailPath);
+      }
+      if (!passesWithTail && !passesWithoutTail) {
+        continue;
+      }
+      boolean required = surfaceRequired;
+      boolean notAllowed = surfaceNotAllowed;
+      if (!passesWithTail) {
+        // nothing can follow, including the surface of this transition.
+        if (hasSurface) {
+          continue;
+        }
+        notAllowed = true;
+      } else if (!passesWithoutTail) {
+        required = true;
+      }
+      if (hasSurface) {
+        required = false;
+      }
+      walk(WordGenerator.extend(path, suffixTransition), morphemeCount + 1, derivations,
+          required, notAllowed, consumer);
+    }
+  }
+
+}
@@ -1,5 +1,8 @@
 package zemberek.morphology.generator;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,23 +44,40 @@ import zemberek.morphology.morphotactics.TurkishMorphotactics;
  */
 public class WordGenerator {
 
+  private static final int DEFAULT_CACHE_SIZE = 10_000;
+
   private StemTransitions stemTransitions;
   private TurkishMorphotactics morphotactics;
   private boolean debugMode = false;
   private AnalysisDebugData debugData;
+  // generation results for stem or dictionary item and morpheme index sequences.
+  private Cache<CacheKey, List<Result>> cache;
 
   public WordGenerator(TurkishMorphotactics morphotactics) {
+    this(morphotactics, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Creates a generator that keeps results of at most `cacheSize` generation requests. Cache is
+   * disabled if `cacheSize` is 0.
+   */
+  public WordGenerator(TurkishMorphotactics morphotactics, int cacheSize) {
+    Preconditions.checkArgument(cacheSize >= 0,
+        "Cache size cannot be negative. But it is %d", cacheSize);
     this.morphotactics = morphotactics;
     this.stemTransitions = morphotactics.getStemTransitions();
+    if (cacheSize > 0) {
+      this.cache = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
   }
 
   /**
    * Method returns a WordGenerator instance. But when this factory constructor is used, an
    * AnalysisDebugData object is generated after each call to generation methods. That object cen be
-   * retrieved with getDebugData method.
+   * retrieved with getDebugData method. Results are not cached.
    */
   public static WordGenerator forDebug(TurkishMorphotactics morphotactics) {
-    WordGenerator generator = new WordGenerator(morphotactics);
+    WordGenerator generator = new WordGenerator(morphotactics, 0);
     generator.debugMode = true;
     return generator;
   }
@@ -67,32 +87,79 @@ public class WordGenerator {
   }
 
   public List<Result> generate(String stem, List<String> morphemeIds) {
-    List<Morpheme> morphemes = new ArrayList<>();
-    for (String morphemeId : morphemeIds) {
-      Morpheme morpheme = TurkishMorphotactics.getMorpheme(morphemeId);
-      morphemes.add(morpheme);
+    int[] indexes = new int[morphemeIds.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = TurkishMorphotactics.getMorphemeIndex(morphemeIds.get(i));
+      if (indexes[i] < 0) {
+        return new ArrayList<>(0);
+      }
     }
-    List<StemTransition> candidates = stemTransitions.getPrefixMatches(stem, false);
-    return generate(stem, candidates, morphemes);
+    return generateCached(stem, null, indexes);
   }
 
   public List<Result> generate(DictionaryItem item, List<Morpheme> morphemes) {
-    List<StemTransition> candidates = stemTransitions.getTransitions(item);
-    return generate(item.id, candidates, morphemes);
+    return generate(item, morphemes.toArray(new Morpheme[0]));
   }
 
   public List<Result> generate(DictionaryItem item, Morpheme... morphemes) {
-    List<StemTransition> candidates = stemTransitions.getTransitions(item);
-    return generate(item.id, candidates, Arrays.asList(morphemes));
+    int[] indexes = new int[morphemes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = TurkishMorphotactics.getMorphemeIndex(morphemes[i]);
+      // morpheme is not one of the registered morphemes, generate without cache.
+      if (indexes[i] < 0) {
+        return generate(item.id, stemTransitions.getTransitions(item), morphemes);
+      }
+    }
+    return generateCached(null, item, indexes);
   }
 
   public List<Result> generate(DictionaryItem item, String... morphemeIds) {
-    List<StemTransition> candidates = stemTransitions.getTransitions(item);
-    return generate(item.id, candidates, morphotactics.getMorphemes(morphemeIds));
+    return generate(item, morphotactics.getMorphemes(morphemeIds));
+  }
+
+  /**
+   * Generates words with morpheme indexes obtained from
+   * {@link TurkishMorphotactics#getMorphemeIndex(String)}. This avoids resolving morphemes by
+   * their ids in every call.
+   */
+  public List<Result> generate(DictionaryItem item, int... morphemeIndexes) {
+    // array is copied as it may be used as a cache key.
+    return generateCached(null, item, morphemeIndexes.clone());
+  }
+
+  // Either stem or item is null.
+  private List<Result> generateCached(String stem, DictionaryItem item, int[] morphemeIndexes) {
+    if (cache == null) {
+      return generate(stem, item, morphemeIndexes);
+    }
+    // version is a part of the key so that results are not used after stem transitions change.
+    CacheKey key = new CacheKey(
+        stem == null ? item.id : stem,
+        stem != null,
+        morphemeIndexes,
+        stemTransitions.getVersion());
+    List<Result> results = cache.getIfPresent(key);
+    if (results == null) {
+      results = generate(stem, item, morphemeIndexes);
+      cache.put(key, results);
+    }
+    return new ArrayList<>(results);
+  }
+
+  private List<Result> generate(String stem, DictionaryItem item, int[] morphemeIndexes) {
+    Morpheme[] morphemes = new Morpheme[morphemeIndexes.length];
+    for (int i = 0; i < morphemes.length; i++) {
+      morphemes[i] = TurkishMorphotactics.getMorpheme(morphemeIndexes[i]);
+    }
+    if (stem != null) {
+      return generate(stem, stemTransitions.getPrefixMatches(stem, false), morphemes);
+    } else {
+      return generate(item.id, stemTransitions.getTransitions(item), morphemes);
+    }
   }
 
   private List<Result> generate(String input, List<StemTransition> candidates,
-      List<Morpheme> morphemes) {
+      Morpheme[] morphemes) {
     // get stem candidates.
 
     if (debugMode) {
@@ -102,25 +169,16 @@ public class WordGenerator {
     }
 
     // generate initial search paths.
-    List<GenerationPath> paths = new ArrayList<>();
+    List<GenerationPath> paths = new ArrayList<>(candidates.size());
     for (StemTransition candidate : candidates) {
       // we set the tail as " " because in morphotactics, some conditions look for tail's size
       // during graph walk. Because this is generation we let that condition pass always.
       SearchPath searchPath = SearchPath.initialPath(candidate, " ");
-      List<Morpheme> morphemesInPath;
       // if input morpheme starts with a POS Morpheme such as Noun etc,
       // we skip it if it matches with the initial morpheme of the graph visiting SearchPath object.
-      if (morphemes.size() > 0) {
-        if (morphemes.get(0).equals(searchPath.getCurrentState().morpheme)) {
-          morphemesInPath = morphemes.subList(1, morphemes.size());
-        } else {
-          morphemesInPath = new ArrayList<>(morphemes);
-        }
-      } else {
-        morphemesInPath = new ArrayList<>(0);
-      }
-
-      paths.add(new GenerationPath(searchPath, morphemesInPath));
+      int start = morphemes.length > 0
+          && morphemes[0].equals(searchPath.getCurrentState().morpheme) ? 1 : 0;
+      paths.add(new GenerationPath(searchPath, morphemes, start));
     }
 
     // search graph.
@@ -150,9 +208,9 @@ public class WordGenerator {
 
         // if there are no more letters to consume and path can be terminated, we accept this
         // path as a correct result.
-        if (path.morphemes.size() == 0) {
+        if (path.isComplete()) {
           if (path.path.isTerminal() &&
-              !path.path.getPhoneticAttributes().contains(PhoneticAttribute.CannotTerminate)) {
+              !path.path.containsPhoneticAttribute(PhoneticAttribute.CannotTerminate)) {
             result.add(path);
             if (debugMode) {
               debugData.finishedPaths.add(path.path);
@@ -199,7 +257,7 @@ public class WordGenerator {
       SuffixTransition suffixTransition = (SuffixTransition) transition;
 
       // if there are no morphemes and this transitions surface is not empty, no need to check.
-      if (gPath.morphemes.isEmpty() && suffixTransition.hasSurfaceForm()) {
+      if (gPath.isComplete() && suffixTransition.hasSurfaceForm()) {
         if (debugMode) {
           debugData.rejectedTransitions.put(
               gPath.path,
@@ -241,44 +299,45 @@ public class WordGenerator {
         continue;
       }
 
-      // epsilon transition. Add and continue. Use existing attributes.
-      if (!suffixTransition.hasSurfaceForm()) {
-        SearchPath pCopy = gPath.path.getCopyForGeneration(
-            new SurfaceTransition("", suffixTransition),
-            gPath.path.getPhoneticAttributes());
-        newPaths.add(gPath.copy(pCopy));
-        continue;
-      }
+      newPaths.add(gPath.copy(extend(gPath.path, suffixTransition)));
+    }
+    return newPaths;
+  }
 
-      String surface = SurfaceTransition.generateSurface(
-          suffixTransition,
-          gPath.path.getPhoneticAttributes());
-
-      SurfaceTransition surfaceTransition = new SurfaceTransition(surface, suffixTransition);
-
-      //if tail is equal to surface, no need to calculate phonetic attributes.
-      AttributeSet<PhoneticAttribute> attributes =
-          AttributesHelper.getMorphemicAttributes(surface, gPath.path.getPhoneticAttributes());
-
-      // This is required for suffixes like `cik` and `ciğ`
-      // an extra attribute is added if "cik" or "ciğ" is generated and matches the tail.
-      // if "cik" is generated, ExpectsConsonant attribute is added, so only a consonant starting
-      // suffix can follow. Likewise, if "ciğ" is produced, a vowel starting suffix is allowed.
-      attributes.remove(PhoneticAttribute.CannotTerminate);
-      SuffixTemplateToken lastToken = suffixTransition.getLastTemplateToken();
-      if (lastToken.getType() == TemplateTokenType.LAST_VOICED) {
-        attributes.add(PhoneticAttribute.ExpectsConsonant);
-      } else if (lastToken.getType() == TemplateTokenType.LAST_NOT_VOICED) {
-        attributes.add(PhoneticAttribute.ExpectsVowel);
-        attributes.add(PhoneticAttribute.CannotTerminate);
-      }
+  // Creates a copy of the path with the transition. Transition conditions must be checked before.
+  static SearchPath extend(SearchPath path, SuffixTransition suffixTransition) {
 
-      SearchPath p = gPath.path.getCopyForGeneration(
-          surfaceTransition,
-          attributes);
-      newPaths.add(gPath.copy(p));
+    // epsilon transition. Use existing attributes.
+    if (!suffixTransition.hasSurfaceForm()) {
+      return path.getCopyForGeneration(
+          new SurfaceTransition("", suffixTransition),
+          path.getPhoneticAttributeBits());
     }
-    return newPaths;
+
+    String surface = SurfaceTransition.generateSurface(
+        suffixTransition,
+        path.getPhoneticAttributeBits());
+
+    SurfaceTransition surfaceTransition = new SurfaceTransition(surface, suffixTransition);
+
+    //if tail is equal to surface, no need to calculate phonetic attributes.
+    int attributes = AttributesHelper.getMorphemicAttributes(
+        surface, path.getPhoneticAttributeBits());
+
+    // This is required for suffixes like `cik` and `ciğ`
+    // an extra attribute is added if "cik" or "ciğ" is generated and matches the tail.
+    // if "cik" is generated, ExpectsConsonant attribute is added, so only a consonant starting
+    // suffix can follow. Likewise, if "ciğ" is produced, a vowel starting suffix is allowed.
+    attributes &= ~AttributeSet.bitOf(PhoneticAttribute.CannotTerminate);
+    SuffixTemplateToken lastToken = suffixTransition.getLastTemplateToken();
+    if (lastToken.getType() == TemplateTokenType.LAST_VOICED) {
+      attributes |= AttributeSet.bitOf(PhoneticAttribute.ExpectsConsonant);
+    } else if (lastToken.getType() == TemplateTokenType.LAST_NOT_VOICED) {
+      attributes |= AttributeSet.bitOf(PhoneticAttribute.ExpectsVowel)
+          | AttributeSet.bitOf(PhoneticAttribute.CannotTerminate);
+    }
+
+    return path.getCopyForGeneration(surfaceTransition, attributes);
   }
 
   public static class Result {
@@ -297,37 +356,44 @@ public class WordGenerator {
     }
   }
 
+  // A search path and the morphemes it needs to consume. Morphemes are shared between paths,
+  // a path only keeps the position of the next morpheme to consume.
   static class GenerationPath {
 
     SearchPath path;
-    List<Morpheme> morphemes;
+    Morpheme[] morphemes;
+    int index;
 
-    public GenerationPath(SearchPath path,
-        List<Morpheme> morphemes) {
+    GenerationPath(SearchPath path, Morpheme[] morphemes, int index) {
       this.path = path;
       this.morphemes = morphemes;
+      this.index = index;
     }
 
-    public GenerationPath copy(SearchPath path) {
+    boolean isComplete() {
+      return index == morphemes.length;
+    }
+
+    GenerationPath copy(SearchPath path) {
       SurfaceTransition lastTransition = path.getLastTransition();
       Morpheme m = lastTransition.getMorpheme();
 
       if (lastTransition.surface.isEmpty()) {
-        if (morphemes.size() == 0) {
-          return new GenerationPath(path, morphemes);
+        if (isComplete()) {
+          return new GenerationPath(path, morphemes, index);
         }
-        if (m.equals(morphemes.get(0))) {
-          return new GenerationPath(path, morphemes.subList(1, morphemes.size()));
+        if (m.equals(morphemes[index])) {
+          return new GenerationPath(path, morphemes, index + 1);
         } else {
-          return new GenerationPath(path, morphemes);
+          return new GenerationPath(path, morphemes, index);
         }
       }
-      if (!m.equals(morphemes.get(0))) {
+      if (!m.equals(morphemes[index])) {
         throw new IllegalStateException(
             "Cannot generate Generation copy because transition morpheme and first morpheme to consume"
                 + " does not match.");
       }
-      return new GenerationPath(path, morphemes.subList(1, morphemes.size()));
+      return new GenerationPath(path, morphemes, index + 1);
 
     }
 
@@ -335,12 +401,48 @@ public class WordGenerator {
       if (!transition.hasSurfaceForm()) {
         return true;
       }
-      if (morphemes.size() > 0 && transition.to.morpheme.equals(morphemes.get(0))) {
+      return !isComplete() && transition.to.morpheme.equals(morphemes[index]);
+    }
+
+  }
+
+  private static final class CacheKey {
+
+    final String input;
+    final boolean isStem;
+    final int[] morphemeIndexes;
+    final long version;
+    final int hash;
+
+    CacheKey(String input, boolean isStem, int[] morphemeIndexes, long version) {
+      this.input = input;
+      this.isStem = isStem;
+      this.morphemeIndexes = morphemeIndexes;
+      this.version = version;
+      this.hash = 31 * (31 * input.hashCode() + Arrays.hashCode(morphemeIndexes))
+          + Long.hashCode(version) + (isStem ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
         return true;
       }
-      return false;
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return hash == that.hash
+          && isStem == that.isStem
+          && version == that.version
+          && input.equals(that.input)
+          && Arrays.equals(morphemeIndexes, that.morphemeIndexes);
     }
 
+    @Override
+    public int hashCode() {
+      return hash;
+    }
   }
 
 }
@@ -1,11 +1,7 @@
 package zemberek.morphology.lexicon;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -14,13 +10,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
+import zemberek.core.collections.IntValueMap;
 import zemberek.core.logging.Log;
 import zemberek.core.text.TextIO;
 import zemberek.core.turkish.PrimaryPos;
@@ -42,9 +36,16 @@ public class RootLexicon implements Iterable<DictionaryItem> {
     return Singleton.Instance.defaultLexicon;
   }
 
-  private Multimap<String, DictionaryItem> itemMap = HashMultimap.create(INITIAL_CAPACITY, 1);
-  private Map<String, DictionaryItem> idMap = new HashMap<>(INITIAL_CAPACITY);
-  private Set<DictionaryItem> itemSet = new LinkedHashSet<>(INITIAL_CAPACITY);
+  // Items are kept in an array in insertion order. Index of an item in this array is its slot.
+  // Removed items leave empty slots until the array is compacted.
+  private DictionaryItem[] items = new DictionaryItem[INITIAL_CAPACITY];
+  // For each slot, slot of the next item with the same lemma plus one, or zero.
+  private int[] nextWithSameLemma = new int[INITIAL_CAPACITY];
+  private int slotCount;
+  private int size;
+  // Values are slot plus one, as zero means there is no such key.
+  private IntValueMap<String> idSlots = new IntValueMap<>(INITIAL_CAPACITY);
+  private IntValueMap<String> lemmaSlots = new IntValueMap<>(INITIAL_CAPACITY);
 
   public RootLexicon(List<DictionaryItem> dictionaryItems) {
     for (DictionaryItem dictionaryItem : dictionaryItems) {
@@ -56,17 +57,30 @@ public class RootLexicon implements Iterable<DictionaryItem> {
   }
 
   public void add(DictionaryItem item) {
-    if (itemSet.contains(item)) {
-      Log.warn("Duplicated item:" + item);
+    int existing = idSlots.get(item.id);
+    if (existing > 0) {
+      Log.warn("Duplicated item:" + item + " with " + items[existing - 1]);
       return;
     }
-    if (idMap.containsKey(item.id)) {
-      Log.warn("Duplicated item id of:" + item + " with " + idMap.get(item.id));
-      return;
+    if (slotCount == items.length) {
+      int newCapacity = items.length + (items.length >> 1);
+      items = Arrays.copyOf(items, newCapacity);
+      nextWithSameLemma = Arrays.copyOf(nextWithSameLemma, newCapacity);
+    }
+    int slot = slotCount++;
+    items[slot] = item;
+    idSlots.put(item.id, slot + 1);
+    int first = lemmaSlots.get(item.lemma);
+    if (first == 0) {
+      lemmaSlots.put(item.lemma, slot + 1);
+    } else {
+      int last = first - 1;
+      while (nextWithSameLemma[last] > 0) {
+        last = nextWithSameLemma[last] - 1;
+      }
+      nextWithSameLemma[last] = slot + 1;
     }
-    this.itemSet.add(item);
-    idMap.put(item.id, item);
-    itemMap.put(item.lemma, item);
+    size++;
   }
 
   public void addAll(Iterable<DictionaryItem> items) {
@@ -75,23 +89,89 @@ public class RootLexicon implements Iterable<DictionaryItem> {
     }
   }
 
+  /**
+   * @return a new lexicon with the items of this lexicon. Changes to the copy do not affect this
+   * lexicon.
+   */
+  public RootLexicon copy() {
+    return new RootLexicon(itemList());
+  }
+
+  /**
+   * Returns a copy of the items in the order they are added. Unlike earlier versions, returned
+   * collection is not a live view: later changes to the lexicon are not reflected to it and
+   * modifying it does not change the lexicon. Each call copies all items.
+   *
+   * @return items in the order they are added.
+   */
   public Collection<DictionaryItem> getAllItems() {
-    return itemMap.values();
+    return itemList();
+  }
+
+  private List<DictionaryItem> itemList() {
+    List<DictionaryItem> result = new ArrayList<>(size);
+    for (int i = 0; i < slotCount; i++) {
+      if (items[i] != null) {
+        result.add(items[i]);
+      }
+    }
+    return result;
   }
 
   public List<DictionaryItem> getMatchingItems(String lemma) {
-    Collection<DictionaryItem> items = itemMap.get(lemma);
-    if (items == null) {
+    int slot = lemmaSlots.get(lemma);
+    if (slot == 0) {
       return Collections.emptyList();
-    } else {
-      return Lists.newArrayList(items);
     }
+    List<DictionaryItem> result = new ArrayList<>(2);
+    while (slot > 0) {
+      result.add(items[slot - 1]);
+      slot = nextWithSameLemma[slot - 1];
+    }
+    return result;
   }
 
   public void remove(DictionaryItem item) {
-    itemMap.get(item.lemma).remove(item);
-    idMap.remove(item.id);
-    itemSet.remove(item);
+    int slot = idSlots.get(item.id);
+    if (slot == 0) {
+      return;
+    }
+    slot--;
+    DictionaryItem existing = items[slot];
+    idSlots.remove(existing.id);
+    // remove the slot from the lemma chain.
+    int first = lemmaSlots.get(existing.lemma);
+    if (first == slot + 1) {
+      if (nextWithSameLemma[slot] == 0) {
+        lemmaSlots.remove(existing.lemma);
+      } else {
+        lemmaSlots.put(existing.lemma, nextWithSameLemma[slot]);
+      }
+    } else {
+      int previous = first - 1;
+      while (nextWithSameLemma[previous] != slot + 1) {
+        previous = nextWithSameLemma[previous] - 1;
+      }
+      nextWithSameLemma[previous] = nextWithSameLemma[slot];
+    }
+    items[slot] = null;
+    nextWithSameLemma[slot] = 0;
+    size--;
+    if (slotCount > INITIAL_CAPACITY && size < slotCount / 2) {
+      compact();
+    }
+  }
+
+  // Removes empty slots by adding remaining items again.
+  private void compact() {
+    List<DictionaryItem> remaining = itemList();
+    items = new DictionaryItem[Math.max(INITIAL_CAPACITY, remaining.size())];
+    nextWithSameLemma = new int[items.length];
+    slotCount = 0;
+    size = 0;
+    idSlots = new IntValueMap<>(items.length);
+    lemmaSlots = new IntValueMap<>(items.length);
+    addAll(remaining);
   }
 
   public void removeAllLemmas(String lemma) {
@@ -113,20 +193,18 @@ public class RootLexicon implements Iterable<DictionaryItem> {
   }
 
   public boolean containsItem(DictionaryItem item) {
-    return itemSet.contains(item);
+    return idSlots.get(item.id) > 0;
   }
 
   public DictionaryItem getItemById(String id) {
-    return idMap.get(id);
+    int slot = idSlots.get(id);
+    return slot == 0 ? null : items[slot - 1];
   }
 
   public List<DictionaryItem> getMatchingItems(String lemma, PrimaryPos pos) {
-    Collection<DictionaryItem> items = itemMap.get(lemma);
-    if (items == null) {
-      return Collections.emptyList();
-    }
     List<DictionaryItem> matches = Lists.newArrayListWithCapacity(1);
-    for (DictionaryItem item : items) {
+    for (int slot = lemmaSlots.get(lemma); slot > 0; slot = nextWithSameLemma[slot - 1]) {
+      DictionaryItem item = items[slot - 1];
       if (item.primaryPos == pos) {
         matches.add(item);
       }
@@ -147,16 +225,40 @@ public class RootLexicon implements Iterable<DictionaryItem> {
   }
 
   public boolean isEmpty() {
-    return itemSet.isEmpty();
+    return size == 0;
   }
 
   public int size() {
-    return itemSet.size();
+    return size;
   }
 
   @Override
   public Iterator<DictionaryItem> iterator() {
-    return itemSet.iterator();
+    return new Iterator<DictionaryItem>() {
+      int slot = nextSlot(0);
+
+      int nextSlot(int from) {
+        while (from < slotCount && items[from] == null) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return slot < slotCount;
+      }
+
+      @Override
+      public DictionaryItem next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        DictionaryItem item = items[slot];
+        slot = nextSlot(slot + 1);
+        return item;
+      }
+    };
   }
 
   public static Builder builder() {
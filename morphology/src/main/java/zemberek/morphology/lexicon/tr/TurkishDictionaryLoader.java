@@ -9,6 +9,7 @@ import com.google.common.io.Files;
 import com.google.common.io.LineProcessor;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
@@ -17,7 +18,12 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
+import zemberek.core.concurrency.ConcurrencyUtil;
 import zemberek.core.enums.StringEnum;
 import zemberek.core.enums.StringEnumMap;
 import zemberek.core.io.Strings;
@@ -49,6 +55,10 @@ public class TurkishDictionaryLoader {
   private static final Splitter POS_SPLITTER = Splitter.on(",").trimResults();
   private static final Splitter ATTRIBUTE_SPLITTER = Splitter.on(",").trimResults();
 
+  // Inputs with less lines are loaded in the calling thread.
+  static final int PARALLEL_LOAD_MIN_LINE_COUNT = 20_000;
+  private static final int PARALLEL_LOAD_CHUNK_SIZE = 5_000;
+
   public static RootLexicon loadDefaultDictionaries()
       throws IOException {
     return loadFromResources(DEFAULT_DICTIONARY_RESOURCES);
@@ -100,6 +110,12 @@ public class TurkishDictionaryLoader {
   }
 
   public static RootLexicon load(Iterable<String> dictionaryLines) {
+    if (dictionaryLines instanceof List
+        && ((List<String>) dictionaryLines).size() >= PARALLEL_LOAD_MIN_LINE_COUNT
+        && Runtime.getRuntime().availableProcessors() > 1) {
+      return loadParallel(
+          (List<String>) dictionaryLines, Runtime.getRuntime().availableProcessors());
+    }
     TextLexiconProcessor processor = new TextLexiconProcessor();
     for (String s : dictionaryLines) {
       try {
@@ -111,6 +127,59 @@ public class TurkishDictionaryLoader {
     return processor.getResult();
   }
 
+  /**
+   * Loads dictionary lines using multiple threads. Lines are parsed in chunks in parallel, then
+   * items are added to the lexicon in the order of lines, so result is the same with {@link
+   * #load(Iterable)}.
+   *
+   * @param dictionaryLines dictionary lines.
+   * @param threadCount number of threads to use for parsing.
+   */
+  public static RootLexicon loadParallel(List<String> dictionaryLines, int threadCount) {
+    threadCount = ConcurrencyUtil.validateCpuThreadCount(threadCount);
+    List<List<String>> chunks = Lists.partition(dictionaryLines, PARALLEL_LOAD_CHUNK_SIZE);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<Object[]>> futures = new ArrayList<>(chunks.size());
+      for (List<String> chunk : chunks) {
+        futures.add(executor.submit(() -> parseChunk(chunk)));
+      }
+      TextLexiconProcessor processor = new TextLexiconProcessor();
+      for (Future<Object[]> future : futures) {
+        for (Object parsed : future.get()) {
+          processor.addParsed(parsed);
+        }
+      }
+      return processor.getResult();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LexiconException("Dictionary loading is interrupted.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LexiconException) {
+        throw (LexiconException) e.getCause();
+      }
+      throw new LexiconException("Cannot load dictionary.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // Parses lines with a processor of its own, as processors are not thread safe.
+  private static Object[] parseChunk(List<String> lines) {
+    TextLexiconProcessor processor = new TextLexiconProcessor();
+    Object[] result = new Object[lines.size()];
+    for (int i = 0; i < result.length; i++) {
+      String line = lines.get(i);
+      try {
+        result[i] = processor.parse(line);
+      } catch (Exception e) {
+        throw new LexiconException(
+            "Cannot load line '" + line + "' with reason: " + e.getMessage());
+      }
+    }
+    return result;
+  }
+
   enum MetaDataId implements StringEnum {
     POS("P"),
     ATTRIBUTES("A"),
@@ -207,19 +276,8 @@ public class TurkishDictionaryLoader {
     }
 
     public boolean processLine(String line) throws IOException {
-      line = line.trim();
-      if (line.length() == 0 || line.startsWith("##")) {
-        return true;
-      }
       try {
-        LineData lineData = new LineData(line);
-        // if a line contains references to other lines, we add them to lexicon later.
-        if (!lineData.containsMetaData(MetaDataId.REF_ID) &&
-            !lineData.containsMetaData(MetaDataId.ROOTS)) {
-          rootLexicon.add(getItem(lineData));
-        } else {
-          lateEntries.add(lineData);
-        }
+        addParsed(parse(line));
       } catch (Exception e) {
         Log.info("Exception in line:" + line);
         throw new IOException(e);
@@ -227,6 +285,40 @@ public class TurkishDictionaryLoader {
       return true;
     }
 
+    /**
+     * Parses a line without adding it to the lexicon. This does not depend on the lexicon, so it
+     * can be called from multiple threads if each uses its own processor.
+     *
+     * @return null for empty and comment lines, LineData if line references other items and it
+     * needs to be processed after all items are loaded, otherwise a DictionaryItem. Index of the
+     * item is not resolved yet.
+     */
+    Object parse(String line) {
+      line = line.trim();
+      if (line.length() == 0 || line.startsWith("##")) {
+        return null;
+      }
+      LineData lineData = new LineData(line);
+      // if a line contains references to other lines, we add them to lexicon later.
+      if (!lineData.containsMetaData(MetaDataId.REF_ID) &&
+          !lineData.containsMetaData(MetaDataId.ROOTS)) {
+        return parseItem(lineData);
+      } else {
+        return lineData;
+      }
+    }
+
+    /**
+     * Adds a result of {@link #parse(String)} to the lexicon.
+     */
+    void addParsed(Object parsed) {
+      if (parsed instanceof DictionaryItem) {
+        rootLexicon.add(resolveIndex((DictionaryItem) parsed));
+      } else if (parsed instanceof LineData) {
+        lateEntries.add((LineData) parsed);
+      }
+    }
+
     public RootLexicon getResult() {
       for (LineData lateEntry : lateEntries) {
         if (lateEntry.containsMetaData(MetaDataId.REF_ID)) {
@@ -263,8 +355,10 @@ public class TurkishDictionaryLoader {
           EnumSet<RootAttribute> attrSet  = EnumSet.noneOf(RootAttribute.class);
           DictionaryItem refItem;
           if (refItems.size() > 0) {
-            // use the item with lowest index value.
-            refItems.sort(Comparator.comparingInt(a -> a.index));
+            // use the item with lowest index value, prefer items with the same pos.
+            PrimaryPos pos = posInfo.primaryPos;
+            refItems.sort(Comparator.<DictionaryItem>comparingInt(a -> a.index)
+                .thenComparing(a -> a.primaryPos != pos));
             // grab the first Dictionary item matching to kuyruk. We will use it's attributes.
             refItem = refItems.get(0);
             attrSet = refItem.attributes.clone();
@@ -302,6 +396,10 @@ public class TurkishDictionaryLoader {
     PronunciationGuesser pronunciationGuesser = new PronunciationGuesser();
 
     DictionaryItem getItem(LineData data) {
+      return resolveIndex(parseItem(data));
+    }
+
+    DictionaryItem parseItem(LineData data) {
       PosInfo posInfo = getPosData(data.getMetaData(MetaDataId.POS), data.word);
       String attributesString = data.getMetaData(MetaDataId.ATTRIBUTES);
 
@@ -311,6 +409,10 @@ public class TurkishDictionaryLoader {
       }
 
       String cleanWord = generateRoot(data.word, posInfo, locale);
+      if (cleanWord.equals(data.word)) {
+        // share the instance, root is usually same with the lemma.
+        cleanWord = data.word;
+      }
 
       String indexStr = data.getMetaData(MetaDataId.INDEX);
       int index = 0;
@@ -347,13 +449,26 @@ public class TurkishDictionaryLoader {
         attributes.add(RootAttribute.PronunciationGuessed);
       }
 
-      // here if there is an item with same lemma and pos values but attributes are different,
-      // we increment the index.
+      return new DictionaryItem(
+          data.word,
+          cleanWord,
+          pronunciation,
+          posInfo.primaryPos,
+          secondaryPos,
+          attributes,
+          index);
+    }
+
+    // here if there is an item with same lemma and pos values but attributes are different,
+    // we increment the index.
+    DictionaryItem resolveIndex(DictionaryItem item) {
+      int index = item.index;
       while (true) {
-        String id = DictionaryItem.generateId(data.word, posInfo.primaryPos, secondaryPos, index);
+        String id = DictionaryItem
+            .generateId(item.lemma, item.primaryPos, item.secondaryPos, index);
         DictionaryItem existingItem = rootLexicon.getItemById(id);
         if (existingItem != null && existingItem.id.equals(id)) {
-          if (attributes.equals(existingItem.attributes)) {
+          if (item.attributes.equals(existingItem.attributes)) {
             Log.warn("Item already defined : %s" + existingItem);
             break;
           } else {
@@ -363,14 +478,16 @@ public class TurkishDictionaryLoader {
           break;
         }
       }
-
+      if (index == item.index) {
+        return item;
+      }
       return new DictionaryItem(
-          data.word,
-          cleanWord,
-          pronunciation,
-          posInfo.primaryPos,
-          secondaryPos,
-          attributes,
+          item.lemma,
+          item.root,
+          item.pronunciation,
+          item.primaryPos,
+          item.secondaryPos,
+          item.attributes,
           index);
     }
 
@@ -33,6 +33,30 @@ public class AttributeSet<E extends Enum<E>> {
     return new AttributeSet<>();
   }
 
+  /**
+   * Creates a set from the bits of another set. See {@link #getBits()}.
+   */
+  public static <E extends Enum<E>> AttributeSet<E> fromBits(int bits) {
+    return new AttributeSet<>(bits);
+  }
+
+  /**
+   * @return bit of the enum in the bit representation of a set.
+   */
+  public static <E extends Enum<E>> int bitOf(E en) {
+    if (en.ordinal() > 31) {
+      throw new IllegalArgumentException("Set can contain enums with max ordinal of 31.");
+    }
+    return 1 << en.ordinal();
+  }
+
+  /**
+   * @return true if set with given bits contains the enum.
+   */
+  public static <E extends Enum<E>> boolean contains(int bits, E en) {
+    return (bits & (1 << en.ordinal())) != 0;
+  }
+
   public void copyFrom(AttributeSet<E> other) {
     this.bits = other.bits;
   }
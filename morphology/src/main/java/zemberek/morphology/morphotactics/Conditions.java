@@ -194,7 +194,7 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      return visitor.getPhoneticAttributes().contains(attribute);
+      return visitor.containsPhoneticAttribute(attribute);
     }
 
     @Override
@@ -4,7 +4,9 @@ import static zemberek.morphology.morphotactics.Conditions.notHave;
 import static zemberek.morphology.morphotactics.MorphemeState.nonTerminal;
 import static zemberek.morphology.morphotactics.MorphemeState.terminal;
 
+import java.util.function.Function;
 import zemberek.core.turkish.PhoneticAttribute;
+import zemberek.morphology.analysis.StemTransitions;
 import zemberek.morphology.analysis.StemTransitionsMapBased;
 import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.Conditions.RootSurfaceIsAny;
@@ -18,6 +20,15 @@ public class InformalTurkishMorphotactics extends TurkishMorphotactics {
     this.stemTransitions = new StemTransitionsMapBased(lexicon, this);
   }
 
+  public InformalTurkishMorphotactics(
+      RootLexicon lexicon,
+      Function<TurkishMorphotactics, StemTransitions> stemTransitionsFactory) {
+    this.lexicon = lexicon;
+    makeGraph();
+    addGraph();
+    this.stemTransitions = stemTransitionsFactory.apply(this);
+  }
+
   public static final Morpheme a1plInformal = addMorpheme(
       Morpheme.builder("A1pl_Informal", "A1pl_Informal")
           .informal().mappedMorpheme(a1pl).build());
@@ -8,6 +8,7 @@ import java.util.Objects;
 import zemberek.core.logging.Log;
 import zemberek.core.turkish.PhoneticAttribute;
 import zemberek.core.turkish.TurkishAlphabet;
+import zemberek.morphology.analysis.SurfaceTransition;
 import zemberek.morphology.analysis.SurfaceTransition.SuffixTemplateToken;
 import zemberek.morphology.analysis.SurfaceTransition.SuffixTemplateTokenizer;
 import zemberek.morphology.analysis.SearchPath;
@@ -20,15 +21,68 @@ public class SuffixTransition extends MorphemeTransition {
 
   private List<SuffixTemplateToken> tokenList;
 
-  private AttributeToSurfaceCache surfaceCache;
+  // Only these attributes of the preceding morpheme affect the generated surface.
+  private static final PhoneticAttribute[] SURFACE_ATTRIBUTES = {
+      PhoneticAttribute.LastLetterVowel,
+      PhoneticAttribute.LastVowelFrontal,
+      PhoneticAttribute.LastVowelBack,
+      PhoneticAttribute.LastVowelRounded,
+      PhoneticAttribute.LastVowelUnrounded,
+      PhoneticAttribute.LastLetterVoiceless
+  };
+  private static final int SURFACE_KEY_COUNT = 1 << SURFACE_ATTRIBUTES.length;
+  // Maps low bits of attributes, which include all SURFACE_ATTRIBUTES, to a surface key.
+  private static final int SURFACE_KEY_MASK;
+  private static final byte[] SURFACE_KEYS;
 
-  public void addToSurfaceCache(
-      AttributeSet<PhoneticAttribute> attributes, String value) {
-    surfaceCache.addSurface(attributes.getBits(), value);
+  static {
+    int maxOrdinal = 0;
+    for (PhoneticAttribute attribute : SURFACE_ATTRIBUTES) {
+      maxOrdinal = Math.max(maxOrdinal, attribute.ordinal());
+    }
+    SURFACE_KEY_MASK = (1 << (maxOrdinal + 1)) - 1;
+    SURFACE_KEYS = new byte[SURFACE_KEY_MASK + 1];
+    for (int bits = 0; bits <= SURFACE_KEY_MASK; bits++) {
+      int key = 0;
+      for (int i = 0; i < SURFACE_ATTRIBUTES.length; i++) {
+        if (AttributeSet.contains(bits, SURFACE_ATTRIBUTES[i])) {
+          key |= 1 << i;
+        }
+      }
+      SURFACE_KEYS[bits] = (byte) key;
+    }
   }
 
-  public String getFromSurfaceCache(AttributeSet<PhoneticAttribute> attributes) {
-    return surfaceCache.getSurface(attributes.getBits());
+  // Surfaces for all surface keys, generated when transition is created. An item is null if
+  // surface cannot be generated for the key.
+  private String[] surfaces;
+
+  /**
+   * @return surface of this transition after a morpheme with given phonetic attribute bits, or
+   * null if it cannot be generated.
+   */
+  public String getSurface(int phoneticAttributes) {
+    return surfaces[SURFACE_KEYS[phoneticAttributes & SURFACE_KEY_MASK]];
+  }
+
+  private String[] generateSurfaces() {
+    String[] result = new String[SURFACE_KEY_COUNT];
+    for (int key = 0; key < SURFACE_KEY_COUNT; key++) {
+      int attributes = 0;
+      for (int i = 0; i < SURFACE_ATTRIBUTES.length; i++) {
+        if ((key & (1 << i)) != 0) {
+          attributes |= AttributeSet.bitOf(SURFACE_ATTRIBUTES[i]);
+        }
+      }
+      try {
+        result[key] = SurfaceTransition.createSurface(this, attributes);
+      } catch (IllegalArgumentException e) {
+        // attribute combination is not possible for this template, such as no vowel attributes
+        // for an A or I vowel.
+        result[key] = null;
+      }
+    }
+    return result;
   }
 
   private SuffixTransition(Builder builder) {
@@ -42,7 +96,7 @@ public class SuffixTransition extends MorphemeTransition {
     this.tokenList = Lists
         .newArrayList(new SuffixTemplateTokenizer(this.surfaceTemplate));
     this.conditionCount = countConditions();
-    this.surfaceCache = new AttributeToSurfaceCache();
+    this.surfaces = generateSurfaces();
   }
 
   private int countConditions() {
@@ -66,7 +120,7 @@ public class SuffixTransition extends MorphemeTransition {
     st.to = to;
     st.condition = condition;
     st.tokenList = new ArrayList<>(tokenList);
-    st.surfaceCache = this.surfaceCache;
+    st.surfaces = this.surfaces;
     return st;
   }
 
@@ -17,11 +17,16 @@ import static zemberek.morphology.morphotactics.MorphemeState.nonTerminal;
 import static zemberek.morphology.morphotactics.MorphemeState.nonTerminalDerivative;
 import static zemberek.morphology.morphotactics.MorphemeState.terminal;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import zemberek.core.turkish.PhoneticAttribute;
 import zemberek.core.turkish.PrimaryPos;
@@ -47,6 +52,9 @@ import zemberek.morphology.morphotactics.Conditions.SecondaryPosIs;
 public class TurkishMorphotactics {
 
   private static Map<String, Morpheme> morphemeMap = new HashMap<>();
+  // morphemes in registration order. Index of a morpheme is its position in this list.
+  private static List<Morpheme> morphemeList = new ArrayList<>();
+  private static Map<String, Integer> morphemeIndexes = new HashMap<>();
 
   public static final Morpheme root = addMorpheme(instance("Root", "Root"));
   public static final Morpheme noun = addMorpheme(instance("Noun", "Noun", PrimaryPos.Noun));
@@ -347,6 +355,10 @@ public class TurkishMorphotactics {
 
   protected static Morpheme addMorpheme(Morpheme morpheme) {
     morphemeMap.put(morpheme.id, morpheme);
+    if (!morphemeIndexes.containsKey(morpheme.id)) {
+      morphemeIndexes.put(morpheme.id, morphemeList.size());
+      morphemeList.add(morpheme);
+    }
     return morpheme;
   }
 
@@ -354,14 +366,89 @@ public class TurkishMorphotactics {
     return stemTransitions;
   }
 
+  private Map<String, MorphemeState> stateMap;
+
+  /**
+   * @return the morpheme state of this morphotactics with the id, or null if it does not exist.
+   */
+  public MorphemeState getState(String id) {
+    return getStateMap().get(id);
+  }
+
+  /**
+   * @return all morpheme states of this morphotactics.
+   */
+  public Collection<MorphemeState> getStates() {
+    return getStateMap().values();
+  }
+
+  /**
+   * @throws IllegalStateException if two different states have the same id.
+   */
+  private synchronized Map<String, MorphemeState> getStateMap() {
+    if (stateMap == null) {
+      // states are fields of this class and its subclasses.
+      Map<String, MorphemeState> map = new HashMap<>();
+      for (Class<?> c = getClass(); c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (field.getType() != MorphemeState.class || Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          try {
+            field.setAccessible(true);
+            MorphemeState state = (MorphemeState) field.get(this);
+            if (state == null) {
+              continue;
+            }
+            MorphemeState existing = map.putIfAbsent(state.id, state);
+            if (existing != null && existing != state) {
+              throw new IllegalStateException(
+                  "There are different morpheme states with id " + state.id);
+            }
+          } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access morpheme state " + field.getName(), e);
+          }
+        }
+      }
+      stateMap = Collections.unmodifiableMap(map);
+    }
+    return stateMap;
+  }
+
+  /**
+   * @return current lexicon. When dictionary items are added or removed through stem transitions,
+   * a new lexicon is published with them, so the result should not be kept for later use.
+   */
   public RootLexicon getRootLexicon() {
-    return lexicon;
+    return stemTransitions == null ? lexicon : stemTransitions.getLexicon();
   }
 
   public static Morpheme getMorpheme(String id) {
     return morphemeMap.get(id);
   }
 
+  /**
+   * Returns an integer index for the morpheme id. Indexes are assigned when morphemes are
+   * registered, so they are only valid within the running process and should not be stored.
+   *
+   * @return index of the morpheme or -1 if there is no morpheme with the id.
+   */
+  public static int getMorphemeIndex(String id) {
+    Integer index = morphemeIndexes.get(id);
+    return index == null ? -1 : index;
+  }
+
+  public static int getMorphemeIndex(Morpheme morpheme) {
+    return getMorphemeIndex(morpheme.id);
+  }
+
+  /**
+   * @return morpheme with the index obtained from {@link #getMorphemeIndex(String)}.
+   */
+  public static Morpheme getMorpheme(int index) {
+    return morphemeList.get(index);
+  }
+
   public static List<Morpheme> getMorphemes(List<String> ids) {
     return ids.stream().map(TurkishMorphotactics::getMorpheme).collect(Collectors.toList());
   }
@@ -390,6 +477,19 @@ public class TurkishMorphotactics {
     this.stemTransitions = new StemTransitionsMapBased(lexicon, this);
   }
 
+  /**
+   * Creates the morphotactics with stem transitions created by the factory after the graph is
+   * built. This is used when stem transitions are not generated from the lexicon, such as when
+   * they are loaded from a snapshot.
+   */
+  public TurkishMorphotactics(
+      RootLexicon lexicon,
+      Function<TurkishMorphotactics, StemTransitions> stemTransitionsFactory) {
+    this.lexicon = lexicon;
+    makeGraph();
+    this.stemTransitions = stemTransitionsFactory.apply(this);
+  }
+
   protected void makeGraph() {
     mapSpecialItemsToRootStates();
     connectNounStates();
@@ -849,7 +949,7 @@ public class TurkishMorphotactics {
   MorphemeState aP1sg_ST = terminal("aP1sg_ST", p1sg);
   MorphemeState aP2sg_ST = terminal("aP2sg_ST", p2sg);
   MorphemeState aP3sg_ST = terminal("aP3sg_ST", p3sg);
-  MorphemeState aP1pl_ST = terminal("aP3sg_ST", p1pl);
+  MorphemeState aP1pl_ST = terminal("aP1pl_ST", p1pl);
   MorphemeState aP2pl_ST = terminal("aP2pl_ST", p2pl);
   MorphemeState aP3pl_ST = terminal("aP3pl_ST", p3pl);
 
@@ -1564,7 +1664,7 @@ public class TurkishMorphotactics {
   // ------------- Adverbs -----------------
 
   MorphemeState advRoot_ST = builder("advRoot_ST", adv).posRoot().terminal().build();
-  MorphemeState advNounRoot_ST = builder("advRoot_ST", adv).posRoot().terminal().build();
+  MorphemeState advNounRoot_ST = builder("advNounRoot_ST", adv).posRoot().terminal().build();
   MorphemeState advForVerbDeriv_ST =
       builder("advForVerbDeriv_ST", adv).posRoot().terminal().build();
 
@@ -2404,7 +2504,7 @@ public class TurkishMorphotactics {
   MorphemeState imekA2pl_ST = terminal("imekA2pl_ST", a2pl);
   MorphemeState imekA3pl_ST = terminal("imekA3pl_ST", a3pl);
 
-  MorphemeState imekCop_ST = terminal("qCop_ST", cop);
+  MorphemeState imekCop_ST = terminal("imekCop_ST", cop);
 
   private void connectImek() {
     // idi
@@ -0,0 +1,118 @@
+package zemberek.morphology;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.morphotactics.MorphemeState;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+public class MorphologySnapshotTest {
+
+  private static final String[] LINES = {
+      "kitap", "elma", "su [P:Noun]", "demek", "yemek", "ben [P:Pron,Pers]", "sen [P:Pron,Pers]",
+      "ağaç", "hak [A:Doubling]", "ağız [A:LastVowelDrop]", "Ankara", "gitmek [A:Voicing, Aorist_A]"
+  };
+
+  private static final String[] WORDS = {
+      "kitaba", "elmalar", "suyu", "diyor", "yiyecek", "bana", "sana", "ağaçtan", "hakkı",
+      "ağzına", "Ankara'ya", "gidiyorum", "kitapçığa", "bilinmeyen"
+  };
+
+  @Test
+  public void analysesAreSameAfterLoading() throws IOException {
+    checkSnapshot(TurkishMorphology.builder().setLexicon(LINES).disableCache().build());
+  }
+
+  @Test
+  public void informalAnalysesAreSameAfterLoading() throws IOException {
+    checkSnapshot(TurkishMorphology.builder()
+        .setLexicon(LINES)
+        .useInformalAnalysis()
+        .disableCache()
+        .build());
+  }
+
+  @Test
+  public void stateIdsAreUnique() {
+    for (TurkishMorphology morphology : new TurkishMorphology[]{
+        TurkishMorphology.builder().setLexicon(LINES).build(),
+        TurkishMorphology.builder().setLexicon(LINES).useInformalAnalysis().build()}) {
+      TurkishMorphotactics morphotactics = morphology.getMorphotactics();
+      for (MorphemeState state : morphotactics.getStates()) {
+        Assert.assertSame(state, morphotactics.getState(state.id));
+      }
+      for (String id : new String[]{"aP3sg_ST", "aP1pl_ST", "qCop_ST", "imekCop_ST"}) {
+        Assert.assertNotNull(id, morphotactics.getState(id));
+      }
+    }
+  }
+
+  @Test
+  public void morphotacticsKey() {
+    TurkishMorphotactics formal = TurkishMorphology.builder().setLexicon(LINES).build()
+        .getMorphotactics();
+    TurkishMorphotactics formal2 = TurkishMorphology.builder().setLexicon("elma").build()
+        .getMorphotactics();
+    TurkishMorphotactics informal = TurkishMorphology.builder().setLexicon(LINES)
+        .useInformalAnalysis().build().getMorphotactics();
+    long key = MorphologySnapshot.morphotacticsKey(formal);
+    Assert.assertEquals(key, MorphologySnapshot.morphotacticsKey(formal2));
+    Assert.assertNotEquals(key, MorphologySnapshot.morphotacticsKey(informal));
+    formal2.getState("aP1pl_ST").removeTransitionsTo(formal2.getState("aP3sg_ST"));
+    formal2.getState("adjAfterVerb_S").removeTransitionsTo(formal2.getState("aP1pl_ST"));
+    Assert.assertNotEquals(key, MorphologySnapshot.morphotacticsKey(formal2));
+  }
+
+  @Test
+  public void snapshotWithDifferentMorphotacticsIsRejected() throws IOException {
+    Path path = Files.createTempFile("morphology", ".snapshot");
+    path.toFile().deleteOnExit();
+    MorphologySnapshot.save(TurkishMorphology.builder().setLexicon(LINES).build(), path);
+    // overwrite the morphotactics key that follows magic, version, informal flag and enum sizes.
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(8).putLong(0, 42L), 25);
+    }
+    try {
+      MorphologySnapshot.load(path);
+      Assert.fail("Snapshot with a different morphotactics key should not be loaded.");
+    } catch (IllegalStateException e) {
+      // expected.
+    }
+    Files.delete(path);
+  }
+
+  private void checkSnapshot(TurkishMorphology morphology) throws IOException {
+    Path path = Files.createTempFile("morphology", ".snapshot");
+    path.toFile().deleteOnExit();
+    MorphologySnapshot.save(morphology, path);
+    TurkishMorphology loaded = TurkishMorphology.fromSnapshot(path);
+
+    Assert.assertEquals(morphology.getLexicon().size(), loaded.getLexicon().size());
+    for (DictionaryItem item : morphology.getLexicon()) {
+      DictionaryItem actual = loaded.getLexicon().getItemById(item.id);
+      Assert.assertNotNull(actual);
+      Assert.assertEquals(item.root, actual.root);
+      Assert.assertEquals(item.attributes, actual.attributes);
+    }
+    Assert.assertEquals(1, loaded.analyze("diyor").analysisCount());
+    for (String word : WORDS) {
+      Assert.assertEquals(word, format(morphology, word), format(loaded, word));
+    }
+    Files.delete(path);
+  }
+
+  private static List<String> format(TurkishMorphology morphology, String word) {
+    return morphology.analyze(word).stream()
+        .map(SingleAnalysis::formatLong)
+        .collect(Collectors.toList());
+  }
+}
@@ -1,5 +1,6 @@
 package zemberek.morphology;
 
+import com.google.common.collect.Lists;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
@@ -7,7 +8,9 @@ import zemberek.core.logging.Log;
 import zemberek.core.turkish.SecondaryPos;
 import zemberek.morphology.analysis.RuleBasedAnalyzer;
 import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.StemTransitions;
 import zemberek.morphology.analysis.WordAnalysis;
+import zemberek.morphology.lexicon.DictionaryItem;
 import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.lexicon.tr.TurkishDictionaryLoader;
 
@@ -328,6 +331,74 @@ public class TurkishMorphologyFunctionalTests {
     Assert.assertTrue(containsAllDictionaryLemma(result, "insan"));
   }
 
+  @Test
+  public void addAndRemoveDictionaryItems() {
+    TurkishMorphology morphology = TurkishMorphology.builder()
+        .setLexicon("elma", "armut")
+        .build();
+    WordAnalysis elmalar = morphology.analyze("elmalar");
+    Assert.assertEquals(0, morphology.analyze("kabaklar").analysisCount());
+
+    List<DictionaryItem> items = Lists.newArrayList(
+        TurkishDictionaryLoader.loadFromString("kabak"),
+        TurkishDictionaryLoader.loadFromString("kapak"));
+    morphology.addDictionaryItems(items);
+    Assert.assertTrue(morphology.getLexicon().containsItem(items.get(0)));
+    Assert.assertTrue(containsAllDictionaryLemma(
+        morphology.analyze("kabaklar").getAnalysisResults(), "kabak"));
+    Assert.assertTrue(containsAllDictionaryLemma(
+        morphology.analyze("Kapağı").getAnalysisResults(), "kapak"));
+    // unrelated cache entries are not invalidated.
+    Assert.assertSame(elmalar, morphology.analyze("elmalar"));
+
+    morphology.removeDictionaryItems(items);
+    Assert.assertFalse(morphology.getLexicon().containsItem(items.get(0)));
+    Assert.assertEquals(0, morphology.analyze("kabaklar").analysisCount());
+    Assert.assertSame(elmalar, morphology.analyze("elmalar"));
+  }
+
+  @Test
+  public void dictionaryUpdatesPublishNewLexicon() {
+    RootLexicon lexicon = RootLexicon.fromLines("elma", "armut");
+    TurkishMorphology morphology = TurkishMorphology.create(lexicon);
+    RootLexicon before = morphology.getLexicon();
+    DictionaryItem kabak = TurkishDictionaryLoader.loadFromString("kabak");
+    morphology.addDictionaryItems(Lists.newArrayList(kabak));
+
+    RootLexicon after = morphology.getLexicon();
+    Assert.assertNotSame(before, after);
+    Assert.assertSame(after, morphology.getMorphotactics().getRootLexicon());
+    Assert.assertSame(after, morphology.getAnalyzer().getLexicon());
+    Assert.assertSame(kabak, after.getItemById(kabak.id));
+    // lexicon used for creating the morphology is not modified.
+    Assert.assertFalse(lexicon.containsItem(kabak));
+    Assert.assertFalse(before.containsItem(kabak));
+    Assert.assertEquals(3, after.size());
+
+    // adding an existing item again does not duplicate its transitions.
+    int analysisCount = morphology.analyze("kabaklar").analysisCount();
+    int transitionCount = morphology.getMorphotactics().getStemTransitions()
+        .getTransitions().size();
+    morphology.addDictionaryItems(Lists.newArrayList(kabak));
+    Assert.assertEquals(transitionCount, morphology.getMorphotactics().getStemTransitions()
+        .getTransitions().size());
+    Assert.assertEquals(analysisCount, morphology.analyze("kabaklar").analysisCount());
+  }
+
+  @Test
+  public void unidentifiedTokensDoNotChangeStemTransitions() {
+    TurkishMorphology morphology = getMorphology("elma");
+    StemTransitions stemTransitions = morphology.getMorphotactics().getStemTransitions();
+    long version = stemTransitions.getVersion();
+    int size = stemTransitions.getTransitions().size();
+    WordAnalysis result = morphology.analyze("Obama'ya");
+    Assert.assertTrue(containsAllDictionaryLemma(result.getAnalysisResults(), "Obama"));
+    result = morphology.analyze("#haberler");
+    Assert.assertEquals(1, result.analysisCount());
+    Assert.assertEquals(version, stemTransitions.getVersion());
+    Assert.assertEquals(size, stemTransitions.getTransitions().size());
+  }
+
   private boolean containsAllDictionaryLemma(List<SingleAnalysis> analyses, String... item) {
 
     for (String i : item) {
@@ -0,0 +1,65 @@
+package zemberek.morphology;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.tokenization.Token;
+import zemberek.tokenization.TurkishTokenizer;
+
+public class WordClassifierTest {
+
+  private static final String[] INPUTS = {
+      "elma", "Ankara", "İSTANBUL", "kâğıt", "Ankara'ya", "Ankara’ya", "a'da", "ab'de", "XIV",
+      "IV'ün", "I", "C'de", "ILIK", "123", "3'te", "1.5", "12a", "a1", ".", "...", "'", "!",
+      "?", "-", "#", "#foo", "@ali", "e-posta", "Prof.", "A.B.D.", "10:30", "é", "café", "a'",
+      "'a", "a''b", "", " ", "a b", ":)"
+  };
+
+  private static final String CHARS = "aIİıiâÂXVe'’.1-?éΣ̇`´";
+
+  @Test
+  public void sameTypeWithTokenizer() {
+    for (String input : INPUTS) {
+      checkClassification(input);
+    }
+    Random random = new Random(1);
+    for (int i = 0; i < 20000; i++) {
+      checkClassification(randomString(random));
+    }
+  }
+
+  @Test
+  public void normalizeForAnalysisSameWithSlowPath() {
+    for (String input : INPUTS) {
+      Assert.assertEquals(input, TurkishMorphology.normalizeForAnalysisSlow(input),
+          TurkishMorphology.normalizeForAnalysis(input));
+    }
+    Random random = new Random(1);
+    for (int i = 0; i < 20000; i++) {
+      String input = randomString(random);
+      Assert.assertEquals(input, TurkishMorphology.normalizeForAnalysisSlow(input),
+          TurkishMorphology.normalizeForAnalysis(input));
+    }
+  }
+
+  private static String randomString(Random random) {
+    int length = random.nextInt(6) + 1;
+    StringBuilder sb = new StringBuilder();
+    for (int j = 0; j < length; j++) {
+      sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+    }
+    return sb.toString();
+  }
+
+  private static void checkClassification(String input) {
+    Token.Type type = WordClassifier.classify(input);
+    if (type == null) {
+      return;
+    }
+    List<Token> tokens = TurkishTokenizer.DEFAULT.tokenize(input);
+    Assert.assertEquals(input, 1, tokens.size());
+    Assert.assertEquals(input, tokens.get(0).getType(), type);
+    Assert.assertEquals(input, tokens.get(0).getText(), input);
+  }
+}
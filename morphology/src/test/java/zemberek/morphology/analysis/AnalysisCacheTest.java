@@ -0,0 +1,36 @@
+package zemberek.morphology.analysis;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AnalysisCacheTest {
+
+  @Test
+  public void resultIsNotCachedIfVersionChanges() {
+    AnalysisCache cache = AnalysisCache.builder().disableStaticCache().build();
+    AtomicLong version = new AtomicLong();
+    AtomicInteger calls = new AtomicInteger();
+    Function<String, WordAnalysis> changesVersion = s -> {
+      calls.incrementAndGet();
+      // simulates a dictionary update while the analysis is running.
+      version.incrementAndGet();
+      return new WordAnalysis(s, new ArrayList<>());
+    };
+    cache.getAnalysis("elma", changesVersion, version::get);
+    cache.getAnalysis("elma", changesVersion, version::get);
+    Assert.assertEquals(2, calls.get());
+    Assert.assertEquals(0, cache.getDynamicCacheSize());
+
+    Function<String, WordAnalysis> stable = s -> {
+      calls.incrementAndGet();
+      return new WordAnalysis(s, new ArrayList<>());
+    };
+    cache.getAnalysis("elma", stable, version::get);
+    cache.getAnalysis("elma", stable, version::get);
+    Assert.assertEquals(3, calls.get());
+  }
+}
@@ -0,0 +1,51 @@
+package zemberek.morphology.analysis;
+
+import static zemberek.core.turkish.PhoneticAttribute.ExpectsConsonant;
+import static zemberek.core.turkish.PhoneticAttribute.FirstLetterConsonant;
+import static zemberek.core.turkish.PhoneticAttribute.FirstLetterVowel;
+import static zemberek.core.turkish.PhoneticAttribute.HasNoVowel;
+import static zemberek.core.turkish.PhoneticAttribute.LastLetterConsonant;
+import static zemberek.core.turkish.PhoneticAttribute.LastLetterVoiced;
+import static zemberek.core.turkish.PhoneticAttribute.LastLetterVoiceless;
+import static zemberek.core.turkish.PhoneticAttribute.LastLetterVoicelessStop;
+import static zemberek.core.turkish.PhoneticAttribute.LastLetterVowel;
+import static zemberek.core.turkish.PhoneticAttribute.LastVowelBack;
+import static zemberek.core.turkish.PhoneticAttribute.LastVowelFrontal;
+import static zemberek.core.turkish.PhoneticAttribute.LastVowelRounded;
+import static zemberek.core.turkish.PhoneticAttribute.LastVowelUnrounded;
+
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.core.turkish.PhoneticAttribute;
+import zemberek.morphology.morphotactics.AttributeSet;
+
+public class AttributesHelperTest {
+
+  @Test
+  public void attributesTest() {
+    check("kitap", AttributeSet.of(LastLetterConsonant, LastVowelBack, LastVowelUnrounded,
+        FirstLetterConsonant, LastLetterVoiceless, LastLetterVoicelessStop));
+    check("elma", AttributeSet.of(LastLetterVowel, LastVowelBack, LastVowelUnrounded,
+        FirstLetterVowel, LastLetterVoiced));
+    check("üzüm", AttributeSet.of(LastLetterConsonant, LastVowelFrontal, LastVowelRounded,
+        FirstLetterVowel, LastLetterVoiced));
+    check("", AttributeSet.emptySet());
+  }
+
+  @Test
+  public void attributesAreTransferredIfNoVowel() {
+    AttributeSet<PhoneticAttribute> predecessor = AttributeSet.of(
+        LastLetterVowel, LastVowelFrontal, LastVowelRounded, ExpectsConsonant, LastLetterVoiced);
+    int bits = AttributesHelper.getMorphemicAttributes("t", predecessor.getBits());
+    AttributeSet<PhoneticAttribute> expected = AttributeSet.of(
+        LastVowelFrontal, LastVowelRounded, LastLetterVoiced, LastLetterConsonant,
+        FirstLetterConsonant, HasNoVowel, LastLetterVoiceless, LastLetterVoicelessStop);
+    Assert.assertEquals(expected, AttributeSet.fromBits(bits));
+    Assert.assertEquals(predecessor.getBits(),
+        AttributesHelper.getMorphemicAttributes("", predecessor.getBits()));
+  }
+
+  private void check(String input, AttributeSet<PhoneticAttribute> expected) {
+    Assert.assertEquals(input, expected, AttributesHelper.getMorphemicAttributes(input));
+  }
+}
@@ -51,6 +51,17 @@ public class StemTransitionTrieBasedTest {
     Assert.assertTrue(TestUtil.containsAll(surfaces, "kapak", "kapağ"));
   }
 
+  @Test
+  public void itemsWithErrorsAreSkipped() {
+    // "elma" cannot be voiced.
+    RootLexicon lexicon = TurkishDictionaryLoader.load("kapak", "elma [A:Voicing]");
+    StemTransitionsTrieBased t = new StemTransitionsTrieBased(
+        lexicon,
+        new TurkishMorphotactics(lexicon));
+    Assert.assertEquals(2, t.getTransitions(lexicon.getItemById("kapak_Noun")).size());
+    Assert.assertEquals(0, t.getPrefixMatches("elma", false).size());
+  }
+
   private RootLexicon getLexicon() {
     return TurkishDictionaryLoader.load(
         "kapak",
@@ -0,0 +1,79 @@
+package zemberek.morphology.generator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.morphology.analysis.AnalyzerTestBase;
+import zemberek.morphology.analysis.RuleBasedAnalyzer;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.generator.WordGenerator.Result;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+public class ParadigmGeneratorTest extends AnalyzerTestBase {
+
+  @Test
+  public void nounParadigm() {
+    TurkishMorphotactics mo = getMorphotactics("kitap");
+    ParadigmGenerator generator = ParadigmGenerator.builder(mo).build();
+    DictionaryItem item = mo.getRootLexicon().getItemById("kitap_Noun");
+    Set<String> surfaces = generator.generate(item).stream()
+        .map(r -> r.surface)
+        .collect(Collectors.toSet());
+    for (String s : new String[]{"kitap", "kitaplar", "kitabı", "kitabımızdan", "kitaplarına"}) {
+      Assert.assertTrue(s + " is not generated", surfaces.contains(s));
+    }
+    Assert.assertFalse(surfaces.contains("kitapı"));
+  }
+
+  @Test
+  public void generatedFormsAreAnalyzedBack() {
+    TurkishMorphotactics mo = getMorphotactics("elma", "okumak");
+    RuleBasedAnalyzer analyzer = RuleBasedAnalyzer.instance(mo);
+    ParadigmGenerator generator = ParadigmGenerator.builder(mo)
+        .maxMorphemeCount(6)
+        .maxDerivationCount(1)
+        .build();
+    for (DictionaryItem item : mo.getRootLexicon()) {
+      List<Result> results = generator.generate(item);
+      Assert.assertTrue(results.size() > 0);
+      for (Result result : results) {
+        List<String> analyses = analyzer.analyze(result.surface).stream()
+            .map(SingleAnalysis::formatLong)
+            .collect(Collectors.toList());
+        Assert.assertTrue(result.toString(), analyses.contains(result.analysis.formatLong()));
+      }
+    }
+  }
+
+  @Test
+  public void limitsAreApplied() {
+    TurkishMorphotactics mo = getMorphotactics("okumak");
+    DictionaryItem item = mo.getRootLexicon().getItemById("okumak_Verb");
+    int small = ParadigmGenerator.builder(mo).maxMorphemeCount(3).build()
+        .generate(item).size();
+    int large = ParadigmGenerator.builder(mo).maxMorphemeCount(5).build()
+        .generate(item).size();
+    int derived = ParadigmGenerator.builder(mo).maxMorphemeCount(5).maxDerivationCount(1).build()
+        .generate(item).size();
+    Assert.assertTrue(small > 0);
+    Assert.assertTrue(small < large);
+    Assert.assertTrue(large < derived);
+  }
+
+  @Test
+  public void lexiconGeneration() {
+    TurkishMorphotactics mo = getMorphotactics("elma", "kitap", "okumak", "mavi [P:Adj]");
+    ParadigmGenerator generator = ParadigmGenerator.builder(mo).build();
+    Map<DictionaryItem, List<Result>> results = new HashMap<>();
+    generator.generate(mo.getRootLexicon(), 2, results::put);
+    Assert.assertEquals(mo.getRootLexicon().size(), results.size());
+    for (DictionaryItem item : mo.getRootLexicon()) {
+      Assert.assertEquals(generator.generate(item).size(), results.get(item).size());
+    }
+  }
+}
@@ -4,6 +4,8 @@ import com.google.common.collect.Lists;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
+import zemberek.core.turkish.PrimaryPos;
+import zemberek.core.turkish.SecondaryPos;
 import zemberek.morphology.analysis.AnalyzerTestBase;
 import zemberek.morphology.generator.WordGenerator.Result;
 import zemberek.morphology.lexicon.DictionaryItem;
@@ -74,5 +76,36 @@ public class WordGeneratorTest extends AnalyzerTestBase {
     Assert.assertEquals("yapalım", results.get(0).surface);
   }
 
+  @Test
+  public void testGenerationWithMorphemeIndexes() {
+    TurkishMorphotactics mo = getMorphotactics("elma");
+    WordGenerator wordGenerator = new WordGenerator(mo);
+    DictionaryItem item = mo.getRootLexicon().getItemById("elma_Noun");
+    int[] indexes = {
+        TurkishMorphotactics.getMorphemeIndex("Noun"),
+        TurkishMorphotactics.getMorphemeIndex("A3pl"),
+        TurkishMorphotactics.getMorphemeIndex("P1pl")};
+    for (int i = 0; i < 2; i++) {
+      List<Result> results = wordGenerator.generate(item, indexes);
+      Assert.assertEquals(1, results.size());
+      Assert.assertEquals("elmalarımız", results.get(0).surface);
+    }
+    Assert.assertEquals(-1, TurkishMorphotactics.getMorphemeIndex("NoSuchMorpheme"));
+    Assert.assertEquals("A3pl",
+        TurkishMorphotactics.getMorpheme(TurkishMorphotactics.getMorphemeIndex("A3pl")).id);
+  }
+
+  @Test
+  public void cachedResultsAreNotUsedAfterStemTransitionsChange() {
+    TurkishMorphotactics mo = getMorphotactics("elma");
+    WordGenerator wordGenerator = new WordGenerator(mo);
+    List<String> morphemes = Lists.newArrayList("Noun", "A3pl");
+    Assert.assertEquals(0, wordGenerator.generate("armut", morphemes).size());
+    mo.getStemTransitions().addDictionaryItem(new DictionaryItem(
+        "armut", "armut", "armut", PrimaryPos.Noun, SecondaryPos.None));
+    List<Result> results = wordGenerator.generate("armut", morphemes);
+    Assert.assertTrue(results.size() > 0);
+    Assert.assertEquals("armutlar", results.get(0).surface);
+  }
 
 }
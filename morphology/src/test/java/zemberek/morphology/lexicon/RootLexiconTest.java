@@ -0,0 +1,70 @@
+package zemberek.morphology.lexicon;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.core.turkish.PrimaryPos;
+import zemberek.core.turkish.SecondaryPos;
+
+public class RootLexiconTest {
+
+  private static DictionaryItem item(String lemma, PrimaryPos pos) {
+    return new DictionaryItem(lemma, lemma, lemma, pos, SecondaryPos.None);
+  }
+
+  @Test
+  public void addAndRemove() {
+    RootLexicon lexicon = new RootLexicon();
+    DictionaryItem elmaNoun = item("elma", PrimaryPos.Noun);
+    DictionaryItem elmaAdj = item("elma", PrimaryPos.Adjective);
+    DictionaryItem armut = item("armut", PrimaryPos.Noun);
+    lexicon.add(elmaNoun);
+    lexicon.add(elmaAdj);
+    lexicon.add(armut);
+    // duplicate id is ignored.
+    lexicon.add(item("elma", PrimaryPos.Noun));
+
+    Assert.assertEquals(3, lexicon.size());
+    Assert.assertEquals(Lists.newArrayList(elmaNoun, elmaAdj),
+        lexicon.getMatchingItems("elma"));
+    Assert.assertEquals(Lists.newArrayList(elmaAdj),
+        lexicon.getMatchingItems("elma", PrimaryPos.Adjective));
+    Assert.assertSame(armut, lexicon.getItemById("armut_Noun"));
+
+    lexicon.remove(item("elma", PrimaryPos.Noun));
+    Assert.assertEquals(2, lexicon.size());
+    Assert.assertFalse(lexicon.containsItem(elmaNoun));
+    Assert.assertNull(lexicon.getItemById("elma_Noun"));
+    Assert.assertEquals(Lists.newArrayList(elmaAdj), lexicon.getMatchingItems("elma"));
+    Assert.assertEquals(Lists.newArrayList(elmaAdj, armut), Lists.newArrayList(lexicon));
+
+    lexicon.removeAllLemmas("elma");
+    Assert.assertTrue(lexicon.getMatchingItems("elma").isEmpty());
+    lexicon.add(elmaNoun);
+    Assert.assertEquals(Lists.newArrayList(armut, elmaNoun), lexicon.getAllItems());
+  }
+
+  @Test
+  public void itemsRemainAfterCompaction() {
+    RootLexicon lexicon = new RootLexicon();
+    List<DictionaryItem> items = Lists.newArrayList();
+    for (int i = 0; i < 5000; i++) {
+      DictionaryItem item = item("a" + (i / 2), i % 2 == 0 ? PrimaryPos.Noun : PrimaryPos.Verb);
+      items.add(item);
+      lexicon.add(item);
+    }
+    for (int i = 0; i < 5000; i++) {
+      if (i % 4 != 0) {
+        lexicon.remove(items.get(i));
+      }
+    }
+    for (int i = 0; i < 5000; i++) {
+      DictionaryItem item = items.get(i);
+      Assert.assertEquals(i % 4 == 0, lexicon.containsItem(item));
+      Assert.assertEquals(i % 4 == 0, lexicon.getMatchingItems(item.lemma).contains(item));
+    }
+    Assert.assertEquals(1250, lexicon.size());
+    Assert.assertSame(items.get(4), Lists.newArrayList(lexicon).get(1));
+  }
+}
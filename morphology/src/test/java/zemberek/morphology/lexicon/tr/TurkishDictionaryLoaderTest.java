@@ -26,6 +26,7 @@ import zemberek.core.io.Strings;
 import zemberek.core.turkish.RootAttribute;
 import zemberek.core.turkish.SecondaryPos;
 import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.lexicon.LexiconException;
 import zemberek.morphology.lexicon.RootLexicon;
 
 public class TurkishDictionaryLoaderTest {
@@ -90,6 +91,19 @@ public class TurkishDictionaryLoaderTest {
     Assert.assertEquals(Noun, item.primaryPos);
   }
 
+  @Test
+  public void compoundReferenceWithSamePosTest() {
+    // Both kuyruk items have the same index. Generated atkuyruk root uses attributes of the one
+    // with compound's pos, regardless of the order of the lines.
+    String adj = "kuyruk [P:Adj; A:InverseHarmony]";
+    String compound = "atkuyruğu [A:CompoundP3sg; Roots:at-kuyruk]";
+    for (String[] lines : new String[][]{{adj, "kuyruk", compound}, {"kuyruk", adj, compound}}) {
+      DictionaryItem root = TurkishDictionaryLoader.load(lines).getItemById("atkuyruk_Noun");
+      Assert.assertTrue(root.hasAttribute(RootAttribute.CompoundP3sgRoot));
+      Assert.assertFalse(root.hasAttribute(InverseHarmony));
+    }
+  }
+
   @Test
   public void voicingInferenceTest() {
     DictionaryItem item = TurkishDictionaryLoader.loadFromString("aort [A:NoVoicing]");
@@ -214,6 +228,48 @@ public class TurkishDictionaryLoaderTest {
         .writeLines(all);
   }
 
+  @Test
+  public void parallelLoadingIsSameWithSequential() {
+    List<String> lines = Lists.newArrayList(
+        "elma", "kitap", "kitap [P:Noun; A:NoVoicing]", "gelmek", "ağaç", "oğul [A:LastVowelDrop]",
+        "oğul [P:Interj]", "atkuyruğu [A:CompoundP3sg; Roots:at-kuyruk]", "kuyruk",
+        "Ankara", "ankara [Ref:Ankara_Noun_Prop]", "##comment", "");
+    for (int i = 0; i < 30000; i++) {
+      lines.add("kelime" + i);
+    }
+    RootLexicon sequential = new RootLexicon();
+    TurkishDictionaryLoader.TextLexiconProcessor processor =
+        new TurkishDictionaryLoader.TextLexiconProcessor(sequential);
+    for (String line : lines) {
+      try {
+        processor.processLine(line);
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+    processor.getResult();
+    RootLexicon parallel = TurkishDictionaryLoader.loadParallel(lines, 2);
+
+    List<DictionaryItem> expected = Lists.newArrayList(sequential);
+    List<DictionaryItem> actual = Lists.newArrayList(parallel);
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      DictionaryItem e = expected.get(i);
+      DictionaryItem a = actual.get(i);
+      Assert.assertEquals(e.id, a.id);
+      Assert.assertEquals(e.root, a.root);
+      Assert.assertEquals(e.attributes, a.attributes);
+      Assert.assertEquals(e.getReferenceItem(), a.getReferenceItem());
+    }
+    Assert.assertEquals(1, parallel.getItemById("kitap_Noun_1").index);
+  }
+
+  @Test(expected = LexiconException.class)
+  public void parallelLoadingFailsWithBadLine() {
+    List<String> lines = Lists.newArrayList("elma", "kitap [P:Foo]");
+    TurkishDictionaryLoader.loadParallel(lines, 2);
+  }
+
   @Test
   @Ignore("Not a unit test")
   public void shouldPrintItemsInDevlDictionary() throws IOException {
@@ -0,0 +1,246 @@
+package zemberek.ner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import zemberek.core.ScoredItem;
+import zemberek.core.collections.IntValueMap;
+import zemberek.core.data.Weights;
+import zemberek.core.hash.Mphf;
+import zemberek.core.hash.MultiLevelMphf;
+import zemberek.core.hash.StringHashKeyProvider;
+import zemberek.core.io.IOUtil;
+import zemberek.ner.PerceptronNer.ClassModel;
+
+/**
+ * Weights of all classes in a single float array. Each feature has a row that contains weights of
+ * all classes, so a feature is hashed once and all class scores are calculated in one pass.
+ * <p>
+ * Matrix created from a model keeps feature strings in a map. Serialized form does not contain
+ * feature strings, features are mapped to rows with a minimal perfect hash function and checked
+ * with fingerprints. Like {@link zemberek.core.compression.LossyIntLookup}, an unknown feature may
+ * rarely get weights of another feature.
+ */
+class FeatureWeightMatrix {
+
+  static final String FILE_NAME = "ner.matrix";
+
+  private static final int MAGIC = 0x4E45524D;
+  private static final int VERSION = 2;
+  // fingerprints are positive int values.
+  private static final int FINGERPRINT_MASK = 0x7fffffff;
+  // version 1 files use 27 bit fingerprints.
+  private static final int VERSION_1_FINGERPRINT_MASK = 0x7ffffff;
+
+  private final String[] classIds;
+  private final int classCount;
+  // weights of the feature in row i are in [i * classCount, (i + 1) * classCount)
+  private final float[] weights;
+  private final FeatureIndex index;
+
+  private FeatureWeightMatrix(String[] classIds, float[] weights, FeatureIndex index) {
+    this.classIds = classIds;
+    this.classCount = classIds.length;
+    this.weights = weights;
+    this.index = index;
+  }
+
+  private interface FeatureIndex {
+
+    // Returns row of a feature or -1 if it does not exist.
+    int get(String feature);
+  }
+
+  private static class MapIndex implements FeatureIndex {
+
+    final String[] features;
+    // values are row + 1, as IntValueMap returns 0 for missing keys.
+    final IntValueMap<String> rows;
+
+    MapIndex(String[] features) {
+      this.features = features;
+      this.rows = new IntValueMap<>(features.length * 2);
+      for (int i = 0; i < features.length; i++) {
+        rows.put(features[i], i + 1);
+      }
+    }
+
+    @Override
+    public int get(String feature) {
+      return rows.get(feature) - 1;
+    }
+  }
+
+  private static class HashIndex implements FeatureIndex {
+
+    final Mphf mphf;
+    final int[] fingerprints;
+    final int fingerprintMask;
+
+    HashIndex(Mphf mphf, int[] fingerprints, int fingerprintMask) {
+      this.mphf = mphf;
+      this.fingerprints = fingerprints;
+      this.fingerprintMask = fingerprintMask;
+    }
+
+    @Override
+    public int get(String feature) {
+      int row = mphf.get(feature);
+      return fingerprints[row] == (feature.hashCode() & fingerprintMask) ? row : -1;
+    }
+  }
+
+  /**
+   * Creates the matrix from class models. Class order is the iteration order of the map, so ties
+   * are resolved like {@link PerceptronNer#predictTypeAndPosition(Map, List)}.
+   *
+   * @throws IllegalArgumentException if weights of a class model are compressed.
+   */
+  static FeatureWeightMatrix fromModel(Map<String, ClassModel> model) {
+    String[] classIds = model.keySet().toArray(new String[0]);
+    Weights[] classWeights = new Weights[classIds.length];
+    Set<String> featureSet = new LinkedHashSet<>();
+    for (int i = 0; i < classIds.length; i++) {
+      ClassModel classModel = model.get(classIds[i]);
+      if (!(classModel.sparseWeights instanceof Weights)) {
+        throw new IllegalArgumentException(
+            "Weights of " + classIds[i] + " seems to be compressed. Cannot create matrix.");
+      }
+      classWeights[i] = (Weights) classModel.sparseWeights;
+      for (String feature : classWeights[i]) {
+        featureSet.add(feature);
+      }
+    }
+    String[] features = featureSet.toArray(new String[0]);
+    float[] weights = new float[features.length * classIds.length];
+    for (int row = 0; row < features.length; row++) {
+      for (int c = 0; c < classIds.length; c++) {
+        weights[row * classIds.length + c] = classWeights[c].get(features[row]);
+      }
+    }
+    return new FeatureWeightMatrix(classIds, weights, new MapIndex(features));
+  }
+
+  ScoredItem<String> predict(List<String> features) {
+    float[] scores = new float[classCount];
+    for (String feature : features) {
+      int row = index.get(feature);
+      if (row < 0) {
+        continue;
+      }
+      int offset = row * classCount;
+      for (int c = 0; c < classCount; c++) {
+        scores[c] += weights[offset + c];
+      }
+    }
+    int best = 0;
+    for (int c = 1; c < classCount; c++) {
+      if (scores[c] > scores[best]) {
+        best = c;
+      }
+    }
+    return new ScoredItem<>(classIds[best], scores[best]);
+  }
+
+  List<String> getClassIds() {
+    return Arrays.asList(classIds);
+  }
+
+  int featureCount() {
+    return weights.length / classCount;
+  }
+
+  /**
+   * Saves the matrix without feature strings. Format:
+   * <pre>
+   * int magic, int version
+   * int class count, [class count] UTF class ids
+   * int feature count, [feature count] int fingerprints
+   * [feature count * class count] float weights
+   * minimal perfect hash function of features.
+   * </pre>
+   *
+   * @throws IllegalStateException if matrix is loaded from a serialized form.
+   */
+  void serialize(Path path) throws IOException {
+    if (!(index instanceof MapIndex)) {
+      throw new IllegalStateException("Matrix does not contain features. Cannot serialize.");
+    }
+    String[] features = ((MapIndex) index).features;
+    MultiLevelMphf mphf = MultiLevelMphf.generate(
+        new StringHashKeyProvider(Arrays.asList(features)));
+    int[] fingerprints = new int[features.length];
+    float[] hashed = new float[weights.length];
+    for (int row = 0; row < features.length; row++) {
+      int newRow = mphf.get(features[row]);
+      fingerprints[newRow] = fingerprint(features[row]);
+      System.arraycopy(weights, row * classCount, hashed, newRow * classCount, classCount);
+    }
+    try (DataOutputStream dos = IOUtil.getDataOutputStream(path)) {
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      dos.writeInt(classCount);
+      for (String classId : classIds) {
+        dos.writeUTF(classId);
+      }
+      dos.writeInt(features.length);
+      for (int fingerprint : fingerprints) {
+        dos.writeInt(fingerprint);
+      }
+      for (float weight : hashed) {
+        dos.writeFloat(weight);
+      }
+      mphf.serialize(dos);
+    }
+  }
+
+  static FeatureWeightMatrix deserialize(DataInputStream dis) throws IOException {
+    int magic = dis.readInt();
+    if (magic != MAGIC) {
+      throw new IllegalStateException("Stream does not contain a NER weight matrix.");
+    }
+    int version = dis.readInt();
+    if (version != VERSION && version != 1) {
+      throw new IllegalStateException(
+          "Unexpected NER weight matrix version " + version + ". Expected " + VERSION);
+    }
+    String[] classIds = new String[dis.readInt()];
+    for (int i = 0; i < classIds.length; i++) {
+      classIds[i] = dis.readUTF();
+    }
+    int[] fingerprints = new int[dis.readInt()];
+    for (int i = 0; i < fingerprints.length; i++) {
+      fingerprints[i] = dis.readInt();
+    }
+    float[] weights = new float[fingerprints.length * classIds.length];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = dis.readFloat();
+    }
+    Mphf mphf = MultiLevelMphf.deserialize(dis);
+    int fingerprintMask = version == 1 ? VERSION_1_FINGERPRINT_MASK : FINGERPRINT_MASK;
+    return new FeatureWeightMatrix(
+        classIds, weights, new HashIndex(mphf, fingerprints, fingerprintMask));
+  }
+
+  static FeatureWeightMatrix deserialize(Path path) throws IOException {
+    try (DataInputStream dis = IOUtil.getDataInputStream(path)) {
+      return deserialize(dis);
+    }
+  }
+
+  static FeatureWeightMatrix deserialize(String resource) throws IOException {
+    try (DataInputStream dis = IOUtil.getDataInputStream(resource)) {
+      return deserialize(dis);
+    }
+  }
+
+  private static int fingerprint(String s) {
+    return s.hashCode() & FINGERPRINT_MASK;
+  }
+}
@@ -28,6 +28,25 @@ public class NamedEntity {
     return tokens;
   }
 
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * Returns the character offset of the first token in the sentence, or -1 if it is not known.
+   */
+  public int getStart() {
+    return tokens.get(0).start;
+  }
+
+  /**
+   * Returns the character offset of the last character of the last token in the sentence, or -1
+   * if it is not known.
+   */
+  public int getEnd() {
+    return tokens.get(tokens.size() - 1).end;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
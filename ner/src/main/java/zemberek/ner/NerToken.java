@@ -1,5 +1,8 @@
 package zemberek.ner;
 
+import java.util.List;
+import zemberek.tokenization.Token;
+
 public class NerToken {
 
   int index;
@@ -8,6 +11,10 @@ public class NerToken {
   String type;
   String tokenId;
   NePosition position;
+  // Character offsets of the word in the sentence. End is inclusive, like in
+  // zemberek.tokenization.Token. They are -1 if the word is not located in the sentence.
+  int start = -1;
+  int end = -1;
 
   public NerToken(int index, String word, String normalized, String type, NePosition position) {
     this.index = index;
@@ -47,6 +54,29 @@ public class NerToken {
     return position;
   }
 
+  public int getStart() {
+    return start;
+  }
+
+  public int getEnd() {
+    return end;
+  }
+
+  /**
+   * Sets character offsets of the tokens from the tokenizer tokens of the same sentence. Token
+   * lists must have the same size.
+   */
+  static void setOffsets(List<NerToken> tokens, List<Token> sentenceTokens) {
+    if (tokens.size() != sentenceTokens.size()) {
+      throw new IllegalArgumentException("Token count " + tokens.size()
+          + " is different from sentence token count " + sentenceTokens.size());
+    }
+    for (int i = 0; i < tokens.size(); i++) {
+      tokens.get(i).start = sentenceTokens.get(i).getStart();
+      tokens.get(i).end = sentenceTokens.get(i).getEnd();
+    }
+  }
+
   static NerToken fromTypePositionString(int index, String word, String normalized, String id) {
     if (id.equals("O")) {
       return new NerToken(index, word, normalized, NerDataSet.OUT_TOKEN_TYPE, NePosition.OUTSIDE);
@@ -1,23 +1,35 @@
 package zemberek.ner;
 
+import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import zemberek.core.ScoredItem;
+import zemberek.core.compression.LossyIntLookup;
+import zemberek.core.concurrency.ConcurrencyUtil;
 import zemberek.core.data.CompressedWeights;
 import zemberek.core.data.WeightLookup;
 import zemberek.core.data.Weights;
 import zemberek.core.text.TextIO;
 import zemberek.core.text.TextUtil;
 import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.analysis.SentenceAnalysis;
+import zemberek.morphology.analysis.SentenceWordAnalysis;
 import zemberek.morphology.analysis.SingleAnalysis;
 import zemberek.morphology.analysis.WordAnalysis;
 import zemberek.morphology.analysis.WordAnalysisSurfaceFormatter;
+import zemberek.tokenization.Token;
 import zemberek.tokenization.TurkishTokenizer;
 
 /**
@@ -25,16 +37,45 @@ import zemberek.tokenization.TurkishTokenizer;
  */
 public class PerceptronNer {
 
+  private static final int SENTENCE_CHUNK_SIZE = 50;
+
   private Map<String, ClassModel> model;
 
+  // Weights of all classes in a matrix. If it is null, classes are scored one by one.
+  private FeatureWeightMatrix matrix;
+
+  // Used instead of the matrix when weights are compressed.
+  private CompressedScorer compressedScorer;
+
   private TurkishMorphology morphology;
 
   public PerceptronNer(Map<String, ClassModel> model, TurkishMorphology morphology) {
     this.model = model;
     this.morphology = morphology;
+    boolean compressed = model.values().stream()
+        .anyMatch(m -> m.sparseWeights instanceof CompressedWeights);
+    if (!compressed && model.size() > 0) {
+      this.matrix = FeatureWeightMatrix.fromModel(model);
+    } else if (model.size() > 0 && model.values().stream()
+        .allMatch(m -> m.sparseWeights instanceof CompressedWeights)) {
+      this.compressedScorer = new CompressedScorer(model);
+    }
+  }
+
+  PerceptronNer(FeatureWeightMatrix matrix, TurkishMorphology morphology) {
+    this.matrix = matrix;
+    this.morphology = morphology;
+  }
+
+  private void checkModel() {
+    if (model == null) {
+      throw new IllegalStateException(
+          "Ner is loaded from a weight matrix, class models are not available.");
+    }
   }
 
   public void saveModelAsText(Path modelRoot) throws IOException {
+    checkModel();
     for (String key : model.keySet()) {
       model.get(key).saveText(modelRoot);
     }
@@ -44,6 +85,7 @@ public class PerceptronNer {
   }
 
   public void saveModelCompressed(Path modelRoot) throws IOException {
+    checkModel();
     for (String key : model.keySet()) {
       model.get(key).compressAndSave(modelRoot);
     }
@@ -52,9 +94,27 @@ public class PerceptronNer {
         model.keySet().stream().sorted().collect(Collectors.toList()));
   }
 
+  /**
+   * Saves weights of all classes as a single weight matrix file. Feature strings are not saved,
+   * features are mapped to weights with a minimal perfect hash function. So this is more compact
+   * and faster to load than the compressed model. Like the compressed model, a feature that is not
+   * in the model may rarely get weights of another feature.
+   */
+  public void saveModelAsMatrix(Path modelRoot) throws IOException {
+    if (matrix == null) {
+      throw new IllegalStateException(
+          "Weights seems to be compressed. Cannot create weight matrix.");
+    }
+    matrix.serialize(modelRoot.resolve(FeatureWeightMatrix.FILE_NAME));
+  }
+
   public static PerceptronNer loadModelFromResources(String name, TurkishMorphology morphology) {
     String resourceRoot = "/ner/model/" + name;
     try {
+      String matrixResource = resourceRoot + "/" + FeatureWeightMatrix.FILE_NAME;
+      if (PerceptronNer.class.getResource(matrixResource) != null) {
+        return new PerceptronNer(FeatureWeightMatrix.deserialize(matrixResource), morphology);
+      }
       List<String> types = TextIO.loadLinesFromResource(resourceRoot + "/types");
       Map<String, ClassModel> weightsMap = new HashMap<>();
       for (String type : types) {
@@ -70,6 +130,10 @@ public class PerceptronNer {
 
   public static PerceptronNer loadModel(Path modelRoot, TurkishMorphology morphology)
       throws IOException {
+    Path matrixFile = modelRoot.resolve(FeatureWeightMatrix.FILE_NAME);
+    if (Files.exists(matrixFile)) {
+      return new PerceptronNer(FeatureWeightMatrix.deserialize(matrixFile), morphology);
+    }
     Map<String, ClassModel> weightsMap = new HashMap<>();
     List<Path> files = Files.walk(modelRoot, 1)
         .filter(s -> s.toFile().getName().endsWith(".ner.model"))
@@ -85,80 +149,95 @@ public class PerceptronNer {
       Map<String, ClassModel> model,
       List<String> sparseKeys) {
 
-    List<ScoredItem<String>> scores = new ArrayList<>();
-
-    // find score for each class.
-    for (String out : model.keySet()) {
-      ClassModel o = model.get(out);
+    // find score for each class and keep the first max.
+    String best = null;
+    float bestScore = 0f;
+    for (Map.Entry<String, ClassModel> entry : model.entrySet()) {
+      WeightLookup weights = entry.getValue().sparseWeights;
       float score = 0f;
       for (String s : sparseKeys) {
-        score += o.sparseWeights.get(s);
+        score += weights.get(s);
+      }
+      if (best == null || score > bestScore) {
+        best = entry.getKey();
+        bestScore = score;
       }
-      scores.add(new ScoredItem<>(out, score));
     }
-
-    // return max.
-    return scores.stream().max((a, b) -> Float.compare(a.score, b.score)).get();
+    return new ScoredItem<>(best, bestScore);
   }
 
-  public NerDataSet evaluate(NerDataSet set) {
-
-    List<NerSentence> resultSentences = new ArrayList<>();
-
-    for (NerSentence sentence : set.sentences) {
-      List<NerToken> predictedTokens = new ArrayList<>();
-
-      for (int i = 0; i < sentence.tokens.size(); i++) {
-
-        NerToken currentToken = sentence.tokens.get(i);
+  private ScoredItem<String> predict(List<String> sparseKeys) {
+    if (matrix != null) {
+      return matrix.predict(sparseKeys);
+    }
+    if (compressedScorer != null) {
+      return compressedScorer.predict(sparseKeys);
+    }
+    return predictTypeAndPosition(model, sparseKeys);
+  }
 
-        FeatureData data = new FeatureData(morphology, sentence, i);
-        List<String> sparseInputs = data.getTextualFeatures();
+  /**
+   * Scores all classes of a compressed model in one pass over the features. Compressed weights do
+   * not contain feature strings, so they cannot be merged into a {@link FeatureWeightMatrix}. But
+   * all compressed lookups use the same hash functions, so each feature is hashed once instead of
+   * once per class. Results are same with {@link #predictTypeAndPosition(Map, List)}.
+   */
+  static class CompressedScorer {
+
+    final String[] classIds;
+    final CompressedWeights[] weights;
+
+    CompressedScorer(Map<String, ClassModel> model) {
+      this.classIds = model.keySet().toArray(new String[0]);
+      this.weights = new CompressedWeights[classIds.length];
+      for (int i = 0; i < classIds.length; i++) {
+        weights[i] = (CompressedWeights) model.get(classIds[i]).sparseWeights;
+      }
+    }
 
-        if (i > 0) {
-          sparseInputs.add("PreType=" + predictedTokens.get(i - 1).tokenId);
-        }
-        if (i > 1) {
-          sparseInputs.add("2PreType=" + predictedTokens.get(i - 2).tokenId);
+    ScoredItem<String> predict(List<String> features) {
+      float[] scores = new float[classIds.length];
+      for (String feature : features) {
+        int keyHash = LossyIntLookup.keyHash(feature);
+        int fingerprint = LossyIntLookup.fingerprint(feature);
+        for (int c = 0; c < weights.length; c++) {
+          scores[c] += weights[c].get(feature, keyHash, fingerprint);
         }
-        if (i > 2) {
-          sparseInputs.add("3PreType=" + predictedTokens.get(i - 3).tokenId);
+      }
+      int best = 0;
+      for (int c = 1; c < scores.length; c++) {
+        if (scores[c] > scores[best]) {
+          best = c;
         }
-
-        ScoredItem<String> predicted = PerceptronNer.predictTypeAndPosition(model, sparseInputs);
-
-        NerToken predictedToken = NerToken.fromTypePositionString(
-            currentToken.index, currentToken.word, currentToken.normalized, predicted.item);
-        predictedTokens.add(predictedToken);
-
       }
-      NerSentence predictedSentence = new NerSentence(sentence.content, predictedTokens);
-      resultSentences.add(predictedSentence);
+      return new ScoredItem<>(classIds[best], scores[best]);
     }
-    return new NerDataSet(resultSentences);
   }
 
-  public NerSentence findNamedEntities(String sentence, List<String> words) {
-    List<NerToken> tokens = new ArrayList<>();
-    int index = 0;
-    for (String word : words) {
-      NerToken token = new NerToken(
-          index,
-          word,
-          NerDataSet.normalizeForNer(word), NerDataSet.OUT_TOKEN_TYPE, NePosition.OUTSIDE);
-      tokens.add(token);
-      index++;
+  public NerDataSet evaluate(NerDataSet set) {
+    List<NerSentence> resultSentences = new ArrayList<>();
+    for (NerSentence sentence : set.sentences) {
+      resultSentences.add(predict(sentence, null));
     }
+    return new NerDataSet(resultSentences);
+  }
 
-    NerSentence nerSentence = new NerSentence(sentence, tokens);
+  // Predicts types of the tokens. If analyses is null, words are analyzed with the morphology.
+  private NerSentence predict(NerSentence sentence, List<WordAnalysis> analyses) {
+    if (analyses == null) {
+      analyses = new ArrayList<>(sentence.tokens.size());
+      for (NerToken token : sentence.tokens) {
+        analyses.add(morphology.analyze(token.word));
+      }
+    }
 
     List<NerToken> predictedTokens = new ArrayList<>();
 
-    for (int i = 0; i < nerSentence.tokens.size(); i++) {
+    for (int i = 0; i < sentence.tokens.size(); i++) {
 
-      NerToken currentToken = nerSentence.tokens.get(i);
+      NerToken currentToken = sentence.tokens.get(i);
 
-      FeatureData data = new FeatureData(morphology, nerSentence, i);
+      FeatureData data = new FeatureData(morphology, sentence, i, analyses);
       List<String> sparseInputs = data.getTextualFeatures();
 
       if (i > 0) {
@@ -171,18 +250,194 @@ public class PerceptronNer {
         sparseInputs.add("3PreType=" + predictedTokens.get(i - 3).tokenId);
       }
 
-      ScoredItem<String> predicted = predictTypeAndPosition(model, sparseInputs);
+      ScoredItem<String> predicted = predict(sparseInputs);
 
       NerToken predictedToken = NerToken.fromTypePositionString(
           currentToken.index, currentToken.word, currentToken.normalized, predicted.item);
+      predictedToken.start = currentToken.start;
+      predictedToken.end = currentToken.end;
       predictedTokens.add(predictedToken);
 
     }
-    return new NerSentence(nerSentence.content, predictedTokens);
+    return new NerSentence(sentence.content, predictedTokens);
+  }
+
+  private static NerSentence createSentence(String sentence, List<String> words) {
+    List<NerToken> tokens = new ArrayList<>();
+    int index = 0;
+    for (String word : words) {
+      NerToken token = new NerToken(
+          index,
+          word,
+          NerDataSet.normalizeForNer(word), NerDataSet.OUT_TOKEN_TYPE, NePosition.OUTSIDE);
+      tokens.add(token);
+      index++;
+    }
+    return new NerSentence(sentence, tokens);
+  }
+
+  private static NerSentence createSentence(String sentence, List<String> words,
+      List<Token> sentenceTokens) {
+    NerSentence result = createSentence(sentence, words);
+    if (sameWords(sentenceTokens, words)) {
+      NerToken.setOffsets(result.tokens, sentenceTokens);
+    }
+    return result;
+  }
+
+  private static boolean sameWords(List<Token> tokens, List<String> words) {
+    if (tokens.size() != words.size()) {
+      return false;
+    }
+    for (int i = 0; i < tokens.size(); i++) {
+      if (!tokens.get(i).getText().equals(words.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds named entities in a tokenized sentence. Character offsets of the tokens are taken from
+   * the tokenization of the sentence. If words are not the tokens of the sentence, offsets are -1.
+   */
+  public NerSentence findNamedEntities(String sentence, List<String> words) {
+    return predict(
+        createSentence(sentence, words, TurkishTokenizer.DEFAULT.tokenize(sentence)), null);
   }
 
   public NerSentence findNamedEntities(String sentence) {
-    return findNamedEntities(sentence, TurkishTokenizer.DEFAULT.tokenizeToStrings(sentence));
+    List<Token> tokens = TurkishTokenizer.DEFAULT.tokenize(sentence);
+    List<String> words = new ArrayList<>(tokens.size());
+    for (Token token : tokens) {
+      words.add(token.getText());
+    }
+    return predict(createSentence(sentence, words, tokens), null);
+  }
+
+  /**
+   * Finds named entities using the words and morphological analyses of a sentence analysis, so
+   * words are not analyzed again. Disambiguation results are not used, features are created from
+   * all analyses of words.
+   * <p>
+   * Offsets are taken from the tokenization of the sentence after quote and hyphen normalization,
+   * as morphology does. If normalization changes the length of the sentence, offsets are -1.
+   */
+  public NerSentence findNamedEntities(SentenceAnalysis sentenceAnalysis) {
+    List<String> words = new ArrayList<>(sentenceAnalysis.size());
+    List<WordAnalysis> analyses = new ArrayList<>(sentenceAnalysis.size());
+    for (SentenceWordAnalysis wordAnalysis : sentenceAnalysis) {
+      words.add(wordAnalysis.getWordAnalysis().getInput());
+      analyses.add(wordAnalysis.getWordAnalysis());
+    }
+    String sentence = sentenceAnalysis.getSentence();
+    String normalized = TextUtil.normalizeQuotesHyphens(sentence);
+    NerSentence nerSentence = normalized.length() == sentence.length() ?
+        createSentence(sentence, words, morphology.getTokenizer().tokenize(normalized)) :
+        createSentence(sentence, words);
+    return predict(nerSentence, analyses);
+  }
+
+  /**
+   * Finds named entities of sentences of a document with multiple threads. Results are in the order
+   * of input sentences and offsets are relative to the sentences. A thread pool is created for
+   * this call, use {@link #findNamedEntities(List, ExecutorService)} for repeated calls.
+   */
+  public List<NerSentence> findNamedEntities(
+      List<SentenceAnalysis> sentenceAnalyses,
+      int threadCount) {
+    return withThreadPool(threadCount, executor -> findNamedEntities(sentenceAnalyses, executor));
+  }
+
+  /**
+   * Finds named entities of sentences of a document using the executor. Results are in the order
+   * of input sentences and offsets are relative to the sentences. Executor is not shut down.
+   */
+  public List<NerSentence> findNamedEntities(
+      List<SentenceAnalysis> sentenceAnalyses,
+      ExecutorService executor) {
+    return findAll(sentenceAnalyses, this::findNamedEntities, executor);
+  }
+
+  /**
+   * Finds named entities of tokenized sentences with multiple threads. Sentence content is created
+   * by joining words with a space and offsets are relative to it. Results are in the order of
+   * input sentences. A thread pool is created for this call, use
+   * {@link #findNamedEntitiesInTokenized(List, ExecutorService)} for repeated calls.
+   */
+  public List<NerSentence> findNamedEntitiesInTokenized(
+      List<List<String>> tokenizedSentences,
+      int threadCount) {
+    return withThreadPool(threadCount,
+        executor -> findNamedEntitiesInTokenized(tokenizedSentences, executor));
+  }
+
+  /**
+   * Finds named entities of tokenized sentences using the executor. Sentence content is created by
+   * joining words with a space and offsets are relative to it. Results are in the order of input
+   * sentences. Executor is not shut down.
+   */
+  public List<NerSentence> findNamedEntitiesInTokenized(
+      List<List<String>> tokenizedSentences,
+      ExecutorService executor) {
+    return findAll(tokenizedSentences, this::findNamedEntitiesInJoined, executor);
+  }
+
+  private NerSentence findNamedEntitiesInJoined(List<String> words) {
+    NerSentence sentence = createSentence(String.join(" ", words), words);
+    int start = 0;
+    for (NerToken token : sentence.tokens) {
+      token.start = start;
+      token.end = start + token.word.length() - 1;
+      start = token.end + 2;
+    }
+    return predict(sentence, null);
+  }
+
+  private static List<NerSentence> withThreadPool(
+      int threadCount,
+      Function<ExecutorService, List<NerSentence>> function) {
+    threadCount = ConcurrencyUtil.validateCpuThreadCount(threadCount);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      return function.apply(executor);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private <T> List<NerSentence> findAll(
+      List<T> inputs,
+      Function<T, NerSentence> function,
+      ExecutorService executor) {
+    NerSentence[] results = new NerSentence[inputs.size()];
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      int chunkStart = 0;
+      for (List<T> chunk : Lists.partition(inputs, SENTENCE_CHUNK_SIZE)) {
+        int offset = chunkStart;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < chunk.size(); i++) {
+            results[offset + i] = function.apply(chunk.get(i));
+          }
+        }));
+        chunkStart += chunk.size();
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Named entity recognition is interrupted.", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Cannot find named entities.", e.getCause());
+    } finally {
+      // remaining chunks are not needed if one of them fails.
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return Arrays.asList(results);
   }
 
   public static class ClassModel {
@@ -283,6 +538,9 @@ public class PerceptronNer {
 
     static WordAnalysisSurfaceFormatter formatter = new WordAnalysisSurfaceFormatter();
     TurkishMorphology morphology;
+    // analyses of all words in the sentence. If null, words are analyzed when needed.
+    List<WordAnalysis> analyses;
+    int index;
     String currentWord;
     String currentWordOrig;
     String nextWord;
@@ -298,7 +556,17 @@ public class PerceptronNer {
         TurkishMorphology morphology,
         NerSentence sentence,
         int index) {
+      this(morphology, sentence, index, null);
+    }
+
+    FeatureData(
+        TurkishMorphology morphology,
+        NerSentence sentence,
+        int index,
+        List<WordAnalysis> analyses) {
       this.morphology = morphology;
+      this.analyses = analyses;
+      this.index = index;
       List<NerToken> tokens = sentence.tokens;
       this.currentWord = tokens.get(index).normalized;
       this.currentWordOrig = tokens.get(index).word;
@@ -336,11 +604,17 @@ public class PerceptronNer {
       }
     }
 
-    void morphologicalFeatures(String word, String featurePrefix, List<String> features) {
+    void morphologicalFeatures(
+        String word,
+        int wordIndex,
+        String featurePrefix,
+        List<String> features) {
       if (word == null) {
         return;
       }
-      WordAnalysis analyses = morphology.analyze(word);
+      WordAnalysis analyses = this.analyses == null ?
+          morphology.analyze(word) :
+          this.analyses.get(wordIndex);
       SingleAnalysis longest =
           analyses.analysisCount() > 0 ?
               analyses.getAnalysisResults().get(analyses.analysisCount() - 1) :
@@ -392,9 +666,9 @@ public class PerceptronNer {
       wordFeatures(previousWordOrig, "PW", features);
       wordFeatures(nextWordOrig, "NW", features);
 
-      morphologicalFeatures(currentWordOrig, "CW", features);
-      morphologicalFeatures(previousWordOrig, "PW", features);
-      morphologicalFeatures(nextWordOrig, "NW", features);
+      morphologicalFeatures(currentWordOrig, index, "CW", features);
+      morphologicalFeatures(previousWordOrig, index - 1, "PW", features);
+      morphologicalFeatures(nextWordOrig, index + 1, "NW", features);
 
       String cwLast2 =
           currentWord.length() > 2 ? currentWord.substring(currentWord.length() - 2) : "";
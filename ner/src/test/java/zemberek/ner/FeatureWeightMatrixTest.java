@@ -0,0 +1,114 @@
+package zemberek.ner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.core.ScoredItem;
+import zemberek.core.data.Weights;
+import zemberek.core.io.IOUtil;
+import zemberek.ner.PerceptronNer.ClassModel;
+
+public class FeatureWeightMatrixTest {
+
+  private static Map<String, ClassModel> randomModel(Random random, int featureCount) {
+    Map<String, ClassModel> model = new LinkedHashMap<>();
+    for (String id : new String[]{"OUT", "PER_B", "PER_I", "LOC_B", "LOC_I"}) {
+      Weights weights = new Weights();
+      for (int i = 0; i < featureCount; i++) {
+        if (random.nextInt(3) > 0) {
+          weights.put("F:" + i, random.nextFloat() * 2 - 1);
+        }
+      }
+      model.put(id, new ClassModel(id, weights));
+    }
+    return model;
+  }
+
+  private static List<List<String>> randomInputs(Random random, int featureCount) {
+    List<List<String>> inputs = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      List<String> features = new ArrayList<>();
+      for (int j = 0; j < 30; j++) {
+        // some of the features are not in the model.
+        features.add("F:" + random.nextInt(featureCount + 50));
+      }
+      inputs.add(features);
+    }
+    return inputs;
+  }
+
+  @Test
+  public void predictionsMatchClassModels() {
+    Random random = new Random(1);
+    Map<String, ClassModel> model = randomModel(random, 500);
+    FeatureWeightMatrix matrix = FeatureWeightMatrix.fromModel(model);
+    Assert.assertTrue(matrix.featureCount() > 0 && matrix.featureCount() <= 500);
+    for (List<String> features : randomInputs(random, 500)) {
+      ScoredItem<String> expected = PerceptronNer.predictTypeAndPosition(model, features);
+      ScoredItem<String> actual = matrix.predict(features);
+      Assert.assertEquals(expected.item, actual.item);
+      Assert.assertEquals(expected.score, actual.score, 0);
+    }
+  }
+
+  @Test
+  public void compressedScorerMatchesClassModels() {
+    Random random = new Random(3);
+    Map<String, ClassModel> compressed = new LinkedHashMap<>();
+    for (ClassModel classModel : randomModel(random, 500).values()) {
+      compressed.put(classModel.id,
+          new ClassModel(classModel.id, ((Weights) classModel.sparseWeights).compress()));
+    }
+    PerceptronNer.CompressedScorer scorer = new PerceptronNer.CompressedScorer(compressed);
+    for (List<String> features : randomInputs(random, 500)) {
+      ScoredItem<String> expected = PerceptronNer.predictTypeAndPosition(compressed, features);
+      ScoredItem<String> actual = scorer.predict(features);
+      Assert.assertEquals(expected.item, actual.item);
+      Assert.assertEquals(expected.score, actual.score, 0);
+    }
+  }
+
+  @Test
+  public void tiesAreResolvedInClassOrder() {
+    Map<String, ClassModel> model = new LinkedHashMap<>();
+    for (String id : new String[]{"A", "B", "C"}) {
+      Weights weights = new Weights();
+      weights.put("x", id.equals("A") ? 0.5f : 1f);
+      model.put(id, new ClassModel(id, weights));
+    }
+    List<String> features = new ArrayList<>();
+    features.add("x");
+    Assert.assertEquals("B", PerceptronNer.predictTypeAndPosition(model, features).item);
+    Assert.assertEquals("B", FeatureWeightMatrix.fromModel(model).predict(features).item);
+  }
+
+  @Test
+  public void serializationRoundTrip() throws IOException {
+    Random random = new Random(2);
+    Map<String, ClassModel> model = randomModel(random, 2000);
+    FeatureWeightMatrix matrix = FeatureWeightMatrix.fromModel(model);
+    Path tempDir = Files.createTempDirectory("ner");
+    try {
+      Path file = tempDir.resolve(FeatureWeightMatrix.FILE_NAME);
+      matrix.serialize(file);
+      FeatureWeightMatrix loaded = FeatureWeightMatrix.deserialize(file);
+      Assert.assertEquals(matrix.getClassIds(), loaded.getClassIds());
+      Assert.assertEquals(matrix.featureCount(), loaded.featureCount());
+      for (List<String> features : randomInputs(random, 2000)) {
+        ScoredItem<String> expected = matrix.predict(features);
+        ScoredItem<String> actual = loaded.predict(features);
+        Assert.assertEquals(expected.item, actual.item);
+        Assert.assertEquals(expected.score, actual.score, 0);
+      }
+    } finally {
+      IOUtil.deleteTempDir(tempDir);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package zemberek.ner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import zemberek.core.io.TestUtil;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.analysis.SentenceAnalysis;
+import zemberek.ner.NerDataSet.AnnotationStyle;
+
+public class PerceptronNerTest {
+
+  private static TurkishMorphology morphology;
+  private static PerceptronNer ner;
+
+  private static final List<String> SENTENCES = Arrays.asList(
+      "Ali Veli ile Ankara'ya gitti.",
+      "Ahmet Bey dün İstanbul'dan geldi.",
+      "Bugün hava çok güzel.",
+      "Ayşe Hanım ve Ali Veli İzmir'de buluştu."
+  );
+
+  @BeforeClass
+  public static void trainModel() throws IOException {
+    morphology = TurkishMorphology.createWithDefaults();
+    Path p = TestUtil.tempFileWithData(
+        "[PER Ali Veli] ile [LOC Ankara'ya] gitti .",
+        "[PER Ahmet Bey] dün [LOC İstanbul'dan] geldi .",
+        "Bugün hava çok güzel .",
+        "[PER Ayşe Hanım] ve [PER Ali Veli] [LOC İzmir'de] buluştu .");
+    NerDataSet set = NerDataSet.load(p, AnnotationStyle.BRACKET);
+    ner = new PerceptronNerTrainer(morphology).train(set, null, 5, 0.1f);
+  }
+
+  @Test
+  public void sentenceAnalysisResultsMatchSentences() {
+    for (String sentence : SENTENCES) {
+      NerSentence expected = ner.findNamedEntities(sentence);
+      NerSentence actual = ner.findNamedEntities(morphology.analyzeAndDisambiguate(sentence));
+      Assert.assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void offsets() {
+    for (String sentence : SENTENCES) {
+      NerSentence result = ner.findNamedEntities(sentence);
+      for (NamedEntity entity : result.getAllEntities()) {
+        Assert.assertEquals(
+            String.join("", entity.getWords()),
+            sentence.substring(entity.getStart(), entity.getEnd() + 1).replaceAll(" ", ""));
+      }
+    }
+  }
+
+  @Test
+  public void batch() {
+    List<SentenceAnalysis> analyses = new ArrayList<>();
+    List<List<String>> tokenized = new ArrayList<>();
+    List<NerSentence> expected = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      for (String sentence : SENTENCES) {
+        analyses.add(morphology.analyzeAndDisambiguate(sentence));
+        tokenized.add(morphology.getTokenizer().tokenizeToStrings(sentence));
+        expected.add(ner.findNamedEntities(sentence));
+      }
+    }
+    List<NerSentence> results = ner.findNamedEntities(analyses, 2);
+    Assert.assertEquals(expected, results);
+
+    List<NerSentence> tokenizedResults = ner.findNamedEntitiesInTokenized(tokenized, 2);
+    Assert.assertEquals(expected.size(), tokenizedResults.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(
+          expected.get(i).getNamedEntities(), tokenizedResults.get(i).getNamedEntities());
+    }
+  }
+
+  @Test
+  public void offsetsAreTokenOffsets() {
+    // "Ali" would be found inside "Alicem" if offsets were searched in the sentence.
+    String sentence = "Alicem , Ali ile geldi .";
+    NerSentence result = ner.findNamedEntities(sentence);
+    Assert.assertEquals(9, result.tokens.get(2).getStart());
+    Assert.assertEquals(11, result.tokens.get(2).getEnd());
+
+    // words that are not the tokens of the sentence have no offsets.
+    result = ner.findNamedEntities(sentence, Arrays.asList("Ali", "ile", "geldi", "."));
+    for (NerToken token : result.tokens) {
+      Assert.assertEquals(-1, token.getStart());
+      Assert.assertEquals(-1, token.getEnd());
+    }
+
+    for (String s : SENTENCES) {
+      NerSentence fromAnalysis = ner.findNamedEntities(morphology.analyzeAndDisambiguate(s));
+      for (NerToken token : fromAnalysis.tokens) {
+        Assert.assertEquals(token.getWord(), s.substring(token.getStart(), token.getEnd() + 1));
+      }
+    }
+  }
+
+  @Test
+  public void batchWithExecutor() {
+    List<SentenceAnalysis> analyses = new ArrayList<>();
+    List<NerSentence> expected = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      for (String sentence : SENTENCES) {
+        analyses.add(morphology.analyzeAndDisambiguate(sentence));
+        expected.add(ner.findNamedEntities(sentence));
+      }
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // executor is reused and not shut down by the calls.
+      for (int i = 0; i < 2; i++) {
+        Assert.assertEquals(expected, ner.findNamedEntities(analyses, executor));
+      }
+      Assert.assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
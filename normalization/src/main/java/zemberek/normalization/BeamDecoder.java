@@ -0,0 +1,228 @@
+package zemberek.normalization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import zemberek.core.collections.LongUIntMap;
+import zemberek.lm.BaseLanguageModel.LookupCache;
+import zemberek.lm.LmVocabulary;
+import zemberek.lm.NgramLanguageModel;
+
+/**
+ * Finds the most probable candidate sequence with a language model using Viterbi search with beam
+ * pruning. Hypotheses that end with the same `order - 1` candidates are merged. After each step,
+ * only the best `beamWidth` hypotheses that are within `beamThreshold` of the best score are kept,
+ * so the amount of work per step is bounded regardless of the candidate counts.
+ * <p>
+ * Hypotheses are kept in primitive arrays with back pointers to the previous step. N-gram
+ * probabilities are cached with a {@link LookupCache} per thread. Instances are thread safe.
+ */
+final class BeamDecoder {
+
+  static final int DEFAULT_BEAM_WIDTH = 100;
+  static final float DEFAULT_BEAM_THRESHOLD = Float.POSITIVE_INFINITY;
+  private static final int LOOKUP_CACHE_SIZE = 1 << 14;
+
+  final NgramLanguageModel lm;
+  final int beamWidth;
+  final float beamThreshold;
+  private final ThreadLocal<LookupCache> caches;
+
+  BeamDecoder(NgramLanguageModel lm) {
+    this(lm, DEFAULT_BEAM_WIDTH, DEFAULT_BEAM_THRESHOLD);
+  }
+
+  BeamDecoder(NgramLanguageModel lm, int beamWidth, float beamThreshold) {
+    if (beamWidth < 1) {
+      throw new IllegalArgumentException("Beam width must be positive. But it is " + beamWidth);
+    }
+    if (!(beamThreshold >= 0)) {
+      throw new IllegalArgumentException("Beam threshold cannot be negative or NaN. But it is "
+          + beamThreshold);
+    }
+    this.lm = lm;
+    this.beamWidth = beamWidth;
+    this.beamThreshold = beamThreshold;
+    this.caches = ThreadLocal.withInitial(() -> new LookupCache(lm, LOOKUP_CACHE_SIZE));
+  }
+
+  /**
+   * @param candidateIds vocabulary indexes of candidates for each position. Every position must
+   * have at least one candidate.
+   * @return index of the selected candidate for each position.
+   */
+  int[] decode(int[][] candidateIds) {
+    LmVocabulary vocabulary = lm.getVocabulary();
+    LookupCache cache = caches.get();
+    int order = lm.getOrder();
+    int h = order - 1;
+    // candidate indexes of last h positions are packed to a long for merging hypotheses.
+    int bits = h == 0 ? 0 : Math.min(32, 64 / h);
+    long keyMask = h * bits >= 64 ? -1L : (1L << (h * bits)) - 1;
+    long candidateLimit = h == 0 ? Long.MAX_VALUE : 1L << bits;
+
+    // initial hypothesis, history is filled with sentence start.
+    Beam beam = new Beam(1, h);
+    Arrays.fill(beam.histories, vocabulary.getSentenceStartIndex());
+    beam.size = 1;
+
+    // back pointers and candidate indexes of every step, for back tracking.
+    List<int[]> backPointers = new ArrayList<>(candidateIds.length + 1);
+    List<int[]> candidateIndexes = new ArrayList<>(candidateIds.length + 1);
+
+    int[] ngram = new int[order];
+    int[] endIds = {vocabulary.getSentenceEndIndex()};
+    for (int t = 0; t <= candidateIds.length; t++) {
+      int[] ids = t < candidateIds.length ? candidateIds[t] : endIds;
+      if (ids.length == 0) {
+        throw new IllegalArgumentException("No candidates at position " + t);
+      }
+      Beam next = new Beam(beam.size * ids.length, h);
+      LongUIntMap merged = new LongUIntMap(next.backs.length * 2);
+      for (int i = 0; i < beam.size; i++) {
+        System.arraycopy(beam.histories, i * h, ngram, 0, h);
+        for (int c = 0; c < ids.length; c++) {
+          ngram[h] = ids[c];
+          float score = beam.scores[i] + cache.get(ngram);
+          // a candidate index that does not fit to key bits is left out of the key, so the
+          // hypothesis is not merged until that candidate leaves the last h candidates.
+          int unmergeable;
+          long key;
+          if (c < candidateLimit) {
+            unmergeable = Math.max(0, beam.unmergeable[i] - 1);
+            key = ((beam.keys[i] << bits) | c) & keyMask;
+          } else {
+            unmergeable = h;
+            key = (beam.keys[i] << bits) & keyMask;
+          }
+          if (unmergeable == 0) {
+            int j = merged.get(key);
+            if (j >= 0) {
+              // same last h candidates, so histories are same as well.
+              if (score > next.scores[j]) {
+                next.scores[j] = score;
+                next.backs[j] = i;
+              }
+              continue;
+            }
+            merged.put(key, next.size);
+          }
+          int j = next.size++;
+          next.keys[j] = key;
+          next.unmergeable[j] = unmergeable;
+          next.scores[j] = score;
+          next.backs[j] = i;
+          next.candidates[j] = c;
+          if (h > 0) {
+            System.arraycopy(beam.histories, i * h + 1, next.histories, j * h, h - 1);
+            next.histories[j * h + h - 1] = ids[c];
+          }
+        }
+      }
+      beam = next.prune(beamWidth, beamThreshold);
+      backPointers.add(beam.backs);
+      candidateIndexes.add(beam.candidates);
+    }
+
+    // back track from the best hypothesis. Last step is the sentence end.
+    int best = 0;
+    for (int i = 1; i < beam.size; i++) {
+      if (beam.scores[i] > beam.scores[best]) {
+        best = i;
+      }
+    }
+    int[] result = new int[candidateIds.length];
+    int k = backPointers.get(candidateIds.length)[best];
+    for (int t = candidateIds.length - 1; t >= 0; t--) {
+      result[t] = candidateIndexes.get(t)[k];
+      k = backPointers.get(t)[k];
+    }
+    return result;
+  }
+
+  /**
+   * Hypotheses of a single step.
+   */
+  private static class Beam {
+
+    final int h;
+    int size;
+    float[] scores;
+    // index of the previous hypothesis.
+    int[] backs;
+    // index of the candidate of this step.
+    int[] candidates;
+    // merge keys.
+    long[] keys;
+    // positive if a candidate of the last h candidates is missing from the key. It is the amount
+    // of steps until that candidate leaves the key.
+    int[] unmergeable;
+    // vocabulary indexes of last h words, h items for each hypothesis.
+    int[] histories;
+
+    Beam(int capacity, int h) {
+      this.h = h;
+      scores = new float[capacity];
+      backs = new int[capacity];
+      candidates = new int[capacity];
+      keys = new long[capacity];
+      unmergeable = new int[capacity];
+      histories = new int[capacity * h];
+    }
+
+    Beam prune(int beamWidth, float beamThreshold) {
+      float max = Float.NEGATIVE_INFINITY;
+      for (int i = 0; i < size; i++) {
+        max = Math.max(max, scores[i]);
+      }
+      float limit = max - beamThreshold;
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        if (scores[i] >= limit) {
+          count++;
+        }
+      }
+      if (count == size && size <= beamWidth) {
+        return trim();
+      }
+      // sort remaining hypotheses by score. Score bits are flipped for descending order and
+      // packed with the index.
+      long[] order = new long[count];
+      int k = 0;
+      for (int i = 0; i < size; i++) {
+        if (scores[i] >= limit) {
+          order[k++] = ((long) sortableBits(scores[i]) << 32) | i;
+        }
+      }
+      Arrays.sort(order);
+      int newSize = Math.min(count, beamWidth);
+      Beam pruned = new Beam(newSize, h);
+      for (int j = 0; j < newSize; j++) {
+        int i = (int) order[j];
+        pruned.scores[j] = scores[i];
+        pruned.backs[j] = backs[i];
+        pruned.candidates[j] = candidates[i];
+        pruned.keys[j] = keys[i];
+        pruned.unmergeable[j] = unmergeable[i];
+        System.arraycopy(histories, i * h, pruned.histories, j * h, h);
+      }
+      pruned.size = newSize;
+      return pruned;
+    }
+
+    private Beam trim() {
+      if (size < backs.length) {
+        backs = Arrays.copyOf(backs, size);
+        candidates = Arrays.copyOf(candidates, size);
+      }
+      return this;
+    }
+
+    // returns an int that sorts in ascending order for descending float values.
+    private static int sortableBits(float f) {
+      int bits = Float.floatToIntBits(f);
+      bits ^= (bits >> 31) & 0x7fffffff;
+      return ~bits;
+    }
+  }
+}
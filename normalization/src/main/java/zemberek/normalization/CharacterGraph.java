@@ -19,6 +19,13 @@ class CharacterGraph {
     return root;
   }
 
+  /**
+   * Creates a node that is not connected to the graph.
+   */
+  Node newNode(char c, int type, String word) {
+    return new Node(nodeIndexCounter.getAndIncrement(), c, type, word);
+  }
+
   public Node addWord(String word, int type) {
     return add(root, 0, word, type);
   }
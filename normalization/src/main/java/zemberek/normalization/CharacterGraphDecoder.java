@@ -15,7 +15,7 @@ import zemberek.core.collections.FloatValueMap;
 import zemberek.core.collections.IntMap;
 import zemberek.core.turkish.TurkishAlphabet;
 
-public class CharacterGraphDecoder {
+public class CharacterGraphDecoder implements SuggestionGenerator {
 
   public static final Map<Character, String> TURKISH_FQ_NEAR_KEY_MAP = new HashMap<>();
   public static final Map<Character, String> TURKISH_Q_NEAR_KEY_MAP = new HashMap<>();
@@ -104,7 +104,11 @@ public class CharacterGraphDecoder {
   public final float maxPenalty;
   public final boolean checkNearKeySubstitution;
   public Map<Character, String> nearKeyMap = new HashMap<>();
-  private CharacterGraph graph = new CharacterGraph();
+  // Null after the decoder is frozen.
+  private volatile CharacterGraph graph = new CharacterGraph();
+  // Compact form of the graph. It is generated when decoder is frozen.
+  private volatile CompactCharacterGraph compactGraph;
+  private ThreadLocal<CompactCharacterGraph.Search> searches;
 
   public CharacterGraphDecoder(float maxPenalty) {
     this.maxPenalty = maxPenalty;
@@ -117,19 +121,84 @@ public class CharacterGraphDecoder {
   }
 
   public CharacterGraphDecoder(CharacterGraph graph) {
+    this(graph, 1);
+  }
+
+  public CharacterGraphDecoder(CharacterGraph graph, float maxPenalty) {
     this.graph = graph;
-    this.maxPenalty = 1;
+    this.maxPenalty = maxPenalty;
     this.checkNearKeySubstitution = false;
   }
 
+  /**
+   * Creates a frozen decoder from a compact graph.
+   */
+  CharacterGraphDecoder(CompactCharacterGraph compactGraph, float maxPenalty) {
+    this.graph = null;
+    this.maxPenalty = maxPenalty;
+    this.checkNearKeySubstitution = false;
+    setCompactGraph(compactGraph);
+  }
+
   public CharacterGraphDecoder(float maxPenalty, Map<Character, String> nearKeyMap) {
     this.maxPenalty = maxPenalty;
     this.nearKeyMap = Collections.unmodifiableMap(nearKeyMap);
     this.checkNearKeySubstitution = true;
   }
 
+  /**
+   * @return the graph that words are added to. Changes to it affect the decoder.
+   * @throws IllegalStateException if decoder is frozen. Use {@link #copyGraph()} instead.
+   */
   public CharacterGraph getGraph() {
-    return graph;
+    CharacterGraph g = graph;
+    if (g == null) {
+      throw new IllegalStateException(
+          "Graph of a frozen decoder is not available. Use copyGraph() instead.");
+    }
+    return g;
+  }
+
+  /**
+   * @return a new graph with the words of this decoder. Changes to it do not affect the decoder.
+   */
+  public synchronized CharacterGraph copyGraph() {
+    CompactCharacterGraph compact =
+        compactGraph != null ? compactGraph : CompactCharacterGraph.fromGraph(graph);
+    return compact.toGraph();
+  }
+
+  /**
+   * Converts the graph to a compact, array based representation and uses it for all subsequent
+   * decoding operations. Compact graph is read only and decoding does not create a hypothesis
+   * object per search step, so frozen decoders are faster and can be used by many threads
+   * concurrently. Words cannot be added after this call and {@link #getGraph()} throws, because
+   * changes to the graph would not be seen by the compact graph. For the same reason, changes to a
+   * graph given to the constructor are ignored after this call.
+   *
+   * @return this decoder.
+   */
+  public synchronized CharacterGraphDecoder freeze() {
+    if (compactGraph == null) {
+      setCompactGraph(CompactCharacterGraph.fromGraph(graph));
+      graph = null;
+    }
+    return this;
+  }
+
+  private void setCompactGraph(CompactCharacterGraph compact) {
+    this.searches = ThreadLocal.withInitial(() -> new CompactCharacterGraph.Search(compact));
+    this.compactGraph = compact;
+  }
+
+  public boolean isFrozen() {
+    return compactGraph != null;
+  }
+
+  private void checkNotFrozen() {
+    if (compactGraph != null) {
+      throw new IllegalStateException("Words cannot be added to a frozen decoder.");
+    }
   }
 
   private String process(String str) {
@@ -137,16 +206,19 @@ public class CharacterGraphDecoder {
   }
 
   public void addWord(String word) {
+    checkNotFrozen();
     graph.addWord(process(word), Node.TYPE_WORD);
   }
 
   public void addWords(String... words) {
+    checkNotFrozen();
     for (String word : words) {
       graph.addWord(process(word), Node.TYPE_WORD);
     }
   }
 
   public void addWords(List<String> vocabulary) {
+    checkNotFrozen();
     for (String s : vocabulary) {
       graph.addWord(process(s), Node.TYPE_WORD);
     }
@@ -156,12 +228,21 @@ public class CharacterGraphDecoder {
    * Returns suggestions sorted by penalty.
    */
   public List<ScoredItem<String>> getSuggestionsWithScores(String input) {
-    Decoder decoder = new Decoder();
-    return getMatches(input, decoder);
+    return getMatches(input, null);
+  }
+
+  private FloatValueMap<String> decode(String input, CharMatcher matcher) {
+    // graph is read first. Freezing sets the compact graph before clearing the graph.
+    CharacterGraph g = graph;
+    if (compactGraph != null) {
+      return searches.get().decode(input, matcher, maxPenalty, checkNearKeySubstitution,
+          nearKeyMap);
+    }
+    return new Decoder(g, matcher).decode(input);
   }
 
-  private List<ScoredItem<String>> getMatches(String input, Decoder decoder) {
-    FloatValueMap<String> results = decoder.decode(input);
+  private List<ScoredItem<String>> getMatches(String input, CharMatcher matcher) {
+    FloatValueMap<String> results = decode(input, matcher);
 
     List<ScoredItem<String>> res = new ArrayList<>(results.size());
     for (String result : results) {
@@ -172,20 +253,20 @@ public class CharacterGraphDecoder {
   }
 
   public List<ScoredItem<String>> getSuggestionsWithScores(String input, CharMatcher matcher) {
-    Decoder decoder = new Decoder(matcher);
-    return getMatches(input, decoder);
+    return getMatches(input, matcher);
   }
 
   public FloatValueMap<String> decode(String input) {
-    return new Decoder().decode(input);
+    return decode(input, null);
   }
 
   public List<String> getSuggestions(String input) {
-    return new Decoder().decode(input).getKeyList();
+    return decode(input, null).getKeyList();
   }
 
+  @Override
   public List<String> getSuggestions(String input, CharMatcher matcher) {
-    return new Decoder(matcher).decode(input).getKeyList();
+    return decode(input, matcher).getKeyList();
   }
 
   public List<String> getSuggestionsSorted(String input) {
@@ -386,13 +467,11 @@ public class CharacterGraphDecoder {
   private class Decoder {
 
     FloatValueMap<String> finished = new FloatValueMap<>(8);
+    CharacterGraph graph;
     CharMatcher matcher;
 
-    Decoder() {
-      this(null);
-    }
-
-    Decoder(CharMatcher matcher) {
+    Decoder(CharacterGraph graph, CharMatcher matcher) {
+      this.graph = graph;
       this.matcher = matcher;
     }
 
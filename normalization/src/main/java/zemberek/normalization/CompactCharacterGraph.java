@@ -0,0 +1,702 @@
+package zemberek.normalization;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import zemberek.core.collections.FloatValueMap;
+import zemberek.normalization.CharacterGraphDecoder.CharMatcher;
+
+/**
+ * An immutable, array based form of a {@link CharacterGraph}. Nodes are represented with integer
+ * ids. Child nodes of a node are kept in a single array sorted by character (compressed sparse row
+ * layout), so finding a child is a binary search on a small char range. Epsilon connections are
+ * kept the same way.
+ * <p>
+ * Instances are read only, so they can be shared between threads without locking. Searches use
+ * {@link Search} objects that keep hypotheses in reusable primitive arrays.
+ */
+final class CompactCharacterGraph {
+
+  static final int NO_WORD = -1;
+  private static final int MAGIC = 0x5A434347;
+  private static final int VERSION = 1;
+
+  final int nodeCount;
+  final char[] chars;
+  final byte[] types;
+  final int[] wordIds;
+  // Word contents are kept in a single char array. Word i is between offsets i and i+1.
+  final int[] wordOffsets;
+  final char[] wordChars;
+  final int[] childOffsets;
+  final char[] childChars;
+  final int[] childNodes;
+  final int[] epsilonOffsets;
+  final int[] epsilonNodes;
+
+  // root is always node 0.
+  static final int ROOT = 0;
+
+  private CompactCharacterGraph(
+      char[] chars,
+      byte[] types,
+      int[] wordIds,
+      int[] wordOffsets,
+      char[] wordChars,
+      int[] childOffsets,
+      char[] childChars,
+      int[] childNodes,
+      int[] epsilonOffsets,
+      int[] epsilonNodes) {
+    this.nodeCount = chars.length;
+    this.chars = chars;
+    this.types = types;
+    this.wordIds = wordIds;
+    this.wordOffsets = wordOffsets;
+    this.wordChars = wordChars;
+    this.childOffsets = childOffsets;
+    this.childChars = childChars;
+    this.childNodes = childNodes;
+    this.epsilonOffsets = epsilonOffsets;
+    this.epsilonNodes = epsilonNodes;
+  }
+
+  /**
+   * Generates the compact form of the graph. All nodes reachable from the root node with child or
+   * epsilon connections are included. Node ids are assigned in breadth first order.
+   */
+  static CompactCharacterGraph fromGraph(CharacterGraph graph) {
+    Map<Node, Integer> ids = new IdentityHashMap<>();
+    List<Node> nodes = new ArrayList<>();
+    ArrayDeque<Node> queue = new ArrayDeque<>();
+    Node root = graph.getRoot();
+    ids.put(root, 0);
+    nodes.add(root);
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      Node node = queue.poll();
+      for (Node child : node.getImmediateChildNodes()) {
+        enqueue(child, ids, nodes, queue);
+      }
+      if (node.hasEpsilonConnection()) {
+        for (Node e : node.getEpsilonNodes()) {
+          enqueue(e, ids, nodes, queue);
+        }
+      }
+    }
+
+    int n = nodes.size();
+    char[] chars = new char[n];
+    byte[] types = new byte[n];
+    int[] wordIds = new int[n];
+    Map<String, Integer> wordIndexes = new HashMap<>();
+    List<String> words = new ArrayList<>();
+    int[] childOffsets = new int[n + 1];
+    int[] epsilonOffsets = new int[n + 1];
+    int childCount = 0;
+    int epsilonCount = 0;
+    for (int i = 0; i < n; i++) {
+      Node node = nodes.get(i);
+      chars[i] = node.chr;
+      types[i] = (byte) node.getType();
+      if (node.word == null) {
+        wordIds[i] = NO_WORD;
+      } else {
+        Integer id = wordIndexes.get(node.word);
+        if (id == null) {
+          id = words.size();
+          wordIndexes.put(node.word, id);
+          words.add(node.word);
+        }
+        wordIds[i] = id;
+      }
+      childOffsets[i] = childCount;
+      epsilonOffsets[i] = epsilonCount;
+      childCount += node.getImmediateChildNodes().size();
+      epsilonCount += node.hasEpsilonConnection() ? node.getEpsilonNodes().length : 0;
+    }
+    childOffsets[n] = childCount;
+    epsilonOffsets[n] = epsilonCount;
+
+    char[] childChars = new char[childCount];
+    int[] childNodes = new int[childCount];
+    int[] epsilonNodes = new int[epsilonCount];
+    for (int i = 0; i < n; i++) {
+      Node node = nodes.get(i);
+      List<Node> children = node.getImmediateChildNodes();
+      children.sort((a, b) -> Character.compare(a.chr, b.chr));
+      int k = childOffsets[i];
+      for (Node child : children) {
+        childChars[k] = child.chr;
+        childNodes[k] = ids.get(child);
+        k++;
+      }
+      if (node.hasEpsilonConnection()) {
+        k = epsilonOffsets[i];
+        for (Node e : node.getEpsilonNodes()) {
+          epsilonNodes[k++] = ids.get(e);
+        }
+      }
+    }
+    int[] wordOffsets = new int[words.size() + 1];
+    int wordCharCount = 0;
+    for (int i = 0; i < words.size(); i++) {
+      wordOffsets[i] = wordCharCount;
+      wordCharCount += words.get(i).length();
+    }
+    wordOffsets[words.size()] = wordCharCount;
+    char[] wordChars = new char[wordCharCount];
+    for (int i = 0; i < words.size(); i++) {
+      words.get(i).getChars(0, words.get(i).length(), wordChars, wordOffsets[i]);
+    }
+    return new CompactCharacterGraph(
+        chars,
+        types,
+        wordIds,
+        wordOffsets,
+        wordChars,
+        childOffsets,
+        childChars,
+        childNodes,
+        epsilonOffsets,
+        epsilonNodes);
+  }
+
+  /**
+   * Generates a {@link CharacterGraph} with the same nodes and connections.
+   */
+  CharacterGraph toGraph() {
+    CharacterGraph graph = new CharacterGraph();
+    Node[] nodes = new Node[nodeCount];
+    nodes[ROOT] = graph.getRoot();
+    for (int i = 1; i < nodeCount; i++) {
+      nodes[i] = graph.newNode(chars[i], types[i], word(wordIds[i]));
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      for (int k = childOffsets[i]; k < childOffsets[i + 1]; k++) {
+        nodes[i].addChild(nodes[childNodes[k]]);
+      }
+      for (int k = epsilonOffsets[i]; k < epsilonOffsets[i + 1]; k++) {
+        nodes[i].connectEpsilon(nodes[epsilonNodes[k]]);
+      }
+    }
+    return graph;
+  }
+
+  private static void enqueue(Node node, Map<Node, Integer> ids, List<Node> nodes,
+      ArrayDeque<Node> queue) {
+    if (!ids.containsKey(node)) {
+      ids.put(node, nodes.size());
+      nodes.add(node);
+      queue.add(node);
+    }
+  }
+
+  /**
+   * @return immediate child of the node with character c. -1 if it does not exist.
+   */
+  int immediateChild(int node, char c) {
+    int lo = childOffsets[node];
+    int hi = childOffsets[node + 1] - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      char m = childChars[mid];
+      if (m < c) {
+        lo = mid + 1;
+      } else if (m > c) {
+        hi = mid - 1;
+      } else {
+        return childNodes[mid];
+      }
+    }
+    return -1;
+  }
+
+  boolean hasChild(int node, char c) {
+    if (immediateChild(node, c) >= 0) {
+      return true;
+    }
+    for (int i = epsilonOffsets[node]; i < epsilonOffsets[node + 1]; i++) {
+      if (immediateChild(epsilonNodes[i], c) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  String word(int wordId) {
+    if (wordId == NO_WORD) {
+      return null;
+    }
+    int start = wordOffsets[wordId];
+    return new String(wordChars, start, wordOffsets[wordId + 1] - start);
+  }
+
+  /**
+   * Serializes the graph with the given key. Key can be used for checking if a serialized graph is
+   * still valid for a lexicon. See {@link #load(ByteBuffer, long)}
+   */
+  void save(Path path, long key) throws IOException {
+    try (DataOutputStream dos = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      dos.writeLong(key);
+      dos.writeInt(nodeCount);
+      dos.writeInt(wordChars.length);
+      dos.writeInt(wordOffsets.length - 1);
+      dos.writeInt(childNodes.length);
+      dos.writeInt(epsilonNodes.length);
+      for (char c : chars) {
+        dos.writeChar(c);
+      }
+      dos.write(types);
+      writeInts(dos, wordIds);
+      writeInts(dos, wordOffsets);
+      for (char c : wordChars) {
+        dos.writeChar(c);
+      }
+      writeInts(dos, childOffsets);
+      for (char c : childChars) {
+        dos.writeChar(c);
+      }
+      writeInts(dos, childNodes);
+      writeInts(dos, epsilonOffsets);
+      writeInts(dos, epsilonNodes);
+    }
+  }
+
+  private static void writeInts(DataOutputStream dos, int[] values) throws IOException {
+    for (int value : values) {
+      dos.writeInt(value);
+    }
+  }
+
+  /**
+   * Loads a graph serialized with {@link #save(Path, long)}. Arrays are copied in bulk from the
+   * buffer to the heap, loaded graph does not refer to the buffer.
+   *
+   * @param key expected key of the graph.
+   * @return loaded graph or null if key of the serialized graph is different.
+   * @throws IllegalArgumentException if data is not a serialized graph.
+   */
+  static CompactCharacterGraph load(ByteBuffer buffer, long key) {
+    ByteBuffer b = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    int magic = b.getInt();
+    int version = b.getInt();
+    if (magic != MAGIC || version != VERSION) {
+      throw new IllegalArgumentException(String.format(
+          "Not a character graph or unsupported version. Magic = %x, version = %d",
+          magic, version));
+    }
+    if (b.getLong() != key) {
+      return null;
+    }
+    int nodeCount = b.getInt();
+    int wordCharCount = b.getInt();
+    int wordCount = b.getInt();
+    int childCount = b.getInt();
+    int epsilonCount = b.getInt();
+    char[] chars = readChars(b, nodeCount);
+    byte[] types = new byte[nodeCount];
+    b.get(types);
+    int[] wordIds = readInts(b, nodeCount);
+    int[] wordOffsets = readInts(b, wordCount + 1);
+    char[] wordChars = readChars(b, wordCharCount);
+    int[] childOffsets = readInts(b, nodeCount + 1);
+    char[] childChars = readChars(b, childCount);
+    int[] childNodes = readInts(b, childCount);
+    int[] epsilonOffsets = readInts(b, nodeCount + 1);
+    int[] epsilonNodes = readInts(b, epsilonCount);
+    return new CompactCharacterGraph(
+        chars,
+        types,
+        wordIds,
+        wordOffsets,
+        wordChars,
+        childOffsets,
+        childChars,
+        childNodes,
+        epsilonOffsets,
+        epsilonNodes);
+  }
+
+  /**
+   * Loads a graph from a file. See {@link #load(ByteBuffer, long)}
+   */
+  static CompactCharacterGraph load(Path path, long key) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return load(channel.map(MapMode.READ_ONLY, 0, channel.size()), key);
+    }
+  }
+
+  private static char[] readChars(ByteBuffer b, int count) {
+    char[] result = new char[count];
+    b.asCharBuffer().get(result);
+    b.position(b.position() + count * 2);
+    return result;
+  }
+
+  private static int[] readInts(ByteBuffer b, int count) {
+    int[] result = new int[count];
+    b.asIntBuffer().get(result);
+    b.position(b.position() + count * 4);
+    return result;
+  }
+
+  /**
+   * Holds the state of a single decoding operation. It is not thread safe but it can be reused for
+   * many decoding operations. Hypotheses of the current and next generations are kept in parallel
+   * primitive arrays, duplicate hypotheses are eliminated using an open addressing table with
+   * (node, index, penalty, word, ending) keys.
+   */
+  static final class Search {
+
+    final CompactCharacterGraph graph;
+
+    private Generation current = new Generation(64);
+    private Generation next = new Generation(64);
+
+    // open addressing table for next generation. Contains hypothesis index + 1.
+    // A slot is valid only if its stamp is equal to current stamp.
+    private int[] table = new int[256];
+    private int[] stamps = new int[256];
+    private int stamp = 1;
+
+    private FloatValueMap<String> finished;
+    private String input;
+    private int inputLength;
+    private CharMatcher matcher;
+    private float maxPenalty;
+    private boolean checkNearKeySubstitution;
+    private Map<Character, String> nearKeyMap;
+
+    // single character buffer used when there is no matcher.
+    private final char[] single = new char[1];
+
+    Search(CompactCharacterGraph graph) {
+      this.graph = graph;
+    }
+
+    FloatValueMap<String> decode(
+        String input,
+        CharMatcher matcher,
+        float maxPenalty,
+        boolean checkNearKeySubstitution,
+        Map<Character, String> nearKeyMap) {
+      this.finished = new FloatValueMap<>(8);
+      this.input = input;
+      this.inputLength = input.length();
+      this.matcher = matcher;
+      this.maxPenalty = maxPenalty;
+      this.checkNearKeySubstitution = checkNearKeySubstitution;
+      this.nearKeyMap = nearKeyMap;
+
+      current.size = 0;
+      newGeneration();
+      expand(ROOT, -1, 0f, NO_WORD, NO_WORD);
+      swap();
+      while (current.size > 0) {
+        newGeneration();
+        for (int i = 0; i < current.size; i++) {
+          expand(current.nodes[i], current.indexes[i], current.penalties[i],
+              current.words[i], current.endings[i]);
+        }
+        swap();
+      }
+      FloatValueMap<String> result = finished;
+      this.finished = null;
+      this.input = null;
+      return result;
+    }
+
+    private void newGeneration() {
+      next.size = 0;
+      stamp++;
+      if (stamp == Integer.MAX_VALUE) {
+        Arrays.fill(stamps, 0);
+        stamp = 1;
+      }
+    }
+
+    private void swap() {
+      Generation tmp = current;
+      current = next;
+      next = tmp;
+    }
+
+    private void expand(int node, int charIndex, float penalty, int word, int ending) {
+      CompactCharacterGraph g = graph;
+      int nextIndex = charIndex + 1;
+      char nextChar = nextIndex < inputLength ? input.charAt(nextIndex) : 0;
+
+      // no-error. Hypothesis moves forward to the exact matching child nodes.
+      if (nextIndex < inputLength) {
+        char[] cc = characters(nextChar);
+        for (char c : cc) {
+          int child = g.immediateChild(node, c);
+          if (child >= 0) {
+            moveForwardNoError(child, nextIndex, penalty, word, ending);
+          }
+          for (int e = g.epsilonOffsets[node]; e < g.epsilonOffsets[node + 1]; e++) {
+            child = g.immediateChild(g.epsilonNodes[e], c);
+            if (child >= 0) {
+              moveForwardNoError(child, nextIndex, penalty, word, ending);
+            }
+          }
+        }
+      } else if (g.wordIds[node] != NO_WORD) {
+        addFinished(penalty, word, ending);
+      }
+
+      // we don't need to explore further if we reached to max penalty
+      if (penalty >= maxPenalty) {
+        return;
+      }
+
+      if (nextIndex < inputLength) {
+        // substitution
+        substitute(node, nextIndex, nextChar, penalty, word, ending);
+        for (int e = g.epsilonOffsets[node]; e < g.epsilonOffsets[node + 1]; e++) {
+          substitute(g.epsilonNodes[e], nextIndex, nextChar, penalty, word, ending);
+        }
+      }
+
+      if (penalty + CharacterGraphDecoder.DELETION_PENALTY > maxPenalty) {
+        return;
+      }
+
+      // deletion
+      add(node, nextIndex, penalty + CharacterGraphDecoder.DELETION_PENALTY, word, ending);
+
+      // insertion
+      insert(node, charIndex, penalty, word, ending);
+      for (int e = g.epsilonOffsets[node]; e < g.epsilonOffsets[node + 1]; e++) {
+        insert(g.epsilonNodes[e], charIndex, penalty, word, ending);
+      }
+
+      // transposition
+      if (inputLength > 2 && nextIndex < inputLength - 1) {
+        char transpose = input.charAt(nextIndex + 1);
+        char[] tt = matcher == null ? new char[]{transpose} : matcher.matches(transpose);
+        char[] cc = characters(nextChar);
+        float p = penalty + CharacterGraphDecoder.TRANSPOSITION_PENALTY;
+        for (char t : tt) {
+          transpose(node, node, t, cc, nextIndex + 1, p, word, ending);
+          for (int e = g.epsilonOffsets[node]; e < g.epsilonOffsets[node + 1]; e++) {
+            transpose(node, g.epsilonNodes[e], t, cc, nextIndex + 1, p, word, ending);
+          }
+        }
+      }
+    }
+
+    private char[] characters(char c) {
+      if (matcher == null) {
+        single[0] = c;
+        return single;
+      }
+      return matcher.matches(c);
+    }
+
+    private void moveForwardNoError(int child, int nextIndex, float penalty, int word,
+        int ending) {
+      int w = wordOf(child, word);
+      int e = endingOf(child, ending);
+      add(child, nextIndex, penalty, w, e);
+      if (nextIndex >= inputLength - 1 && graph.wordIds[child] != NO_WORD) {
+        addFinished(penalty, w, e);
+      }
+    }
+
+    // applies substitution to the immediate children of the `parent`
+    private void substitute(int parent, int nextIndex, char nextChar, float penalty, int word,
+        int ending) {
+      CompactCharacterGraph g = graph;
+      for (int k = g.childOffsets[parent]; k < g.childOffsets[parent + 1]; k++) {
+        int child = g.childNodes[k];
+        char chr = g.childChars[k];
+        float p;
+        if (checkNearKeySubstitution) {
+          if (chr == nextChar) {
+            continue;
+          }
+          String nearCharactersString = nearKeyMap.get(chr);
+          if (nearCharactersString != null && nearCharactersString.indexOf(nextChar) >= 0) {
+            p = CharacterGraphDecoder.NEAR_KEY_SUBSTITUTION_PENALTY;
+          } else {
+            p = CharacterGraphDecoder.SUBSTITUTION_PENALTY;
+          }
+        } else {
+          p = CharacterGraphDecoder.SUBSTITUTION_PENALTY;
+        }
+        if (penalty + p > maxPenalty) {
+          continue;
+        }
+        int w = wordOf(child, word);
+        int e = endingOf(child, ending);
+        if (nextIndex == inputLength - 1) {
+          if (g.wordIds[child] != NO_WORD) {
+            addFinished(penalty + p, w, e);
+          }
+        } else {
+          add(child, nextIndex, penalty + p, w, e);
+        }
+      }
+    }
+
+    // applies insertion to the immediate children of the `parent`
+    private void insert(int parent, int charIndex, float penalty, int word, int ending) {
+      CompactCharacterGraph g = graph;
+      float p = penalty + CharacterGraphDecoder.INSERTION_PENALTY;
+      for (int k = g.childOffsets[parent]; k < g.childOffsets[parent + 1]; k++) {
+        int child = g.childNodes[k];
+        add(child, charIndex, p, wordOf(child, word), endingOf(child, ending));
+      }
+    }
+
+    // transposition through `parent`s immediate child with char t. `node` is the hypothesis node.
+    private void transpose(int node, int parent, char t, char[] cc, int index, float penalty,
+        int word, int ending) {
+      CompactCharacterGraph g = graph;
+      int nextNode = g.immediateChild(parent, t);
+      if (nextNode < 0) {
+        return;
+      }
+      for (char c : cc) {
+        if (!g.hasChild(node, t) || !g.hasChild(nextNode, c)) {
+          continue;
+        }
+        int n = g.immediateChild(nextNode, c);
+        if (n >= 0) {
+          add(n, index, penalty, wordOf(n, word), endingOf(n, ending));
+        }
+        for (int e = g.epsilonOffsets[nextNode]; e < g.epsilonOffsets[nextNode + 1]; e++) {
+          n = g.immediateChild(g.epsilonNodes[e], c);
+          if (n >= 0) {
+            add(n, index, penalty, wordOf(n, word), endingOf(n, ending));
+          }
+        }
+      }
+    }
+
+    private int wordOf(int node, int word) {
+      int id = graph.wordIds[node];
+      return id != NO_WORD && graph.types[node] == Node.TYPE_WORD ? id : word;
+    }
+
+    private int endingOf(int node, int ending) {
+      int id = graph.wordIds[node];
+      return id != NO_WORD && graph.types[node] == Node.TYPE_ENDING ? id : ending;
+    }
+
+    private void addFinished(float penalty, int word, int ending) {
+      String w = graph.word(word);
+      String e = graph.word(ending);
+      String content = (w == null ? "" : w) + (e == null ? "" : e);
+      if (!finished.contains(content) || finished.get(content) > penalty) {
+        finished.set(content, penalty);
+      }
+    }
+
+    // adds a hypothesis to next generation if an identical one does not exist.
+    private void add(int node, int index, float penalty, int word, int ending) {
+      if (next.size * 2 >= table.length) {
+        expandTable();
+      }
+      int penaltyBits = Float.floatToIntBits(penalty);
+      int mask = table.length - 1;
+      int slot = hash(node, index, penaltyBits, word, ending) & mask;
+      Generation n = next;
+      while (stamps[slot] == stamp) {
+        int i = table[slot] - 1;
+        if (n.nodes[i] == node
+            && n.indexes[i] == index
+            && Float.floatToIntBits(n.penalties[i]) == penaltyBits
+            && n.words[i] == word
+            && n.endings[i] == ending) {
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+      int i = n.add(node, index, penalty, word, ending);
+      table[slot] = i + 1;
+      stamps[slot] = stamp;
+    }
+
+    private void expandTable() {
+      int size = table.length * 2;
+      table = new int[size];
+      stamps = new int[size];
+      stamp = 1;
+      int mask = size - 1;
+      Generation n = next;
+      for (int i = 0; i < n.size; i++) {
+        int slot = hash(n.nodes[i], n.indexes[i], Float.floatToIntBits(n.penalties[i]),
+            n.words[i], n.endings[i]) & mask;
+        while (stamps[slot] == stamp) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = i + 1;
+        stamps[slot] = stamp;
+      }
+    }
+
+    private static int hash(int node, int index, int penaltyBits, int word, int ending) {
+      int h = node;
+      h = 31 * h + index;
+      h = 31 * h + penaltyBits;
+      h = 31 * h + word;
+      h = 31 * h + ending;
+      return h ^ (h >>> 16);
+    }
+  }
+
+  private static final class Generation {
+
+    int[] nodes;
+    int[] indexes;
+    float[] penalties;
+    int[] words;
+    int[] endings;
+    int size;
+
+    Generation(int capacity) {
+      nodes = new int[capacity];
+      indexes = new int[capacity];
+      penalties = new float[capacity];
+      words = new int[capacity];
+      endings = new int[capacity];
+    }
+
+    int add(int node, int index, float penalty, int word, int ending) {
+      if (size == nodes.length) {
+        int capacity = size * 2;
+        nodes = Arrays.copyOf(nodes, capacity);
+        indexes = Arrays.copyOf(indexes, capacity);
+        penalties = Arrays.copyOf(penalties, capacity);
+        words = Arrays.copyOf(words, capacity);
+        endings = Arrays.copyOf(endings, capacity);
+      }
+      nodes[size] = node;
+      indexes[size] = index;
+      penalties[size] = penalty;
+      words[size] = word;
+      endings[size] = ending;
+      return size++;
+    }
+  }
+}
@@ -0,0 +1,259 @@
+package zemberek.normalization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import zemberek.core.hash.MultiLevelMphf;
+import zemberek.core.hash.StringHashKeyProvider;
+
+/**
+ * Immutable string to string list lookup table that can be memory mapped. Keys are indexed with a
+ * minimal perfect hash function. Keys and values are stored as packed UTF-8 bytes in a single
+ * buffer. Only the perfect hash function is loaded to heap, so loading is fast and pages of a
+ * mapped file can be shared between processes.
+ * <p>
+ * Data format:
+ * <pre>
+ * int magic, int version, long source key, int key count
+ * int perfect hash data length, byte[] perfect hash data
+ * int[key count + 1] entry offsets, relative to entry data start
+ * entry data. For every entry, ordered by perfect hash value:
+ *   [short key length][key bytes][short value count]([short value length][value bytes])*
+ * </pre>
+ * Source key can be used for checking if a saved table is generated from the current sources.
+ * Instances are thread safe.
+ */
+public class CompactLookupTable {
+
+  static final int MAGIC = 0x5A4E4C54;
+  static final int VERSION = 2;
+  private static final int MAX_LENGTH = 0xffff;
+
+  private final ByteBuffer buffer;
+  private final MultiLevelMphf mphf;
+  private final long sourceKey;
+  private final int keyCount;
+  private final int offsetsStart;
+  private final int entriesStart;
+
+  private CompactLookupTable(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Data is not a compact lookup table.");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported lookup table version " + version
+          + ". Expected version is " + VERSION);
+    }
+    this.sourceKey = buffer.getLong(8);
+    this.keyCount = buffer.getInt(16);
+    int mphfLength = buffer.getInt(20);
+    if (keyCount > 0) {
+      byte[] mphfBytes = new byte[mphfLength];
+      ByteBuffer b = buffer.duplicate();
+      b.position(24);
+      b.get(mphfBytes);
+      this.mphf = MultiLevelMphf.deserialize(
+          new DataInputStream(new ByteArrayInputStream(mphfBytes)));
+    } else {
+      this.mphf = null;
+    }
+    this.offsetsStart = 24 + mphfLength;
+    this.entriesStart = offsetsStart + (keyCount + 1) * 4;
+  }
+
+  /**
+   * Creates a table from a map. Duplicate values of a key are removed, order of the values is
+   * preserved.
+   */
+  public static CompactLookupTable fromMap(Map<String, ? extends Collection<String>> map) {
+    return fromMap(map, 0);
+  }
+
+  /**
+   * Creates a table from a map with a key that identifies the sources of the map. See {@link
+   * #fromMap(Map)}
+   */
+  public static CompactLookupTable fromMap(
+      Map<String, ? extends Collection<String>> map,
+      long sourceKey) {
+    try {
+      return new CompactLookupTable(ByteBuffer.wrap(serialize(map, sourceKey)));
+    } catch (IOException e) {
+      // cannot happen, data is in memory.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Loads a table by memory mapping the file.
+   */
+  public static CompactLookupTable load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new CompactLookupTable(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public void save(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer b = buffer.duplicate();
+      b.position(0);
+      while (b.hasRemaining()) {
+        channel.write(b);
+      }
+    }
+  }
+
+  private static byte[] serialize(Map<String, ? extends Collection<String>> map, long sourceKey)
+      throws IOException {
+    List<String> keys = new ArrayList<>(map.keySet());
+    int n = keys.size();
+    byte[][] entries = new byte[n][];
+    byte[] mphfBytes = new byte[0];
+    if (n > 0) {
+      MultiLevelMphf mphf = MultiLevelMphf.generate(new StringHashKeyProvider(keys));
+      ByteArrayOutputStream mphfOut = new ByteArrayOutputStream();
+      mphf.serialize(mphfOut);
+      mphfBytes = mphfOut.toByteArray();
+      for (String key : keys) {
+        entries[mphf.get(key)] = encodeEntry(key, map.get(key));
+      }
+    }
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bos);
+    dos.writeInt(MAGIC);
+    dos.writeInt(VERSION);
+    dos.writeLong(sourceKey);
+    dos.writeInt(n);
+    dos.writeInt(mphfBytes.length);
+    dos.write(mphfBytes);
+    int offset = 0;
+    for (byte[] entry : entries) {
+      dos.writeInt(offset);
+      offset += entry.length;
+    }
+    dos.writeInt(offset);
+    for (byte[] entry : entries) {
+      dos.write(entry);
+    }
+    return bos.toByteArray();
+  }
+
+  private static byte[] encodeEntry(String key, Collection<String> values) throws IOException {
+    Set<String> unique = new LinkedHashSet<>(values);
+    checkLength(unique.size(), "Value count of " + key);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bos);
+    writeString(dos, key);
+    dos.writeShort(unique.size());
+    for (String value : unique) {
+      writeString(dos, value);
+    }
+    return bos.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream dos, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    checkLength(bytes.length, "Length of " + s);
+    dos.writeShort(bytes.length);
+    dos.write(bytes);
+  }
+
+  private static void checkLength(int length, String name) {
+    if (length > MAX_LENGTH) {
+      throw new IllegalArgumentException(name + " cannot be larger than " + MAX_LENGTH
+          + ". But it is " + length);
+    }
+  }
+
+  public int size() {
+    return keyCount;
+  }
+
+  /**
+   * @return key of the sources the table is generated from. 0 if it is not set.
+   */
+  public long getSourceKey() {
+    return sourceKey;
+  }
+
+  /**
+   * @return total size of the table data in bytes.
+   */
+  public int sizeInBytes() {
+    return buffer.capacity();
+  }
+
+  /**
+   * @return start of the entry of the key in buffer or -1 if key does not exist.
+   */
+  private int locate(String key) {
+    if (keyCount == 0) {
+      return -1;
+    }
+    int slot = mphf.get(key);
+    int start = entriesStart + buffer.getInt(offsetsStart + slot * 4);
+    // perfect hash function returns a slot for any input, so key is compared.
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    if (readLength(start) != bytes.length) {
+      return -1;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (buffer.get(start + 2 + i) != bytes[i]) {
+        return -1;
+      }
+    }
+    return start + 2 + bytes.length;
+  }
+
+  public boolean containsKey(String key) {
+    return locate(key) >= 0;
+  }
+
+  /**
+   * @return values of the key. Empty list if key does not exist.
+   */
+  public List<String> get(String key) {
+    int position = locate(key);
+    if (position < 0) {
+      return Collections.emptyList();
+    }
+    int count = readLength(position);
+    position += 2;
+    List<String> result = new ArrayList<>(count);
+    ByteBuffer b = buffer.duplicate();
+    for (int i = 0; i < count; i++) {
+      int length = readLength(position);
+      byte[] bytes = new byte[length];
+      b.position(position + 2);
+      b.get(bytes);
+      result.add(new String(bytes, StandardCharsets.UTF_8));
+      position += 2 + length;
+    }
+    return result;
+  }
+
+  private int readLength(int position) {
+    return buffer.getShort(position) & 0xffff;
+  }
+}
@@ -0,0 +1,417 @@
+package zemberek.normalization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import zemberek.core.ScoredItem;
+import zemberek.core.collections.FloatValueMap;
+import zemberek.core.turkish.TurkishAlphabet;
+import zemberek.normalization.CharacterGraphDecoder.CharMatcher;
+
+/**
+ * Suggestion generator that walks a minimized word graph (DAWG) depth first and simulates a
+ * Levenshtein automaton on the input with one dynamic programming row per graph depth. A branch
+ * is abandoned as soon as all values in its row exceed the maximum penalty, so the amount of work
+ * is bounded by the graph nodes within that edit distance instead of the number of hypotheses
+ * generated by breadth first search.
+ * <p>
+ * Insertion, deletion, substitution and transposition costs are same with {@link
+ * CharacterGraphDecoder}. Substituting a near key character or a character with its diacritic
+ * counterpart (such as `s` and `ş`) costs {@link CharacterGraphDecoder#NEAR_KEY_SUBSTITUTION_PENALTY}.
+ * <p>
+ * Because words are produced from the graph paths instead of node labels, the graph is minimized
+ * by merging nodes with equivalent suffix structures. Instances are immutable and thread safe.
+ */
+public class LevenshteinSuggester implements SuggestionGenerator {
+
+  // Diacritic counterparts of characters, in both directions. Such as s->ş and ş->s
+  private static final Map<Character, String> DIACRITIC_COUNTERPARTS = new HashMap<>();
+
+  static {
+    CharMatcher matcher = CharacterGraphDecoder.DIACRITICS_IGNORING_MATCHER;
+    String letters = TurkishAlphabet.INSTANCE.getAllLetters();
+    for (int i = 0; i < letters.length(); i++) {
+      char c = letters.charAt(i);
+      for (char m : matcher.matches(c)) {
+        if (m != c) {
+          addCounterpart(c, m);
+          addCounterpart(m, c);
+        }
+      }
+    }
+  }
+
+  private static void addCounterpart(char c, char counterpart) {
+    String s = DIACRITIC_COUNTERPARTS.getOrDefault(c, "");
+    if (s.indexOf(counterpart) < 0) {
+      DIACRITIC_COUNTERPARTS.put(c, s + counterpart);
+    }
+  }
+
+  public final float maxPenalty;
+  // Cells of the distance rows that are further than this to the diagonal exceed max penalty,
+  // because length difference can only be compensated with insertions and deletions.
+  private final int band;
+  // For an input character, graph characters that can substitute it with near key penalty.
+  private final Map<Character, String> nearSubstitutions = new HashMap<>();
+
+  private final int root;
+  private final boolean[] finals;
+  private final int[] childOffsets;
+  private final char[] childChars;
+  private final int[] childNodes;
+  private final int[] epsilonOffsets;
+  private final int[] epsilonNodes;
+
+  private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+  public LevenshteinSuggester(CharacterGraph graph, float maxPenalty) {
+    this(graph, maxPenalty, Collections.emptyMap());
+  }
+
+  public LevenshteinSuggester(
+      CharacterGraph graph,
+      float maxPenalty,
+      Map<Character, String> nearKeyMap) {
+    this(CompactCharacterGraph.fromGraph(graph), maxPenalty, nearKeyMap);
+  }
+
+  LevenshteinSuggester(
+      CompactCharacterGraph g,
+      float maxPenalty,
+      Map<Character, String> nearKeyMap) {
+    this.maxPenalty = maxPenalty;
+    this.band = (int) (maxPenalty / Math.min(
+        CharacterGraphDecoder.INSERTION_PENALTY, CharacterGraphDecoder.DELETION_PENALTY));
+    for (Map.Entry<Character, String> entry : nearKeyMap.entrySet()) {
+      for (char inputChar : entry.getValue().toCharArray()) {
+        addNearSubstitution(inputChar, entry.getKey());
+      }
+    }
+    for (Map.Entry<Character, String> entry : DIACRITIC_COUNTERPARTS.entrySet()) {
+      for (char graphChar : entry.getValue().toCharArray()) {
+        addNearSubstitution(entry.getKey(), graphChar);
+      }
+    }
+
+    Minimizer minimizer = new Minimizer(g);
+    this.root = minimizer.canonical(CompactCharacterGraph.ROOT);
+    int n = minimizer.signatures.size();
+
+    this.finals = new boolean[n];
+    this.childOffsets = new int[n + 1];
+    this.epsilonOffsets = new int[n + 1];
+    int childCount = 0;
+    int epsilonCount = 0;
+    for (int i = 0; i < n; i++) {
+      int[] s = minimizer.representatives[i];
+      childOffsets[i] = childCount;
+      epsilonOffsets[i] = epsilonCount;
+      finals[i] = s[0] == 1;
+      childCount += s[1];
+      epsilonCount += s[2 + s[1] * 2];
+    }
+    childOffsets[n] = childCount;
+    epsilonOffsets[n] = epsilonCount;
+    this.childChars = new char[childCount];
+    this.childNodes = new int[childCount];
+    this.epsilonNodes = new int[epsilonCount];
+    for (int i = 0; i < n; i++) {
+      int[] s = minimizer.representatives[i];
+      int k = childOffsets[i];
+      for (int j = 0; j < s[1]; j++) {
+        childChars[k] = (char) s[2 + j * 2];
+        childNodes[k] = s[3 + j * 2];
+        k++;
+      }
+      int epsilonStart = 3 + s[1] * 2;
+      k = epsilonOffsets[i];
+      for (int j = epsilonStart; j < s.length; j++) {
+        epsilonNodes[k++] = s[j];
+      }
+    }
+  }
+
+  private void addNearSubstitution(char inputChar, char graphChar) {
+    String s = nearSubstitutions.getOrDefault(inputChar, "");
+    if (s.indexOf(graphChar) < 0) {
+      nearSubstitutions.put(inputChar, s + graphChar);
+    }
+  }
+
+  /**
+   * @return amount of nodes in the minimized graph.
+   */
+  public int nodeCount() {
+    return finals.length;
+  }
+
+  /**
+   * Returns all words within maximum penalty of the input with their minimum penalties.
+   */
+  public FloatValueMap<String> decode(String input, CharMatcher matcher) {
+    return searches.get().decode(input, matcher);
+  }
+
+  public FloatValueMap<String> decode(String input) {
+    return decode(input, null);
+  }
+
+  public List<String> getSuggestions(String input) {
+    return decode(input, null).getKeyList();
+  }
+
+  @Override
+  public List<String> getSuggestions(String input, CharMatcher matcher) {
+    return decode(input, matcher).getKeyList();
+  }
+
+  /**
+   * Returns suggestions sorted by penalty.
+   */
+  public List<ScoredItem<String>> getSuggestionsWithScores(String input, CharMatcher matcher) {
+    FloatValueMap<String> results = decode(input, matcher);
+    List<ScoredItem<String>> res = new ArrayList<>(results.size());
+    for (String result : results) {
+      res.add(new ScoredItem<>(result, results.get(result)));
+    }
+    res.sort((a, b) -> Float.compare(a.score, b.score));
+    return res;
+  }
+
+  private static float substitutionPenalty(char graphChar, char inputChar, char[] matches,
+      String nearSubstitutions) {
+    if (graphChar == inputChar || contains(matches, graphChar)) {
+      return 0;
+    }
+    if (nearSubstitutions != null && nearSubstitutions.indexOf(graphChar) >= 0) {
+      return CharacterGraphDecoder.NEAR_KEY_SUBSTITUTION_PENALTY;
+    }
+    return CharacterGraphDecoder.SUBSTITUTION_PENALTY;
+  }
+
+  private static boolean contains(char[] chars, char c) {
+    if (chars == null) {
+      return false;
+    }
+    for (char ch : chars) {
+      if (ch == c) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matches(char graphChar, char inputChar, char[] matches) {
+    return graphChar == inputChar || contains(matches, graphChar);
+  }
+
+  /**
+   * State of a single search. Rows and path buffers are reused between searches of a thread.
+   */
+  private class Search {
+
+    float[][] rows = new float[32][];
+    char[] path = new char[32];
+    String input;
+    // characters matching each input character. Null if there is no matcher.
+    char[][] matches;
+    // near key and diacritic substitutions of each input character.
+    String[] nearSubstitutions;
+    FloatValueMap<String> results;
+
+    FloatValueMap<String> decode(String input, CharMatcher matcher) {
+      this.input = input;
+      this.results = new FloatValueMap<>(8);
+      int n = input.length();
+      this.matches = new char[n][];
+      this.nearSubstitutions = new String[n];
+      for (int i = 0; i < n; i++) {
+        char c = input.charAt(i);
+        if (matcher != null) {
+          matches[i] = matcher.matches(c);
+        }
+        nearSubstitutions[i] = LevenshteinSuggester.this.nearSubstitutions.get(c);
+      }
+      float[] first = row(0);
+      for (int i = 0; i <= n; i++) {
+        first[i] = i * CharacterGraphDecoder.DELETION_PENALTY;
+      }
+      expand(root, 0);
+      FloatValueMap<String> r = results;
+      this.results = null;
+      this.input = null;
+      return r;
+    }
+
+    private float[] row(int depth) {
+      if (depth >= rows.length) {
+        rows = Arrays.copyOf(rows, rows.length * 2);
+        path = Arrays.copyOf(path, path.length * 2);
+      }
+      float[] r = rows[depth];
+      if (r == null || r.length < input.length() + 1) {
+        r = new float[input.length() + 1];
+        rows[depth] = r;
+      }
+      return r;
+    }
+
+    private void expand(int node, int depth) {
+      for (int k = childOffsets[node]; k < childOffsets[node + 1]; k++) {
+        visit(childChars[k], childNodes[k], depth + 1);
+      }
+      for (int e = epsilonOffsets[node]; e < epsilonOffsets[node + 1]; e++) {
+        int epsilonNode = epsilonNodes[e];
+        for (int k = childOffsets[epsilonNode]; k < childOffsets[epsilonNode + 1]; k++) {
+          visit(childChars[k], childNodes[k], depth + 1);
+        }
+      }
+    }
+
+    private void visit(char c, int node, int depth) {
+      float[] current = row(depth);
+      float[] previous = rows[depth - 1];
+      path[depth - 1] = c;
+      int n = input.length();
+      // only the cells within the band around diagonal are calculated.
+      int lo = Math.max(1, depth - band);
+      int hi = Math.min(n, depth + band);
+      if (lo > hi) {
+        // path is longer than input more than the band allows.
+        return;
+      }
+      float min = Float.MAX_VALUE;
+      if (lo == 1) {
+        current[0] = previous[0] + CharacterGraphDecoder.INSERTION_PENALTY;
+        min = current[0];
+      } else {
+        current[lo - 1] = Float.MAX_VALUE;
+      }
+      for (int i = lo; i <= hi; i++) {
+        char inputChar = input.charAt(i - 1);
+        float v = previous[i - 1] + substitutionPenalty(
+            c, inputChar, matches[i - 1], nearSubstitutions[i - 1]);
+        v = Math.min(v, previous[i] + CharacterGraphDecoder.INSERTION_PENALTY);
+        v = Math.min(v, current[i - 1] + CharacterGraphDecoder.DELETION_PENALTY);
+        if (depth > 1 && i > 1
+            && matches(c, input.charAt(i - 2), matches[i - 2])
+            && matches(path[depth - 2], inputChar, matches[i - 1])) {
+          v = Math.min(v,
+              rows[depth - 2][i - 2] + CharacterGraphDecoder.TRANSPOSITION_PENALTY);
+        }
+        current[i] = v;
+        if (v < min) {
+          min = v;
+        }
+      }
+      if (hi < n) {
+        current[hi + 1] = Float.MAX_VALUE;
+      }
+      if (finals[node] && hi == n && current[n] <= maxPenalty) {
+        String word = new String(path, 0, depth);
+        if (!results.contains(word) || results.get(word) > current[n]) {
+          results.set(word, current[n]);
+        }
+      }
+      // costs are never negative, so no extension of this path can be within the limit.
+      if (min <= maxPenalty) {
+        expand(node, depth);
+      }
+    }
+  }
+
+  /**
+   * Merges nodes with equal finality, outgoing characters, targets and epsilon targets. Graph must
+   * be acyclic.
+   */
+  private static class Minimizer {
+
+    static final int NOT_VISITED = -1;
+    static final int VISITING = -2;
+
+    final CompactCharacterGraph graph;
+    final int[] canonicalIds;
+    final Map<Signature, Integer> signatures = new HashMap<>();
+    int[][] representatives = new int[1024][];
+
+    Minimizer(CompactCharacterGraph graph) {
+      this.graph = graph;
+      this.canonicalIds = new int[graph.nodeCount];
+      Arrays.fill(canonicalIds, NOT_VISITED);
+    }
+
+    int canonical(int node) {
+      int id = canonicalIds[node];
+      if (id == VISITING) {
+        throw new IllegalStateException("Graph contains a cycle. It cannot be minimized.");
+      }
+      if (id != NOT_VISITED) {
+        return id;
+      }
+      canonicalIds[node] = VISITING;
+      int childStart = graph.childOffsets[node];
+      int childCount = graph.childOffsets[node + 1] - childStart;
+      int epsilonStart = graph.epsilonOffsets[node];
+      int epsilonCount = graph.epsilonOffsets[node + 1] - epsilonStart;
+      // [final, child count, (char, node)*, epsilon count, epsilon node*]
+      int[] s = new int[3 + childCount * 2 + epsilonCount];
+      s[0] = graph.wordIds[node] == CompactCharacterGraph.NO_WORD ? 0 : 1;
+      s[1] = childCount;
+      for (int i = 0; i < childCount; i++) {
+        s[2 + i * 2] = graph.childChars[childStart + i];
+        s[3 + i * 2] = canonical(graph.childNodes[childStart + i]);
+      }
+      int e = 2 + childCount * 2;
+      s[e] = epsilonCount;
+      for (int i = 0; i < epsilonCount; i++) {
+        s[e + 1 + i] = canonical(graph.epsilonNodes[epsilonStart + i]);
+      }
+      Arrays.sort(s, e + 1, s.length);
+
+      Signature signature = new Signature(s);
+      Integer existing = signatures.get(signature);
+      if (existing == null) {
+        existing = signatures.size();
+        signatures.put(signature, existing);
+        if (existing == representatives.length) {
+          representatives = Arrays.copyOf(representatives, existing * 2);
+        }
+        representatives[existing] = s;
+      }
+      canonicalIds[node] = existing;
+      return existing;
+    }
+  }
+
+  private static class Signature {
+
+    final int[] data;
+    final int hash;
+
+    Signature(int[] data) {
+      this.data = data;
+      this.hash = Arrays.hashCode(data);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Signature that = (Signature) o;
+      return hash == that.hash && Arrays.equals(data, that.data);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -135,6 +135,10 @@ class Node {
     return epsilonNodes;
   }
 
+  void addChild(Node node) {
+    nodes.put(node.chr, node);
+  }
+
   Node addChild(int index, char c, int type) {
     Node node = nodes.get(c);
     if (node == null) {
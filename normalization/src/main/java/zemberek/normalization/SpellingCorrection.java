@@ -0,0 +1,51 @@
+package zemberek.normalization;
+
+import java.util.List;
+
+/**
+ * A misspelled word in a text and its ranked suggestions.
+ */
+public class SpellingCorrection {
+
+  private final String word;
+  // start offset of the word in the text, inclusive.
+  private final int start;
+  // end offset of the word in the text, exclusive.
+  private final int end;
+  private final List<String> suggestions;
+
+  public SpellingCorrection(String word, int start, int end, List<String> suggestions) {
+    this.word = word;
+    this.start = start;
+    this.end = end;
+    this.suggestions = suggestions;
+  }
+
+  public String getWord() {
+    return word;
+  }
+
+  public int getStart() {
+    return start;
+  }
+
+  public int getEnd() {
+    return end;
+  }
+
+  public List<String> getSuggestions() {
+    return suggestions;
+  }
+
+  /**
+   * @return best suggestion or null if there is no suggestion.
+   */
+  public String getBest() {
+    return suggestions.isEmpty() ? null : suggestions.get(0);
+  }
+
+  @Override
+  public String toString() {
+    return word + "[" + start + "-" + end + "] " + suggestions;
+  }
+}
@@ -1,9 +1,16 @@
 package zemberek.normalization;
 
+import com.google.common.io.Resources;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Set;
 import zemberek.core.collections.Histogram;
+import zemberek.core.logging.Log;
 import zemberek.core.text.TextIO;
 import zemberek.core.turkish.PrimaryPos;
 import zemberek.core.turkish.StemAndEnding;
@@ -21,20 +28,20 @@ import zemberek.morphology.morphotactics.StemTransition;
  */
 public class StemEndingGraph {
 
+  /**
+   * Class path resource for the serialized graph. It is not included in the distribution. If it is
+   * added to the class path and it is generated from the same lexicon, it is loaded instead of
+   * building the graph. It can be generated with {@link #serialize(TurkishMorphology, Path)}.
+   */
+  public static final String SERIALIZED_GRAPH_RESOURCE = "/stem-ending-graph.bin";
+
   CharacterGraph stemGraph;
   private CharacterGraph endingGraph;
 
   private TurkishMorphology morphology;
 
   public StemEndingGraph(TurkishMorphology morphology) throws IOException {
-    this.morphology = morphology;
-    List<String> endings = TextIO.loadLinesFromResource("endings");
-    this.endingGraph = generateEndingGraph(endings);
-    this.stemGraph = generateStemGraph();
-    Set<Node> stemWordNodes = stemGraph.getAllNodes(n -> n.word != null);
-    for (Node node : stemWordNodes) {
-      node.connectEpsilon(endingGraph.getRoot());
-    }
+    this(morphology, TextIO.loadLinesFromResource("endings"));
   }
 
   StemEndingGraph(TurkishMorphology morphology, List<String> endings) {
@@ -47,6 +54,112 @@ public class StemEndingGraph {
     }
   }
 
+  /**
+   * Builds the stem-ending graph of the morphology and serializes it in compact form to `path`.
+   * Serialized graph contains a key generated from the stem surfaces of the lexicon and the
+   * endings, so it is only used with the same lexicon.
+   */
+  public static void serialize(TurkishMorphology morphology, Path path) throws IOException {
+    List<String> endings = TextIO.loadLinesFromResource("endings");
+    StemEndingGraph graph = new StemEndingGraph(morphology, endings);
+    CompactCharacterGraph compact = CompactCharacterGraph.fromGraph(graph.stemGraph);
+    compact.save(path, lexiconKey(morphology, endings));
+    Log.info("Stem-ending graph with %d nodes is saved to %s", compact.nodeCount, path);
+  }
+
+  /**
+   * Returns the compact stem-ending graph of the morphology. If {@link #SERIALIZED_GRAPH_RESOURCE}
+   * exists and generated for the same lexicon, it is loaded into heap arrays. Otherwise graph is
+   * built from the lexicon and converted to compact form. This resource is not included in the
+   * distribution, so by default the graph is built.
+   */
+  static CompactCharacterGraph loadCompactGraph(TurkishMorphology morphology) throws IOException {
+    List<String> endings = TextIO.loadLinesFromResource("endings");
+    URL resource = StemEndingGraph.class.getResource(SERIALIZED_GRAPH_RESOURCE);
+    if (resource != null) {
+      long key = lexiconKey(morphology, endings);
+      CompactCharacterGraph graph;
+      if (resource.getProtocol().equals("file")) {
+        graph = CompactCharacterGraph.load(toPath(resource), key);
+      } else {
+        // resources in jar files are read as bytes.
+        graph = CompactCharacterGraph.load(ByteBuffer.wrap(Resources.toByteArray(resource)), key);
+      }
+      if (graph != null) {
+        return graph;
+      }
+      Log.info("Serialized stem-ending graph is generated for a different lexicon. "
+          + "Graph will be built.");
+    }
+    StemEndingGraph graph = new StemEndingGraph(morphology, endings);
+    return CompactCharacterGraph.fromGraph(graph.stemGraph);
+  }
+
+  private static Path toPath(URL url) throws IOException {
+    try {
+      return Paths.get(url.toURI());
+    } catch (URISyntaxException e) {
+      throw new IOException("Cannot convert " + url + " to a path.", e);
+    }
+  }
+
+  /**
+   * Loads the compact graph from a file generated with {@link #serialize(TurkishMorphology,
+   * Path)}.
+   *
+   * @throws IllegalArgumentException if graph is generated for a different lexicon.
+   */
+  static CompactCharacterGraph loadCompactGraph(TurkishMorphology morphology, Path path)
+      throws IOException {
+    List<String> endings = TextIO.loadLinesFromResource("endings");
+    CompactCharacterGraph graph =
+        CompactCharacterGraph.load(path, lexiconKey(morphology, endings));
+    if (graph == null) {
+      throw new IllegalArgumentException(
+          "Stem-ending graph " + path + " is generated for a different lexicon.");
+    }
+    return graph;
+  }
+
+  /**
+   * Generates a key from graph stem surfaces and endings. Stem transition order does not change
+   * the key.
+   */
+  static long lexiconKey(TurkishMorphology morphology, List<String> endings) {
+    long stemSum = 0;
+    int stemCount = 0;
+    StemTransitions stemTransitions = morphology.getMorphotactics().getStemTransitions();
+    for (StemTransition transition : stemTransitions.getTransitions()) {
+      if (skip(transition)) {
+        continue;
+      }
+      stemSum += hash(transition.surface);
+      stemCount++;
+    }
+    long endingHash = 0;
+    for (String ending : endings) {
+      endingHash = endingHash * 31 + hash(ending);
+    }
+    return (stemSum * 31 + stemCount) * 31 + endingHash;
+  }
+
+  // 64 bit FNV-1a hash with a final mix.
+  private static long hash(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    return h ^ (h >>> 33);
+  }
+
+  static boolean skip(StemTransition transition) {
+    return transition.surface.length() == 0 ||
+        transition.item.primaryPos == PrimaryPos.Punctuation;
+  }
+
   List<String> getEndingsFromVocabulary(List<String> words) {
     Histogram<String> endings = new Histogram<>(words.size() / 10);
     for (String word : words) {
@@ -76,8 +189,7 @@ public class StemEndingGraph {
     CharacterGraph stemGraph = new CharacterGraph();
     StemTransitions stemTransitions = morphology.getMorphotactics().getStemTransitions();
     for (StemTransition transition : stemTransitions.getTransitions()) {
-      if (transition.surface.length() == 0 ||
-          transition.item.primaryPos == PrimaryPos.Punctuation) {
+      if (skip(transition)) {
         continue;
       }
       stemGraph.addWord(transition.surface, Node.TYPE_WORD);
@@ -0,0 +1,18 @@
+package zemberek.normalization;
+
+import java.util.List;
+import zemberek.normalization.CharacterGraphDecoder.CharMatcher;
+
+/**
+ * Generates spelling suggestion candidates for a single word. Suggestions are not validated with
+ * morphological analysis or ranked. TurkishSpellChecker applies those steps to the results.
+ */
+public interface SuggestionGenerator {
+
+  /**
+   * @param input word to find suggestions for.
+   * @param matcher if not null, characters matched with this are considered as equal.
+   * @return unranked suggestions.
+   */
+  List<String> getSuggestions(String input, CharMatcher matcher);
+}
@@ -0,0 +1,328 @@
+package zemberek.normalization;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import zemberek.core.collections.IntIntMap;
+import zemberek.core.collections.UIntSet;
+import zemberek.normalization.CharacterGraphDecoder.CharMatcher;
+
+/**
+ * Symmetric delete index (as in SymSpell) for finding terms within a small edit distance. For
+ * every term, all strings obtained by deleting up to `maxDistance` characters from the term prefix
+ * are indexed. For a query, deletes of the query are looked up and candidate terms are verified
+ * with restricted Damerau-Levenshtein distance.
+ * <p>
+ * Keys are generated after removing diacritics, so queries with diacritic mistakes and queries
+ * with a diacritics ignoring {@link CharMatcher} retrieve same candidates.
+ * <p>
+ * Index entries and term contents are kept in direct buffers, outside of the Java heap. Amount
+ * of entries grows quickly with `maxDistance`, for distance 1 it is about prefix length per term
+ * and for distance 2 it is about square of it. Instances are thread safe.
+ */
+final class SymmetricDeleteIndex {
+
+  static final int DEFAULT_PREFIX_LENGTH = 7;
+
+  final int maxDistance;
+  final int prefixLength;
+  private final int termCount;
+  private final int entryCount;
+  // term i is between offsets i and i+1
+  private final IntBuffer termOffsets;
+  private final CharBuffer termChars;
+  // sorted entries. upper 32 bits is hash of the delete string, lower 32 bits is the term index.
+  private final LongBuffer entries;
+
+  SymmetricDeleteIndex(Iterable<String> terms, int maxDistance) {
+    this(terms, maxDistance, DEFAULT_PREFIX_LENGTH);
+  }
+
+  SymmetricDeleteIndex(Iterable<String> terms, int maxDistance, int prefixLength) {
+    if (maxDistance < 0) {
+      throw new IllegalArgumentException("Max distance cannot be negative but it is "
+          + maxDistance);
+    }
+    if (prefixLength <= maxDistance) {
+      throw new IllegalArgumentException("Prefix length must be larger than max distance. "
+          + "But prefix length = " + prefixLength + ", max distance = " + maxDistance);
+    }
+    this.maxDistance = maxDistance;
+    this.prefixLength = prefixLength;
+
+    Set<String> unique = new LinkedHashSet<>();
+    terms.forEach(unique::add);
+    List<String> termList = new ArrayList<>(unique);
+    this.termCount = termList.size();
+
+    int charCount = 0;
+    for (String term : termList) {
+      charCount += term.length();
+    }
+    this.termOffsets = ByteBuffer.allocateDirect((termCount + 1) * 4).asIntBuffer();
+    this.termChars = ByteBuffer.allocateDirect(charCount * 2).asCharBuffer();
+
+    long[] keys = new long[termCount * 8];
+    int keyCount = 0;
+    int offset = 0;
+    for (int i = 0; i < termCount; i++) {
+      String term = termList.get(i);
+      termOffsets.put(i, offset);
+      for (int j = 0; j < term.length(); j++) {
+        termChars.put(offset + j, term.charAt(j));
+      }
+      offset += term.length();
+      for (String delete : deletes(key(term), maxDistance)) {
+        if (keyCount == keys.length) {
+          keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[keyCount++] = ((long) delete.hashCode() << 32) | i;
+      }
+    }
+    termOffsets.put(termCount, offset);
+
+    Arrays.sort(keys, 0, keyCount);
+    this.entries = ByteBuffer.allocateDirect(keyCount * 8).asLongBuffer();
+    int k = 0;
+    for (int i = 0; i < keyCount; i++) {
+      // same term can have different delete strings with equal hashes.
+      if (i == 0 || keys[i] != keys[i - 1]) {
+        entries.put(k++, keys[i]);
+      }
+    }
+    this.entryCount = k;
+  }
+
+  int termCount() {
+    return termCount;
+  }
+
+  /**
+   * @return total amount of off-heap memory used by the index in bytes.
+   */
+  long sizeInBytes() {
+    return entries.capacity() * 8L + termOffsets.capacity() * 4L + termChars.capacity() * 2L;
+  }
+
+  String term(int index) {
+    int start = termOffsets.get(index);
+    int end = termOffsets.get(index + 1);
+    char[] chars = new char[end - start];
+    CharBuffer b = termChars.duplicate();
+    b.position(start);
+    b.get(chars);
+    return new String(chars);
+  }
+
+  /**
+   * Finds the terms with maximum `distance` edit distance to `query`.
+   *
+   * @param distance maximum edit distance. It cannot be larger than the index max distance.
+   * @param matcher if not null, characters matched with this are considered equal.
+   * @return map of term index to edit distance.
+   */
+  IntIntMap lookup(String query, int distance, CharMatcher matcher) {
+    return verify(query, candidates(query, distance), distance, matcher);
+  }
+
+  /**
+   * Returns the indexes of terms that share a delete string with the query. Only the first
+   * `prefixLength` characters of the query are used, so queries with the same prefix have the
+   * same candidates.
+   */
+  int[] candidates(String query, int distance) {
+    if (distance > maxDistance) {
+      throw new IllegalArgumentException("Distance " + distance + " is larger than index max "
+          + "distance " + maxDistance);
+    }
+    UIntSet checked = new UIntSet();
+    for (String delete : deletes(key(query), distance)) {
+      long hash = delete.hashCode();
+      int i = lowerBound(hash << 32);
+      for (; i < entryCount; i++) {
+        long entry = entries.get(i);
+        if ((entry >> 32) != hash) {
+          break;
+        }
+        checked.add((int) entry);
+      }
+    }
+    return checked.getKeys();
+  }
+
+  /**
+   * Calculates edit distances of candidate terms to the query.
+   *
+   * @return map of term index to edit distance for the candidates within `distance`.
+   */
+  IntIntMap verify(String query, int[] candidates, int distance, CharMatcher matcher) {
+    IntIntMap result = new IntIntMap();
+    if (candidates.length == 0) {
+      return result;
+    }
+    Verifier verifier = new Verifier(query, matcher);
+    for (int termIndex : candidates) {
+      int d = verifier.distance(termIndex, distance);
+      if (d <= distance) {
+        result.put(termIndex, d);
+      }
+    }
+    return result;
+  }
+
+  private int lowerBound(long key) {
+    int lo = 0;
+    int hi = entryCount;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (entries.get(mid) < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Calculates distances of terms to a query. Keeps matching characters of the query and distance
+   * rows for reuse.
+   */
+  private class Verifier {
+
+    final char[] query;
+    // characters matching each query character. Null if there is no matcher.
+    final char[][] matches;
+    int[] previous2;
+    int[] previous;
+    int[] current;
+
+    Verifier(String query, CharMatcher matcher) {
+      this.query = query.toCharArray();
+      int n = query.length();
+      if (matcher != null) {
+        matches = new char[n][];
+        for (int i = 0; i < n; i++) {
+          matches[i] = matcher.matches(query.charAt(i));
+        }
+      } else {
+        matches = null;
+      }
+      previous2 = new int[n + 1];
+      previous = new int[n + 1];
+      current = new int[n + 1];
+    }
+
+    boolean equal(char termChar, int queryIndex) {
+      if (termChar == query[queryIndex]) {
+        return true;
+      }
+      if (matches != null) {
+        for (char match : matches[queryIndex]) {
+          if (match == termChar) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    // Restricted Damerau-Levenshtein distance. Returns max + 1 if distance is larger than max.
+    int distance(int termIndex, int max) {
+      int start = termOffsets.get(termIndex);
+      int m = termOffsets.get(termIndex + 1) - start;
+      int n = query.length;
+      if (Math.abs(m - n) > max) {
+        return max + 1;
+      }
+      for (int i = 0; i <= n; i++) {
+        previous[i] = i;
+      }
+      char lastTermChar = 0;
+      for (int j = 1; j <= m; j++) {
+        char c = termChars.get(start + j - 1);
+        current[0] = j;
+        int rowMin = j;
+        for (int i = 1; i <= n; i++) {
+          int cost = equal(c, i - 1) ? 0 : 1;
+          int v = Math.min(previous[i - 1] + cost, Math.min(previous[i] + 1, current[i - 1] + 1));
+          if (i > 1 && j > 1 && equal(c, i - 2) && equal(lastTermChar, i - 1)) {
+            v = Math.min(v, previous2[i - 2] + 1);
+          }
+          current[i] = v;
+          rowMin = Math.min(rowMin, v);
+        }
+        if (rowMin > max) {
+          return max + 1;
+        }
+        int[] tmp = previous2;
+        previous2 = previous;
+        previous = current;
+        current = tmp;
+        lastTermChar = c;
+      }
+      return previous[n];
+    }
+  }
+
+  // removes diacritics and trims to prefix length.
+  private String key(String s) {
+    int length = Math.min(s.length(), prefixLength);
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = fold(s.charAt(i));
+    }
+    return new String(chars);
+  }
+
+  private static char fold(char c) {
+    switch (c) {
+      case 'ç':
+        return 'c';
+      case 'ğ':
+        return 'g';
+      case 'ı':
+      case 'î':
+        return 'i';
+      case 'ö':
+        return 'o';
+      case 'ş':
+        return 's';
+      case 'ü':
+      case 'û':
+        return 'u';
+      case 'â':
+        return 'a';
+      default:
+        return c;
+    }
+  }
+
+  // all strings generated by deleting up to `distance` characters, including the input.
+  static Set<String> deletes(String s, int distance) {
+    Set<String> result = new HashSet<>();
+    result.add(s);
+    List<String> level = new ArrayList<>();
+    level.add(s);
+    for (int d = 0; d < distance; d++) {
+      List<String> next = new ArrayList<>();
+      for (String str : level) {
+        for (int i = 0; i < str.length(); i++) {
+          String delete = str.substring(0, i) + str.substring(i + 1);
+          if (result.add(delete)) {
+            next.add(delete);
+          }
+        }
+      }
+      level = next;
+    }
+    return result;
+  }
+}
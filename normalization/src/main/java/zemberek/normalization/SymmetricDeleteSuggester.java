@@ -0,0 +1,141 @@
+package zemberek.normalization;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import zemberek.core.collections.FloatValueMap;
+import zemberek.core.collections.IntIntMap;
+import zemberek.core.logging.Log;
+import zemberek.core.text.TextIO;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.morphotactics.StemTransition;
+import zemberek.normalization.CharacterGraphDecoder.CharMatcher;
+
+/**
+ * Suggestion generator that uses symmetric delete indexes of stems and endings. Input is split at
+ * every position, stem candidates of the left part and ending candidates of the right part are
+ * looked up and combined if total edit distance is within the limit. Lookups do not depend on the
+ * graph size, so this is suitable for low latency suggestion of short words.
+ * <p>
+ * Larger `maxEditDistance` values require considerably more (off-heap) memory. Edits that cross
+ * the stem-ending boundary, such as a transposition of the last stem letter and the first ending
+ * letter, are counted as two edits.
+ */
+public class SymmetricDeleteSuggester implements SuggestionGenerator {
+
+  public final int maxEditDistance;
+  private final SymmetricDeleteIndex stemIndex;
+  private final SymmetricDeleteIndex endingIndex;
+
+  public SymmetricDeleteSuggester(
+      Iterable<String> stems,
+      Iterable<String> endings,
+      int maxEditDistance) {
+    this.maxEditDistance = maxEditDistance;
+    this.stemIndex = new SymmetricDeleteIndex(stems, maxEditDistance);
+    Set<String> endingSet = new LinkedHashSet<>();
+    // empty ending allows suggesting stems without endings.
+    endingSet.add("");
+    endings.forEach(endingSet::add);
+    this.endingIndex = new SymmetricDeleteIndex(endingSet, maxEditDistance);
+  }
+
+  /**
+   * Creates a suggester with the stems of the morphology lexicon and default endings.
+   */
+  public static SymmetricDeleteSuggester fromMorphology(
+      TurkishMorphology morphology,
+      int maxEditDistance) throws IOException {
+    List<String> stems = new ArrayList<>();
+    for (StemTransition transition :
+        morphology.getMorphotactics().getStemTransitions().getTransitions()) {
+      if (!StemEndingGraph.skip(transition)) {
+        stems.add(transition.surface);
+      }
+    }
+    List<String> endings = TextIO.loadLinesFromResource("endings");
+    SymmetricDeleteSuggester suggester =
+        new SymmetricDeleteSuggester(stems, endings, maxEditDistance);
+    Log.info("Symmetric delete index with %d stems and %d endings uses %d MB off-heap memory.",
+        suggester.stemIndex.termCount(), suggester.endingIndex.termCount(),
+        (suggester.stemIndex.sizeInBytes() + suggester.endingIndex.sizeInBytes()) / (1 << 20));
+    return suggester;
+  }
+
+  /**
+   * Returns suggestions within max edit distance with their distances.
+   */
+  public FloatValueMap<String> decode(String input, CharMatcher matcher) {
+    FloatValueMap<String> results = new FloatValueMap<>(8);
+    // stem parts that are longer than the index prefix have the same candidates, so they are
+    // looked up once and only verified for each split.
+    int[] longStemCandidates = null;
+    for (int k = 1; k <= input.length(); k++) {
+      String stemPart = input.substring(0, k);
+      IntIntMap stems;
+      if (k < stemIndex.prefixLength) {
+        stems = stemIndex.lookup(stemPart, maxEditDistance, matcher);
+      } else {
+        if (longStemCandidates == null) {
+          longStemCandidates = stemIndex.candidates(stemPart, maxEditDistance);
+        }
+        stems = stemIndex.verify(stemPart, longStemCandidates, maxEditDistance, matcher);
+      }
+      if (stems.size() == 0) {
+        continue;
+      }
+      int[] stemKeys = stems.getKeys();
+      int[] stemDistances = new int[stemKeys.length];
+      int minStemDistance = Integer.MAX_VALUE;
+      for (int i = 0; i < stemKeys.length; i++) {
+        stemDistances[i] = stems.get(stemKeys[i]);
+        minStemDistance = Math.min(minStemDistance, stemDistances[i]);
+      }
+      IntIntMap endings = endingIndex.lookup(
+          input.substring(k), maxEditDistance - minStemDistance, matcher);
+      if (endings.size() == 0) {
+        continue;
+      }
+      int[] endingKeys = endings.getKeys();
+      String[] endingStrings = new String[endingKeys.length];
+      int[] endingDistances = new int[endingKeys.length];
+      for (int i = 0; i < endingKeys.length; i++) {
+        endingStrings[i] = endingIndex.term(endingKeys[i]);
+        endingDistances[i] = endings.get(endingKeys[i]);
+      }
+      for (int i = 0; i < stemKeys.length; i++) {
+        int remaining = maxEditDistance - stemDistances[i];
+        String stem = null;
+        for (int j = 0; j < endingKeys.length; j++) {
+          if (endingDistances[j] > remaining) {
+            continue;
+          }
+          if (stem == null) {
+            stem = stemIndex.term(stemKeys[i]);
+          }
+          String candidate = stem.concat(endingStrings[j]);
+          float distance = stemDistances[i] + endingDistances[j];
+          if (!results.contains(candidate) || results.get(candidate) > distance) {
+            results.set(candidate, distance);
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  public List<String> getSuggestions(String input) {
+    return getSuggestions(input, null);
+  }
+
+  @Override
+  public List<String> getSuggestions(String input, CharMatcher matcher) {
+    if (input.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return decode(input, matcher).getKeyList();
+  }
+}
@@ -1,5 +1,7 @@
 package zemberek.normalization;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Charsets;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
@@ -8,20 +10,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import zemberek.core.dynamic.ActiveList;
-import zemberek.core.dynamic.Scorable;
+import java.util.stream.IntStream;
 import zemberek.core.logging.Log;
 import zemberek.core.text.TextIO;
 import zemberek.core.turkish.SecondaryPos;
 import zemberek.core.turkish.Turkish;
 import zemberek.core.turkish.TurkishAlphabet;
+import zemberek.lm.LmVocabulary;
 import zemberek.lm.compression.SmoothLm;
 import zemberek.morphology.TurkishMorphology;
 import zemberek.morphology.analysis.InformalAnalysisConverter;
@@ -50,11 +51,13 @@ public class TurkishSentenceNormalizer {
 
   TurkishMorphology morphology;
   private SmoothLm lm;
+  private BeamDecoder decoder;
   private TurkishSpellChecker spellChecker;
 
-  private ArrayListMultimap<String, String> lookupFromGraph;
-  private ArrayListMultimap<String, String> lookupFromAscii;
-  private ArrayListMultimap<String, String> lookupManual;
+  public static final String COMPILED_LOOKUP_FILE = "lookup.bin";
+
+  // Merged candidates from manual lookup, graph lookup and ascii equivalents.
+  private CompactLookupTable lookup;
   private TurkishMorphology informalAsciiTolerantMorphology;
   private InformalAnalysisConverter analysisConverter;
 
@@ -64,33 +67,60 @@ public class TurkishSentenceNormalizer {
   private HashSet<String> noSplitWords = new HashSet<>();
   boolean alwaysApplyDeasciifier = false;
 
+  // Sentences with at least this many tokens generate candidates in parallel.
+  static final int PARALLEL_TOKEN_THRESHOLD = 32;
+  // If false, candidates of all sentences are generated sequentially.
+  boolean parallelCandidates = true;
+  private static final int DEFAULT_CANDIDATE_CACHE_SIZE = 50_000;
+  // context independent candidates of tokens. Shared between threads.
+  private Cache<String, TokenCandidates> candidateCache = Caffeine.newBuilder()
+      .maximumSize(DEFAULT_CANDIDATE_CACHE_SIZE)
+      .build();
+
   public TurkishSentenceNormalizer(
       TurkishMorphology morphology,
       Path dataRoot,
       Path languageModelPath) throws IOException {
+    this(morphology, dataRoot, SmoothLm.builder(languageModelPath).logBase(Math.E).build());
+  }
+
+  /**
+   * Creates a normalizer with an already loaded language model. This can be used for sharing a
+   * single language model instance with other components.
+   */
+  public TurkishSentenceNormalizer(
+      TurkishMorphology morphology,
+      Path dataRoot,
+      SmoothLm languageModel) throws IOException {
 
     this.morphology = morphology;
     this.analysisConverter = new InformalAnalysisConverter(morphology.getWordGenerator());
-    SmoothLm languageModel = SmoothLm.builder(languageModelPath).logBase(Math.E).build();
     Log.info("Language model = %s", languageModel.info());
     this.lm = languageModel;
+    this.decoder = new BeamDecoder(lm);
 
     // TODO: spell checker should be an external parameter.
-    StemEndingGraph graph = new StemEndingGraph(morphology);
-    CharacterGraphDecoder decoder = new CharacterGraphDecoder(graph.stemGraph);
+    CharacterGraphDecoder decoder =
+        new CharacterGraphDecoder(StemEndingGraph.loadCompactGraph(morphology), 1);
     this.spellChecker = new TurkishSpellChecker(
         morphology,
         decoder,
         CharacterGraphDecoder.DIACRITICS_IGNORING_MATCHER);
 
-    this.lookupFromGraph = loadMultiMap(dataRoot.resolve("lookup-from-graph"));
-    this.lookupFromAscii = loadMultiMap(dataRoot.resolve("ascii-map"));
-    List<String> manualLookup =
-        TextIO.loadLinesFromResource("normalization/candidates-manual");
-    this.lookupManual = loadMultiMap(manualLookup);
-
-    // remove words that exists in lookupManual from lookupFromGraph
-    lookupManual.keySet().forEach(s -> lookupFromGraph.removeAll(s));
+    Path compiledLookup = dataRoot.resolve(COMPILED_LOOKUP_FILE);
+    if (compiledLookup.toFile().exists()) {
+      this.lookup = CompactLookupTable.load(compiledLookup);
+      if (lookup.getSourceKey() == lookupSourceKey(dataRoot)) {
+        Log.info("Compiled lookup table with %d keys is loaded from %s",
+            lookup.size(), compiledLookup);
+      } else {
+        Log.warn("Lookup files are changed after %s is compiled. Lookup table is compiled "
+            + "from lookup files. %s should be compiled again.", compiledLookup, compiledLookup);
+        this.lookup = compileLookup(dataRoot);
+      }
+    } else {
+      this.lookup = compileLookup(dataRoot);
+    }
 
     this.informalAsciiTolerantMorphology = TurkishMorphology.builder()
         .setLexicon(morphology.getLexicon())
@@ -123,13 +153,81 @@ public class TurkishSentenceNormalizer {
     this.alwaysApplyDeasciifier = alwaysApplyDeasciifier;
   }
 
+  /**
+   * Sets the beam parameters of the decoder. After each word, only best `beamWidth` hypotheses
+   * with scores within `beamThreshold` of the best score are kept. Lower values decrease worst
+   * case latency of sentences with many candidates, but may reduce accuracy.
+   *
+   * @param beamWidth maximum amount of hypotheses. Default is 100.
+   * @param beamThreshold maximum log probability difference to the best hypothesis. Default is
+   * infinite.
+   */
+  public void setBeam(int beamWidth, float beamThreshold) {
+    this.decoder = new BeamDecoder(lm, beamWidth, beamThreshold);
+  }
+
+  /**
+   * Sets maximum amount of tokens whose candidates are cached. Existing cache entries are
+   * discarded.
+   */
+  public void setCandidateCacheSize(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Cache size cannot be negative. But it is " + size);
+    }
+    this.candidateCache = Caffeine.newBuilder().maximumSize(size).build();
+  }
+
+  /**
+   * Compiles the lookup text files in data root and manual candidates resource to a single
+   * table. If the table is saved to data root as {@link #COMPILED_LOOKUP_FILE}, normalizer memory
+   * maps it instead of loading text files, unless the sources change after compilation.
+   */
+  public static CompactLookupTable compileLookup(Path dataRoot) throws IOException {
+    ArrayListMultimap<String, String> lookupFromGraph =
+        loadMultiMap(dataRoot.resolve("lookup-from-graph"));
+    ArrayListMultimap<String, String> lookupFromAscii =
+        loadMultiMap(dataRoot.resolve("ascii-map"));
+    ArrayListMultimap<String, String> lookupManual = loadMultiMap(
+        TextIO.loadLinesFromResource("normalization/candidates-manual"));
+
+    // remove words that exists in lookupManual from lookupFromGraph
+    lookupManual.keySet().forEach(lookupFromGraph::removeAll);
+
+    // candidates are merged in manual, graph, ascii order.
+    Map<String, List<String>> merged = new HashMap<>();
+    for (ArrayListMultimap<String, String> m :
+        Arrays.asList(lookupManual, lookupFromGraph, lookupFromAscii)) {
+      for (String key : m.keySet()) {
+        merged.computeIfAbsent(key, k -> new ArrayList<>()).addAll(m.get(key));
+      }
+    }
+    return CompactLookupTable.fromMap(merged, lookupSourceKey(dataRoot));
+  }
+
+  /**
+   * Generates a key from sizes and modification times of the lookup files in data root and the
+   * contents of manual candidates resource. Lookup files are not read, as they can be large.
+   */
+  static long lookupSourceKey(Path dataRoot) throws IOException {
+    long key = 0;
+    for (String name : new String[]{"lookup-from-graph", "ascii-map"}) {
+      Path path = dataRoot.resolve(name);
+      key = key * 31 + Files.size(path);
+      key = key * 31 + Files.getLastModifiedTime(path).toMillis();
+    }
+    for (String line : TextIO.loadLinesFromResource("normalization/candidates-manual")) {
+      key = key * 31 + line.hashCode();
+    }
+    return key;
+  }
+
   // load data with line format: "key=val1,val2"
-  private ArrayListMultimap<String, String> loadMultiMap(Path path) throws IOException {
+  private static ArrayListMultimap<String, String> loadMultiMap(Path path) throws IOException {
     List<String> lines = TextIO.loadLines(path);
     return loadMultiMap(lines);
   }
 
-  private ArrayListMultimap<String, String> loadMultiMap(List<String> lines) {
+  private static ArrayListMultimap<String, String> loadMultiMap(List<String> lines) {
     ArrayListMultimap<String, String> result = ArrayListMultimap.create();
     for (String line : lines) {
       int index = line.indexOf("=");
@@ -160,132 +258,127 @@ public class TurkishSentenceNormalizer {
 
     List<Token> tokens = TurkishTokenizer.DEFAULT.tokenize(processed);
 
-    List<Candidates> candidatesList = new ArrayList<>();
-
-    for (int i = 0; i < tokens.size(); i++) {
-
-      Token currentToken = tokens.get(i);
-      String current = currentToken.getText();
-      String next = i == tokens.size() - 1 ? null : tokens.get(i + 1).getText();
-      String previous = i == 0 ? null : tokens.get(i - 1).getText();
-
-      LinkedHashSet<String> candidates = new LinkedHashSet<>(2);
+    IntStream indexes = IntStream.range(0, tokens.size());
+    if (parallelCandidates && tokens.size() >= PARALLEL_TOKEN_THRESHOLD) {
+      indexes = indexes.parallel();
+    }
+    List<Candidates> candidatesList = indexes
+        .mapToObj(i -> {
+          String current = tokens.get(i).getText();
+          String next = i == tokens.size() - 1 ? null : tokens.get(i + 1).getText();
+          String previous = i == 0 ? null : tokens.get(i - 1).getText();
+          return getCandidates(current, previous, next);
+        })
+        .collect(Collectors.toList());
 
-      // add matches from manual lookup
-      candidates.addAll(lookupManual.get(current));
+    // Apply Viterbi decoding and return result.
+    return String.join(" ", decode(candidatesList));
 
-      // add matches from random walk
-      candidates.addAll(lookupFromGraph.get(current));
+  }
 
-      // add matches from ascii equivalents.
-      // TODO: this may decrease accuracy. Also, this can be eliminated with ascii tolerant analyzer.
-      candidates.addAll(lookupFromAscii.get(current));
+  /**
+   * Normalizes sentences in parallel. Results are in the same order with the input.
+   */
+  public List<String> normalizeAll(List<String> sentences) {
+    return sentences.parallelStream()
+        .map(this::normalize)
+        .collect(Collectors.toList());
+  }
 
-      // add matches from informal analysis to formal surface conversion.
+  private Candidates getCandidates(String current, String previous, String next) {
+    TokenCandidates tokenCandidates = candidateCache.get(current, this::generateCandidates);
 
-      WordAnalysis analyses = informalAsciiTolerantMorphology.analyze(current);
+    LinkedHashSet<String> candidates = new LinkedHashSet<>(tokenCandidates.candidates);
 
-      for (SingleAnalysis analysis : analyses) {
-        if (analysis.containsInformalMorpheme()) {
-          WordGenerator.Result result = analysisConverter.convert(current, analysis);
-          if (result != null) {
-            candidates.add(result.surface);
-          }
-        } else {
-          List<WordGenerator.Result> results = morphology.getWordGenerator().generate(
-              analysis.getDictionaryItem(),
-              analysis.getMorphemes());
-          for (Result result : results) {
-            candidates.add(result.surface);
-          }
-        }
+    // spell checker suggestions depend on the context, so they are ranked for every occurrence.
+    if (tokenCandidates.spellSuggestions != null) {
+      List<String> spellCandidates = spellChecker.rankWithContext(
+          tokenCandidates.spellSuggestions, previous, next, lm);
+      if (spellCandidates.size() > 3) {
+        spellCandidates = spellCandidates.subList(0, 3);
       }
+      candidates.addAll(spellCandidates);
+    }
 
-      // if there is no formal analysis and length is larger than 5,
-      // get top 3 1 distance matches.
-      if ((analyses.analysisCount() == 0) && current.length() > 3) {
+    // if still there is no match, add the word itself.
+    if (candidates.isEmpty() || tokenCandidates.correct) {
+      candidates.add(current);
+    }
 
-        List<String> spellCandidates = spellChecker
-            .suggestForWord(current, previous, next, lm);
-        if (spellCandidates.size() > 3) {
-          spellCandidates = new ArrayList<>(spellCandidates.subList(0, 3));
-        }
-        candidates.addAll(spellCandidates);
-      }
+    return new Candidates(
+        current,
+        candidates.stream().map(Candidate::new).collect(Collectors.toList()));
+  }
 
-      // if still there is no match, add the word itself.
-      if (candidates.isEmpty() || morphology.analyze(current).isCorrect()) {
-        candidates.add(current);
-      }
+  /**
+   * Generates context independent candidates of a token.
+   */
+  private TokenCandidates generateCandidates(String current) {
+    LinkedHashSet<String> candidates = new LinkedHashSet<>(2);
 
-      Candidates result = new Candidates(
-          currentToken.getText(),
-          candidates.stream().map(Candidate::new).collect(Collectors.toList()));
+    // add matches from manual lookup, random walk and ascii equivalents.
+    // TODO: ascii equivalents may decrease accuracy. Also, this can be eliminated with ascii
+    // tolerant analyzer.
+    candidates.addAll(lookup.get(current));
 
-      candidatesList.add(result);
-    }
-    // Apply Viterbi decoding and return result.
-    return String.join(" ", decode(candidatesList));
+    // add matches from informal analysis to formal surface conversion.
 
-  }
+    WordAnalysis analyses = informalAsciiTolerantMorphology.analyze(current);
 
-  private boolean hasAnalysis(WordAnalysis w) {
-    for (SingleAnalysis s : w) {
-      if (!s.isRuntime() && !s.isUnknown()) {
-        return true;
+    for (SingleAnalysis analysis : analyses) {
+      if (analysis.containsInformalMorpheme()) {
+        WordGenerator.Result result = analysisConverter.convert(current, analysis);
+        if (result != null) {
+          candidates.add(result.surface);
+        }
+      } else {
+        List<WordGenerator.Result> results = morphology.getWordGenerator().generate(
+            analysis.getDictionaryItem(),
+            analysis.getMorphemes());
+        for (Result result : results) {
+          candidates.add(result.surface);
+        }
       }
     }
-    return false;
-  }
 
-  private static class Hypothesis implements Scorable {
+    // if there is no formal analysis and length is larger than 5,
+    // get top 3 1 distance matches.
+    List<String> spellSuggestions = null;
+    if ((analyses.analysisCount() == 0) && current.length() > 3) {
+      spellSuggestions = spellChecker.getUnrankedSuggestions(current);
+    }
 
-    // for a three gram model, holds the 2 history words.
-    Candidate[] history;
-    Candidate current;
+    return new TokenCandidates(
+        new ArrayList<>(candidates),
+        spellSuggestions,
+        morphology.analyze(current).isCorrect());
+  }
 
-    // required for back tracking.
-    Hypothesis previous;
+  /**
+   * Candidates of a token that do not depend on its context.
+   */
+  private static class TokenCandidates {
 
-    float score;
+    final List<String> candidates;
+    // unranked spell checker suggestions. Null if spell checker is not applied.
+    final List<String> spellSuggestions;
+    // true if token has a formal analysis.
+    final boolean correct;
 
-    @Override
-    public float getScore() {
-      return score;
+    TokenCandidates(List<String> candidates, List<String> spellSuggestions, boolean correct) {
+      this.candidates = candidates;
+      this.spellSuggestions = spellSuggestions;
+      this.correct = correct;
     }
+  }
 
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
+  private boolean hasAnalysis(WordAnalysis w) {
+    for (SingleAnalysis s : w) {
+      if (!s.isRuntime() && !s.isUnknown()) {
         return true;
       }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-
-      Hypothesis that = (Hypothesis) o;
-
-      if (!Arrays.equals(history, that.history)) {
-        return false;
-      }
-      return current.equals(that.current);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = Arrays.hashCode(history);
-      result = 31 * result + current.hashCode();
-      return result;
-    }
-
-    @Override
-    public String toString() {
-      return "Hypothesis{" +
-          "history=" + Arrays.toString(history) +
-          ", current=" + current +
-          ", score=" + score +
-          '}';
     }
+    return false;
   }
 
   /**
@@ -350,68 +443,21 @@ public class TurkishSentenceNormalizer {
 
   }
 
-  private static Candidate START = new Candidate("<s>");
-  private static Candidate END = new Candidate("</s>");
-  private static Candidates END_CANDIDATES =
-      new Candidates("</s>", Collections.singletonList(END));
-
   private List<String> decode(List<Candidates> candidatesList) {
-
-    ActiveList<Hypothesis> current = new ActiveList<>();
-    ActiveList<Hypothesis> next = new ActiveList<>();
-
-    // Pad with END tokens.
-    candidatesList.add(END_CANDIDATES);
-
-    Hypothesis initial = new Hypothesis();
-    int lmOrder = lm.getOrder();
-    initial.history = new Candidate[lmOrder - 1];
-    Arrays.fill(initial.history, START);
-    initial.current = START;
-    initial.score = 0f;
-    current.add(initial);
-
-    for (Candidates candidates : candidatesList) {
-
-      for (Hypothesis h : current) {
-        for (Candidate c : candidates.candidates) {
-          Hypothesis newHyp = new Hypothesis();
-          Candidate[] hist = new Candidate[lmOrder - 1];
-          if (lmOrder > 2) {
-            System.arraycopy(h.history, 1, hist, 0, lmOrder - 1);
-          }
-          hist[hist.length - 1] = h.current;
-          newHyp.current = c;
-          newHyp.history = hist;
-          newHyp.previous = h;
-
-          // score calculation.
-          int[] indexes = new int[lmOrder];
-          for (int j = 0; j < lmOrder - 1; j++) {
-            indexes[j] = lm.getVocabulary().indexOf(hist[j].content);
-          }
-          indexes[lmOrder - 1] = lm.getVocabulary().indexOf(c.content);
-          float score = lm.getProbability(indexes);
-
-          newHyp.score = h.score + score;
-          next.add(newHyp);
-        }
+    LmVocabulary vocabulary = lm.getVocabulary();
+    int[][] candidateIds = new int[candidatesList.size()][];
+    for (int i = 0; i < candidatesList.size(); i++) {
+      List<Candidate> candidates = candidatesList.get(i).candidates;
+      candidateIds[i] = new int[candidates.size()];
+      for (int j = 0; j < candidates.size(); j++) {
+        candidateIds[i][j] = vocabulary.indexOf(candidates.get(j).content);
       }
-      current = next;
-      next = new ActiveList<>();
     }
-
-    // back track to find best sequence.
-    Hypothesis best = current.getBest();
-    List<String> seq = new ArrayList<>();
-    Hypothesis h = best;
-    // skip </s>
-    h = h.previous;
-    while (h != null && h.current != START) {
-      seq.add(h.current.content);
-      h = h.previous;
+    int[] best = decoder.decode(candidateIds);
+    List<String> seq = new ArrayList<>(best.length);
+    for (int i = 0; i < best.length; i++) {
+      seq.add(candidatesList.get(i).candidates.get(best[i]).content);
     }
-    Collections.reverse(seq);
     return seq;
   }
 
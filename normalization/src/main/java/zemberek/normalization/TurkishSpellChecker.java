@@ -4,11 +4,16 @@ import com.google.common.io.Resources;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import zemberek.core.ScoredItem;
 import zemberek.core.logging.Log;
 import zemberek.core.turkish.Turkish;
@@ -29,9 +34,12 @@ public class TurkishSpellChecker {
 
   private static final NgramLanguageModel DUMMY_LM = new DummyLanguageModel();
   private static final TurkishTokenizer tokenizer = TurkishTokenizer.DEFAULT;
+  private static final Set<String> SENTENCE_END_PUNCTUATIONS =
+      new HashSet<>(Arrays.asList(".", "!", "?", "…", "..."));
   TurkishMorphology morphology;
   WordAnalysisSurfaceFormatter formatter = new WordAnalysisSurfaceFormatter();
   CharacterGraphDecoder decoder;
+  SuggestionGenerator suggestionGenerator;
   NgramLanguageModel unigramModel;
 
   // Null means exact matcher will be used.
@@ -44,10 +52,55 @@ public class TurkishSpellChecker {
     return unigramModel;
   }
 
+  /**
+   * Algorithms for generating suggestion candidates.
+   */
+  public enum SuggestionBackend {
+    /**
+     * Breadth first search over the stem-ending graph with {@link CharacterGraphDecoder}.
+     */
+    CHARACTER_GRAPH,
+    /**
+     * Levenshtein automaton search over minimized stem-ending graph with {@link
+     * LevenshteinSuggester}. Near key (F keyboard) and diacritic substitutions cost less. This is
+     * suitable for penalties larger than 1.
+     */
+    LEVENSHTEIN,
+    /**
+     * Symmetric delete index lookup of stems and endings with {@link SymmetricDeleteSuggester}.
+     * This has the lowest latency but uses more memory. Maximum penalty is used as the maximum
+     * edit distance and it is truncated to an integer.
+     */
+    SYMMETRIC_DELETE
+  }
+
   public TurkishSpellChecker(TurkishMorphology morphology) throws IOException {
+    this(morphology, SuggestionBackend.CHARACTER_GRAPH, 1);
+  }
+
+  /**
+   * Creates a spell checker with given suggestion backend.
+   *
+   * @param maxPenalty maximum edit penalty of the suggestions.
+   */
+  public TurkishSpellChecker(
+      TurkishMorphology morphology,
+      SuggestionBackend backend,
+      float maxPenalty) throws IOException {
     this.morphology = morphology;
-    StemEndingGraph graph = new StemEndingGraph(morphology);
-    this.decoder = new CharacterGraphDecoder(graph.stemGraph);
+    if (backend == SuggestionBackend.SYMMETRIC_DELETE) {
+      this.suggestionGenerator =
+          SymmetricDeleteSuggester.fromMorphology(morphology, (int) maxPenalty);
+    } else if (backend == SuggestionBackend.LEVENSHTEIN) {
+      this.suggestionGenerator = new LevenshteinSuggester(
+          StemEndingGraph.loadCompactGraph(morphology),
+          maxPenalty,
+          CharacterGraphDecoder.TURKISH_FQ_NEAR_KEY_MAP);
+    } else {
+      this.decoder =
+          new CharacterGraphDecoder(StemEndingGraph.loadCompactGraph(morphology), maxPenalty);
+      this.suggestionGenerator = decoder;
+    }
     try (InputStream is = Resources.getResource("lm-unigram.slm").openStream()) {
       unigramModel = SmoothLm.builder(is).build();
     }
@@ -56,6 +109,7 @@ public class TurkishSpellChecker {
   public TurkishSpellChecker(TurkishMorphology morphology, CharacterGraph graph) {
     this.morphology = morphology;
     this.decoder = new CharacterGraphDecoder(graph);
+    this.suggestionGenerator = decoder;
   }
 
   public TurkishSpellChecker(
@@ -64,6 +118,19 @@ public class TurkishSpellChecker {
       CharMatcher matcher) {
     this.morphology = morphology;
     this.decoder = decoder;
+    this.suggestionGenerator = decoder;
+    this.charMatcher = matcher;
+  }
+
+  public TurkishSpellChecker(
+      TurkishMorphology morphology,
+      SuggestionGenerator suggestionGenerator,
+      CharMatcher matcher) {
+    this.morphology = morphology;
+    this.suggestionGenerator = suggestionGenerator;
+    if (suggestionGenerator instanceof CharacterGraphDecoder) {
+      this.decoder = (CharacterGraphDecoder) suggestionGenerator;
+    }
     this.charMatcher = matcher;
   }
 
@@ -129,9 +196,9 @@ public class TurkishSpellChecker {
     return rankWithUnigramProbability(unRanked, lm);
   }
 
-  private List<String> getUnrankedSuggestions(String word) {
+  List<String> getUnrankedSuggestions(String word) {
     String normalized = TurkishAlphabet.INSTANCE.normalize(word.replaceAll("['’]", ""));
-    List<String> strings = decoder.getSuggestions(normalized, charMatcher);
+    List<String> strings = suggestionGenerator.getSuggestions(normalized, charMatcher);
 
     WordAnalysisSurfaceFormatter.CaseType caseType = formatter.guessCase(word);
     if (caseType == WordAnalysisSurfaceFormatter.CaseType.MIXED_CASE ||
@@ -160,7 +227,18 @@ public class TurkishSpellChecker {
       String leftContext,
       String rightContext,
       NgramLanguageModel lm) {
-    List<String> unRanked = getUnrankedSuggestions(word);
+    return rankWithContext(getUnrankedSuggestions(word), leftContext, rightContext, lm);
+  }
+
+  /**
+   * Ranks suggestions of a word with left and right context words. Null context means sentence
+   * boundary.
+   */
+  List<String> rankWithContext(
+      List<String> unRanked,
+      String leftContext,
+      String rightContext,
+      NgramLanguageModel lm) {
     if (lm == null) {
       Log.warn("No language model provided. Returning unraked results.");
       return unRanked;
@@ -168,36 +246,208 @@ public class TurkishSpellChecker {
     if (lm.getOrder() < 2) {
       Log.warn("Language model order is 1. For context ranking it should be at least 2. " +
           "Unigram ranking will be applied.");
-      return suggestForWord(word, lm);
+      return rankWithUnigramProbability(unRanked, lm);
     }
     LmVocabulary vocabulary = lm.getVocabulary();
+    int leftIndex = leftContext == null ?
+        vocabulary.getSentenceStartIndex() : vocabulary.indexOf(normalizeForLm(leftContext));
+    int rightIndex = rightContext == null ?
+        vocabulary.getSentenceEndIndex() : vocabulary.indexOf(normalizeForLm(rightContext));
     List<ScoredItem<String>> results = new ArrayList<>(unRanked.size());
     for (String str : unRanked) {
-      if (leftContext == null) {
-        leftContext = vocabulary.getSentenceStart();
-      } else {
-        leftContext = normalizeForLm(leftContext);
+      int wordIndex = vocabulary.indexOf(normalizeForLm(str));
+      results.add(new ScoredItem<>(str, contextScore(lm, leftIndex, wordIndex, rightIndex)));
+    }
+    results.sort(ScoredItem.STRING_COMP_DESCENDING);
+    return results.stream().map(s -> s.item).collect(Collectors.toList());
+  }
+
+  private float contextScore(NgramLanguageModel lm, int left, int word, int right) {
+    if (lm.getOrder() < 2) {
+      return lm.getUnigramProbability(word);
+    } else if (lm.getOrder() == 2) {
+      return lm.getProbability(left, word) + lm.getProbability(word, right);
+    } else {
+      return lm.getProbability(left, word, right);
+    }
+  }
+
+  public List<SpellingCorrection> checkText(String text) {
+    return checkText(text, unigramModel);
+  }
+
+  /**
+   * Checks all words of a text and returns corrections for the misspelled ones, in text order.
+   * Suggestions of misspelled words are generated in parallel. Then all of them are ranked in a
+   * single pass with the language model, using neighbouring words as context. If a neighbour is
+   * also misspelled, its suggestion with the highest unigram probability is used as context.
+   * Sentence boundaries are approximated with sentence ending punctuations.
+   *
+   * @param lm language model for ranking. If null, suggestions are not ranked.
+   */
+  public List<SpellingCorrection> checkText(String text, NgramLanguageModel lm) {
+    List<Token> tokens = tokenizer.tokenize(text);
+    List<Token> words = new ArrayList<>(tokens.size());
+    // sentenceEnds[i] is true if a sentence ends after words[i]
+    boolean[] sentenceEnds = new boolean[tokens.size()];
+    for (Token token : tokens) {
+      Token.Type type = token.getType();
+      if (type == Token.Type.Punctuation) {
+        if (!words.isEmpty() && SENTENCE_END_PUNCTUATIONS.contains(token.getText())) {
+          sentenceEnds[words.size() - 1] = true;
+        }
+      } else if (type != Token.Type.Unknown && type != Token.Type.UnknownWord) {
+        words.add(token);
       }
-      if (rightContext == null) {
-        rightContext = vocabulary.getSentenceEnd();
-      } else {
-        rightContext = normalizeForLm(rightContext);
+    }
+    int n = words.size();
+    if (n == 0) {
+      return new ArrayList<>(0);
+    }
+
+    // null for correctly spelled words.
+    List<List<String>> unRanked = IntStream.range(0, n).parallel()
+        .mapToObj(i -> {
+          Token token = words.get(i);
+          Token.Type type = token.getType();
+          if ((type != Token.Type.Word && type != Token.Type.WordWithSymbol)
+              || check(token.getText())) {
+            return null;
+          }
+          return getUnrankedSuggestions(token.getText());
+        })
+        .collect(Collectors.toList());
+
+    List<List<String>> ranked;
+    if (lm == null) {
+      Log.warn("No language model provided. Returning unraked results.");
+      ranked = unRanked;
+    } else {
+      ranked = rankJointly(words, sentenceEnds, unRanked, lm);
+    }
+
+    List<SpellingCorrection> corrections = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      if (ranked.get(i) != null) {
+        Token token = words.get(i);
+        corrections.add(
+            new SpellingCorrection(token.getText(), token.start, token.end + 1, ranked.get(i)));
       }
-      String w = normalizeForLm(str);
-      int wordIndex = vocabulary.indexOf(w);
-      int leftIndex = vocabulary.indexOf(leftContext);
-      int rightIndex = vocabulary.indexOf(rightContext);
-      float score;
-      if (lm.getOrder() == 2) {
-        score = lm.getProbability(leftIndex, wordIndex) + lm.getProbability(wordIndex, rightIndex);
-      } else {
-        score = lm.getProbability(leftIndex, wordIndex, rightIndex);
+    }
+    return corrections;
+  }
+
+  private List<List<String>> rankJointly(
+      List<Token> words,
+      boolean[] sentenceEnds,
+      List<List<String>> unRanked,
+      NgramLanguageModel lm) {
+    LmVocabulary vocabulary = lm.getVocabulary();
+    int n = words.size();
+    // vocabulary ids are looked up once and reused as context of neighbours.
+    int[] ids = new int[n];
+    int[][] candidateIds = new int[n][];
+    for (int i = 0; i < n; i++) {
+      ids[i] = vocabulary.indexOf(normalizeForLm(words.get(i).getText()));
+      List<String> candidates = unRanked.get(i);
+      if (candidates == null) {
+        continue;
+      }
+      candidateIds[i] = new int[candidates.size()];
+      float best = Float.NEGATIVE_INFINITY;
+      for (int j = 0; j < candidates.size(); j++) {
+        int id = vocabulary.indexOf(normalizeForLm(candidates.get(j)));
+        candidateIds[i][j] = id;
+        float p = lm.getUnigramProbability(id);
+        if (p > best) {
+          best = p;
+          ids[i] = id;
+        }
       }
-      results.add(new ScoredItem<>(str, score));
     }
-    results.sort(ScoredItem.STRING_COMP_DESCENDING);
-    return results.stream().map(s -> s.item).collect(Collectors.toList());
 
+    // n-grams of all candidates of the text are collected first, so n-grams that repeat in
+    // different positions are scored once. Then all of them are scored in a single pass.
+    Map<Ngram, Ngram> ngrams = new LinkedHashMap<>();
+    Ngram[][][] candidateNgrams = new Ngram[n][][];
+    for (int i = 0; i < n; i++) {
+      if (candidateIds[i] == null) {
+        continue;
+      }
+      int left = (i == 0 || sentenceEnds[i - 1]) ?
+          vocabulary.getSentenceStartIndex() : ids[i - 1];
+      int right = (i == n - 1 || sentenceEnds[i]) ?
+          vocabulary.getSentenceEndIndex() : ids[i + 1];
+      candidateNgrams[i] = new Ngram[candidateIds[i].length][];
+      for (int j = 0; j < candidateIds[i].length; j++) {
+        int[][] components = contextNgrams(lm.getOrder(), left, candidateIds[i][j], right);
+        Ngram[] refs = new Ngram[components.length];
+        for (int k = 0; k < components.length; k++) {
+          refs[k] = ngrams.computeIfAbsent(new Ngram(components[k]), g -> g);
+        }
+        candidateNgrams[i][j] = refs;
+      }
+    }
+    for (Ngram ngram : ngrams.keySet()) {
+      ngram.score = ngram.ids.length == 1 ?
+          lm.getUnigramProbability(ngram.ids[0]) : lm.getProbability(ngram.ids);
+    }
+
+    List<List<String>> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      List<String> candidates = unRanked.get(i);
+      if (candidates == null) {
+        result.add(null);
+        continue;
+      }
+      List<ScoredItem<String>> scored = new ArrayList<>(candidates.size());
+      for (int j = 0; j < candidates.size(); j++) {
+        float score = 0;
+        for (Ngram ngram : candidateNgrams[i][j]) {
+          score += ngram.score;
+        }
+        scored.add(new ScoredItem<>(candidates.get(j), score));
+      }
+      scored.sort(ScoredItem.STRING_COMP_DESCENDING);
+      result.add(scored.stream().map(s -> s.item).collect(Collectors.toList()));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the n-grams whose probabilities are summed for the score of a word in context. This
+   * matches {@link #contextScore(NgramLanguageModel, int, int, int)}.
+   */
+  private static int[][] contextNgrams(int order, int left, int word, int right) {
+    if (order < 2) {
+      return new int[][]{{word}};
+    } else if (order == 2) {
+      return new int[][]{{left, word}, {word, right}};
+    } else {
+      return new int[][]{{left, word, right}};
+    }
+  }
+
+  private static class Ngram {
+
+    final int[] ids;
+    final int hash;
+    float score;
+
+    Ngram(int[] ids) {
+      this.ids = ids;
+      this.hash = Arrays.hashCode(ids);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Ngram && Arrays.equals(ids, ((Ngram) o).ids);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
   }
 
   private String normalizeForLm(String s) {
@@ -212,10 +462,17 @@ public class TurkishSpellChecker {
     return suggestForWord(word, unigramModel);
   }
 
+  /**
+   * @return graph decoder. Null if spell checker uses a different suggestion generator.
+   */
   public CharacterGraphDecoder getDecoder() {
     return decoder;
   }
 
+  public SuggestionGenerator getSuggestionGenerator() {
+    return suggestionGenerator;
+  }
+
   public List<String> rankWithUnigramProbability(List<String> strings, NgramLanguageModel lm) {
     if (lm == null) {
       Log.warn("No language model provided. Returning unraked results.");
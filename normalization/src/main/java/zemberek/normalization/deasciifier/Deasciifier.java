@@ -8,6 +8,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * This class provides functionality to deasciify a given ASCII based Turkish text. <p> <p> Note:
@@ -28,13 +30,24 @@ import java.util.HashMap;
  */
 public final class Deasciifier {
 
+  private static final int DEFAULT_CONTEXT_SIZE = 10;
+
   private static HashMap<Character, HashMap<String, Integer>> turkishPatternTable = getPatternTableFromResource();
+  // compiled form of the pattern table, indexed by lower case ascii character.
+  private static volatile PatternTrie[] patternTries = compile(turkishPatternTable);
 
   private static HashMap<Character, Character> turkishAsciifyTable = new HashMap<>();
   private static HashMap<Character, Character> turkishDowncaseAsciifyTable = new HashMap<>();
   private static HashMap<Character, Character> turkishUpcaseAccentsTable = new HashMap<>();
   private static HashMap<Character, Character> turkishToggleAccentTable = new HashMap<>();
 
+  // Array versions of the tables above for fast lookup. 0 means there is no mapping.
+  private static final int TABLE_SIZE = 0x160;
+  private static final char[] asciifyTable = new char[TABLE_SIZE];
+  private static final char[] downcaseAsciifyTable = new char[TABLE_SIZE];
+  private static final char[] upcaseAccentsTable = new char[TABLE_SIZE];
+  private static final char[] toggleAccentTable = new char[TABLE_SIZE];
+
   static {
     turkishAsciifyTable.put('ç', 'c');
     turkishAsciifyTable.put('Ç', 'C');
@@ -117,37 +130,40 @@ public final class Deasciifier {
     turkishToggleAccentTable.put('Ş', 'S');
   }
 
+  static {
+    fill(asciifyTable, turkishAsciifyTable);
+    fill(downcaseAsciifyTable, turkishDowncaseAsciifyTable);
+    fill(upcaseAccentsTable, turkishUpcaseAccentsTable);
+    fill(toggleAccentTable, turkishToggleAccentTable);
+  }
+
   private Deasciifier() {
     // prevent instances
   }
 
-  private static char turkishToggleAccent(final char c) {
-    return turkishToggleAccentTable.containsKey(c) ? turkishToggleAccentTable.get(c) : c;
+  private static void fill(char[] table, HashMap<Character, Character> map) {
+    for (Character c : map.keySet()) {
+      table[c] = map.get(c);
+    }
   }
 
-  private static boolean turkishMatchPattern(final char[] buffer, final HashMap<String, Integer> dlist, final int point,
-      final int turkishContextSize) {
-    Integer rank = dlist.size() * 2;
-    final char[] context = turkishGetContext(buffer, turkishContextSize, point);
-    int start = 0;
-    final int contextLength = context.length;
-    while (start <= turkishContextSize) {
-      int end = turkishContextSize + 1;
-      while (end <= contextLength) {
-        final String s = new String(context, start, end - start);
-        final Integer r = dlist.get(s);
-        if (r != null && Math.abs(r) < Math.abs(rank)) {
-          rank = r;
-        }
-        end++;
-      }
-      start++;
-    }
-    return rank > 0;
+  // returns mapping of c in table, or 0 if there is none.
+  private static char lookup(char[] table, char c) {
+    return c < TABLE_SIZE ? table[c] : 0;
   }
 
-  private static char[] turkishGetContext(final char[] buffer, final int size, final int point) {
-    char[] s = new char[1 + (2 * size)];
+  private static char turkishToggleAccent(final char c) {
+    final char t = lookup(toggleAccentTable, c);
+    return t != 0 ? t : c;
+  }
+
+  /**
+   * Writes the context of the point to `s` and returns the context length. Context has `size`
+   * characters from left, `X` for the point and at most `size` characters from right. Left
+   * context reflects the changes made so far.
+   */
+  private static int turkishGetContext(final char[] buffer, final int size, final int point,
+      final char[] s) {
     Arrays.fill(s, ' ');
     s[size] = 'X';
 
@@ -156,9 +172,8 @@ public final class Deasciifier {
     int index = point + 1;
 
     while (i < s.length && !space && index < buffer.length) {
-      char currentChar = buffer[index];
-      if (turkishDowncaseAsciifyTable.containsKey(currentChar)) {
-        final char x = turkishDowncaseAsciifyTable.get(currentChar);
+      final char x = lookup(downcaseAsciifyTable, buffer[index]);
+      if (x != 0) {
         s[i] = x;
       } else {
         space = true;
@@ -166,17 +181,15 @@ public final class Deasciifier {
       i++;
       index++;
     }
-
-    s = Arrays.copyOf(s, i);
+    final int length = i;
 
     index = point - 1;
     i = size - 1;
     space = false;
 
     while (i >= 0 && index >= 0) {
-      final char currentChar = buffer[index];
-      if (turkishUpcaseAccentsTable.containsKey(currentChar)) {
-        final char x = turkishUpcaseAccentsTable.get(currentChar);
+      final char x = lookup(upcaseAccentsTable, buffer[index]);
+      if (x != 0) {
         s[i] = x;
         i--;
         space = false;
@@ -188,19 +201,21 @@ public final class Deasciifier {
       }
       index--;
     }
-    return s;
+    return length;
   }
 
   private static boolean turkishNeedCorrection(final char[] buffer, final char c, final int point,
-      final int turkishContextSize) {
-
-    final char tr = turkishAsciifyTable.containsKey(c) ? turkishAsciifyTable.get(c) : c;
+      final int turkishContextSize, final char[] context) {
 
-    final HashMap<String, Integer> pl = turkishPatternTable.get(Character.toLowerCase(tr));
+    final char a = lookup(asciifyTable, c);
+    final char tr = a != 0 ? a : c;
 
+    final char key = Character.toLowerCase(tr);
+    final PatternTrie[] tries = patternTries;
     boolean m = false;
-    if (pl != null) {
-      m = turkishMatchPattern(buffer, pl, point, turkishContextSize);
+    if (key < tries.length && tries[key] != null) {
+      final int length = turkishGetContext(buffer, turkishContextSize, point, context);
+      m = tries[key].match(context, length, turkishContextSize);
     }
 
     if (tr == 'I') {
@@ -226,7 +241,30 @@ public final class Deasciifier {
    * @return Deasciified text.
    */
   public static String deasciify(final String asciiString) {
-    return deasciify(asciiString, 10);
+    return deasciify(asciiString, DEFAULT_CONTEXT_SIZE);
+  }
+
+  /**
+   * Convert a character sequence with ASCII-only letters into one with Turkish letters and append
+   * the result to `output`.
+   */
+  public static void deasciify(final CharSequence input, final StringBuilder output) {
+    final char[] buffer = new char[input.length()];
+    for (int i = 0; i < buffer.length; i++) {
+      buffer[i] = input.charAt(i);
+    }
+    deasciify(buffer, buffer.length, DEFAULT_CONTEXT_SIZE);
+    output.append(buffer);
+  }
+
+  /**
+   * Deasciifies texts in parallel. Each text is processed independently, results are in the same
+   * order with the input.
+   */
+  public static List<String> deasciifyAll(final List<String> texts) {
+    return texts.parallelStream()
+        .map(Deasciifier::deasciify)
+        .collect(Collectors.toList());
   }
 
   /**
@@ -237,9 +275,10 @@ public final class Deasciifier {
    */
   public static boolean deasciify(final char[] buffer, final int length, final int turkishContextSize) {
     boolean altered = false;
+    final char[] context = new char[1 + (2 * turkishContextSize)];
     for (int i = 0; i < length; i++) {
       final char c = buffer[i];
-      if (turkishNeedCorrection(buffer, c, i, turkishContextSize)) {
+      if (turkishNeedCorrection(buffer, c, i, turkishContextSize, context)) {
         buffer[i] = turkishToggleAccent(c);
         altered = true;
       } else {
@@ -256,7 +295,19 @@ public final class Deasciifier {
    * @return true if any modification has been made.
    */
   public static boolean deasciify(final char[] buffer, final int length) {
-    return deasciify(buffer, length, 10);
+    return deasciify(buffer, length, DEFAULT_CONTEXT_SIZE);
+  }
+
+  private static PatternTrie[] compile(HashMap<Character, HashMap<String, Integer>> table) {
+    PatternTrie[] tries = new PatternTrie[128];
+    for (Character c : table.keySet()) {
+      if (c >= tries.length) {
+        throw new IllegalArgumentException("Pattern table key should be an ascii character but "
+            + "it is " + c);
+      }
+      tries[c] = new PatternTrie(table.get(c));
+    }
+    return tries;
   }
 
   private static HashMap<Character, HashMap<String, Integer>> getPatternTableFromResource() {
@@ -278,6 +329,7 @@ public final class Deasciifier {
     try {
       f = new FileInputStream(filename);
       turkishPatternTable = getPatternTable(f);
+      patternTries = compile(turkishPatternTable);
     }
     finally {
       if (f != null) {
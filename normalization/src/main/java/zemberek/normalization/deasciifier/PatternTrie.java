@@ -0,0 +1,152 @@
+package zemberek.normalization.deasciifier;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiled form of the deasciifier patterns of a single character. A pattern such as `abXcd`
+ * matches a context if `ab` is a suffix of the left context and `cd` is a prefix of the right
+ * context. Patterns are stored in a trie as the reversed left part, `X`, and the right part. So a
+ * single walk from `X` to the left, with a walk to the right at each node that has an `X` child,
+ * visits all matching patterns without creating any substrings.
+ * <p>
+ * Nodes are kept in primitive arrays. Instances are immutable and thread safe.
+ */
+final class PatternTrie {
+
+  private static final int NO_RANK = Integer.MIN_VALUE;
+
+  // children of node i are between childOffsets[i] and childOffsets[i+1], sorted by character.
+  private final int[] childOffsets;
+  private final char[] childChars;
+  private final int[] childNodes;
+  // rank of the pattern that ends at the node or NO_RANK.
+  private final int[] ranks;
+  private final int patternCount;
+
+  PatternTrie(Map<String, Integer> patterns) {
+    this.patternCount = patterns.size();
+    List<BuildNode> nodes = new ArrayList<>();
+    BuildNode root = new BuildNode();
+    for (Map.Entry<String, Integer> entry : patterns.entrySet()) {
+      String pattern = entry.getKey();
+      int x = pattern.indexOf('X');
+      if (x < 0) {
+        throw new IllegalArgumentException("Pattern " + pattern + " does not contain `X`");
+      }
+      BuildNode node = root;
+      for (int i = x - 1; i >= 0; i--) {
+        node = node.child(pattern.charAt(i));
+      }
+      node = node.child('X');
+      for (int i = x + 1; i < pattern.length(); i++) {
+        node = node.child(pattern.charAt(i));
+      }
+      node.rank = entry.getValue();
+    }
+
+    // assign ids in breadth first order, root is 0.
+    Deque<BuildNode> queue = new ArrayDeque<>();
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      BuildNode node = queue.poll();
+      node.id = nodes.size();
+      nodes.add(node);
+      queue.addAll(node.children.values());
+    }
+
+    int n = nodes.size();
+    this.childOffsets = new int[n + 1];
+    this.ranks = new int[n];
+    int childCount = 0;
+    for (int i = 0; i < n; i++) {
+      childOffsets[i] = childCount;
+      childCount += nodes.get(i).children.size();
+    }
+    childOffsets[n] = childCount;
+    this.childChars = new char[childCount];
+    this.childNodes = new int[childCount];
+    for (int i = 0; i < n; i++) {
+      BuildNode node = nodes.get(i);
+      ranks[i] = node.rank;
+      int k = childOffsets[i];
+      for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+        childChars[k] = child.getKey();
+        childNodes[k] = child.getValue().id;
+        k++;
+      }
+    }
+  }
+
+  private static class BuildNode {
+
+    int id;
+    int rank = NO_RANK;
+    // ordered, so that child characters are sorted.
+    Map<Character, BuildNode> children = new TreeMap<>();
+
+    BuildNode child(char c) {
+      return children.computeIfAbsent(c, k -> new BuildNode());
+    }
+  }
+
+  private int child(int node, char c) {
+    int lo = childOffsets[node];
+    int hi = childOffsets[node + 1] - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      char m = childChars[mid];
+      if (m < c) {
+        lo = mid + 1;
+      } else if (m > c) {
+        hi = mid - 1;
+      } else {
+        return childNodes[mid];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the pattern with smallest absolute rank that matches the context. If there are several,
+   * the one with the longest left part, then the one with the shortest right part is used.
+   *
+   * @param context context characters. `X` is at index `size`.
+   * @param length context length.
+   * @param size maximum amount of characters on each side of `X`.
+   * @return true if such pattern has a positive rank or no pattern matches.
+   */
+  boolean match(char[] context, int length, int size) {
+    int best = patternCount * 2;
+    int bestLeft = -1;
+    int node = 0;
+    for (int left = 0; left <= size; left++) {
+      if (left > 0) {
+        node = child(node, context[size - left]);
+        if (node < 0) {
+          break;
+        }
+      }
+      int right = child(node, 'X');
+      for (int i = size + 1; right >= 0; i++) {
+        int rank = ranks[right];
+        if (rank != NO_RANK) {
+          int abs = Math.abs(rank);
+          if (abs < Math.abs(best) || (abs == Math.abs(best) && left > bestLeft)) {
+            best = rank;
+            bestLeft = left;
+          }
+        }
+        if (i >= length) {
+          break;
+        }
+        right = child(right, context[i]);
+      }
+    }
+    return best > 0;
+  }
+}
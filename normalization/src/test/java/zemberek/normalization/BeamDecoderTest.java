@@ -0,0 +1,143 @@
+package zemberek.normalization;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.lm.DummyLanguageModel;
+import zemberek.lm.LmVocabulary;
+
+public class BeamDecoderTest {
+
+  // Returns a deterministic pseudo random log probability for every n-gram.
+  private static class RandomLm extends DummyLanguageModel {
+
+    final int order;
+    final LmVocabulary vocabulary;
+
+    RandomLm(int order, int vocabularySize) {
+      this.order = order;
+      String[] words = new String[vocabularySize];
+      for (int i = 0; i < vocabularySize; i++) {
+        words[i] = "w" + i;
+      }
+      this.vocabulary = new LmVocabulary(words);
+    }
+
+    @Override
+    public float getProbability(int... ids) {
+      return -new Random(Arrays.hashCode(ids)).nextFloat() * 5;
+    }
+
+    @Override
+    public float getTriGramProbability(int id0, int id1, int id2, int fingerPrint) {
+      return getProbability(id0, id1, id2);
+    }
+
+    @Override
+    public int getOrder() {
+      return order;
+    }
+
+    @Override
+    public LmVocabulary getVocabulary() {
+      return vocabulary;
+    }
+  }
+
+  private static float score(RandomLm lm, int[][] candidateIds, int[] selection) {
+    int[] seq = new int[selection.length + lm.order];
+    int h = lm.order - 1;
+    Arrays.fill(seq, 0, h, lm.vocabulary.getSentenceStartIndex());
+    for (int i = 0; i < selection.length; i++) {
+      seq[h + i] = candidateIds[i][selection[i]];
+    }
+    seq[seq.length - 1] = lm.vocabulary.getSentenceEndIndex();
+    float score = 0;
+    for (int i = h; i < seq.length; i++) {
+      score += lm.getProbability(Arrays.copyOfRange(seq, i - h, i + 1));
+    }
+    return score;
+  }
+
+  // finds best score by trying all selections.
+  private static float bestScore(RandomLm lm, int[][] candidateIds) {
+    int[] selection = new int[candidateIds.length];
+    float best = Float.NEGATIVE_INFINITY;
+    while (true) {
+      best = Math.max(best, score(lm, candidateIds, selection));
+      int i = 0;
+      while (i < selection.length && ++selection[i] == candidateIds[i].length) {
+        selection[i++] = 0;
+      }
+      if (i == selection.length) {
+        return best;
+      }
+    }
+  }
+
+  @Test
+  public void exactSearchTest() {
+    Random random = new Random(1);
+    for (int order = 2; order <= 4; order++) {
+      RandomLm lm = new RandomLm(order, 20);
+      BeamDecoder decoder = new BeamDecoder(lm, 10_000, Float.POSITIVE_INFINITY);
+      for (int k = 0; k < 20; k++) {
+        int[][] candidateIds = new int[1 + random.nextInt(5)][];
+        for (int i = 0; i < candidateIds.length; i++) {
+          candidateIds[i] = new int[1 + random.nextInt(4)];
+          for (int j = 0; j < candidateIds[i].length; j++) {
+            candidateIds[i][j] = 3 + random.nextInt(20);
+          }
+        }
+        int[] result = decoder.decode(candidateIds);
+        Assert.assertEquals(candidateIds.length, result.length);
+        Assert.assertEquals(bestScore(lm, candidateIds), score(lm, candidateIds, result), 1e-4);
+      }
+    }
+  }
+
+  @Test
+  public void candidatesThatDoNotFitToKeyTest() {
+    // with order 17, only 16 candidate indexes fit to a merge key.
+    Random random = new Random(3);
+    RandomLm lm = new RandomLm(17, 40);
+    BeamDecoder decoder = new BeamDecoder(lm, 10_000, Float.POSITIVE_INFINITY);
+    for (int k = 0; k < 5; k++) {
+      int[][] candidateIds = new int[3][];
+      for (int i = 0; i < candidateIds.length; i++) {
+        candidateIds[i] = new int[17 + random.nextInt(4)];
+        for (int j = 0; j < candidateIds[i].length; j++) {
+          candidateIds[i][j] = 3 + random.nextInt(40);
+        }
+      }
+      int[] result = decoder.decode(candidateIds);
+      Assert.assertEquals(bestScore(lm, candidateIds), score(lm, candidateIds, result), 1e-4);
+    }
+  }
+
+  @Test
+  public void beamTest() {
+    RandomLm lm = new RandomLm(3, 50);
+    int[][] candidateIds = new int[30][];
+    Random random = new Random(2);
+    for (int i = 0; i < candidateIds.length; i++) {
+      candidateIds[i] = new int[10];
+      for (int j = 0; j < 10; j++) {
+        candidateIds[i][j] = 3 + random.nextInt(50);
+      }
+    }
+    float full = score(lm, candidateIds,
+        new BeamDecoder(lm, 10_000, Float.POSITIVE_INFINITY).decode(candidateIds));
+    for (int width : new int[]{1, 5, 50}) {
+      int[] result = new BeamDecoder(lm, width, 2f).decode(candidateIds);
+      Assert.assertEquals(candidateIds.length, result.length);
+      Assert.assertTrue(score(lm, candidateIds, result) <= full + 1e-4);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidBeamTest() {
+    new BeamDecoder(new RandomLm(2, 5), 0, 1);
+  }
+}
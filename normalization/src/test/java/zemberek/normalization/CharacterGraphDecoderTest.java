@@ -1,6 +1,7 @@
 package zemberek.normalization;
 
 import com.google.common.collect.Lists;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -297,4 +298,121 @@ public class CharacterGraphDecoderTest {
     List<ScoredItem<String>> res = spellChecker.getSuggestionsWithScores("türkiyede");
     assertContainsAll(res, "türkiyede");
   }
+
+  @Test
+  public void frozenDecoderTest() {
+    TurkishMorphology morphology = TurkishMorphology.builder()
+        .setLexicon("o", "ol", "ola", "bakmak", "gelmek", "üzmek", "yüz", "güz", "Türkiye")
+        .build();
+    List<String> endings = Lists.newArrayList("arak", "acak", "ecek", "düm", "ında", "de");
+    StemEndingGraph graph = new StemEndingGraph(morphology, endings);
+    CharacterGraphDecoder decoder = new CharacterGraphDecoder(graph.stemGraph);
+    CharacterGraphDecoder frozen = new CharacterGraphDecoder(graph.stemGraph).freeze();
+    Assert.assertTrue(frozen.isFrozen());
+    CharacterGraphDecoder.CharMatcher matcher = CharacterGraphDecoder.DIACRITICS_IGNORING_MATCHER;
+    String[] inputs = {"olarak", "bakcaak", "yüzdüm", "türkiyede", "gelcek", "o", "xyz", ""};
+    for (String input : inputs) {
+      assertSameResults(decoder.decode(input), frozen.decode(input));
+      assertSameResults(
+          asMap(decoder.getSuggestionsWithScores(input, matcher)),
+          asMap(frozen.getSuggestionsWithScores(input, matcher)));
+    }
+  }
+
+  @Test
+  public void frozenNearKeyDecoderTest() {
+    List<String> words = Lists.newArrayList(
+        "elma", "armut", "erik", "kiraz", "kayısı", "karpuz", "kavun", "ayva", "nar", "incir");
+    CharacterGraphDecoder decoder =
+        new CharacterGraphDecoder(2, CharacterGraphDecoder.TURKISH_Q_NEAR_KEY_MAP);
+    decoder.addWords(words);
+    CharacterGraphDecoder frozen =
+        new CharacterGraphDecoder(2, CharacterGraphDecoder.TURKISH_Q_NEAR_KEY_MAP);
+    frozen.addWords(words);
+    frozen.freeze();
+    Random r = new Random(1);
+    String alphabet = "abceikmnoprstuvyzı";
+    for (int i = 0; i < 200; i++) {
+      StringBuilder sb = new StringBuilder(words.get(r.nextInt(words.size())));
+      int edits = r.nextInt(3);
+      for (int j = 0; j < edits; j++) {
+        int k = r.nextInt(sb.length());
+        sb.setCharAt(k, alphabet.charAt(r.nextInt(alphabet.length())));
+      }
+      String input = sb.toString();
+      assertSameResults(decoder.decode(input), frozen.decode(input));
+    }
+  }
+
+  @Test
+  public void serializedStemEndingGraphTest() throws IOException {
+    TurkishMorphology morphology = TurkishMorphology.builder()
+        .setLexicon("bakmak", "gelmek", "yüz", "Türkiye").build();
+    Path path = Files.createTempFile("stem-ending", ".bin");
+    path.toFile().deleteOnExit();
+    StemEndingGraph.serialize(morphology, path);
+    CharacterGraphDecoder loaded =
+        new CharacterGraphDecoder(StemEndingGraph.loadCompactGraph(morphology, path), 1);
+    CharacterGraphDecoder built =
+        new CharacterGraphDecoder(new StemEndingGraph(morphology).stemGraph);
+    // graph of the loaded decoder is generated from the compact graph.
+    CharacterGraphDecoder regenerated = new CharacterGraphDecoder(loaded.copyGraph());
+    Assert.assertEquals(
+        built.getGraph().getAllNodes().size(), loaded.copyGraph().getAllNodes().size());
+    for (String input : new String[]{"bakacak", "gelcek", "yüzdüm", "türkiyede"}) {
+      assertSameResults(built.decode(input), loaded.decode(input));
+      assertSameResults(built.decode(input), regenerated.decode(input));
+    }
+
+    TurkishMorphology other = TurkishMorphology.builder().setLexicon("bakmak").build();
+    try {
+      StemEndingGraph.loadCompactGraph(other, path);
+      Assert.fail("Graph of a different lexicon should not be loaded.");
+    } catch (IllegalArgumentException e) {
+      // expected.
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void frozenDecoderAddWordTest() {
+    CharacterGraphDecoder decoder = new CharacterGraphDecoder(1);
+    decoder.addWord("elma");
+    decoder.freeze().addWord("armut");
+  }
+
+  @Test
+  public void frozenDecoderGraphTest() {
+    CharacterGraphDecoder decoder = new CharacterGraphDecoder(1);
+    decoder.addWords("elma", "armut");
+    decoder.freeze();
+    try {
+      decoder.getGraph();
+      Assert.fail("Graph of a frozen decoder should not be returned.");
+    } catch (IllegalStateException e) {
+      // expected.
+    }
+    // copy can be changed without affecting the decoder.
+    CharacterGraph copy = decoder.copyGraph();
+    copy.addWord("kiraz", Node.TYPE_WORD);
+    Assert.assertTrue(copy.wordExists("kiraz", Node.TYPE_WORD));
+    Assert.assertEquals(0, decoder.getSuggestions("kiraz").size());
+    Assert.assertEquals(1, decoder.getSuggestions("elma").size());
+  }
+
+  private static FloatValueMap<String> asMap(List<ScoredItem<String>> items) {
+    FloatValueMap<String> map = new FloatValueMap<>();
+    for (ScoredItem<String> item : items) {
+      map.set(item.item, item.score);
+    }
+    return map;
+  }
+
+  private static void assertSameResults(FloatValueMap<String> expected,
+      FloatValueMap<String> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (String key : expected) {
+      Assert.assertTrue(actual.contains(key));
+      Assert.assertEquals(expected.get(key), actual.get(key), 0.0001);
+    }
+  }
 }
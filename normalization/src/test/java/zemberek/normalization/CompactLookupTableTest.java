@@ -0,0 +1,85 @@
+package zemberek.normalization;
+
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.core.io.IOUtil;
+
+public class CompactLookupTableTest {
+
+  private static Map<String, List<String>> testMap() {
+    Map<String, List<String>> map = new HashMap<>();
+    map.put("cok", Lists.newArrayList("çok", "çok", "cok"));
+    map.put("bi", Lists.newArrayList("bir"));
+    map.put("gelcem", Lists.newArrayList("geleceğim", "gelicem"));
+    map.put("", Lists.newArrayList("x"));
+    for (int i = 0; i < 1000; i++) {
+      map.put("key" + i, Lists.newArrayList("value" + i));
+    }
+    return map;
+  }
+
+  private static void check(Map<String, List<String>> expected, CompactLookupTable table) {
+    Assert.assertEquals(expected.size(), table.size());
+    Assert.assertEquals(Lists.newArrayList("çok", "cok"), table.get("cok"));
+    Assert.assertEquals(Lists.newArrayList("geleceğim", "gelicem"), table.get("gelcem"));
+    Assert.assertEquals(Lists.newArrayList("x"), table.get(""));
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals("value" + i, table.get("key" + i).get(0));
+    }
+    Assert.assertTrue(table.get("çok").isEmpty());
+    Assert.assertTrue(table.get("key1000").isEmpty());
+    Assert.assertFalse(table.containsKey("gel"));
+    Assert.assertTrue(table.containsKey("bi"));
+  }
+
+  @Test
+  public void lookupTest() {
+    Map<String, List<String>> map = testMap();
+    check(map, CompactLookupTable.fromMap(map));
+  }
+
+  @Test
+  public void saveLoadTest() throws IOException {
+    Map<String, List<String>> map = testMap();
+    Path tmp = Files.createTempFile("lookup", ".bin");
+    tmp.toFile().deleteOnExit();
+    CompactLookupTable.fromMap(map, 42L).save(tmp);
+    CompactLookupTable loaded = CompactLookupTable.load(tmp);
+    check(map, loaded);
+    Assert.assertEquals(42L, loaded.getSourceKey());
+  }
+
+  @Test
+  public void sourceKeyChangesWithLookupFiles() throws IOException {
+    Path dataRoot = Files.createTempDirectory("normalization");
+    try {
+      Path graph = dataRoot.resolve("lookup-from-graph");
+      Files.write(graph, Lists.newArrayList("cok=çok", "bi=bir"));
+      Files.write(dataRoot.resolve("ascii-map"), Lists.newArrayList("gelcem=gelicem"));
+      CompactLookupTable table = TurkishSentenceNormalizer.compileLookup(dataRoot);
+      Assert.assertEquals(Lists.newArrayList("çok"), table.get("cok"));
+      Assert.assertEquals(
+          TurkishSentenceNormalizer.lookupSourceKey(dataRoot), table.getSourceKey());
+
+      Files.write(graph, Lists.newArrayList("cok=çok", "bi=bir", "nbr=ne haber"));
+      Assert.assertNotEquals(
+          TurkishSentenceNormalizer.lookupSourceKey(dataRoot), table.getSourceKey());
+    } finally {
+      IOUtil.deleteTempDir(dataRoot);
+    }
+  }
+
+  @Test
+  public void emptyTableTest() {
+    CompactLookupTable table = CompactLookupTable.fromMap(new HashMap<>());
+    Assert.assertEquals(0, table.size());
+    Assert.assertTrue(table.get("a").isEmpty());
+  }
+}
@@ -0,0 +1,89 @@
+package zemberek.normalization;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.core.collections.FloatValueMap;
+import zemberek.morphology.TurkishMorphology;
+
+public class LevenshteinSuggesterTest {
+
+  private static CharacterGraph graph(String... words) {
+    CharacterGraph graph = new CharacterGraph();
+    for (String word : words) {
+      graph.addWord(word, Node.TYPE_WORD);
+    }
+    return graph;
+  }
+
+  @Test
+  public void simpleDecodeTest() {
+    LevenshteinSuggester suggester = new LevenshteinSuggester(graph("elma", "elmas", "armut"), 1);
+    FloatValueMap<String> res = suggester.decode("elma");
+    Assert.assertEquals(2, res.size());
+    Assert.assertEquals(0, res.get("elma"), 0.0001);
+    Assert.assertEquals(1, res.get("elmas"), 0.0001);
+
+    res = suggester.decode("armtu");
+    Assert.assertEquals(1, res.size());
+    Assert.assertEquals(1, res.get("armut"), 0.0001);
+
+    Assert.assertEquals(0, suggester.decode("xyz").size());
+  }
+
+  @Test
+  public void distanceTwoTest() {
+    LevenshteinSuggester suggester = new LevenshteinSuggester(graph("kitap", "kitaplar"), 2);
+    List<String> res = suggester.getSuggestions("ktp");
+    Assert.assertEquals(1, res.size());
+    Assert.assertEquals("kitap", res.get(0));
+  }
+
+  @Test
+  public void nearKeyAndDiacriticsTest() {
+    LevenshteinSuggester suggester = new LevenshteinSuggester(
+        graph("şeker", "kedi"), 1, CharacterGraphDecoder.TURKISH_FQ_NEAR_KEY_MAP);
+    FloatValueMap<String> res = suggester.decode("seker");
+    Assert.assertEquals(0.5, res.get("şeker"), 0.0001);
+    // in F keyboard, `e` is a near key of `i`
+    res = suggester.decode("kede");
+    Assert.assertEquals(0.5, res.get("kedi"), 0.0001);
+    // diacritics ignoring matcher makes it free.
+    res = suggester.decode("seker", CharacterGraphDecoder.DIACRITICS_IGNORING_MATCHER);
+    Assert.assertEquals(0, res.get("şeker"), 0.0001);
+  }
+
+  @Test
+  public void minimizationTest() {
+    CharacterGraph g = graph("kalemler", "kitaplar", "evler", "masalar");
+    LevenshteinSuggester suggester = new LevenshteinSuggester(g, 1);
+    Assert.assertTrue(suggester.nodeCount() < g.getAllNodes().size());
+    for (String s : new String[]{"kalemler", "kitaplar", "evler", "masalar"}) {
+      Assert.assertEquals(0, suggester.decode(s).get(s), 0.0001);
+    }
+    Assert.assertFalse(suggester.decode("kitapler").contains("kitapler"));
+  }
+
+  @Test
+  public void stemEndingGraphTest() {
+    TurkishMorphology morphology = TurkishMorphology.builder()
+        .setLexicon("o", "ol", "ola", "bakmak", "gelmek", "üzmek", "yüz", "güz", "Türkiye")
+        .build();
+    List<String> endings = Lists.newArrayList("arak", "acak", "ecek", "düm", "ında", "de");
+    StemEndingGraph graph = new StemEndingGraph(morphology, endings);
+    CharacterGraphDecoder decoder = new CharacterGraphDecoder(graph.stemGraph);
+    LevenshteinSuggester suggester = new LevenshteinSuggester(graph.stemGraph, 1);
+    String[] inputs = {"olarak", "bakcaak", "yüzdüm", "türkiyede", "gelcek", "o", "xyz"};
+    // Every decoder result should be found with a penalty that is not larger.
+    for (String input : inputs) {
+      FloatValueMap<String> expected = decoder.decode(input);
+      FloatValueMap<String> actual = suggester.decode(input);
+      for (String s : expected) {
+        Assert.assertTrue(input + " " + s, actual.contains(s));
+        Assert.assertTrue(actual.get(s) <= expected.get(s));
+      }
+    }
+    Assert.assertEquals("bakacak", suggester.getSuggestions("bakcaak").get(0));
+  }
+}
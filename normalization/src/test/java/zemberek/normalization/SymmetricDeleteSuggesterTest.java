@@ -0,0 +1,85 @@
+package zemberek.normalization;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import zemberek.core.collections.FloatValueMap;
+import zemberek.core.collections.IntIntMap;
+import zemberek.morphology.TurkishMorphology;
+
+public class SymmetricDeleteSuggesterTest {
+
+  @Test
+  public void indexLookupTest() {
+    SymmetricDeleteIndex index = new SymmetricDeleteIndex(
+        Lists.newArrayList("elma", "elmas", "armut", "kitaplık", "kitap"), 2);
+    Assert.assertEquals(5, index.termCount());
+    IntIntMap res = index.lookup("elma", 1, null);
+    Assert.assertEquals(2, res.size());
+    res = index.lookup("ramut", 1, null);
+    Assert.assertEquals(1, res.size());
+    Assert.assertEquals("armut", index.term(res.getKeys()[0]));
+    // longer than prefix length.
+    res = index.lookup("kitaplik", 1, null);
+    Assert.assertEquals(1, res.size());
+    Assert.assertEquals("kitaplık", index.term(res.getKeys()[0]));
+    res = index.lookup("kıtap", 0, CharacterGraphDecoder.DIACRITICS_IGNORING_MATCHER);
+    Assert.assertEquals(1, res.size());
+    Assert.assertEquals("kitap", index.term(res.getKeys()[0]));
+    Assert.assertEquals(0, index.lookup("xyz", 2, null).size());
+  }
+
+  @Test
+  public void stemEndingTest() {
+    SymmetricDeleteSuggester suggester = new SymmetricDeleteSuggester(
+        Lists.newArrayList("bak", "gel", "yüz", "üz", "güz"),
+        Lists.newArrayList("acak", "ecek", "düm"),
+        1);
+    List<String> res = suggester.getSuggestions("bakcak");
+    Assert.assertEquals(1, res.size());
+    Assert.assertEquals("bakacak", res.get(0));
+    FloatValueMap<String> scores = suggester.decode("yüzdüm", null);
+    Assert.assertEquals(0, scores.get("yüzdüm"), 0.0001);
+    Assert.assertEquals(1, scores.get("üzdüm"), 0.0001);
+    Assert.assertEquals(1, scores.get("güzdüm"), 0.0001);
+    // stem without an ending.
+    Assert.assertTrue(suggester.getSuggestions("gell").contains("gel"));
+  }
+
+  @Test
+  public void stemsLongerThanPrefixTest() {
+    SymmetricDeleteSuggester suggester = new SymmetricDeleteSuggester(
+        Lists.newArrayList("bilgisayar", "bilgisayarcı", "bilgi"),
+        Lists.newArrayList("lar", "dan"),
+        1);
+    FloatValueMap<String> scores = suggester.decode("bilgisayrlar", null);
+    Assert.assertEquals(1, scores.get("bilgisayarlar"), 0.0001);
+    scores = suggester.decode("bilgisayarcıdan", null);
+    Assert.assertEquals(0, scores.get("bilgisayarcıdan"), 0.0001);
+    Assert.assertFalse(scores.contains("bilgisayardan"));
+    Assert.assertTrue(suggester.getSuggestions("bilgisayarc").contains("bilgisayarcı"));
+  }
+
+  @Test
+  public void graphDecoderComparisonTest() {
+    TurkishMorphology morphology = TurkishMorphology.builder()
+        .setLexicon("o", "ol", "ola", "bakmak", "gelmek", "üzmek", "yüz", "güz", "Türkiye")
+        .build();
+    List<String> endings = Lists.newArrayList("arak", "acak", "ecek", "düm", "ında", "de");
+    StemEndingGraph graph = new StemEndingGraph(morphology, endings);
+    CharacterGraphDecoder decoder = new CharacterGraphDecoder(graph.stemGraph);
+    List<String> stems = Lists.newArrayList();
+    morphology.getMorphotactics().getStemTransitions().getTransitions().forEach(
+        t -> stems.add(t.surface));
+    SymmetricDeleteSuggester suggester = new SymmetricDeleteSuggester(stems, endings, 1);
+    String[] inputs = {"olarak", "bakcak", "yüzdüm", "türkiyde", "gelcek", "xyz"};
+    for (String input : inputs) {
+      FloatValueMap<String> expected = decoder.decode(input);
+      FloatValueMap<String> actual = suggester.decode(input, null);
+      for (String s : expected) {
+        Assert.assertTrue(input + " " + s, actual.contains(s));
+      }
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package zemberek.normalization;
+
+import com.google.common.collect.Lists;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import zemberek.core.io.IOUtil;
+import zemberek.lm.compression.MultiFileUncompressedLm;
+import zemberek.lm.compression.SmoothLm;
+import zemberek.lm.compression.UncompressedToSmoothLmConverter;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.tokenization.TurkishTokenizer;
+
+public class TurkishSentenceNormalizerTest {
+
+  private static final String[] CLEAN = {
+      "bugün okula gitmeyeceğim çünkü çok hastayım",
+      "yarın akşam size geleceğim ama biraz geç olacak",
+      "bir şey söylemek istiyorum tamam mı",
+      "bu kitabı çok beğendim herkese tavsiye ederim"
+  };
+
+  private static final String[] NOISY = {
+      "bugun okula gitmicem cunku cok hastayim",
+      "yarin aksam size gelcem ama biraz gec olcak",
+      "bi sey soylemek istiyorum tmm mi",
+      "bu kitabi cok begendim herkese tavsiye ederim"
+  };
+
+  private static Path tempDir;
+  private static TurkishSentenceNormalizer normalizer;
+
+  @BeforeClass
+  public static void createNormalizer() throws IOException {
+    tempDir = Files.createTempDirectory("normalizer");
+    Path dataRoot = tempDir.resolve("data");
+    Files.createDirectory(dataRoot);
+    Files.write(dataRoot.resolve("lookup-from-graph"),
+        Lists.newArrayList("gitmicem=gitmeyeceğim", "gelcem=geleceğim", "olcak=olacak"));
+    Files.write(dataRoot.resolve("ascii-map"),
+        Lists.newArrayList("cok=çok", "bugun=bugün", "cunku=çünkü", "tmm=tamam"));
+    Files.write(dataRoot.resolve("split"), Lists.newArrayList("birsey=bir şey"));
+    normalizer = new TurkishSentenceNormalizer(
+        TurkishMorphology.createWithDefaults(), dataRoot, createLm(tempDir));
+  }
+
+  @AfterClass
+  public static void deleteTempDir() throws IOException {
+    IOUtil.deleteTempDir(tempDir);
+  }
+
+  // Generates a bigram model of the clean sentences.
+  private static SmoothLm createLm(Path dir) throws IOException {
+    Set<String> unigrams = new LinkedHashSet<>(Arrays.asList("<s>", "</s>"));
+    Set<String> bigrams = new LinkedHashSet<>();
+    for (String sentence : CLEAN) {
+      List<String> words = new ArrayList<>();
+      words.add("<s>");
+      words.addAll(Arrays.asList(sentence.split(" ")));
+      words.add("</s>");
+      unigrams.addAll(words);
+      for (int i = 0; i < words.size() - 1; i++) {
+        bigrams.add(words.get(i) + " " + words.get(i + 1));
+      }
+    }
+    List<String> arpa = new ArrayList<>();
+    arpa.add("\\data\\");
+    arpa.add("ngram 1=" + (unigrams.size() + 1));
+    arpa.add("ngram 2=" + bigrams.size());
+    arpa.add("");
+    arpa.add("\\1-grams:");
+    float unigramProb = (float) Math.log10(1d / (unigrams.size() + 1));
+    for (String unigram : unigrams) {
+      arpa.add(String.format(Locale.ENGLISH, "%.6f %s -0.300000", unigramProb, unigram));
+    }
+    arpa.add(String.format(Locale.ENGLISH, "%.6f <unk>", unigramProb - 2));
+    arpa.add("");
+    arpa.add("\\2-grams:");
+    for (String bigram : bigrams) {
+      arpa.add("-0.500000 " + bigram);
+    }
+    arpa.add("");
+    arpa.add("\\end\\");
+    File arpaFile = dir.resolve("lm.arpa").toFile();
+    Files.write(arpaFile.toPath(), arpa, StandardCharsets.UTF_8);
+
+    File lmDir = dir.resolve("lm").toFile();
+    lmDir.mkdirs();
+    File lmFile = new File(lmDir, "lm.slm");
+    new UncompressedToSmoothLmConverter(lmFile, lmDir).convertSmall(
+        MultiFileUncompressedLm.generate(arpaFile, lmDir, "utf-8", 4).getLmDir(),
+        new UncompressedToSmoothLmConverter.NgramDataBlock(16, 16, 16));
+    return SmoothLm.builder(lmFile).logBase(Math.E).build();
+  }
+
+  // Generates sentences with more tokens than parallel processing threshold.
+  private static List<String> longSentences() {
+    List<String> sentences = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      StringBuilder sb = new StringBuilder();
+      for (int j = 0; j < 8; j++) {
+        sb.append(NOISY[(i + j) % NOISY.length]).append(j % 2 == 0 ? " , " : " . ");
+      }
+      String sentence = sb.toString().trim();
+      Assert.assertTrue(TurkishTokenizer.DEFAULT.tokenize(sentence).size()
+          > TurkishSentenceNormalizer.PARALLEL_TOKEN_THRESHOLD);
+      sentences.add(sentence);
+    }
+    return sentences;
+  }
+
+  // Normalizes sentences one by one, without cache and parallel candidate generation.
+  private static List<String> normalizeSequentially(List<String> sentences) {
+    normalizer.setCandidateCacheSize(0);
+    normalizer.parallelCandidates = false;
+    try {
+      List<String> result = new ArrayList<>();
+      for (String sentence : sentences) {
+        result.add(normalizer.normalize(sentence));
+      }
+      return result;
+    } finally {
+      normalizer.parallelCandidates = true;
+      normalizer.setCandidateCacheSize(10_000);
+    }
+  }
+
+  @Test
+  public void normalizesNoisyWords() {
+    Assert.assertEquals(
+        normalizeSequentially(Arrays.asList(NOISY)), normalizer.normalizeAll(Arrays.asList(NOISY)));
+    String result = normalizer.normalize(NOISY[0]);
+    Assert.assertTrue(result, result.startsWith("bugün"));
+  }
+
+  @Test
+  public void cachedAndParallelResultsMatchSequential() {
+    List<String> sentences = longSentences();
+    List<String> expected = normalizeSequentially(sentences);
+    // second pass uses cached candidates.
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < sentences.size(); i++) {
+        Assert.assertEquals(expected.get(i), normalizer.normalize(sentences.get(i)));
+      }
+    }
+  }
+
+  @Test
+  public void normalizeAllKeepsOrder() {
+    List<String> sentences = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      sentences.addAll(longSentences());
+      sentences.addAll(Arrays.asList(NOISY));
+    }
+    List<String> expected = normalizeSequentially(sentences);
+    Assert.assertEquals(expected, normalizer.normalizeAll(sentences));
+  }
+}
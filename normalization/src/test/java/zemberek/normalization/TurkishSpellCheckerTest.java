@@ -9,8 +9,11 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
@@ -19,6 +22,8 @@ import org.junit.Test;
 import org.junit.runners.MethodSorters;
 import zemberek.core.logging.Log;
 import zemberek.core.text.TextIO;
+import zemberek.lm.DummyLanguageModel;
+import zemberek.lm.LmVocabulary;
 import zemberek.lm.NgramLanguageModel;
 import zemberek.lm.compression.SmoothLm;
 import zemberek.morphology.TurkishMorphology;
@@ -143,6 +148,87 @@ public class TurkishSpellCheckerTest {
     Assert.assertTrue(spellChecker.check("okudum"));
   }
 
+  @Test
+  public void checkTextTest() {
+    TurkishMorphology morphology = TurkishMorphology.builder()
+        .setLexicon("armut", "ve", "elma", "elmas").build();
+    StemEndingGraph graph = new StemEndingGraph(morphology, Lists.newArrayList("lar"));
+    TurkishSpellChecker spellChecker = new TurkishSpellChecker(morphology, graph.stemGraph);
+
+    String text = "armut ve elmaa. elmaa ve armut.";
+    // "ve elmas" and "elma ve" are more probable.
+    NgramLanguageModel lm = new BigramLm(
+        new LmVocabulary("armut", "ve", "elma", "elmas"), "ve elmas", "elma ve");
+    List<SpellingCorrection> corrections = spellChecker.checkText(text, lm);
+    Assert.assertEquals(2, corrections.size());
+    SpellingCorrection first = corrections.get(0);
+    Assert.assertEquals("elmaa", first.getWord());
+    Assert.assertEquals("elmaa", text.substring(first.getStart(), first.getEnd()));
+    Assert.assertEquals(9, first.getStart());
+    Assert.assertEquals("elmas", first.getBest());
+    SpellingCorrection second = corrections.get(1);
+    Assert.assertEquals(16, second.getStart());
+    Assert.assertEquals("elma", second.getBest());
+    // ranking should be same with single word method.
+    Assert.assertEquals(
+        spellChecker.suggestForWord("elmaa", "ve", null, lm), first.getSuggestions());
+    Assert.assertEquals(
+        spellChecker.suggestForWord("elmaa", null, "ve", lm), second.getSuggestions());
+
+    Assert.assertEquals(0, spellChecker.checkText("armut ve elma", lm).size());
+    Assert.assertEquals(0, spellChecker.checkText("", lm).size());
+  }
+
+  @Test
+  public void checkTextScoresRepeatedNgramsOnce() {
+    TurkishMorphology morphology = TurkishMorphology.builder()
+        .setLexicon("armut", "ve", "elma", "elmas").build();
+    StemEndingGraph graph = new StemEndingGraph(morphology, Lists.newArrayList("lar"));
+    TurkishSpellChecker spellChecker = new TurkishSpellChecker(morphology, graph.stemGraph);
+    BigramLm lm = new BigramLm(
+        new LmVocabulary("armut", "ve", "elma", "elmas"), "ve elmas", "elma ve");
+    // both misspelled words have the same context.
+    List<SpellingCorrection> corrections =
+        spellChecker.checkText("armut elmaa ve. armut elmaa ve.", lm);
+    Assert.assertEquals(2, corrections.size());
+    Assert.assertEquals(corrections.get(0).getSuggestions(), corrections.get(1).getSuggestions());
+    // two bigrams for each suggestion.
+    Assert.assertEquals(2 * corrections.get(0).getSuggestions().size(), lm.probabilityCalls);
+  }
+
+  private static class BigramLm extends DummyLanguageModel {
+
+    LmVocabulary vocabulary;
+    Set<String> bigrams;
+    int probabilityCalls;
+
+    BigramLm(LmVocabulary vocabulary, String... bigrams) {
+      this.vocabulary = vocabulary;
+      this.bigrams = new HashSet<>(Arrays.asList(bigrams));
+    }
+
+    @Override
+    public float getUnigramProbability(int id) {
+      return -2;
+    }
+
+    @Override
+    public float getProbability(int... ids) {
+      probabilityCalls++;
+      return bigrams.contains(vocabulary.getWordsString(ids)) ? -1 : -3;
+    }
+
+    @Override
+    public int getOrder() {
+      return 2;
+    }
+
+    @Override
+    public LmVocabulary getVocabulary() {
+      return vocabulary;
+    }
+  }
+
   private void check(TurkishSpellChecker spellChecker, NgramLanguageModel lm, String input,
       String expected) throws Exception {
     List<String> res = spellChecker.suggestForWord(input, lm);
@@ -164,9 +250,9 @@ public class TurkishSpellCheckerTest {
   }
 
   private void run(TurkishSpellChecker spellChecker, NgramLanguageModel lm) throws Exception {
-    Log.info("Node count = %d", spellChecker.decoder.getGraph().getAllNodes().size());
+    Log.info("Node count = %d", spellChecker.decoder.copyGraph().getAllNodes().size());
     Log.info("Node count with single connection= %d",
-        spellChecker.decoder.getGraph().getAllNodes(a -> a.getAllChildNodes().size() == 1).size());
+        spellChecker.decoder.copyGraph().getAllNodes(a -> a.getAllChildNodes().size() == 1).size());
 
     List<String> words = TextIO.loadLinesFromResource("10000_frequent_turkish_word");
     int c = 0;
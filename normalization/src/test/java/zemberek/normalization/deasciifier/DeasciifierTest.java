@@ -0,0 +1,50 @@
+package zemberek.normalization.deasciifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeasciifierTest {
+
+  @Test
+  public void deasciifyTest() {
+    for (int i = 0; i < TestDeasciifier.asciiStrings.length; i++) {
+      Assert.assertEquals(TestDeasciifier.turkishStrings[i],
+          Deasciifier.deasciify(TestDeasciifier.asciiStrings[i]));
+    }
+  }
+
+  @Test
+  public void builderTest() {
+    StringBuilder sb = new StringBuilder("> ");
+    Deasciifier.deasciify(new StringBuilder("Bogurtuler opucukler."), sb);
+    Assert.assertEquals("> Böğürtüler öpücükler.", sb.toString());
+    sb.setLength(0);
+    Deasciifier.deasciify("", sb);
+    Assert.assertEquals("", sb.toString());
+  }
+
+  @Test
+  public void deasciifyAllTest() {
+    List<String> input = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      input.addAll(Arrays.asList(TestDeasciifier.asciiStrings));
+    }
+    List<String> result = Deasciifier.deasciifyAll(input);
+    Assert.assertEquals(input.size(), result.size());
+    for (int i = 0; i < input.size(); i++) {
+      Assert.assertEquals(Deasciifier.deasciify(input.get(i)), result.get(i));
+    }
+  }
+
+  @Test
+  public void shortContextTest() {
+    // very short contexts must not go out of bounds.
+    for (int size = 0; size < 3; size++) {
+      Assert.assertEquals(17, Deasciifier.deasciify("cok guzel bir gun", size).length());
+    }
+    Assert.assertEquals("", Deasciifier.deasciify(""));
+  }
+}